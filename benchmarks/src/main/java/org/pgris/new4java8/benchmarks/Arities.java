@@ -0,0 +1,199 @@
+package org.pgris.new4java8.benchmarks;
+
+import org.pgris.new4java8.New;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Calls the exact arity factory for the size of the input, falling back to varargs, so
+ * the construction benchmarks measure every overload and not only the varargs one.
+ */
+final class Arities {
+
+	private Arities() {
+		// do not instantiate
+	}
+
+	static <E> List<E> newList(E[] e) {
+		switch (e.length) {
+		case 0:
+			return New.listOf();
+		case 1:
+			return New.listOf(e[0]);
+		case 2:
+			return New.listOf(e[0], e[1]);
+		case 3:
+			return New.listOf(e[0], e[1], e[2]);
+		case 4:
+			return New.listOf(e[0], e[1], e[2], e[3]);
+		case 5:
+			return New.listOf(e[0], e[1], e[2], e[3], e[4]);
+		case 6:
+			return New.listOf(e[0], e[1], e[2], e[3], e[4], e[5]);
+		case 7:
+			return New.listOf(e[0], e[1], e[2], e[3], e[4], e[5], e[6]);
+		case 8:
+			return New.listOf(e[0], e[1], e[2], e[3], e[4], e[5], e[6], e[7]);
+		case 9:
+			return New.listOf(e[0], e[1], e[2], e[3], e[4], e[5], e[6], e[7], e[8]);
+		case 10:
+			return New.listOf(e[0], e[1], e[2], e[3], e[4], e[5], e[6], e[7], e[8], e[9]);
+		default:
+			return New.listOf(e);
+		}
+	}
+
+	static <E> List<E> jdkList(E[] e) {
+		switch (e.length) {
+		case 0:
+			return List.of();
+		case 1:
+			return List.of(e[0]);
+		case 2:
+			return List.of(e[0], e[1]);
+		case 3:
+			return List.of(e[0], e[1], e[2]);
+		case 4:
+			return List.of(e[0], e[1], e[2], e[3]);
+		case 5:
+			return List.of(e[0], e[1], e[2], e[3], e[4]);
+		case 6:
+			return List.of(e[0], e[1], e[2], e[3], e[4], e[5]);
+		case 7:
+			return List.of(e[0], e[1], e[2], e[3], e[4], e[5], e[6]);
+		case 8:
+			return List.of(e[0], e[1], e[2], e[3], e[4], e[5], e[6], e[7]);
+		case 9:
+			return List.of(e[0], e[1], e[2], e[3], e[4], e[5], e[6], e[7], e[8]);
+		case 10:
+			return List.of(e[0], e[1], e[2], e[3], e[4], e[5], e[6], e[7], e[8], e[9]);
+		default:
+			return List.of(e);
+		}
+	}
+
+	static <E> Set<E> newSet(E[] e) {
+		switch (e.length) {
+		case 0:
+			return New.setOf();
+		case 1:
+			return New.setOf(e[0]);
+		case 2:
+			return New.setOf(e[0], e[1]);
+		case 3:
+			return New.setOf(e[0], e[1], e[2]);
+		case 4:
+			return New.setOf(e[0], e[1], e[2], e[3]);
+		case 5:
+			return New.setOf(e[0], e[1], e[2], e[3], e[4]);
+		case 6:
+			return New.setOf(e[0], e[1], e[2], e[3], e[4], e[5]);
+		case 7:
+			return New.setOf(e[0], e[1], e[2], e[3], e[4], e[5], e[6]);
+		case 8:
+			return New.setOf(e[0], e[1], e[2], e[3], e[4], e[5], e[6], e[7]);
+		case 9:
+			return New.setOf(e[0], e[1], e[2], e[3], e[4], e[5], e[6], e[7], e[8]);
+		case 10:
+			return New.setOf(e[0], e[1], e[2], e[3], e[4], e[5], e[6], e[7], e[8], e[9]);
+		default:
+			return New.setOf(e);
+		}
+	}
+
+	static <E> Set<E> jdkSet(E[] e) {
+		switch (e.length) {
+		case 0:
+			return Set.of();
+		case 1:
+			return Set.of(e[0]);
+		case 2:
+			return Set.of(e[0], e[1]);
+		case 3:
+			return Set.of(e[0], e[1], e[2]);
+		case 4:
+			return Set.of(e[0], e[1], e[2], e[3]);
+		case 5:
+			return Set.of(e[0], e[1], e[2], e[3], e[4]);
+		case 6:
+			return Set.of(e[0], e[1], e[2], e[3], e[4], e[5]);
+		case 7:
+			return Set.of(e[0], e[1], e[2], e[3], e[4], e[5], e[6]);
+		case 8:
+			return Set.of(e[0], e[1], e[2], e[3], e[4], e[5], e[6], e[7]);
+		case 9:
+			return Set.of(e[0], e[1], e[2], e[3], e[4], e[5], e[6], e[7], e[8]);
+		case 10:
+			return Set.of(e[0], e[1], e[2], e[3], e[4], e[5], e[6], e[7], e[8], e[9]);
+		default:
+			return Set.of(e);
+		}
+	}
+
+	static <K, V> Map<K, V> newMap(K[] k, V[] v, Map.Entry<K, V>[] entries) {
+		switch (k.length) {
+		case 0:
+			return New.mapOf();
+		case 1:
+			return New.mapOf(k[0], v[0]);
+		case 2:
+			return New.mapOf(k[0], v[0], k[1], v[1]);
+		case 3:
+			return New.mapOf(k[0], v[0], k[1], v[1], k[2], v[2]);
+		case 4:
+			return New.mapOf(k[0], v[0], k[1], v[1], k[2], v[2], k[3], v[3]);
+		case 5:
+			return New.mapOf(k[0], v[0], k[1], v[1], k[2], v[2], k[3], v[3], k[4], v[4]);
+		case 6:
+			return New.mapOf(k[0], v[0], k[1], v[1], k[2], v[2], k[3], v[3], k[4], v[4], k[5], v[5]);
+		case 7:
+			return New.mapOf(k[0], v[0], k[1], v[1], k[2], v[2], k[3], v[3], k[4], v[4], k[5], v[5], k[6], v[6]);
+		case 8:
+			return New.mapOf(k[0], v[0], k[1], v[1], k[2], v[2], k[3], v[3], k[4], v[4], k[5], v[5], k[6], v[6], k[7],
+					v[7]);
+		case 9:
+			return New.mapOf(k[0], v[0], k[1], v[1], k[2], v[2], k[3], v[3], k[4], v[4], k[5], v[5], k[6], v[6], k[7],
+					v[7], k[8], v[8]);
+		case 10:
+			return New.mapOf(k[0], v[0], k[1], v[1], k[2], v[2], k[3], v[3], k[4], v[4], k[5], v[5], k[6], v[6], k[7],
+					v[7], k[8], v[8], k[9], v[9]);
+		default:
+			return New.mapOfEntries(entries);
+		}
+	}
+
+	static <K, V> Map<K, V> jdkMap(K[] k, V[] v, Map.Entry<K, V>[] entries) {
+		switch (k.length) {
+		case 0:
+			return Map.of();
+		case 1:
+			return Map.of(k[0], v[0]);
+		case 2:
+			return Map.of(k[0], v[0], k[1], v[1]);
+		case 3:
+			return Map.of(k[0], v[0], k[1], v[1], k[2], v[2]);
+		case 4:
+			return Map.of(k[0], v[0], k[1], v[1], k[2], v[2], k[3], v[3]);
+		case 5:
+			return Map.of(k[0], v[0], k[1], v[1], k[2], v[2], k[3], v[3], k[4], v[4]);
+		case 6:
+			return Map.of(k[0], v[0], k[1], v[1], k[2], v[2], k[3], v[3], k[4], v[4], k[5], v[5]);
+		case 7:
+			return Map.of(k[0], v[0], k[1], v[1], k[2], v[2], k[3], v[3], k[4], v[4], k[5], v[5], k[6], v[6]);
+		case 8:
+			return Map.of(k[0], v[0], k[1], v[1], k[2], v[2], k[3], v[3], k[4], v[4], k[5], v[5], k[6], v[6], k[7],
+					v[7]);
+		case 9:
+			return Map.of(k[0], v[0], k[1], v[1], k[2], v[2], k[3], v[3], k[4], v[4], k[5], v[5], k[6], v[6], k[7],
+					v[7], k[8], v[8]);
+		case 10:
+			return Map.of(k[0], v[0], k[1], v[1], k[2], v[2], k[3], v[3], k[4], v[4], k[5], v[5], k[6], v[6], k[7],
+					v[7], k[8], v[8], k[9], v[9]);
+		default:
+			return Map.ofEntries(entries);
+		}
+	}
+
+}
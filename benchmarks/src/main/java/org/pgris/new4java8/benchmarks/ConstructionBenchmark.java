@@ -0,0 +1,105 @@
+package org.pgris.new4java8.benchmarks;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pgris.new4java8.New;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Construction latency of every factory, for every exact arity and for varargs.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConstructionBenchmark {
+
+	@Param({ "0", "1", "2", "3", "4", "5", "6", "7", "8", "9", "10", "100", "10000", "1000000" })
+	int size;
+
+	String[] keys;
+
+	String[] values;
+
+	Map.Entry<String, String>[] entries;
+
+	@Setup
+	public void setup() {
+		keys = Data.keys(size);
+		values = Data.values(size);
+		entries = Data.entries(keys, values);
+	}
+
+	@Benchmark
+	public List<String> listOfNew4java8() {
+		return Arities.newList(keys);
+	}
+
+	@Benchmark
+	public List<String> listOfJdk() {
+		return Arities.jdkList(keys);
+	}
+
+	@Benchmark
+	public List<String> listOfGuava() {
+		return ImmutableList.copyOf(keys);
+	}
+
+	@Benchmark
+	public Set<String> setOfNew4java8() {
+		return Arities.newSet(keys);
+	}
+
+	@Benchmark
+	public Set<String> setOfJdk() {
+		return Arities.jdkSet(keys);
+	}
+
+	@Benchmark
+	public Set<String> setOfGuava() {
+		return ImmutableSet.copyOf(keys);
+	}
+
+	@Benchmark
+	public Map<String, String> mapOfNew4java8() {
+		return Arities.newMap(keys, values, entries);
+	}
+
+	@Benchmark
+	public Map<String, String> mapOfJdk() {
+		return Arities.jdkMap(keys, values, entries);
+	}
+
+	@Benchmark
+	public Map<String, String> mapOfEntriesNew4java8() {
+		return New.mapOfEntries(entries);
+	}
+
+	@Benchmark
+	public Map<String, String> mapOfEntriesJdk() {
+		return Map.ofEntries(entries);
+	}
+
+	@Benchmark
+	public Map<String, String> mapOfEntriesGuava() {
+		return Data.guavaMap(entries);
+	}
+
+}
@@ -0,0 +1,101 @@
+package org.pgris.new4java8.benchmarks;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+import java.util.AbstractMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Inputs shared by the benchmarks, and the collections each implementation builds from
+ * them.
+ */
+final class Data {
+
+	static final String NEW4JAVA8 = "new4java8";
+
+	static final String JDK = "jdk";
+
+	static final String GUAVA = "guava";
+
+	private Data() {
+		// do not instantiate
+	}
+
+	static String[] keys(int size) {
+		String[] keys = new String[size];
+		for (int i = 0; i < size; i++) {
+			keys[i] = "key" + i;
+		}
+		return keys;
+	}
+
+	static String[] values(int size) {
+		String[] values = new String[size];
+		for (int i = 0; i < size; i++) {
+			values[i] = "value" + i;
+		}
+		return values;
+	}
+
+	@SuppressWarnings("unchecked")
+	static Map.Entry<String, String>[] entries(String[] keys, String[] values) {
+		Map.Entry<String, String>[] entries = new Map.Entry[keys.length];
+		for (int i = 0; i < keys.length; i++) {
+			entries[i] = new AbstractMap.SimpleImmutableEntry<>(keys[i], values[i]);
+		}
+		return entries;
+	}
+
+	static List<String> list(String impl, String[] elements) {
+		switch (impl) {
+		case NEW4JAVA8:
+			return Arities.newList(elements);
+		case JDK:
+			return Arities.jdkList(elements);
+		case GUAVA:
+			return ImmutableList.copyOf(elements);
+		default:
+			throw new IllegalArgumentException(impl);
+		}
+	}
+
+	static Set<String> set(String impl, String[] elements) {
+		switch (impl) {
+		case NEW4JAVA8:
+			return Arities.newSet(elements);
+		case JDK:
+			return Arities.jdkSet(elements);
+		case GUAVA:
+			return ImmutableSet.copyOf(elements);
+		default:
+			throw new IllegalArgumentException(impl);
+		}
+	}
+
+	static Map<String, String> map(String impl, String[] keys, String[] values) {
+		Map.Entry<String, String>[] entries = entries(keys, values);
+		switch (impl) {
+		case NEW4JAVA8:
+			return Arities.newMap(keys, values, entries);
+		case JDK:
+			return Arities.jdkMap(keys, values, entries);
+		case GUAVA:
+			return guavaMap(entries);
+		default:
+			throw new IllegalArgumentException(impl);
+		}
+	}
+
+	static Map<String, String> guavaMap(Map.Entry<String, String>[] entries) {
+		ImmutableMap.Builder<String, String> builder = ImmutableMap.builderWithExpectedSize(entries.length);
+		for (Map.Entry<String, String> e : entries) {
+			builder.put(e);
+		}
+		return builder.build();
+	}
+
+}
@@ -0,0 +1,92 @@
+package org.pgris.new4java8.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@code equals} between two equal but distinct collections of the same
+ * implementation, and of {@code hashCode}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EqualityBenchmark {
+
+	@Param({ Data.NEW4JAVA8, Data.JDK, Data.GUAVA })
+	String impl;
+
+	@Param({ "0", "1", "2", "5", "10", "100", "10000", "1000000" })
+	int size;
+
+	List<String> list;
+
+	List<String> otherList;
+
+	Set<String> set;
+
+	Set<String> otherSet;
+
+	Map<String, String> map;
+
+	Map<String, String> otherMap;
+
+	@Setup
+	public void setup() {
+		String[] keys = Data.keys(size);
+		String[] values = Data.values(size);
+		list = Data.list(impl, keys);
+		otherList = Data.list(impl, Data.keys(size));
+		set = Data.set(impl, keys);
+		otherSet = Data.set(impl, Data.keys(size));
+		map = Data.map(impl, keys, values);
+		otherMap = Data.map(impl, Data.keys(size), Data.values(size));
+	}
+
+	@Benchmark
+	public boolean listEquals() {
+		return list.equals(otherList);
+	}
+
+	@Benchmark
+	public int listHashCode() {
+		return list.hashCode();
+	}
+
+	@Benchmark
+	public boolean setEquals() {
+		return set.equals(otherSet);
+	}
+
+	@Benchmark
+	public int setHashCode() {
+		return set.hashCode();
+	}
+
+	@Benchmark
+	public boolean mapEquals() {
+		return map.equals(otherMap);
+	}
+
+	@Benchmark
+	public int mapHashCode() {
+		return map.hashCode();
+	}
+
+}
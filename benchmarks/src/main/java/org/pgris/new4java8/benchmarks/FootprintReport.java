@@ -0,0 +1,54 @@
+package org.pgris.new4java8.benchmarks;
+
+import org.openjdk.jol.info.GraphLayout;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Prints the retained size in bytes of every collection, not counting the elements, keys
+ * and values themselves, measured with JOL.
+ *
+ * <pre>
+ *     java -Djdk.attach.allowAttachSelf -cp target/benchmarks.jar org.pgris.new4java8.benchmarks.FootprintReport
+ * </pre>
+ */
+public final class FootprintReport {
+
+	private static final int[] SIZES = { 0, 1, 2, 3, 5, 10, 100, 10_000, 1_000_000 };
+
+	private static final String[] IMPLS = { Data.NEW4JAVA8, Data.JDK, Data.GUAVA };
+
+	private FootprintReport() {
+		// do not instantiate
+	}
+
+	public static void main(String[] args) {
+		System.out.printf("%-6s %-10s %12s %12s %12s%n", "kind", "impl", "size", "bytes", "bytes/elem");
+		for (int size : SIZES) {
+			String[] keys = Data.keys(size);
+			String[] values = Data.values(size);
+			GraphLayout elements = GraphLayout.parseInstance((Object[]) keys);
+			GraphLayout mappings = GraphLayout.parseInstance(concat(keys, values));
+			for (String impl : IMPLS) {
+				print("list", impl, size, GraphLayout.parseInstance(Data.list(impl, keys)).subtract(elements));
+				print("set", impl, size, GraphLayout.parseInstance(Data.set(impl, keys)).subtract(elements));
+				print("map", impl, size, GraphLayout.parseInstance(Data.map(impl, keys, values)).subtract(mappings));
+			}
+		}
+	}
+
+	private static Object[] concat(String[] keys, String[] values) {
+		List<Object> all = new ArrayList<>(Arrays.asList(keys));
+		all.addAll(Arrays.asList(values));
+		return all.toArray();
+	}
+
+	private static void print(String kind, String impl, int size, GraphLayout layout) {
+		long bytes = layout.totalSize();
+		System.out.printf("%-6s %-10s %12d %12d %12.1f%n", kind, impl, size, bytes,
+				size == 0 ? 0.0 : (double) bytes / size);
+	}
+
+}
@@ -0,0 +1,117 @@
+package org.pgris.new4java8.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@code get}, {@code contains} and iteration. Lookups cycle through a
+ * fixed sequence of probes, half of them hits and half of them misses.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LookupBenchmark {
+
+	private static final int PROBES = 1024;
+
+	@Param({ Data.NEW4JAVA8, Data.JDK, Data.GUAVA })
+	String impl;
+
+	@Param({ "1", "2", "5", "10", "100", "10000", "1000000" })
+	int size;
+
+	List<String> list;
+
+	Set<String> set;
+
+	Map<String, String> map;
+
+	String[] probes;
+
+	int[] indexes;
+
+	int next;
+
+	@Setup
+	public void setup() {
+		String[] keys = Data.keys(size);
+		list = Data.list(impl, keys);
+		set = Data.set(impl, keys);
+		map = Data.map(impl, keys, Data.values(size));
+		Random random = new Random(42);
+		probes = new String[PROBES];
+		indexes = new int[PROBES];
+		for (int i = 0; i < PROBES; i++) {
+			int index = random.nextInt(size);
+			// new instances, so equals can't short circuit on identity
+			probes[i] = i % 2 == 0 ? new String(keys[index]) : "missing" + index;
+			indexes[i] = index;
+		}
+	}
+
+	private int next() {
+		return next = (next + 1) & (PROBES - 1);
+	}
+
+	@Benchmark
+	public String listGet() {
+		return list.get(indexes[next()]);
+	}
+
+	@Benchmark
+	public boolean setContains() {
+		return set.contains(probes[next()]);
+	}
+
+	@Benchmark
+	public String mapGet() {
+		return map.get(probes[next()]);
+	}
+
+	@Benchmark
+	public boolean mapContainsKey() {
+		return map.containsKey(probes[next()]);
+	}
+
+	@Benchmark
+	public void listIterate(Blackhole bh) {
+		for (String e : list) {
+			bh.consume(e);
+		}
+	}
+
+	@Benchmark
+	public void setIterate(Blackhole bh) {
+		for (String e : set) {
+			bh.consume(e);
+		}
+	}
+
+	@Benchmark
+	public void mapIterate(Blackhole bh) {
+		for (Map.Entry<String, String> e : map.entrySet()) {
+			bh.consume(e.getKey());
+			bh.consume(e.getValue());
+		}
+	}
+
+}
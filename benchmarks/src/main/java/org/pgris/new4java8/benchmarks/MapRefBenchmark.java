@@ -0,0 +1,85 @@
+package org.pgris.new4java8.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pgris.new4java8.ImmutableMapRef;
+import org.pgris.new4java8.New;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Readers and writers sharing a registry: {@code ImmutableMapRef} against a volatile
+ * {@code New.mapCopyOf} snapshot rebuilt under a lock on every write.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Group)
+public class MapRefBenchmark {
+
+	@Param({ "ref", "synchronized" })
+	String impl;
+
+	@Param({ "1000", "100000" })
+	int size;
+
+	String[] keys;
+
+	ImmutableMapRef<String, String> ref;
+
+	volatile Map<String, String> snapshot;
+
+	@Setup
+	public void setup() {
+		keys = Data.keys(size);
+		Map<String, String> map = new HashMap<>();
+		for (String key : keys) {
+			map.put(key, key);
+		}
+		ref = New.mapRef(map);
+		snapshot = New.mapCopyOf(map);
+	}
+
+	@Benchmark
+	@Group("registry")
+	@GroupThreads(6)
+	public String read() {
+		String key = keys[ThreadLocalRandom.current().nextInt(size)];
+		return "ref".equals(impl) ? ref.snapshot().get(key) : snapshot.get(key);
+	}
+
+	@Benchmark
+	@Group("registry")
+	@GroupThreads(2)
+	public void write() {
+		String key = keys[ThreadLocalRandom.current().nextInt(size)];
+		String value = Integer.toString(ThreadLocalRandom.current().nextInt());
+		if ("ref".equals(impl)) {
+			ref.put(key, value);
+		}
+		else {
+			synchronized (this) {
+				Map<String, String> copy = new HashMap<>(snapshot);
+				copy.put(key, value);
+				snapshot = New.mapCopyOf(copy);
+			}
+		}
+	}
+
+}
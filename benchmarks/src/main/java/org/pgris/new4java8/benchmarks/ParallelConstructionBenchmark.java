@@ -0,0 +1,67 @@
+package org.pgris.new4java8.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pgris.new4java8.New;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Construction of huge sets and maps on the calling thread against the common
+ * {@code ForkJoinPool}. Run with
+ * {@code -Djava.util.concurrent.ForkJoinPool.common.parallelism=N} in
+ * {@code -jvmArgsAppend} to see how it scales with cores.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParallelConstructionBenchmark {
+
+	@Param({ "1000000", "4000000" })
+	int size;
+
+	String[] keys;
+
+	Map.Entry<String, String>[] entries;
+
+	@Setup
+	public void setup() {
+		keys = Data.keys(size);
+		entries = Data.entries(keys, Data.values(size));
+	}
+
+	@Benchmark
+	public Set<String> setOf() {
+		return New.setOf(keys);
+	}
+
+	@Benchmark
+	public Set<String> parallelSetOf() {
+		return New.parallelSetOf(keys);
+	}
+
+	@Benchmark
+	public Map<String, String> mapOfEntries() {
+		return New.mapOfEntries(entries);
+	}
+
+	@Benchmark
+	public Map<String, String> parallelMapOfEntries() {
+		return New.parallelMapOfEntries(entries);
+	}
+
+}
@@ -0,0 +1,83 @@
+package org.pgris.new4java8.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pgris.new4java8.New;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code get} on {@code New.mapOfEntriesPerfect} against the probing
+ * {@code New.mapOfEntries} and {@code HashMap}, with the same probes as
+ * {@link LookupBenchmark}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PerfectMapBenchmark {
+
+	private static final int PROBES = 1024;
+
+	@Param({ "perfect", "probing", "hashmap" })
+	String impl;
+
+	@Param({ "100", "10000", "1000000" })
+	int size;
+
+	Map<String, String> map;
+
+	String[] probes;
+
+	int next;
+
+	@Setup
+	public void setup() {
+		String[] keys = Data.keys(size);
+		Map.Entry<String, String>[] entries = Data.entries(keys, Data.values(size));
+		switch (impl) {
+		case "perfect":
+			map = New.mapOfEntriesPerfect(entries);
+			break;
+		case "probing":
+			map = New.mapOfEntries(entries);
+			break;
+		case "hashmap":
+			map = new HashMap<>();
+			for (Map.Entry<String, String> e : entries) {
+				map.put(e.getKey(), e.getValue());
+			}
+			break;
+		default:
+			throw new IllegalArgumentException(impl);
+		}
+		Random random = new Random(42);
+		probes = new String[PROBES];
+		for (int i = 0; i < PROBES; i++) {
+			int index = random.nextInt(size);
+			// new instances, so equals can't short circuit on identity
+			probes[i] = i % 2 == 0 ? new String(keys[index]) : "missing" + index;
+		}
+	}
+
+	@Benchmark
+	public String mapGet() {
+		next = (next + 1) & (PROBES - 1);
+		return map.get(probes[next]);
+	}
+
+}
@@ -0,0 +1,82 @@
+package org.pgris.new4java8.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.pgris.new4java8.ImmutableStringMap;
+import org.pgris.new4java8.New;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Header lookups in a parsed request: a {@code HashMap} of lower cased names, looked up
+ * with a lower cased copy of each name, against {@code New.stringMapOfIgnoreCase} looking
+ * them up in the request buffer itself.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StringMapBenchmark {
+
+	private static final String[] HEADERS = { "Host", "User-Agent", "Accept", "Accept-Encoding", "Accept-Language",
+			"Content-Type", "Content-Length", "Cookie", "Authorization", "X-Request-Id", "X-Forwarded-For",
+			"Connection" };
+
+	/**
+	 * The request as received, with names cased differently from the map
+	 */
+	StringBuilder request;
+
+	/**
+	 * Start and end of each header name in the request
+	 */
+	int[] bounds;
+
+	Map<String, String> hashMap;
+
+	ImmutableStringMap<String> stringMap;
+
+	@Setup
+	public void setup() {
+		request = new StringBuilder();
+		bounds = new int[2 * HEADERS.length];
+		hashMap = new HashMap<>();
+		for (int i = 0; i < HEADERS.length; i++) {
+			hashMap.put(HEADERS[i].toLowerCase(Locale.ROOT), HEADERS[i]);
+			bounds[2 * i] = request.length();
+			request.append(i % 2 == 0 ? HEADERS[i].toUpperCase(Locale.ROOT) : HEADERS[i]);
+			bounds[2 * i + 1] = request.length();
+			request.append(": value\r\n");
+		}
+		stringMap = New.stringMapOfIgnoreCase(New.mapCopyOf(hashMap));
+	}
+
+	@Benchmark
+	public void hashMapLowerCase(Blackhole bh) {
+		for (int i = 0; i < bounds.length; i += 2) {
+			bh.consume(hashMap.get(request.substring(bounds[i], bounds[i + 1]).toLowerCase(Locale.ROOT)));
+		}
+	}
+
+	@Benchmark
+	public void stringMapIgnoreCase(Blackhole bh) {
+		for (int i = 0; i < bounds.length; i += 2) {
+			bh.consume(stringMap.get(request, bounds[i], bounds[i + 1]));
+		}
+	}
+
+}
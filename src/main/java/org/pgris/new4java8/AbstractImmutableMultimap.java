@@ -0,0 +1,427 @@
+package org.pgris.new4java8;
+
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Base of the unmodifiable multimaps, which keep the values of every key in a single
+ * array: the values of the key at index {@code g} of {@link #keys} go from
+ * {@code offsets[g]} to {@code offsets[g + 1]}, and {@link #get(Object)} returns a view
+ * over that range instead of a collection per key. Keys are found through an open
+ * addressing table of key indexes with at least
+ * {@link ImmutableCollections#EXPAND_FACTOR} slots per key. If a probe gets longer than
+ * {@link ImmutableCollections#MAX_PROBE} and the keys can be ordered, the keys and their
+ * values are sorted by {@link ImmutableCollections#compareHashThenNatural} instead, and
+ * keys are found by binary search.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ * @param <C> the type of the collection of values of each key
+ */
+abstract class AbstractImmutableMultimap<K, V, C extends Collection<V>> implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	final Object[] keys;
+
+	final int[] offsets;
+
+	final Object[] values;
+
+	/**
+	 * Index of the key in each slot plus one, {@code 0} for a free slot, or {@code null}
+	 * if the keys are sorted
+	 */
+	private final int[] table;
+
+	/**
+	 * Hash codes of the sorted keys, or {@code null} if they are found through
+	 * {@link #table}
+	 */
+	private final int[] hashes;
+
+	/**
+	 * Computed on first use, {@code 0} until then
+	 */
+	private int hash;
+
+	/**
+	 * @param groups each key followed by the number of its values and its values, keys
+	 * without values are left out
+	 * @throws IllegalArgumentException if there are any duplicate keys, or any count is
+	 * negative or too large
+	 * @throws NullPointerException if any key or value is {@code null}
+	 * @throws ClassCastException if any count is not an {@code Integer}
+	 */
+	AbstractImmutableMultimap(Object[] groups) {
+		int keyCount = 0;
+		int valueCount = 0;
+		for (int j = 0; j < groups.length; j += 2 + (Integer) groups[j + 1]) {
+			if (j + 1 == groups.length) {
+				throw new IllegalArgumentException("missing count");
+			}
+			int count = (Integer) groups[j + 1];
+			if (count < 0 || count > groups.length - j - 2) {
+				throw new IllegalArgumentException("invalid count " + count);
+			}
+			if (count > 0) {
+				keyCount++;
+				valueCount += count;
+			}
+		}
+		Object[] keys = new Object[keyCount];
+		int[] offsets = new int[keyCount + 1];
+		Object[] values = new Object[valueCount];
+		int[] table = new int[ImmutableCollections.tableSizeFor(keyCount)];
+		for (int j = 0, g = 0, i = 0; j < groups.length; j += 2 + (Integer) groups[j + 1]) {
+			Object key = Objects.requireNonNull(groups[j]);
+			int count = (Integer) groups[j + 1];
+			if (count == 0) {
+				continue;
+			}
+			if (table != null) {
+				int idx = probe(table, keys, key, true);
+				if (idx == ImmutableCollections.LONG_PROBE) {
+					// the rest of the keys are checked once sorted
+					table = null;
+				}
+				else if (idx >= 0) {
+					throw new IllegalArgumentException("duplicated key:" + key);
+				}
+				else {
+					table[-(idx + 1)] = g + 1;
+				}
+			}
+			keys[g] = key;
+			offsets[g++] = i;
+			for (int k = 0; k < count; k++) {
+				values[i++] = Objects.requireNonNull(groups[j + 2 + k]);
+			}
+		}
+		offsets[keyCount] = valueCount;
+		Integer[] order = table == null ? HashOrderedTables.order(keys, 1, keyCount) : null;
+		if (order != null) {
+			int[] firsts = HashOrderedTables.firstEquals(keys, 1, order);
+			for (int g = 0; g < keyCount; g++) {
+				if (firsts[g] != g) {
+					throw new IllegalArgumentException("duplicated key:" + keys[g]);
+				}
+			}
+			// move each key and its values to its sorted position
+			Object[] sortedKeys = new Object[keyCount];
+			int[] sortedOffsets = new int[keyCount + 1];
+			Object[] sortedValues = new Object[valueCount];
+			for (int p = 0, i = 0; p < keyCount; p++) {
+				int g = order[p];
+				sortedKeys[p] = keys[g];
+				sortedOffsets[p] = i;
+				System.arraycopy(values, offsets[g], sortedValues, i, offsets[g + 1] - offsets[g]);
+				i += offsets[g + 1] - offsets[g];
+			}
+			sortedOffsets[keyCount] = valueCount;
+			this.keys = sortedKeys;
+			this.offsets = sortedOffsets;
+			this.values = sortedValues;
+			this.table = null;
+			this.hashes = ImmutableCollections.SetHashOrdered.hashes(sortedKeys, 1);
+			return;
+		}
+		if (table == null) {
+			// keys that can't be ordered, so probing it is
+			table = new int[ImmutableCollections.tableSizeFor(keyCount)];
+			for (int g = 0; g < keyCount; g++) {
+				int idx = probe(table, keys, keys[g], false);
+				if (idx >= 0) {
+					throw new IllegalArgumentException("duplicated key:" + keys[g]);
+				}
+				table[-(idx + 1)] = g + 1;
+			}
+		}
+		this.keys = keys;
+		this.offsets = offsets;
+		this.values = values;
+		this.table = table;
+		this.hashes = null;
+	}
+
+	/**
+	 * @param bounded whether to give up after {@link ImmutableCollections#MAX_PROBE} keys
+	 * @return the index of the key in {@code keys} if present, {@code -i - 1} where
+	 * {@code i} is the free slot where it should be inserted, or
+	 * {@link ImmutableCollections#LONG_PROBE} if it gave up
+	 */
+	private static int probe(int[] table, Object[] keys, Object key, boolean bounded) {
+		int mask = table.length - 1;
+		int idx = ImmutableCollections.mix(key.hashCode(), mask);
+		for (int probes = 0;; probes++) {
+			int g = table[idx] - 1;
+			if (g < 0) {
+				return -idx - 1;
+			}
+			if (key.equals(keys[g])) {
+				return g;
+			}
+			if (bounded && probes == ImmutableCollections.MAX_PROBE) {
+				return ImmutableCollections.LONG_PROBE;
+			}
+			idx = (idx + 1) & mask;
+		}
+	}
+
+	/**
+	 * @return the index of the key in {@link #keys}, or {@code -1}
+	 */
+	final int indexOf(Object key) {
+		Objects.requireNonNull(key);
+		if (table == null) {
+			return ImmutableCollections.SetHashOrdered.find(keys, hashes, 1, key);
+		}
+		int g = probe(table, keys, key, false);
+		return g >= 0 ? g : -1;
+	}
+
+	/**
+	 * @return a view of the values of the key at the given index
+	 */
+	abstract C group(int g);
+
+	/**
+	 * @return the empty collection returned for a missing key
+	 */
+	abstract C empty();
+
+	/**
+	 * @param key the key whose values are to be returned
+	 * @return an unmodifiable view of the values of the key, empty if there are none
+	 * @throws NullPointerException if the key is {@code null}
+	 */
+	public C get(Object key) {
+		int g = indexOf(key);
+		return g >= 0 ? group(g) : empty();
+	}
+
+	/**
+	 * @param key key whose presence is to be tested
+	 * @return whether the key has any values
+	 * @throws NullPointerException if the key is {@code null}
+	 */
+	public boolean containsKey(Object key) {
+		return indexOf(key) >= 0;
+	}
+
+	/**
+	 * @param key the key of the mapping
+	 * @param value the value of the mapping
+	 * @return whether the value is one of the values of the key
+	 * @throws NullPointerException if the key or the value is {@code null}
+	 */
+	public boolean containsEntry(Object key, Object value) {
+		Objects.requireNonNull(value);
+		int g = indexOf(key);
+		return g >= 0 && group(g).contains(value);
+	}
+
+	/**
+	 * @return the number of key and value pairs
+	 */
+	public int size() {
+		return values.length;
+	}
+
+	/**
+	 * @return whether there are no key and value pairs
+	 */
+	public boolean isEmpty() {
+		return values.length == 0;
+	}
+
+	/**
+	 * @return an unmodifiable set of the keys with at least one value
+	 */
+	public Set<K> keySet() {
+		return asMap().keySet();
+	}
+
+	/**
+	 * Performs the action for every key and value pair, with the values of each key
+	 * together.
+	 * @param action the action to be performed for each pair
+	 * @throws NullPointerException if the action is {@code null}
+	 */
+	@SuppressWarnings("unchecked")
+	public void forEach(BiConsumer<? super K, ? super V> action) {
+		Objects.requireNonNull(action);
+		for (int g = 0; g < keys.length; g++) {
+			K key = (K) keys[g];
+			for (int i = offsets[g]; i < offsets[g + 1]; i++) {
+				action.accept(key, (V) values[i]);
+			}
+		}
+	}
+
+	/**
+	 * @return an unmodifiable map from each key to the same view {@link #get(Object)}
+	 * returns, without copying any value
+	 */
+	public Map<K, C> asMap() {
+		return new AsMap();
+	}
+
+	/**
+	 * Multimaps are equal when their {@link #asMap()} views are equal, so a list multimap
+	 * is never equal to a set multimap with values.
+	 */
+	@Override
+	public boolean equals(Object o) {
+		if (o == this) {
+			return true;
+		}
+		if (!(o instanceof AbstractImmutableMultimap)) {
+			return false;
+		}
+		AbstractImmutableMultimap<?, ?, ?> m = (AbstractImmutableMultimap<?, ?, ?>) o;
+		return m.values.length == values.length && !ImmutableCollections.hashesDiffer(hash, m.hash)
+				&& asMap().equals(m.asMap());
+	}
+
+	@Override
+	public int hashCode() {
+		int h = hash;
+		if (h == 0) {
+			h = asMap().hashCode();
+			hash = h;
+		}
+		return h;
+	}
+
+	@Override
+	public String toString() {
+		return asMap().toString();
+	}
+
+	/**
+	 * @return each key followed by the number of its values and its values
+	 */
+	final Object[] groups() {
+		Object[] array = new Object[2 * keys.length + values.length];
+		int j = 0;
+		for (int g = 0; g < keys.length; g++) {
+			array[j++] = keys[g];
+			array[j++] = offsets[g + 1] - offsets[g];
+			for (int i = offsets[g]; i < offsets[g + 1]; i++) {
+				array[j++] = values[i];
+			}
+		}
+		return array;
+	}
+
+	/**
+	 * @return each key of the map followed by the number of its values and its values
+	 */
+	static Object[] groupsOf(Map<?, ? extends Collection<?>> map) {
+		Object[] entries = map.entrySet().toArray();
+		Object[][] valueArrays = new Object[entries.length][];
+		int length = 2 * entries.length;
+		for (int g = 0; g < entries.length; g++) {
+			valueArrays[g] = ((Collection<?>) ((Map.Entry<?, ?>) entries[g]).getValue()).toArray();
+			length += valueArrays[g].length;
+		}
+		Object[] groups = new Object[length];
+		for (int g = 0, j = 0; g < entries.length; g++) {
+			groups[j++] = ((Map.Entry<?, ?>) entries[g]).getKey();
+			groups[j++] = valueArrays[g].length;
+			System.arraycopy(valueArrays[g], 0, groups, j, valueArrays[g].length);
+			j += valueArrays[g].length;
+		}
+		return groups;
+	}
+
+	private void readObject(ObjectInputStream in) throws InvalidObjectException {
+		throw new InvalidObjectException("not serial proxy");
+	}
+
+	private final class AsMap extends ImmutableCollections.AbstractImmutableMap<K, C> {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public C get(Object key) {
+			int g = indexOf(key);
+			return g >= 0 ? group(g) : null;
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return indexOf(key) >= 0;
+		}
+
+		@Override
+		public int size() {
+			return keys.length;
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return keys.length == 0;
+		}
+
+		@Override
+		public Set<Map.Entry<K, C>> entrySet() {
+			return new ImmutableCollections.AbstractImmutableSet<Map.Entry<K, C>>() {
+				@Override
+				public int size() {
+					return keys.length;
+				}
+
+				@Override
+				public boolean contains(Object o) {
+					if (!(o instanceof Map.Entry)) {
+						return false;
+					}
+					Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+					C group = e.getKey() != null ? AsMap.this.get(e.getKey()) : null;
+					return group != null && group.equals(e.getValue());
+				}
+
+				@Override
+				public int hashCode() {
+					return AsMap.this.hashCode();
+				}
+
+				@Override
+				public Iterator<Map.Entry<K, C>> iterator() {
+					return new Iterator<Map.Entry<K, C>>() {
+						private int g = 0;
+
+						@Override
+						public boolean hasNext() {
+							return g < keys.length;
+						}
+
+						@Override
+						@SuppressWarnings("unchecked")
+						public Map.Entry<K, C> next() {
+							if (g == keys.length) {
+								throw new NoSuchElementException();
+							}
+							Map.Entry<K, C> e = new AbstractMap.SimpleImmutableEntry<>((K) keys[g], group(g));
+							g++;
+							return e;
+						}
+					};
+				}
+			};
+		}
+
+	}
+
+}
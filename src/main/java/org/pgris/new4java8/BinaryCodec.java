@@ -0,0 +1,260 @@
+package org.pgris.new4java8;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Writes <a href="New.html#unmodifiable">unmodifiable lists</a>,
+ * <a href="New.html#unmodifiableSets">sets</a> and
+ * <a href="New.html#unmodifiableMaps">maps</a> to a {@link DataOutput}, and reads them
+ * back from a {@link DataInput}, without Java serialization. Each collection is written
+ * as its size followed by its elements, or keys each followed by its value, encoded by an
+ * {@link ElementCodec}. Reading builds the final immutable collection directly.
+ *
+ * <p>
+ * Any collection can be written, but nulls can't be encoded.
+ */
+public final class BinaryCodec {
+
+	/**
+	 * Writes and reads a single element. Codecs for {@code String}, {@code Integer} and
+	 * {@code Long} are provided.
+	 *
+	 * @param <T> the type of the elements
+	 */
+	public interface ElementCodec<T> {
+
+		/**
+		 * Strings as their length followed by their UTF-8 bytes, so there is no 64KB
+		 * limit as in {@link DataOutput#writeUTF}
+		 */
+		ElementCodec<String> STRING = new ElementCodec<String>() {
+			@Override
+			public void write(DataOutput out, String value) throws IOException {
+				byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+				out.writeInt(bytes.length);
+				out.write(bytes);
+			}
+
+			@Override
+			public String read(DataInput in) throws IOException {
+				return new String(readBytes(in, readSize(in)), StandardCharsets.UTF_8);
+			}
+		};
+
+		/**
+		 * Integers as written by {@link DataOutput#writeInt}
+		 */
+		ElementCodec<Integer> INTEGER = new ElementCodec<Integer>() {
+			@Override
+			public void write(DataOutput out, Integer value) throws IOException {
+				out.writeInt(value);
+			}
+
+			@Override
+			public Integer read(DataInput in) throws IOException {
+				return in.readInt();
+			}
+		};
+
+		/**
+		 * Longs as written by {@link DataOutput#writeLong}
+		 */
+		ElementCodec<Long> LONG = new ElementCodec<Long>() {
+			@Override
+			public void write(DataOutput out, Long value) throws IOException {
+				out.writeLong(value);
+			}
+
+			@Override
+			public Long read(DataInput in) throws IOException {
+				return in.readLong();
+			}
+		};
+
+		/**
+		 * @param out where to write the element
+		 * @param value the element to write, never {@code null}
+		 * @throws IOException if the element can't be written
+		 */
+		void write(DataOutput out, T value) throws IOException;
+
+		/**
+		 * @param in where to read the element from
+		 * @return the element read, must not be {@code null}
+		 * @throws IOException if the element can't be read
+		 */
+		T read(DataInput in) throws IOException;
+
+	}
+
+	private BinaryCodec() {
+		// do not instantiate
+	}
+
+	/**
+	 * Writes the size of a list or set, then each of its elements in iteration order.
+	 * @param <E> the type of the elements
+	 * @param out where to write the collection
+	 * @param coll the collection to write
+	 * @param codec writes each element
+	 * @throws IOException if the collection can't be written
+	 * @throws NullPointerException if any argument or element is {@code null}
+	 */
+	public static <E> void writeCollection(DataOutput out, Collection<? extends E> coll, ElementCodec<E> codec)
+			throws IOException {
+		// a snapshot, so the size matches the elements even if the collection changes
+		Object[] elements = coll.toArray();
+		out.writeInt(elements.length);
+		for (Object e : elements) {
+			@SuppressWarnings("unchecked")
+			E element = (E) e;
+			codec.write(out, Objects.requireNonNull(element));
+		}
+	}
+
+	/**
+	 * Reads a collection written by {@link #writeCollection} as an
+	 * <a href="New.html#unmodifiable">unmodifiable List</a>.
+	 * @param <E> the type of the elements
+	 * @param in where to read the list from
+	 * @param codec reads each element
+	 * @return a {@code List} with the elements read, in the order they were written
+	 * @throws IOException if the list can't be read, or the codec reads a {@code null}
+	 */
+	public static <E> List<E> readList(DataInput in, ElementCodec<E> codec) throws IOException {
+		Object[] elements = readElements(in, codec);
+		try {
+			return ImmutableCollections.listFromTrustedArray(elements);
+		}
+		catch (NullPointerException e) {
+			throw new IOException("invalid list", e);
+		}
+	}
+
+	/**
+	 * Reads a collection written by {@link #writeCollection} as an
+	 * <a href="New.html#unmodifiableSets">unmodifiable Set</a>.
+	 * @param <E> the type of the elements
+	 * @param in where to read the set from
+	 * @param codec reads each element
+	 * @return a {@code Set} with the elements read
+	 * @throws IOException if the set can't be read, or the codec reads a {@code null} or
+	 * a duplicate element
+	 */
+	@SuppressWarnings("unchecked")
+	public static <E> Set<E> readSet(DataInput in, ElementCodec<E> codec) throws IOException {
+		Object[] elements = readElements(in, codec);
+		try {
+			return (Set<E>) New.setOf(elements);
+		}
+		catch (NullPointerException | IllegalArgumentException e) {
+			throw new IOException("invalid set", e);
+		}
+	}
+
+	/**
+	 * Writes the size of a map, then each key followed by its value.
+	 * @param <K> the type of keys
+	 * @param <V> the type of mapped values
+	 * @param out where to write the map
+	 * @param map the map to write
+	 * @param keyCodec writes each key
+	 * @param valueCodec writes each value
+	 * @throws IOException if the map can't be written
+	 * @throws NullPointerException if any argument, key or value is {@code null}
+	 */
+	public static <K, V> void writeMap(DataOutput out, Map<? extends K, ? extends V> map, ElementCodec<K> keyCodec,
+			ElementCodec<V> valueCodec) throws IOException {
+		Object[] entries = map.entrySet().toArray();
+		out.writeInt(entries.length);
+		for (Object o : entries) {
+			@SuppressWarnings("unchecked")
+			Map.Entry<? extends K, ? extends V> e = (Map.Entry<? extends K, ? extends V>) o;
+			keyCodec.write(out, Objects.requireNonNull(e.getKey()));
+			valueCodec.write(out, Objects.requireNonNull(e.getValue()));
+		}
+	}
+
+	/**
+	 * Reads a map written by {@link #writeMap} as an
+	 * <a href="New.html#unmodifiableMaps">unmodifiable Map</a>.
+	 * @param <K> the type of keys
+	 * @param <V> the type of mapped values
+	 * @param in where to read the map from
+	 * @param keyCodec reads each key
+	 * @param valueCodec reads each value
+	 * @return a {@code Map} with the mappings read
+	 * @throws IOException if the map can't be read, or the codecs read a {@code null} or
+	 * a duplicate key
+	 */
+	public static <K, V> Map<K, V> readMap(DataInput in, ElementCodec<K> keyCodec, ElementCodec<V> valueCodec)
+			throws IOException {
+		int size = readSize(in);
+		if (size > Integer.MAX_VALUE / 2) {
+			throw new IOException("too many mappings " + size);
+		}
+		int length = 2 * size;
+		Object[] keysAndValues = new Object[Math.min(length, ImmutableCollections.MAX_PREALLOCATED)];
+		for (int i = 0; i < length; i += 2) {
+			if (i == keysAndValues.length) {
+				keysAndValues = ImmutableCollections.grow(keysAndValues, length);
+			}
+			keysAndValues[i] = keyCodec.read(in);
+			keysAndValues[i + 1] = valueCodec.read(in);
+		}
+		try {
+			return New.mapFromKeysAndValues(keysAndValues);
+		}
+		catch (NullPointerException | IllegalArgumentException e) {
+			throw new IOException("invalid map", e);
+		}
+	}
+
+	private static Object[] readElements(DataInput in, ElementCodec<?> codec) throws IOException {
+		int size = readSize(in);
+		Object[] elements = new Object[Math.min(size, ImmutableCollections.MAX_PREALLOCATED)];
+		for (int i = 0; i < size; i++) {
+			if (i == elements.length) {
+				elements = ImmutableCollections.grow(elements, size);
+			}
+			elements[i] = codec.read(in);
+		}
+		return elements;
+	}
+
+	/**
+	 * Reads {@code length} bytes into an array that grows as they arrive, like the
+	 * elements, so a forged length fails at the end of the input instead of allocating it
+	 * all up front.
+	 */
+	private static byte[] readBytes(DataInput in, int length) throws IOException {
+		byte[] bytes = new byte[Math.min(length, ImmutableCollections.MAX_PREALLOCATED)];
+		int read = 0;
+		while (true) {
+			in.readFully(bytes, read, bytes.length - read);
+			read = bytes.length;
+			if (read == length) {
+				return bytes;
+			}
+			bytes = Arrays.copyOf(bytes, (int) Math.min(length, 2L * read));
+		}
+	}
+
+	private static int readSize(DataInput in) throws IOException {
+		int size = in.readInt();
+		if (size < 0) {
+			throw new IOException("negative size " + size);
+		}
+		return size;
+	}
+
+}
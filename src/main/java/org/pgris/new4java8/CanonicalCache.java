@@ -0,0 +1,529 @@
+package org.pgris.new4java8;
+
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Interns small <a href="New.html#unmodifiable">unmodifiable lists</a>,
+ * <a href="New.html#unmodifiableSets">sets</a> and
+ * <a href="New.html#unmodifiableMaps">maps</a>, so equal inputs give the same canonical
+ * instance instead of a new copy each time. Created with {@link New#canonicalCache(int)
+ * New.canonicalCache}.
+ *
+ * <p>
+ * The methods mirror the ones in {@link New} and return collections with the same
+ * characteristics; as those collections are value-based, callers can't tell whether an
+ * instance is new or canonical. Only collections of up to {@value #MAX_ELEMENTS} elements
+ * or mappings are interned, bigger ones are created as usual. The canonical instance is
+ * looked up through a view of the arguments, or of an array copied from the argument for
+ * the {@code copyOf} methods, so a hit creates no collection at all.
+ *
+ * <p>
+ * The cache is safe for concurrent use. It is split in independently locked segments,
+ * each one evicting its least recently used collection when full, so it never holds more
+ * than {@code maximumSize} collections. {@link #hitCount()}, {@link #missCount()} and
+ * {@link #evictionCount()} tell whether the cache is worth its memory.
+ */
+public final class CanonicalCache {
+
+	/**
+	 * Biggest size of the interned collections
+	 */
+	public static final int MAX_ELEMENTS = 16;
+
+	private static final int MAX_SEGMENTS = 16;
+
+	private final Segment[] segments;
+
+	private final LongAdder hits = new LongAdder();
+
+	private final LongAdder misses = new LongAdder();
+
+	private final LongAdder evictions = new LongAdder();
+
+	/**
+	 * @throws IllegalArgumentException if maximumSize is not positive
+	 */
+	CanonicalCache(int maximumSize) {
+		if (maximumSize <= 0) {
+			throw new IllegalArgumentException("maximumSize:" + maximumSize);
+		}
+		int count = Math.min(MAX_SEGMENTS, Integer.highestOneBit(maximumSize));
+		segments = new Segment[count];
+		for (int i = 0; i < count; i++) {
+			// spread the remainder so the capacities add up to maximumSize
+			segments[i] = new Segment(maximumSize / count + (i < maximumSize % count ? 1 : 0));
+		}
+	}
+
+	/**
+	 * Returns the canonical <a href="New.html#unmodifiable">unmodifiable list</a>
+	 * containing the specified elements.
+	 * @param <E> the {@code List}'s element type
+	 * @param elements the elements to be contained in the list
+	 * @return a {@code List} containing the specified elements
+	 * @throws NullPointerException if an element is {@code null} or if the array is
+	 * {@code null}
+	 */
+	@SafeVarargs
+	@SuppressWarnings("varargs")
+	public final <E> List<E> listOf(E... elements) {
+		if (elements.length > MAX_ELEMENTS || !noNulls(elements)) {
+			// throws for the null element
+			return New.listOf(elements);
+		}
+		List<E> canonical = lookup(new ListView(elements));
+		return canonical != null ? canonical : intern(New.listOf(elements));
+	}
+
+	/**
+	 * Returns the canonical <a href="New.html#unmodifiableSets">unmodifiable set</a>
+	 * containing the specified elements.
+	 * @param <E> the {@code Set}'s element type
+	 * @param elements the elements to be contained in the set
+	 * @return a {@code Set} containing the specified elements
+	 * @throws IllegalArgumentException if there are any duplicate elements
+	 * @throws NullPointerException if an element is {@code null} or if the array is
+	 * {@code null}
+	 */
+	@SafeVarargs
+	@SuppressWarnings("varargs")
+	public final <E> Set<E> setOf(E... elements) {
+		if (elements.length > MAX_ELEMENTS || !distinct(elements)) {
+			// throws for the null or repeated element
+			return New.setOf(elements);
+		}
+		Set<E> canonical = lookup(new SetView(elements, elements.length));
+		return canonical != null ? canonical : intern(New.setOf(elements));
+	}
+
+	/**
+	 * Returns the canonical <a href="New.html#unmodifiableMaps">unmodifiable map</a>
+	 * containing keys and values extracted from the given entries.
+	 * @param <K> the {@code Map}'s key type
+	 * @param <V> the {@code Map}'s value type
+	 * @param entries {@code Map.Entry}s containing the keys and values from which the map
+	 * is populated
+	 * @return a {@code Map} containing the specified mappings
+	 * @throws IllegalArgumentException if there are any duplicate keys
+	 * @throws NullPointerException if any entry, key, or value is {@code null}, or if the
+	 * {@code entries} array is {@code null}
+	 */
+	@SafeVarargs
+	@SuppressWarnings("varargs")
+	public final <K, V> Map<K, V> mapOfEntries(Map.Entry<? extends K, ? extends V>... entries) {
+		if (entries.length > MAX_ELEMENTS || !distinctKeys(entries)) {
+			// throws for the null entry, key or value, or the repeated key
+			return New.mapOfEntries(entries);
+		}
+		Map<K, V> canonical = lookup(new MapView(entries));
+		return canonical != null ? canonical : intern(New.mapOfEntries(entries));
+	}
+
+	/**
+	 * Returns the canonical <a href="New.html#unmodifiable">unmodifiable list</a>
+	 * containing the elements of the given Collection, in its iteration order.
+	 * @param <E> the {@code List}'s element type
+	 * @param coll a {@code Collection} from which elements are drawn, must be non-null
+	 * @return a {@code List} containing the elements of the given {@code Collection}
+	 * @throws NullPointerException if coll is null, or if it contains any nulls
+	 */
+	public <E> List<E> listCopyOf(Collection<? extends E> coll) {
+		if (coll.size() > MAX_ELEMENTS) {
+			return New.listCopyOf(coll);
+		}
+		Object[] elements = coll.toArray();
+		if (!noNulls(elements)) {
+			// throws
+			return New.listCopyOf(coll);
+		}
+		List<E> canonical = lookup(new ListView(elements));
+		return canonical != null ? canonical : intern(New.listCopyOf(coll));
+	}
+
+	/**
+	 * Returns the canonical <a href="New.html#unmodifiableSets">unmodifiable set</a>
+	 * containing the elements of the given Collection.
+	 * @param <E> the {@code Set}'s element type
+	 * @param coll a {@code Collection} from which elements are drawn, must be non-null
+	 * @return a {@code Set} containing the elements of the given {@code Collection}
+	 * @throws NullPointerException if coll is null, or if it contains any nulls
+	 */
+	public <E> Set<E> setCopyOf(Collection<? extends E> coll) {
+		if (coll.size() > MAX_ELEMENTS) {
+			// may still be small once duplicates are dropped
+			return canonical(New.setCopyOf(coll));
+		}
+		Object[] elements = coll.toArray();
+		int size = 0;
+		for (Object e : elements) {
+			if (e == null) {
+				// throws
+				return New.setCopyOf(coll);
+			}
+			if (!contains(elements, size, e)) {
+				elements[size++] = e;
+			}
+		}
+		Set<E> canonical = lookup(new SetView(elements, size));
+		return canonical != null ? canonical : intern(New.setCopyOf(coll));
+	}
+
+	/**
+	 * Returns the canonical <a href="New.html#unmodifiableMaps">unmodifiable map</a>
+	 * containing the entries of the given Map.
+	 * @param <K> the {@code Map}'s key type
+	 * @param <V> the {@code Map}'s value type
+	 * @param map a {@code Map} from which entries are drawn, must be non-null
+	 * @return a {@code Map} containing the entries of the given {@code Map}
+	 * @throws NullPointerException if map is null, or if it contains any null keys or
+	 * values
+	 */
+	public <K, V> Map<K, V> mapCopyOf(Map<? extends K, ? extends V> map) {
+		if (map.size() > MAX_ELEMENTS) {
+			return New.mapCopyOf(map);
+		}
+		Map.Entry<?, ?>[] entries = map.entrySet().toArray(new Map.Entry<?, ?>[map.size()]);
+		if (!distinctKeys(entries)) {
+			// throws for the null key or value
+			return New.mapCopyOf(map);
+		}
+		Map<K, V> canonical = lookup(new MapView(entries));
+		return canonical != null ? canonical : intern(New.mapCopyOf(map));
+	}
+
+	/**
+	 * @return how many times a canonical instance was returned
+	 */
+	public long hitCount() {
+		return hits.sum();
+	}
+
+	/**
+	 * @return how many times a collection was interned because there was no canonical
+	 * instance yet
+	 */
+	public long missCount() {
+		return misses.sum();
+	}
+
+	/**
+	 * @return how many canonical instances were dropped to make room for new ones
+	 */
+	public long evictionCount() {
+		return evictions.sum();
+	}
+
+	/**
+	 * @return the number of canonical instances currently held
+	 */
+	public int size() {
+		int size = 0;
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				size += segment.size();
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Drops every canonical instance, counters are kept.
+	 */
+	public void clear() {
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				segment.clear();
+			}
+		}
+	}
+
+	private <T extends Collection<?>> T canonical(T created) {
+		if (created.size() > MAX_ELEMENTS) {
+			return created;
+		}
+		T canonical = lookup(created);
+		return canonical != null ? canonical : intern(created);
+	}
+
+	private static boolean noNulls(Object[] elements) {
+		for (Object e : elements) {
+			if (e == null) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return whether the elements are neither {@code null} nor repeated, checked by
+	 * comparing each pair as there are only a few
+	 */
+	private static boolean distinct(Object[] elements) {
+		for (int i = 0; i < elements.length; i++) {
+			if (elements[i] == null || contains(elements, i, elements[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return whether the entries, their keys and values are not {@code null} and the
+	 * keys are not repeated
+	 */
+	private static boolean distinctKeys(Map.Entry<?, ?>[] entries) {
+		for (int i = 0; i < entries.length; i++) {
+			Map.Entry<?, ?> e = entries[i];
+			if (e == null || e.getKey() == null || e.getValue() == null) {
+				return false;
+			}
+			for (int j = 0; j < i; j++) {
+				if (e.getKey().equals(entries[j].getKey())) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	private static boolean contains(Object[] elements, int length, Object o) {
+		for (int i = 0; i < length; i++) {
+			if (o.equals(elements[i])) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> T lookup(Object key) {
+		Segment segment = segmentFor(key.hashCode());
+		Object canonical;
+		synchronized (segment) {
+			canonical = segment.get(key);
+		}
+		if (canonical != null) {
+			hits.increment();
+		}
+		return (T) canonical;
+	}
+
+	/**
+	 * Another thread could have interned an equal collection since the lookup, that one
+	 * wins.
+	 */
+	@SuppressWarnings("unchecked")
+	private <T> T intern(T created) {
+		Segment segment = segmentFor(created.hashCode());
+		Object canonical;
+		synchronized (segment) {
+			canonical = segment.putIfAbsent(created, created);
+		}
+		if (canonical != null) {
+			hits.increment();
+			return (T) canonical;
+		}
+		misses.increment();
+		return created;
+	}
+
+	private Segment segmentFor(int hash) {
+		return segments[ImmutableCollections.mix(hash, segments.length - 1)];
+	}
+
+	/**
+	 * List of the elements of an array, not {@code null}, to look up a canonical list
+	 * without creating it. Equality and hash code are computed straight from the array,
+	 * without iterators.
+	 */
+	private static final class ListView extends AbstractList<Object> implements RandomAccess {
+
+		private final Object[] elements;
+
+		ListView(Object[] elements) {
+			this.elements = elements;
+		}
+
+		@Override
+		public Object get(int index) {
+			return elements[index];
+		}
+
+		@Override
+		public int size() {
+			return elements.length;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (o == this) {
+				return true;
+			}
+			if (!(o instanceof List) || ((List<?>) o).size() != elements.length) {
+				return false;
+			}
+			if (!(o instanceof RandomAccess)) {
+				return super.equals(o);
+			}
+			for (int i = 0; i < elements.length; i++) {
+				if (!elements[i].equals(((List<?>) o).get(i))) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public int hashCode() {
+			int hash = 1;
+			for (Object e : elements) {
+				hash = 31 * hash + e.hashCode();
+			}
+			return hash;
+		}
+
+	}
+
+	/**
+	 * Set of the first elements of an array, not {@code null} nor repeated, to look up a
+	 * canonical set without creating it. Equality and hash code are computed straight
+	 * from the array, without iterators.
+	 */
+	private static final class SetView extends AbstractSet<Object> {
+
+		private final Object[] elements;
+
+		private final int size;
+
+		SetView(Object[] elements, int size) {
+			this.elements = elements;
+			this.size = size;
+		}
+
+		@Override
+		public Iterator<Object> iterator() {
+			return Arrays.asList(elements).subList(0, size).iterator();
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (o == this) {
+				return true;
+			}
+			if (!(o instanceof Set) || ((Set<?>) o).size() != size) {
+				return false;
+			}
+			for (int i = 0; i < size; i++) {
+				if (!((Set<?>) o).contains(elements[i])) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public int hashCode() {
+			int hash = 0;
+			for (int i = 0; i < size; i++) {
+				hash += elements[i].hashCode();
+			}
+			return hash;
+		}
+
+	}
+
+	/**
+	 * Map of entries with keys and values not {@code null} and keys not repeated, to look
+	 * up a canonical map without creating it. Equality and hash code are computed
+	 * straight from the array, without iterators.
+	 */
+	private static final class MapView extends AbstractMap<Object, Object> {
+
+		private final Map.Entry<?, ?>[] entries;
+
+		MapView(Map.Entry<?, ?>[] entries) {
+			this.entries = entries;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public Set<Map.Entry<Object, Object>> entrySet() {
+			// entries with distinct keys are distinct too
+			return (Set<Map.Entry<Object, Object>>) (Set<?>) new SetView(entries, entries.length);
+		}
+
+		@Override
+		public int size() {
+			return entries.length;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (o == this) {
+				return true;
+			}
+			if (!(o instanceof Map) || ((Map<?, ?>) o).size() != entries.length) {
+				return false;
+			}
+			for (Map.Entry<?, ?> e : entries) {
+				if (!e.getValue().equals(((Map<?, ?>) o).get(e.getKey()))) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public int hashCode() {
+			int hash = 0;
+			for (Map.Entry<?, ?> e : entries) {
+				hash += e.getKey().hashCode() ^ e.getValue().hashCode();
+			}
+			return hash;
+		}
+
+	}
+
+	/**
+	 * Access ordered map from each canonical instance to itself, guarded by its own
+	 * monitor.
+	 */
+	private final class Segment extends LinkedHashMap<Object, Object> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int capacity;
+
+		Segment(int capacity) {
+			super(16, 0.75f, true);
+			this.capacity = capacity;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Object, Object> eldest) {
+			if (size() > capacity) {
+				evictions.increment();
+				return true;
+			}
+			return false;
+		}
+
+	}
+
+}
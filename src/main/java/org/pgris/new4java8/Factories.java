@@ -0,0 +1,221 @@
+package org.pgris.new4java8;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The implementations behind the {@code listOf}, {@code setOf} and {@code mapOf}
+ * factories of {@link New}, and their {@code copyOf} variants. This is the Java 8
+ * version, building this library's own collections: the multi-release jar has another
+ * version in {@code META-INF/versions/9}, compiled from {@code src/main/java9}, which
+ * Java 9 and later load instead and which returns the JDK's own unmodifiable collections.
+ */
+final class Factories {
+
+	/**
+	 * Whether the factories return the JDK's collections instead of this library's. Not a
+	 * compile time constant, so it isn't inlined and the version loaded at runtime
+	 * decides
+	 */
+	static final boolean USES_JDK_COLLECTIONS = usesJdkCollections();
+
+	private Factories() {
+		// do not instantiate
+	}
+
+	private static boolean usesJdkCollections() {
+		return false;
+	}
+
+	@SuppressWarnings("unchecked")
+	static <E> List<E> listOf() {
+		return (List<E>) ImmutableCollections.ListN.EMPTY_LIST;
+	}
+
+	static <E> List<E> listOf(E e1) {
+		return new ImmutableCollections.List12<>(e1);
+	}
+
+	static <E> List<E> listOf(E e1, E e2) {
+		return new ImmutableCollections.List12<>(e1, e2);
+	}
+
+	static <E> List<E> listOf(E e1, E e2, E e3) {
+		return ImmutableCollections.listFromTrustedArray(e1, e2, e3);
+	}
+
+	static <E> List<E> listOf(E e1, E e2, E e3, E e4) {
+		return ImmutableCollections.listFromTrustedArray(e1, e2, e3, e4);
+	}
+
+	static <E> List<E> listOf(E e1, E e2, E e3, E e4, E e5) {
+		return ImmutableCollections.listFromTrustedArray(e1, e2, e3, e4, e5);
+	}
+
+	static <E> List<E> listOf(E e1, E e2, E e3, E e4, E e5, E e6) {
+		return ImmutableCollections.listFromTrustedArray(e1, e2, e3, e4, e5, e6);
+	}
+
+	static <E> List<E> listOf(E e1, E e2, E e3, E e4, E e5, E e6, E e7) {
+		return ImmutableCollections.listFromTrustedArray(e1, e2, e3, e4, e5, e6, e7);
+	}
+
+	static <E> List<E> listOf(E e1, E e2, E e3, E e4, E e5, E e6, E e7, E e8) {
+		return ImmutableCollections.listFromTrustedArray(e1, e2, e3, e4, e5, e6, e7, e8);
+	}
+
+	static <E> List<E> listOf(E e1, E e2, E e3, E e4, E e5, E e6, E e7, E e8, E e9) {
+		return ImmutableCollections.listFromTrustedArray(e1, e2, e3, e4, e5, e6, e7, e8, e9);
+	}
+
+	static <E> List<E> listOf(E e1, E e2, E e3, E e4, E e5, E e6, E e7, E e8, E e9, E e10) {
+		return ImmutableCollections.listFromTrustedArray(e1, e2, e3, e4, e5, e6, e7, e8, e9, e10);
+	}
+
+	@SafeVarargs
+	@SuppressWarnings("varargs")
+	static <E> List<E> listOf(E... elements) {
+		switch (elements.length) {
+		case 0:
+			return listOf();
+		case 1:
+			return new ImmutableCollections.List12<>(elements[0]);
+		case 2:
+			return new ImmutableCollections.List12<>(elements[0], elements[1]);
+		default:
+			return new ImmutableCollections.ListN<>(ImmutableCollections.copyNonNull(elements));
+		}
+	}
+
+	static <E> List<E> listCopyOf(Collection<? extends E> coll) {
+		Object[] elements = coll.toArray();
+		// any other collection could keep the array it returns, and change it later
+		if (coll.getClass() != ArrayList.class || elements.getClass() != Object[].class) {
+			elements = Arrays.copyOf(elements, elements.length, Object[].class);
+		}
+		return ImmutableCollections.listFromTrustedArray(elements);
+	}
+
+	@SuppressWarnings("unchecked")
+	static <E> Set<E> setOf() {
+		return (Set<E>) ImmutableCollections.SetN.EMPTY_SET;
+	}
+
+	static <E> Set<E> setOf(E e1) {
+		return new ImmutableCollections.Set12<>(e1);
+	}
+
+	static <E> Set<E> setOf(E e1, E e2) {
+		return new ImmutableCollections.Set12<>(e1, e2);
+	}
+
+	static <E> Set<E> setOf(E e1, E e2, E e3) {
+		return New.setFromArray(e1, e2, e3);
+	}
+
+	static <E> Set<E> setOf(E e1, E e2, E e3, E e4) {
+		return New.setFromArray(e1, e2, e3, e4);
+	}
+
+	static <E> Set<E> setOf(E e1, E e2, E e3, E e4, E e5) {
+		return New.setFromArray(e1, e2, e3, e4, e5);
+	}
+
+	static <E> Set<E> setOf(E e1, E e2, E e3, E e4, E e5, E e6) {
+		return New.setFromArray(e1, e2, e3, e4, e5, e6);
+	}
+
+	static <E> Set<E> setOf(E e1, E e2, E e3, E e4, E e5, E e6, E e7) {
+		return New.setFromArray(e1, e2, e3, e4, e5, e6, e7);
+	}
+
+	static <E> Set<E> setOf(E e1, E e2, E e3, E e4, E e5, E e6, E e7, E e8) {
+		return New.setFromArray(e1, e2, e3, e4, e5, e6, e7, e8);
+	}
+
+	static <E> Set<E> setOf(E e1, E e2, E e3, E e4, E e5, E e6, E e7, E e8, E e9) {
+		return New.setFromArray(e1, e2, e3, e4, e5, e6, e7, e8, e9);
+	}
+
+	static <E> Set<E> setOf(E e1, E e2, E e3, E e4, E e5, E e6, E e7, E e8, E e9, E e10) {
+		return New.setFromArray(e1, e2, e3, e4, e5, e6, e7, e8, e9, e10);
+	}
+
+	@SafeVarargs
+	@SuppressWarnings("varargs")
+	static <E> Set<E> setOf(E... elements) {
+		return New.setFromArray((Object[]) elements);
+	}
+
+	static <E> Set<E> setCopyOf(Collection<? extends E> coll) {
+		Object[] elements = coll.toArray();
+		return New.setDroppingDuplicates(elements, elements.length);
+	}
+
+	@SuppressWarnings("unchecked")
+	static <K, V> Map<K, V> mapOf() {
+		return (Map<K, V>) ImmutableCollections.MapN.EMPTY_MAP;
+	}
+
+	static <K, V> Map<K, V> mapOf(K k1, V v1) {
+		return new ImmutableCollections.Map1<>(k1, v1);
+	}
+
+	static <K, V> Map<K, V> mapOf(K k1, V v1, K k2, V v2) {
+		return New.mapFromKeysAndValues(k1, v1, k2, v2);
+	}
+
+	static <K, V> Map<K, V> mapOf(K k1, V v1, K k2, V v2, K k3, V v3) {
+		return New.mapFromKeysAndValues(k1, v1, k2, v2, k3, v3);
+	}
+
+	static <K, V> Map<K, V> mapOf(K k1, V v1, K k2, V v2, K k3, V v3, K k4, V v4) {
+		return New.mapFromKeysAndValues(k1, v1, k2, v2, k3, v3, k4, v4);
+	}
+
+	static <K, V> Map<K, V> mapOf(K k1, V v1, K k2, V v2, K k3, V v3, K k4, V v4, K k5, V v5) {
+		return New.mapFromKeysAndValues(k1, v1, k2, v2, k3, v3, k4, v4, k5, v5);
+	}
+
+	static <K, V> Map<K, V> mapOf(K k1, V v1, K k2, V v2, K k3, V v3, K k4, V v4, K k5, V v5, K k6, V v6) {
+		return New.mapFromKeysAndValues(k1, v1, k2, v2, k3, v3, k4, v4, k5, v5, k6, v6);
+	}
+
+	static <K, V> Map<K, V> mapOf(K k1, V v1, K k2, V v2, K k3, V v3, K k4, V v4, K k5, V v5, K k6, V v6, K k7, V v7) {
+		return New.mapFromKeysAndValues(k1, v1, k2, v2, k3, v3, k4, v4, k5, v5, k6, v6, k7, v7);
+	}
+
+	static <K, V> Map<K, V> mapOf(K k1, V v1, K k2, V v2, K k3, V v3, K k4, V v4, K k5, V v5, K k6, V v6, K k7, V v7,
+			K k8, V v8) {
+		return New.mapFromKeysAndValues(k1, v1, k2, v2, k3, v3, k4, v4, k5, v5, k6, v6, k7, v7, k8, v8);
+	}
+
+	static <K, V> Map<K, V> mapOf(K k1, V v1, K k2, V v2, K k3, V v3, K k4, V v4, K k5, V v5, K k6, V v6, K k7, V v7,
+			K k8, V v8, K k9, V v9) {
+		return New.mapFromKeysAndValues(k1, v1, k2, v2, k3, v3, k4, v4, k5, v5, k6, v6, k7, v7, k8, v8, k9, v9);
+	}
+
+	static <K, V> Map<K, V> mapOf(K k1, V v1, K k2, V v2, K k3, V v3, K k4, V v4, K k5, V v5, K k6, V v6, K k7, V v7,
+			K k8, V v8, K k9, V v9, K k10, V v10) {
+		return New.mapFromKeysAndValues(k1, v1, k2, v2, k3, v3, k4, v4, k5, v5, k6, v6, k7, v7, k8, v8, k9, v9, k10,
+				v10);
+	}
+
+	@SafeVarargs
+	@SuppressWarnings("varargs")
+	static <K, V> Map<K, V> mapOfEntries(Map.Entry<? extends K, ? extends V>... entries) {
+		return New.mapFromEntries(entries);
+	}
+
+	@SuppressWarnings("unchecked")
+	static <K, V> Map<K, V> mapCopyOf(Map<? extends K, ? extends V> map) {
+		// a snapshot of the entries, so a concurrent map growing meanwhile can't overflow
+		// the table
+		return mapOfEntries((Map.Entry<K, V>[]) map.entrySet().toArray(new Map.Entry<?, ?>[0]));
+	}
+
+}
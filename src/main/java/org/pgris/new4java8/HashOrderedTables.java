@@ -0,0 +1,327 @@
+package org.pgris.new4java8;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Builds {@link ImmutableCollections.SetHashOrdered} and
+ * {@link ImmutableCollections.MapHashOrdered} by sorting, for the factories and builders
+ * that were filling a probe table when a probe got longer than
+ * {@link ImmutableCollections#MAX_PROBE}. Carrying on probing would compare each new item
+ * with every item that shares its slot, quadratic in all, where sorting them by
+ * {@link ImmutableCollections#compareHashThenNatural} and looking for duplicates among
+ * neighbours is {@code O(n log n)}.
+ *
+ * <p>
+ * Items that can't be sorted, because they aren't all of the same {@code Comparable}
+ * class or their {@code compareTo} throws, make every method here give up and return
+ * {@code null}, and the caller goes back to probing.
+ */
+final class HashOrderedTables {
+
+	/**
+	 * Merges the value of a repeated key into the value of the key before it
+	 */
+	interface Merge {
+
+		/**
+		 * @return the merged value, or throws if the key can't be repeated
+		 */
+		Object apply(Object key, Object previous, Object value);
+
+	}
+
+	/**
+	 * Never create an instance
+	 */
+	private HashOrderedTables() {
+		// do not instantiate
+	}
+
+	/**
+	 * Builds a set from the first {@code length} elements of the array, throwing the
+	 * exception {@code setOf} throws for the first null or repeated element in array
+	 * order.
+	 * @param dropDuplicates whether to keep the first of equal elements instead of
+	 * throwing
+	 * @return the set, or {@code null} if the elements can't be sorted
+	 */
+	static <E> Set<E> setOf(Object[] elements, int length, boolean dropDuplicates) {
+		int n = firstNull(elements, 1, length);
+		if (dropDuplicates && n < length) {
+			throw new NullPointerException();
+		}
+		Integer[] order = order(elements, 1, n);
+		if (order == null) {
+			return null;
+		}
+		int[] firsts = firstEquals(elements, 1, order);
+		int size = 0;
+		for (int i = 0; i < n; i++) {
+			if (firsts[i] == i) {
+				size++;
+			}
+			else if (!dropDuplicates) {
+				throw new IllegalArgumentException("duplicate element: " + elements[i]);
+			}
+		}
+		if (n < length) {
+			throw new NullPointerException();
+		}
+		Object[] sorted = new Object[size];
+		int j = 0;
+		for (int i : order) {
+			if (firsts[i] == i) {
+				sorted[j++] = elements[i];
+			}
+		}
+		return new ImmutableCollections.SetHashOrdered<>(sorted);
+	}
+
+	/**
+	 * Builds a map from the first {@code pairs} keys and values of the array, throwing
+	 * the exception {@code mapOf} throws for the first null or repeated key in array
+	 * order, or merging the values of repeated keys in array order.
+	 * @param keysAndValues keys each followed by its value
+	 * @param merge merges the value of a repeated key into the one before, or
+	 * {@code null} to reject repeated keys
+	 * @return the map, or {@code null} if the keys can't be sorted
+	 */
+	static <K, V> Map<K, V> mapOf(Object[] keysAndValues, int pairs, Merge merge) {
+		int n = firstNull(keysAndValues, 2, pairs);
+		Integer[] order = order(keysAndValues, 2, n);
+		if (order == null) {
+			return null;
+		}
+		int[] firsts = firstEquals(keysAndValues, 2, order);
+		Object[] values = new Object[n];
+		int size = 0;
+		for (int i = 0; i < n; i++) {
+			int first = firsts[i];
+			if (first == i) {
+				values[i] = keysAndValues[2 * i + 1];
+				size++;
+			}
+			else if (merge == null) {
+				throw new IllegalArgumentException("duplicated key:" + keysAndValues[2 * i]);
+			}
+			else {
+				values[first] = Objects
+						.requireNonNull(merge.apply(keysAndValues[2 * i], values[first], keysAndValues[2 * i + 1]));
+			}
+		}
+		if (n < pairs) {
+			throw new NullPointerException();
+		}
+		Object[] table = new Object[2 * size];
+		int j = 0;
+		for (int i : order) {
+			if (firsts[i] == i) {
+				table[j++] = keysAndValues[2 * i];
+				table[j++] = values[i];
+			}
+		}
+		return new ImmutableCollections.MapHashOrdered<>(table);
+	}
+
+	/**
+	 * @return the index of the first item with a {@code null} key or value, or
+	 * {@code length} if there is none
+	 */
+	private static int firstNull(Object[] items, int width, int length) {
+		for (int i = 0; i < length; i++) {
+			if (items[width * i] == null || width == 2 && items[2 * i + 1] == null) {
+				return i;
+			}
+		}
+		return length;
+	}
+
+	/**
+	 * @return the indexes of the first {@code n} keys, found every {@code width} slots,
+	 * sorted by {@link ImmutableCollections#compareHashThenNatural}, with keys that
+	 * compare as equal in array order, or {@code null} if they can't be sorted
+	 */
+	static Integer[] order(Object[] items, int width, int n) {
+		Class<?> type = n == 0 ? null : items[0].getClass();
+		if (type == null || !Comparable.class.isAssignableFrom(type)) {
+			return null;
+		}
+		Integer[] order = new Integer[n];
+		for (int i = 0; i < n; i++) {
+			if (items[width * i].getClass() != type) {
+				return null;
+			}
+			order[i] = i;
+		}
+		try {
+			// stable, so keys that compare as equal stay in array order
+			Arrays.sort(order,
+					(a, b) -> ImmutableCollections.compareHashThenNatural(items[width * a], items[width * b]));
+		}
+		catch (ClassCastException | IllegalArgumentException e) {
+			// Comparable to another class, or not even consistent with itself
+			return null;
+		}
+		return order;
+	}
+
+	/**
+	 * @return for each key, the index of the first key equal to it, itself if it is the
+	 * first. Equal keys compare as equal, so they are found among the neighbours that do.
+	 */
+	static int[] firstEquals(Object[] items, int width, Integer[] order) {
+		int[] firsts = new int[order.length];
+		int from = 0;
+		for (int p = 0; p < order.length; p++) {
+			int i = order[p];
+			Object key = items[width * i];
+			if (p > 0 && ImmutableCollections.compareHashThenNatural(items[width * order[p - 1]], key) != 0) {
+				from = p;
+			}
+			firsts[i] = i;
+			for (int q = from; q < p; q++) {
+				if (firsts[order[q]] == order[q] && key.equals(items[width * order[q]])) {
+					firsts[i] = order[q];
+					break;
+				}
+			}
+		}
+		return firsts;
+	}
+
+	/**
+	 * Keys of a builder, and their values, sorted by
+	 * {@link ImmutableCollections#compareHashThenNatural} in a tree once a probe got
+	 * longer than {@link ImmutableCollections#MAX_PROBE}, so each key put is a lookup in
+	 * the tree instead of a scan. Keys that compare as equal without being equal share a
+	 * node, with their values, in the order they were put.
+	 */
+	static final class Tree {
+
+		/**
+		 * {@link #put} result for a key put in the tree
+		 */
+		static final int ADDED = 0;
+
+		/**
+		 * {@link #put} result for a key already in the tree
+		 */
+		static final int REPEATED = 1;
+
+		/**
+		 * {@link #put} result for a key that can't be put in the tree, so the builder has
+		 * to go back to probing
+		 */
+		static final int UNORDERED = 2;
+
+		private final TreeMap<Object, List<Object>> map = new TreeMap<>(ImmutableCollections::compareHashThenNatural);
+
+		private final Class<?> type;
+
+		private int size;
+
+		private Tree(Class<?> type) {
+			this.type = type;
+		}
+
+		/**
+		 * @param table a probe table, with keys every {@code width} slots, each followed
+		 * by its value if {@code width} is {@code 2}
+		 * @return a tree with the keys and values of the table, or {@code null} if they
+		 * can't be sorted
+		 */
+		static Tree of(Object[] table, int width) {
+			Tree tree = null;
+			for (int i = 0; i < table.length; i += width) {
+				Object key = table[i];
+				if (key != null) {
+					if (tree == null) {
+						if (!Comparable.class.isAssignableFrom(key.getClass())) {
+							return null;
+						}
+						tree = new Tree(key.getClass());
+					}
+					if (tree.put(key, width == 2 ? table[i + 1] : key) != ADDED) {
+						return null;
+					}
+				}
+			}
+			return tree;
+		}
+
+		/**
+		 * @return {@link #ADDED}, {@link #REPEATED}, or {@link #UNORDERED} for a key of
+		 * another class or whose {@code compareTo} throws
+		 */
+		int put(Object key, Object value) {
+			if (key.getClass() != type) {
+				return UNORDERED;
+			}
+			List<Object> same;
+			try {
+				same = map.get(key);
+				if (same == null) {
+					same = new ArrayList<>(2);
+					map.put(key, same);
+				}
+			}
+			catch (ClassCastException | IllegalArgumentException e) {
+				return UNORDERED;
+			}
+			for (int i = 0; i < same.size(); i += 2) {
+				if (key.equals(same.get(i))) {
+					return REPEATED;
+				}
+			}
+			same.add(key);
+			same.add(value);
+			size++;
+			return ADDED;
+		}
+
+		/**
+		 * @return the keys in order, each followed by its value if {@code width} is
+		 * {@code 2}, as {@link ImmutableCollections.SetHashOrdered} and
+		 * {@link ImmutableCollections.MapHashOrdered} take them
+		 */
+		Object[] sorted(int width) {
+			Object[] sorted = new Object[width * size];
+			int j = 0;
+			for (List<Object> same : map.values()) {
+				for (int i = 0; i < same.size(); i += 2) {
+					sorted[j++] = same.get(i);
+					if (width == 2) {
+						sorted[j++] = same.get(i + 1);
+					}
+				}
+			}
+			return sorted;
+		}
+
+		/**
+		 * @return a probe table of {@code length} slots with the keys and values of the
+		 * tree, to go back to probing
+		 */
+		Object[] table(int width, int length) {
+			Object[] table = new Object[length];
+			Object[] sorted = sorted(width);
+			for (int i = 0; i < sorted.length; i += width) {
+				int idx = width == 1 ? -(ImmutableCollections.SetN.probe(table, sorted[i]) + 1)
+						: -(ImmutableCollections.MapN.probe(table, sorted[i]) + 1);
+				table[idx] = sorted[i];
+				if (width == 2) {
+					table[idx + 1] = sorted[i + 1];
+				}
+			}
+			return table;
+		}
+
+	}
+
+}
@@ -0,0 +1,391 @@
+package org.pgris.new4java8;
+
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Unmodifiable map whose values are unique too, so it can be looked up in both
+ * directions, for id translations and other one to one mappings. Created with
+ * {@link New#biMapOf(Map) New.biMapOf}.
+ *
+ * <p>
+ * Keys and values are kept in two arrays in the order they were given in, and a single
+ * open addressing table indexes both: each slot has one lane for the index of a key and
+ * another one for the index of a value. {@link #inverse()} is created together with the
+ * map and shares those arrays with its lanes swapped, so it costs nothing to call. If a
+ * probe gets longer than {@link ImmutableCollections#MAX_PROBE}, the keys and the values
+ * that can be ordered are indexed by a sorted copy instead, searched in {@code O(log n)}.
+ *
+ * <p>
+ * Apart from that, it has the same characteristics as the maps created by
+ * {@link New#mapOf() New.mapOf}, with mappings iterating in the order they were given in.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of mapped values
+ */
+public final class ImmutableBiMap<K, V> extends ImmutableCollections.AbstractImmutableMap<K, V> {
+
+	private static final long serialVersionUID = 1L;
+
+	private final Object[] keys;
+
+	private final Object[] values;
+
+	/**
+	 * Pairs of slots: the index plus one of the key whose probe reached the slot, then
+	 * the index plus one of the value, {@code 0} for free slots
+	 */
+	private final int[] table;
+
+	/**
+	 * For each lane, the sorted index that replaces it, or {@code null} if that lane of
+	 * the table is used
+	 */
+	private final Sorted[] sorted;
+
+	/**
+	 * The lane of the table for the keys of this map, {@code 1} for an inverse
+	 */
+	private final int lane;
+
+	private final ImmutableBiMap<V, K> inverse;
+
+	/**
+	 * Computed on first use, {@code 0} until then
+	 */
+	private int hash;
+
+	private ImmutableBiMap(Object[] keys, Object[] values, int[] table, Sorted[] sorted) {
+		this.keys = keys;
+		this.values = values;
+		this.table = table;
+		this.sorted = sorted;
+		this.lane = 0;
+		this.inverse = new ImmutableBiMap<>(this);
+	}
+
+	private ImmutableBiMap(ImmutableBiMap<V, K> inverse) {
+		this.keys = inverse.values;
+		this.values = inverse.keys;
+		this.table = inverse.table;
+		this.sorted = inverse.sorted;
+		this.lane = 1;
+		this.inverse = inverse;
+	}
+
+	/**
+	 * @param keysAndValues each key followed by its value
+	 * @throws IllegalArgumentException if there are any duplicate keys or values
+	 * @throws NullPointerException if any key or value is {@code null}
+	 */
+	static <K, V> ImmutableBiMap<K, V> of(Object[] keysAndValues) {
+		int size = keysAndValues.length >> 1;
+		Object[] keys = new Object[size];
+		Object[] values = new Object[size];
+		int[] table = new int[2 * ImmutableCollections.tableSizeFor(size)];
+		for (int i = 0; i < size; i++) {
+			Object key = Objects.requireNonNull(keysAndValues[2 * i]);
+			Object value = Objects.requireNonNull(keysAndValues[2 * i + 1]);
+			int keyIdx = probeShort(table, 0, keys, key);
+			int valueIdx = probeShort(table, 1, values, value);
+			if (keyIdx == ImmutableCollections.LONG_PROBE || valueIdx == ImmutableCollections.LONG_PROBE) {
+				return sorted(keysAndValues);
+			}
+			if (keyIdx >= 0) {
+				throw new IllegalArgumentException("duplicated key:" + key);
+			}
+			if (valueIdx >= 0) {
+				throw new IllegalArgumentException("duplicated value:" + value);
+			}
+			keys[i] = key;
+			values[i] = value;
+			table[-(keyIdx + 1)] = i + 1;
+			table[-(valueIdx + 1)] = i + 1;
+		}
+		return new ImmutableBiMap<>(keys, values, table, new Sorted[2]);
+	}
+
+	/**
+	 * Builds the map indexing by sorted copies the keys and the values that can be
+	 * ordered, throwing the exception {@link #of} throws for the first {@code null} or
+	 * repeated key or value in array order.
+	 */
+	private static <K, V> ImmutableBiMap<K, V> sorted(Object[] keysAndValues) {
+		int size = keysAndValues.length >> 1;
+		int n = 0;
+		while (n < size && keysAndValues[2 * n] != null && keysAndValues[2 * n + 1] != null) {
+			n++;
+		}
+		Object[][] lanes = { new Object[n], new Object[n] };
+		for (int i = 0; i < n; i++) {
+			lanes[0][i] = keysAndValues[2 * i];
+			lanes[1][i] = keysAndValues[2 * i + 1];
+		}
+		int[] table = null;
+		Sorted[] sorted = new Sorted[2];
+		// index in array order of the first repeated key, then of the first repeated
+		// value
+		int[] repeated = { n, n };
+		for (int lane = 0; lane < 2; lane++) {
+			Object[] objects = lanes[lane];
+			Integer[] order = HashOrderedTables.order(objects, 1, n);
+			if (order != null) {
+				int[] firsts = HashOrderedTables.firstEquals(objects, 1, order);
+				for (int i = 0; i < n && repeated[lane] == n; i++) {
+					if (firsts[i] != i) {
+						repeated[lane] = i;
+					}
+				}
+				sorted[lane] = new Sorted(objects, order);
+				continue;
+			}
+			// can't be ordered, so probing it is
+			if (table == null) {
+				table = new int[2 * ImmutableCollections.tableSizeFor(n)];
+			}
+			for (int i = 0; i < n; i++) {
+				int idx = probe(table, lane, objects, objects[i]);
+				if (idx >= 0) {
+					repeated[lane] = i;
+					break;
+				}
+				table[-(idx + 1)] = i + 1;
+			}
+		}
+		if (repeated[0] < n && repeated[0] <= repeated[1]) {
+			throw new IllegalArgumentException("duplicated key:" + lanes[0][repeated[0]]);
+		}
+		if (repeated[1] < n) {
+			throw new IllegalArgumentException("duplicated value:" + lanes[1][repeated[1]]);
+		}
+		if (n < size) {
+			throw new NullPointerException();
+		}
+		return new ImmutableBiMap<>(lanes[0], lanes[1], table, sorted);
+	}
+
+	/**
+	 * Like {@link #probe}, but gives up after {@link ImmutableCollections#MAX_PROBE}
+	 * objects.
+	 * @return the index in {@code objects} of the object if present, {@code -i - 1} where
+	 * {@code i} is the index in the table of the free slot where it should be inserted,
+	 * or {@link ImmutableCollections#LONG_PROBE}
+	 */
+	private static int probeShort(int[] table, int lane, Object[] objects, Object o) {
+		int mask = (table.length >> 1) - 1;
+		int slot = ImmutableCollections.mix(o.hashCode(), mask);
+		for (int probes = 0; probes <= ImmutableCollections.MAX_PROBE; probes++) {
+			int i = table[2 * slot + lane] - 1;
+			if (i < 0) {
+				return -(2 * slot + lane) - 1;
+			}
+			if (o.equals(objects[i])) {
+				return i;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return ImmutableCollections.LONG_PROBE;
+	}
+
+	/**
+	 * @return the index of the object in the arrays in one of the lanes, or a negative
+	 * number
+	 */
+	private int indexOf(int lane, Object[] objects, Object o) {
+		Sorted index = sorted[lane];
+		return index != null ? index.indexOf(o) : probe(table, lane, objects, o);
+	}
+
+	/**
+	 * Looks for an object in one lane of the table.
+	 * @return the index in {@code objects} of the object if present, or {@code -i - 1}
+	 * where {@code i} is the index in the table of the free slot where it should be
+	 * inserted
+	 */
+	private static int probe(int[] table, int lane, Object[] objects, Object o) {
+		int mask = (table.length >> 1) - 1;
+		int slot = ImmutableCollections.mix(o.hashCode(), mask);
+		while (true) {
+			int i = table[2 * slot + lane] - 1;
+			if (i < 0) {
+				return -(2 * slot + lane) - 1;
+			}
+			if (o.equals(objects[i])) {
+				return i;
+			}
+			slot = (slot + 1) & mask;
+		}
+	}
+
+	/**
+	 * @return the same mappings from values to keys, whose inverse is this map
+	 */
+	public ImmutableBiMap<V, K> inverse() {
+		return inverse;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public V get(Object o) {
+		int i = indexOf(lane, keys, o);
+		return i >= 0 ? (V) values[i] : null;
+	}
+
+	@Override
+	public boolean containsKey(Object o) {
+		return indexOf(lane, keys, o) >= 0;
+	}
+
+	@Override
+	public boolean containsValue(Object o) {
+		return indexOf(1 - lane, values, o) >= 0;
+	}
+
+	@Override
+	public int size() {
+		return keys.length;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return keys.length == 0;
+	}
+
+	@Override
+	public int hashCode() {
+		int h = hash;
+		if (h == 0) {
+			for (int i = 0; i < keys.length; i++) {
+				h += keys[i].hashCode() ^ values[i].hashCode();
+			}
+			hash = h;
+		}
+		return h;
+	}
+
+	@Override
+	int cachedHash() {
+		return hash;
+	}
+
+	@Override
+	boolean containsAllMappings(Map<?, ?> m) {
+		for (int i = 0; i < keys.length; i++) {
+			if (!values[i].equals(m.get(keys[i]))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public void forEach(BiConsumer<? super K, ? super V> action) {
+		Objects.requireNonNull(action);
+		for (int i = 0; i < keys.length; i++) {
+			action.accept((K) keys[i], (V) values[i]);
+		}
+	}
+
+	@Override
+	public Set<Map.Entry<K, V>> entrySet() {
+		return new ImmutableCollections.AbstractImmutableSet<Map.Entry<K, V>>() {
+			@Override
+			public int size() {
+				return keys.length;
+			}
+
+			@Override
+			public boolean contains(Object o) {
+				if (!(o instanceof Map.Entry)) {
+					return false;
+				}
+				Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+				Object v = e.getKey() != null ? get(e.getKey()) : null;
+				return v != null && v.equals(e.getValue());
+			}
+
+			@Override
+			public int hashCode() {
+				return ImmutableBiMap.this.hashCode();
+			}
+
+			@Override
+			public Iterator<Map.Entry<K, V>> iterator() {
+				return new Iterator<Map.Entry<K, V>>() {
+					private int i = 0;
+
+					@Override
+					public boolean hasNext() {
+						return i < keys.length;
+					}
+
+					@Override
+					@SuppressWarnings("unchecked")
+					public Map.Entry<K, V> next() {
+						if (i == keys.length) {
+							throw new NoSuchElementException();
+						}
+						Map.Entry<K, V> e = new AbstractMap.SimpleImmutableEntry<>((K) keys[i], (V) values[i]);
+						i++;
+						return e;
+					}
+				};
+			}
+		};
+	}
+
+	/**
+	 * Keys or values of a bimap sorted by
+	 * {@link ImmutableCollections#compareHashThenNatural}, each with its index in the
+	 * arrays of the map, which keep the order the mappings were given in.
+	 */
+	private static final class Sorted implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Object[] objects;
+
+		private final int[] hashes;
+
+		private final int[] indexes;
+
+		Sorted(Object[] objects, Integer[] order) {
+			this.objects = new Object[order.length];
+			this.indexes = new int[order.length];
+			for (int p = 0; p < order.length; p++) {
+				this.objects[p] = objects[order[p]];
+				this.indexes[p] = order[p];
+			}
+			this.hashes = ImmutableCollections.SetHashOrdered.hashes(this.objects, 1);
+		}
+
+		int indexOf(Object o) {
+			int p = ImmutableCollections.SetHashOrdered.find(objects, hashes, 1, o);
+			return p >= 0 ? indexes[p] : -1;
+		}
+
+	}
+
+	private void readObject(ObjectInputStream in) throws InvalidObjectException {
+		throw new InvalidObjectException("not serial proxy");
+	}
+
+	private Object writeReplace() {
+		Object[] array = new Object[2 * keys.length];
+		for (int i = 0; i < keys.length; i++) {
+			array[2 * i] = keys[i];
+			array[2 * i + 1] = values[i];
+		}
+		return new ImmutableCollections.CollSer(ImmutableCollections.CollSer.IMM_BIMAP, array);
+	}
+
+}
@@ -0,0 +1,2678 @@
+package org.pgris.new4java8;
+
+import java.io.InvalidObjectException;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * Container class for the immutable collection implementations returned by {@link New}.
+ * None of these classes are part of the public API, callers should only rely on the
+ * {@code List}, {@code Set} and {@code Map} interfaces.
+ */
+final class ImmutableCollections {
+
+	/**
+	 * Never create an instance
+	 */
+	private ImmutableCollections() {
+		// do not instantiate
+	}
+
+	/**
+	 * Slots in the probe table for each element of a {@link SetN}.
+	 */
+	static final int EXPAND_FACTOR = 2;
+
+	/**
+	 * Returns the power of two table length that leaves {@link #EXPAND_FACTOR} slots per
+	 * element, used by the primitive collections.
+	 */
+	static int tableSizeFor(int size) {
+		int wanted = Math.max(2, EXPAND_FACTOR * size);
+		return Integer.highestOneBit(wanted - 1) << 1;
+	}
+
+	/**
+	 * Most elements allocated before any is read, when reading a collection whose size
+	 * comes from a stream. The array grows with {@link #grow} as elements arrive, so a
+	 * forged size can't allocate more than the stream actually holds.
+	 */
+	static final int MAX_PREALLOCATED = 1024;
+
+	/**
+	 * Returns a copy of a full array twice as long, but no longer than {@code length}.
+	 */
+	static Object[] grow(Object[] array, int length) {
+		return Arrays.copyOf(array, (int) Math.min(length, 2L * array.length));
+	}
+
+	/**
+	 * Random for each JVM and mixed into every hash before it picks a slot, so the slots
+	 * keys end up in, and the order sets and maps iterate in, can't be predicted from
+	 * their hash codes. Like the one in the JDK's own {@code ImmutableCollections}.
+	 */
+	static final int SALT;
+
+	static {
+		long nt = System.nanoTime();
+		SALT = (int) ((nt * 0x243F6A8885A308D3L) >>> 32);
+	}
+
+	/**
+	 * Longest probe, in keys compared, a {@link SetN} or {@link MapN} can have before
+	 * {@link SetN#of} and {@link MapN#of} turn it into a {@link SetHashOrdered} or
+	 * {@link MapHashOrdered}, and before the factories filling a table with
+	 * {@link SetN#probeShort} or {@link MapN#probeShort} switch to
+	 * {@link HashOrderedTables}. With two slots per key, random hash codes stay below it
+	 * even for millions of keys.
+	 */
+	static final int MAX_PROBE = 64;
+
+	/**
+	 * Returned by {@link SetN#probeShort} and {@link MapN#probeShort} for a probe longer
+	 * than {@link #MAX_PROBE}, never a valid result of a probe.
+	 */
+	static final int LONG_PROBE = Integer.MIN_VALUE;
+
+	/**
+	 * Fibonacci hashing of a primitive key into a power of two table, so sequential ids
+	 * don't end up in the same cluster.
+	 */
+	static int mix(long key, int mask) {
+		long h = (key ^ SALT) * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32)) & mask;
+	}
+
+	/**
+	 * The slot a probe for the object starts from, in a table of {@code length} slots of
+	 * any length: the salted hash code is Fibonacci hashed, and its high bits are scaled
+	 * to the table length.
+	 */
+	static int slot(Object o, int length) {
+		long h = (o.hashCode() ^ SALT) * 0x9E3779B97F4A7C15L;
+		return (int) (((h >>> 32) * length) >>> 32);
+	}
+
+	/**
+	 * Whether any key of a probe table, found every {@code step} slots, is more than
+	 * {@link #MAX_PROBE} keys away from the slot its probe starts from.
+	 */
+	static boolean hasLongProbes(Object[] table, int step) {
+		int slots = table.length / step;
+		for (int i = 0; i < slots; i++) {
+			Object k = table[step * i];
+			if (k != null && Math.floorMod(i - slot(k, slots), slots) > MAX_PROBE) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Whether all keys of a probe table, found every {@code step} slots, are of the same
+	 * class, and that class is {@code Comparable}, so they can be sorted by
+	 * {@link #compareHashThenNatural}, unless it is comparable to another class.
+	 */
+	static boolean sameComparableClass(Object[] table, int step) {
+		Class<?> type = null;
+		for (int i = 0; i < table.length; i += step) {
+			Object k = table[i];
+			if (k != null) {
+				if (type == null) {
+					type = k.getClass();
+				}
+				else if (k.getClass() != type) {
+					return false;
+				}
+			}
+		}
+		return type != null && Comparable.class.isAssignableFrom(type);
+	}
+
+	/**
+	 * Orders keys of the same {@code Comparable} class by hash code, and by their natural
+	 * ordering when the hash codes are the same.
+	 */
+	@SuppressWarnings("unchecked")
+	static int compareHashThenNatural(Object a, Object b) {
+		int c = Integer.compare(a.hashCode(), b.hashCode());
+		return c != 0 ? c : ((Comparable<Object>) a).compareTo(b);
+	}
+
+	static UnsupportedOperationException uoe() {
+		return new UnsupportedOperationException();
+	}
+
+	/**
+	 * Copies the given array checking that no element is {@code null}.
+	 */
+	static Object[] copyNonNull(Object[] elements) {
+		Object[] copy = new Object[elements.length];
+		for (int i = 0; i < elements.length; i++) {
+			copy[i] = Objects.requireNonNull(elements[i]);
+		}
+		return copy;
+	}
+
+	/**
+	 * Builds a list from an array nobody else holds a reference to, like the one created
+	 * for a fixed arity call, so there is no need to copy it.
+	 */
+	@SuppressWarnings("unchecked")
+	static <E> List<E> listFromTrustedArray(Object... input) {
+		switch (input.length) {
+		case 0:
+			return (List<E>) ListN.EMPTY_LIST;
+		case 1:
+			return new List12<>((E) input[0]);
+		case 2:
+			return new List12<>((E) input[0], (E) input[1]);
+		default:
+			for (Object element : input) {
+				Objects.requireNonNull(element);
+			}
+			return new ListN<>(input);
+		}
+	}
+
+	/**
+	 * Whether two collections or maps are known to be different because both already
+	 * cached their hash codes, and they differ.
+	 */
+	static boolean hashesDiffer(int h1, int h2) {
+		return h1 != 0 && h2 != 0 && h1 != h2;
+	}
+
+	static void checkIndex(int index, int size) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + " Size: " + size);
+		}
+	}
+
+	/**
+	 * Growable array used to accumulate stream elements before building the final
+	 * collection.
+	 */
+	static final class ArrayBuffer {
+
+		Object[] elements = new Object[10];
+
+		int size;
+
+		void add(Object e) {
+			if (size == elements.length) {
+				elements = Arrays.copyOf(elements, size + (size >> 1) + 2);
+			}
+			elements[size++] = e;
+		}
+
+		void add(Object e1, Object e2) {
+			if (size + 2 > elements.length) {
+				elements = Arrays.copyOf(elements, size + (size >> 1) + 2);
+			}
+			elements[size++] = e1;
+			elements[size++] = e2;
+		}
+
+		ArrayBuffer addAll(ArrayBuffer other) {
+			if (size == 0) {
+				return other;
+			}
+			if (size + other.size > elements.length) {
+				elements = Arrays.copyOf(elements, size + other.size);
+			}
+			System.arraycopy(other.elements, 0, elements, size, other.size);
+			size += other.size;
+			return this;
+		}
+
+		/**
+		 * @return the accumulated elements in an array of the exact size, the buffer
+		 * itself when there is no room left over
+		 */
+		Object[] toArray() {
+			return size == elements.length ? elements : Arrays.copyOf(elements, size);
+		}
+
+	}
+
+	/* COLLECTION */
+
+	abstract static class AbstractImmutableCollection<E> extends AbstractCollection<E> {
+
+		// all mutator methods throw UnsupportedOperationException
+		@Override
+		public boolean add(E e) {
+			throw uoe();
+		}
+
+		@Override
+		public boolean addAll(Collection<? extends E> c) {
+			throw uoe();
+		}
+
+		@Override
+		public void clear() {
+			throw uoe();
+		}
+
+		@Override
+		public boolean remove(Object o) {
+			throw uoe();
+		}
+
+		@Override
+		public boolean removeAll(Collection<?> c) {
+			throw uoe();
+		}
+
+		@Override
+		public boolean removeIf(Predicate<? super E> filter) {
+			throw uoe();
+		}
+
+		@Override
+		public boolean retainAll(Collection<?> c) {
+			throw uoe();
+		}
+
+	}
+
+	/* LIST */
+
+	abstract static class AbstractImmutableList<E> extends AbstractImmutableCollection<E>
+			implements List<E>, RandomAccess {
+
+		// all mutator methods throw UnsupportedOperationException
+		@Override
+		public void add(int index, E element) {
+			throw uoe();
+		}
+
+		@Override
+		public boolean addAll(int index, Collection<? extends E> c) {
+			throw uoe();
+		}
+
+		@Override
+		public E remove(int index) {
+			throw uoe();
+		}
+
+		@Override
+		public void replaceAll(UnaryOperator<E> operator) {
+			throw uoe();
+		}
+
+		@Override
+		public E set(int index, E element) {
+			throw uoe();
+		}
+
+		@Override
+		public void sort(Comparator<? super E> c) {
+			throw uoe();
+		}
+
+		@Override
+		public List<E> subList(int fromIndex, int toIndex) {
+			subListRangeCheck(fromIndex, toIndex, size());
+			return new SubList<>(this, fromIndex, toIndex - fromIndex);
+		}
+
+		static void subListRangeCheck(int fromIndex, int toIndex, int size) {
+			if (fromIndex < 0) {
+				throw new IndexOutOfBoundsException("fromIndex = " + fromIndex);
+			}
+			if (toIndex > size) {
+				throw new IndexOutOfBoundsException("toIndex = " + toIndex);
+			}
+			if (fromIndex > toIndex) {
+				throw new IllegalArgumentException("fromIndex(" + fromIndex + ") > toIndex(" + toIndex + ")");
+			}
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			return indexOf(o) >= 0;
+		}
+
+		@Override
+		public int indexOf(Object o) {
+			Objects.requireNonNull(o);
+			for (int i = 0, s = size(); i < s; i++) {
+				if (o.equals(get(i))) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		@Override
+		public int lastIndexOf(Object o) {
+			Objects.requireNonNull(o);
+			for (int i = size() - 1; i >= 0; i--) {
+				if (o.equals(get(i))) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		@Override
+		public Iterator<E> iterator() {
+			return new ListItr<>(this, size(), 0);
+		}
+
+		@Override
+		public Spliterator<E> spliterator() {
+			return new IndexSpliterator<>(this, 0, size());
+		}
+
+		@Override
+		public void forEach(Consumer<? super E> action) {
+			Objects.requireNonNull(action);
+			for (int i = 0, s = size(); i < s; i++) {
+				action.accept(get(i));
+			}
+		}
+
+		@Override
+		public ListIterator<E> listIterator() {
+			return listIterator(0);
+		}
+
+		@Override
+		public ListIterator<E> listIterator(int index) {
+			int size = size();
+			if (index < 0 || index > size) {
+				throw new IndexOutOfBoundsException("Index: " + index + " Size: " + size);
+			}
+			return new ListItr<>(this, size, index);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (o == this) {
+				return true;
+			}
+			if (!(o instanceof List)) {
+				return false;
+			}
+			if (o instanceof AbstractImmutableList
+					&& hashesDiffer(cachedHash(), ((AbstractImmutableList<?>) o).cachedHash())) {
+				return false;
+			}
+			if (o instanceof RandomAccess) {
+				List<?> other = (List<?>) o;
+				int size = size();
+				if (other.size() != size) {
+					return false;
+				}
+				for (int i = 0; i < size; i++) {
+					if (!get(i).equals(other.get(i))) {
+						return false;
+					}
+				}
+				return true;
+			}
+			Iterator<?> it = ((List<?>) o).iterator();
+			for (int i = 0, s = size(); i < s; i++) {
+				if (!it.hasNext() || !get(i).equals(it.next())) {
+					return false;
+				}
+			}
+			return !it.hasNext();
+		}
+
+		@Override
+		public int hashCode() {
+			int hash = 1;
+			for (int i = 0, s = size(); i < s; i++) {
+				hash = 31 * hash + get(i).hashCode();
+			}
+			return hash;
+		}
+
+		/**
+		 * @return the hash code if it was already computed and cached, or {@code 0}
+		 */
+		int cachedHash() {
+			return 0;
+		}
+
+	}
+
+	/**
+	 * Read only iterator over any {@link AbstractImmutableList}, based on
+	 * {@link List#get(int)} so it never walks nodes.
+	 */
+	static final class ListItr<E> implements ListIterator<E> {
+
+		private final List<E> list;
+
+		private final int size;
+
+		private int cursor;
+
+		ListItr(List<E> list, int size, int cursor) {
+			this.list = list;
+			this.size = size;
+			this.cursor = cursor;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return cursor != size;
+		}
+
+		@Override
+		public E next() {
+			int i = cursor;
+			if (i >= size) {
+				throw new NoSuchElementException();
+			}
+			cursor = i + 1;
+			return list.get(i);
+		}
+
+		@Override
+		public boolean hasPrevious() {
+			return cursor != 0;
+		}
+
+		@Override
+		public E previous() {
+			int i = cursor - 1;
+			if (i < 0) {
+				throw new NoSuchElementException();
+			}
+			cursor = i;
+			return list.get(i);
+		}
+
+		@Override
+		public int nextIndex() {
+			return cursor;
+		}
+
+		@Override
+		public int previousIndex() {
+			return cursor - 1;
+		}
+
+		@Override
+		public void remove() {
+			throw uoe();
+		}
+
+		@Override
+		public void set(E e) {
+			throw uoe();
+		}
+
+		@Override
+		public void add(E e) {
+			throw uoe();
+		}
+
+	}
+
+	/**
+	 * Spliterator over any {@link AbstractImmutableList}, based on {@link List#get(int)}.
+	 * Splits in halves by index, so every part knows its exact size. Lists that are views
+	 * of sorted sets add {@code DISTINCT} and {@code SORTED}.
+	 */
+	static final class IndexSpliterator<E> implements Spliterator<E> {
+
+		private static final int CHARACTERISTICS = Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED
+				| Spliterator.IMMUTABLE | Spliterator.NONNULL;
+
+		private final List<E> list;
+
+		private int index;
+
+		private final int fence;
+
+		private final int characteristics;
+
+		private final Comparator<? super E> comparator;
+
+		IndexSpliterator(List<E> list, int origin, int fence) {
+			this(list, origin, fence, 0, null);
+		}
+
+		/**
+		 * @param extraCharacteristics added to the ones of every list
+		 * @param comparator for {@code SORTED} spliterators, {@code null} for natural
+		 * order
+		 */
+		IndexSpliterator(List<E> list, int origin, int fence, int extraCharacteristics,
+				Comparator<? super E> comparator) {
+			this.list = list;
+			this.index = origin;
+			this.fence = fence;
+			this.characteristics = CHARACTERISTICS | extraCharacteristics;
+			this.comparator = comparator;
+		}
+
+		@Override
+		public Spliterator<E> trySplit() {
+			int lo = index;
+			int mid = (lo + fence) >>> 1;
+			return lo >= mid ? null
+					: new IndexSpliterator<>(list, lo, index = mid, characteristics & ~CHARACTERISTICS, comparator);
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super E> action) {
+			Objects.requireNonNull(action);
+			if (index < fence) {
+				action.accept(list.get(index++));
+				return true;
+			}
+			return false;
+		}
+
+		@Override
+		public void forEachRemaining(Consumer<? super E> action) {
+			Objects.requireNonNull(action);
+			int i = index;
+			index = fence;
+			for (; i < fence; i++) {
+				action.accept(list.get(i));
+			}
+		}
+
+		@Override
+		public long estimateSize() {
+			return fence - index;
+		}
+
+		@Override
+		public int characteristics() {
+			return characteristics;
+		}
+
+		@Override
+		public Comparator<? super E> getComparator() {
+			if (hasCharacteristics(Spliterator.SORTED)) {
+				return comparator;
+			}
+			throw new IllegalStateException();
+		}
+
+	}
+
+	/**
+	 * Spliterator over the not {@code null} slots of a table, splitting it in halves by
+	 * slot range. With a step of 2 it goes over an interleaved key and value table
+	 * creating entries. Parts of a table with free slots can only estimate their size, so
+	 * only dense tables report {@code SUBSIZED}.
+	 */
+	static final class TableSpliterator<T> implements Spliterator<T> {
+
+		private final Object[] table;
+
+		private final int step;
+
+		private int index;
+
+		private final int fence;
+
+		private int est;
+
+		private int characteristics;
+
+		/**
+		 * @param size the number of not {@code null} keys in the table
+		 * @param dense whether every slot is taken
+		 */
+		TableSpliterator(Object[] table, int step, int size, boolean dense, int characteristics) {
+			this(table, step, 0, table.length, size, characteristics | Spliterator.SIZED | Spliterator.IMMUTABLE
+					| Spliterator.NONNULL | (dense ? Spliterator.SUBSIZED : 0));
+		}
+
+		private TableSpliterator(Object[] table, int step, int origin, int fence, int est, int characteristics) {
+			this.table = table;
+			this.step = step;
+			this.index = origin;
+			this.fence = fence;
+			this.est = est;
+			this.characteristics = characteristics;
+		}
+
+		@Override
+		public Spliterator<T> trySplit() {
+			int lo = index;
+			int mid = lo + (fence - lo) / step / 2 * step;
+			if (mid <= lo) {
+				return null;
+			}
+			int splitEst;
+			if ((characteristics & Spliterator.SUBSIZED) != 0) {
+				splitEst = (mid - lo) / step;
+				est -= splitEst;
+			}
+			else {
+				characteristics &= ~Spliterator.SIZED;
+				splitEst = est >>>= 1;
+			}
+			index = mid;
+			return new TableSpliterator<>(table, step, lo, mid, splitEst, characteristics);
+		}
+
+		@SuppressWarnings("unchecked")
+		private T element(int i) {
+			return step == 1 ? (T) table[i] : (T) new AbstractMap.SimpleImmutableEntry<>(table[i], table[i + 1]);
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super T> action) {
+			Objects.requireNonNull(action);
+			while (index < fence) {
+				int i = index;
+				index += step;
+				if (table[i] != null) {
+					action.accept(element(i));
+					return true;
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public void forEachRemaining(Consumer<? super T> action) {
+			Objects.requireNonNull(action);
+			int i = index;
+			index = fence;
+			for (; i < fence; i += step) {
+				if (table[i] != null) {
+					action.accept(element(i));
+				}
+			}
+		}
+
+		@Override
+		public long estimateSize() {
+			return est;
+		}
+
+		@Override
+		public int characteristics() {
+			return characteristics;
+		}
+
+	}
+
+	/**
+	 * View over a range of another immutable list. Nothing is copied, sub lists of sub
+	 * lists point to the same root.
+	 */
+	static final class SubList<E> extends AbstractImmutableList<E> implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private final AbstractImmutableList<E> root;
+
+		private final int offset;
+
+		private final int size;
+
+		SubList(AbstractImmutableList<E> root, int offset, int size) {
+			this.root = root;
+			this.offset = offset;
+			this.size = size;
+		}
+
+		@Override
+		public E get(int index) {
+			checkIndex(index, size);
+			return root.get(offset + index);
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public List<E> subList(int fromIndex, int toIndex) {
+			subListRangeCheck(fromIndex, toIndex, size);
+			return new SubList<>(root, offset + fromIndex, toIndex - fromIndex);
+		}
+
+		private void readObject(ObjectInputStream in) throws InvalidObjectException {
+			throw new InvalidObjectException("not serial proxy");
+		}
+
+		private Object writeReplace() {
+			return new CollSer(CollSer.IMM_LIST, toArray());
+		}
+
+	}
+
+	/**
+	 * List of any size backed by a single array that is never exposed nor modified.
+	 */
+	static final class ListN<E> extends AbstractImmutableList<E> implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		static final ListN<?> EMPTY_LIST = new ListN<>(new Object[0]);
+
+		private final E[] elements;
+
+		/**
+		 * Computed on first use, {@code 0} until then
+		 */
+		private int hash;
+
+		/**
+		 * @param elements already checked for nulls, owned by this list from now on
+		 */
+		@SuppressWarnings("unchecked")
+		ListN(Object[] elements) {
+			this.elements = (E[]) elements;
+		}
+
+		@Override
+		public E get(int index) {
+			return elements[index];
+		}
+
+		@Override
+		public int size() {
+			return elements.length;
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return elements.length == 0;
+		}
+
+		@Override
+		public int indexOf(Object o) {
+			Objects.requireNonNull(o);
+			E[] es = elements;
+			for (int i = 0; i < es.length; i++) {
+				if (o.equals(es[i])) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		@Override
+		public int lastIndexOf(Object o) {
+			Objects.requireNonNull(o);
+			E[] es = elements;
+			for (int i = es.length - 1; i >= 0; i--) {
+				if (o.equals(es[i])) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		@Override
+		public Spliterator<E> spliterator() {
+			return Spliterators.spliterator(elements,
+					Spliterator.ORDERED | Spliterator.IMMUTABLE | Spliterator.NONNULL);
+		}
+
+		@Override
+		public void forEach(Consumer<? super E> action) {
+			Objects.requireNonNull(action);
+			for (E e : elements) {
+				action.accept(e);
+			}
+		}
+
+		@Override
+		public Object[] toArray() {
+			return Arrays.copyOf(elements, elements.length, Object[].class);
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public <T> T[] toArray(T[] a) {
+			int size = elements.length;
+			if (a.length < size) {
+				return (T[]) Arrays.copyOf(elements, size, a.getClass());
+			}
+			System.arraycopy(elements, 0, a, 0, size);
+			if (a.length > size) {
+				a[size] = null;
+			}
+			return a;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (o instanceof ListN) {
+				ListN<?> other = (ListN<?>) o;
+				return elements.length == other.elements.length && !hashesDiffer(hash, other.hash)
+						&& Arrays.equals(elements, other.elements);
+			}
+			return super.equals(o);
+		}
+
+		@Override
+		public int hashCode() {
+			int h = hash;
+			if (h == 0) {
+				hash = h = Arrays.hashCode(elements);
+			}
+			return h;
+		}
+
+		@Override
+		int cachedHash() {
+			return hash;
+		}
+
+		private void readObject(ObjectInputStream in) throws InvalidObjectException {
+			throw new InvalidObjectException("not serial proxy");
+		}
+
+		private Object writeReplace() {
+			return new CollSer(CollSer.IMM_LIST, elements);
+		}
+
+	}
+
+	/**
+	 * List of one or two elements kept in fields, {@code e1} is {@code null} for a
+	 * singleton list.
+	 */
+	static final class List12<E> extends AbstractImmutableList<E> implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private final E e0;
+
+		private final E e1;
+
+		List12(E e0) {
+			this.e0 = Objects.requireNonNull(e0);
+			this.e1 = null;
+		}
+
+		List12(E e0, E e1) {
+			this.e0 = Objects.requireNonNull(e0);
+			this.e1 = Objects.requireNonNull(e1);
+		}
+
+		@Override
+		public E get(int index) {
+			if (index == 0) {
+				return e0;
+			}
+			else if (index == 1 && e1 != null) {
+				return e1;
+			}
+			throw new IndexOutOfBoundsException("Index: " + index + " Size: " + size());
+		}
+
+		@Override
+		public int size() {
+			return e1 != null ? 2 : 1;
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return false;
+		}
+
+		@Override
+		public int indexOf(Object o) {
+			Objects.requireNonNull(o);
+			if (o.equals(e0)) {
+				return 0;
+			}
+			else if (o.equals(e1)) {
+				return 1;
+			}
+			return -1;
+		}
+
+		@Override
+		public int lastIndexOf(Object o) {
+			Objects.requireNonNull(o);
+			if (o.equals(e1)) {
+				return 1;
+			}
+			else if (o.equals(e0)) {
+				return 0;
+			}
+			return -1;
+		}
+
+		@Override
+		public Object[] toArray() {
+			return e1 == null ? new Object[] { e0 } : new Object[] { e0, e1 };
+		}
+
+		@Override
+		public int hashCode() {
+			int hash = 31 + e0.hashCode();
+			return e1 == null ? hash : 31 * hash + e1.hashCode();
+		}
+
+		private void readObject(ObjectInputStream in) throws InvalidObjectException {
+			throw new InvalidObjectException("not serial proxy");
+		}
+
+		private Object writeReplace() {
+			return new CollSer(CollSer.IMM_LIST, toArray());
+		}
+
+	}
+
+	/* SET */
+
+	abstract static class AbstractImmutableSet<E> extends AbstractImmutableCollection<E> implements Set<E> {
+
+		@Override
+		public boolean equals(Object o) {
+			if (o == this) {
+				return true;
+			}
+			if (!(o instanceof Set)) {
+				return false;
+			}
+			Collection<?> c = (Collection<?>) o;
+			if (c.size() != size()) {
+				return false;
+			}
+			if (o instanceof AbstractImmutableSet
+					&& hashesDiffer(cachedHash(), ((AbstractImmutableSet<?>) o).cachedHash())) {
+				return false;
+			}
+			for (Object e : c) {
+				if (e == null || !contains(e)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public abstract int hashCode();
+
+		/**
+		 * @return the hash code if it was already computed and cached, or {@code 0}
+		 */
+		int cachedHash() {
+			return 0;
+		}
+
+		@Override
+		public Spliterator<E> spliterator() {
+			return Spliterators.spliterator(this, Spliterator.DISTINCT | Spliterator.IMMUTABLE | Spliterator.NONNULL);
+		}
+
+	}
+
+	/**
+	 * Set of one or two elements kept in fields, {@code e1} is {@code null} for a
+	 * singleton set.
+	 */
+	static final class Set12<E> extends AbstractImmutableSet<E> implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private final E e0;
+
+		private final E e1;
+
+		Set12(E e0) {
+			this.e0 = Objects.requireNonNull(e0);
+			this.e1 = null;
+		}
+
+		Set12(E e0, E e1) {
+			if (e0.equals(Objects.requireNonNull(e1))) {
+				throw new IllegalArgumentException("duplicate element: " + e0);
+			}
+			this.e0 = e0;
+			this.e1 = e1;
+		}
+
+		@Override
+		public int size() {
+			return e1 == null ? 1 : 2;
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return false;
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			return o.equals(e0) || o.equals(e1);
+		}
+
+		@Override
+		public int hashCode() {
+			return e0.hashCode() + (e1 == null ? 0 : e1.hashCode());
+		}
+
+		@Override
+		public Iterator<E> iterator() {
+			return new Iterator<E>() {
+				private int index = size();
+
+				@Override
+				public boolean hasNext() {
+					return index > 0;
+				}
+
+				@Override
+				public E next() {
+					if (index == 1) {
+						index = 0;
+						return e0;
+					}
+					else if (index == 2) {
+						index = 1;
+						return e1;
+					}
+					throw new NoSuchElementException();
+				}
+			};
+		}
+
+		@Override
+		public Object[] toArray() {
+			return e1 == null ? new Object[] { e0 } : new Object[] { e1, e0 };
+		}
+
+		@Override
+		public Spliterator<E> spliterator() {
+			return Spliterators.spliterator(toArray(),
+					Spliterator.DISTINCT | Spliterator.IMMUTABLE | Spliterator.NONNULL);
+		}
+
+		@Override
+		public void forEach(Consumer<? super E> action) {
+			Objects.requireNonNull(action);
+			if (e1 != null) {
+				action.accept(e1);
+			}
+			action.accept(e0);
+		}
+
+		private void readObject(ObjectInputStream in) throws InvalidObjectException {
+			throw new InvalidObjectException("not serial proxy");
+		}
+
+		private Object writeReplace() {
+			return new CollSer(CollSer.IMM_SET, toArray());
+		}
+
+	}
+
+	/**
+	 * Set of any size backed by a single open addressing table with linear probing. The
+	 * table has at least {@link #EXPAND_FACTOR} slots per element, so there is always a
+	 * free slot and probe sequences stay short.
+	 */
+	static final class SetN<E> extends AbstractImmutableSet<E> implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		static final SetN<?> EMPTY_SET = new SetN<>(new Object[0], 0);
+
+		private final E[] table;
+
+		private final int size;
+
+		/**
+		 * Computed on first use, {@code 0} until then
+		 */
+		private int hash;
+
+		/**
+		 * @param table a probe table filled with {@link #probe}, owned by this set from
+		 * now on
+		 * @param size the number of not {@code null} slots in the table
+		 */
+		@SuppressWarnings("unchecked")
+		SetN(Object[] table, int size) {
+			this.table = (E[]) table;
+			this.size = size;
+		}
+
+		/**
+		 * @param table a probe table filled with {@link #probe}
+		 * @param size the number of not {@code null} slots in the table
+		 * @return a set over the table, or a {@link SetHashOrdered} with the same
+		 * elements if some probe is longer than {@link #MAX_PROBE} and the elements can
+		 * be ordered
+		 */
+		static <E> AbstractImmutableSet<E> of(Object[] table, int size) {
+			if (size > MAX_PROBE && hasLongProbes(table, 1) && sameComparableClass(table, 1)) {
+				Object[] elements = new Object[size];
+				for (int i = 0, j = 0; j < size; i++) {
+					if (table[i] != null) {
+						elements[j++] = table[i];
+					}
+				}
+				try {
+					Arrays.sort(elements, ImmutableCollections::compareHashThenNatural);
+					return new SetHashOrdered<>(elements);
+				}
+				catch (ClassCastException | IllegalArgumentException e) {
+					// Comparable to another class, or not even consistent with itself
+				}
+			}
+			return new SetN<>(table, size);
+		}
+
+		/**
+		 * Looks for an element in a probe table.
+		 * @return the index of the element if present, or {@code -i - 1} where {@code i}
+		 * is the free slot where it should be inserted
+		 */
+		static int probe(Object[] table, Object pe) {
+			int idx = slot(pe, table.length);
+			while (true) {
+				Object ee = table[idx];
+				if (ee == null) {
+					return -idx - 1;
+				}
+				else if (pe.equals(ee)) {
+					return idx;
+				}
+				else if (++idx == table.length) {
+					idx = 0;
+				}
+			}
+		}
+
+		/**
+		 * Looks for an element in a probe table being filled, like {@link #probe}, but
+		 * gives up after {@link #MAX_PROBE} elements.
+		 * @return the index of the element if present, {@code -i - 1} where {@code i} is
+		 * the free slot where it should be inserted, or {@link #LONG_PROBE}
+		 */
+		static int probeShort(Object[] table, Object pe) {
+			int idx = slot(pe, table.length);
+			for (int probed = 0;; probed++) {
+				Object ee = table[idx];
+				if (ee == null) {
+					return -idx - 1;
+				}
+				else if (pe.equals(ee)) {
+					return idx;
+				}
+				else if (probed == MAX_PROBE) {
+					return LONG_PROBE;
+				}
+				else if (++idx == table.length) {
+					idx = 0;
+				}
+			}
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return size == 0;
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			Objects.requireNonNull(o);
+			return size > 0 && probe(table, o) >= 0;
+		}
+
+		@Override
+		public int hashCode() {
+			int h = hash;
+			if (h == 0) {
+				for (E e : table) {
+					if (e != null) {
+						h += e.hashCode();
+					}
+				}
+				hash = h;
+			}
+			return h;
+		}
+
+		@Override
+		int cachedHash() {
+			return hash;
+		}
+
+		@Override
+		public Iterator<E> iterator() {
+			return new Iterator<E>() {
+				private int remaining = size;
+
+				private int idx = 0;
+
+				@Override
+				public boolean hasNext() {
+					return remaining > 0;
+				}
+
+				@Override
+				public E next() {
+					if (remaining == 0) {
+						throw new NoSuchElementException();
+					}
+					E element;
+					while ((element = table[idx++]) == null) {
+						// skip empty slots
+					}
+					remaining--;
+					return element;
+				}
+			};
+		}
+
+		@Override
+		public Spliterator<E> spliterator() {
+			return new TableSpliterator<>(table, 1, size, false, Spliterator.DISTINCT);
+		}
+
+		@Override
+		public void forEach(Consumer<? super E> action) {
+			Objects.requireNonNull(action);
+			for (E e : table) {
+				if (e != null) {
+					action.accept(e);
+				}
+			}
+		}
+
+		private void readObject(ObjectInputStream in) throws InvalidObjectException {
+			throw new InvalidObjectException("not serial proxy");
+		}
+
+		private Object writeReplace() {
+			return new CollSer(CollSer.IMM_SET, toArray());
+		}
+
+	}
+
+	/**
+	 * Set of {@code Comparable} elements of a single class whose hash codes collide too
+	 * much for a {@link SetN}, as crafted keys would. Elements are kept sorted by hash
+	 * code, and by their natural ordering when the hash codes are the same, so
+	 * {@code contains} is a binary search over the hash codes and then over the elements
+	 * with the same hash code, never a scan of more than {@link #MAX_PROBE} elements.
+	 */
+	static final class SetHashOrdered<E> extends AbstractImmutableSet<E> implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private final E[] elements;
+
+		private final int[] hashes;
+
+		/**
+		 * Computed on first use, {@code 0} until then
+		 */
+		private int hash;
+
+		/**
+		 * @param elements sorted by {@link #compareHashThenNatural}, owned by this set
+		 * from now on
+		 */
+		@SuppressWarnings("unchecked")
+		SetHashOrdered(Object[] elements) {
+			this.elements = (E[]) elements;
+			this.hashes = hashes(elements, 1);
+		}
+
+		/**
+		 * @return the hash codes of the keys of the table, found every {@code step} slots
+		 */
+		static int[] hashes(Object[] table, int step) {
+			int[] hashes = new int[table.length / step];
+			for (int i = 0; i < hashes.length; i++) {
+				hashes[i] = table[step * i].hashCode();
+			}
+			return hashes;
+		}
+
+		/**
+		 * Looks for a key in a table sorted by {@link #compareHashThenNatural}, with keys
+		 * every {@code step} slots.
+		 * @return the index of the key in the table, or {@code -1}
+		 */
+		@SuppressWarnings("unchecked")
+		static int find(Object[] table, int[] hashes, int step, Object o) {
+			int h = o.hashCode();
+			int from = firstAbove(hashes, h - 1L);
+			int to = firstAbove(hashes, h);
+			if (to - from > MAX_PROBE && o.getClass() == table[step * from].getClass()) {
+				Comparable<Object> c = (Comparable<Object>) o;
+				int lo = from;
+				int hi = to;
+				while (lo < hi) {
+					int mid = (lo + hi) >>> 1;
+					if (c.compareTo(table[step * mid]) > 0) {
+						lo = mid + 1;
+					}
+					else {
+						hi = mid;
+					}
+				}
+				// keys that compare as equal but aren't come one after the other
+				for (int i = lo; i < to && c.compareTo(table[step * i]) == 0; i++) {
+					if (o.equals(table[step * i])) {
+						return step * i;
+					}
+				}
+				return -1;
+			}
+			// a short run, or a key of another class that could still be equal to them
+			for (int i = from; i < to; i++) {
+				if (o.equals(table[step * i])) {
+					return step * i;
+				}
+			}
+			return -1;
+		}
+
+		/**
+		 * @return the index of the first hash code greater than {@code h}
+		 */
+		private static int firstAbove(int[] hashes, long h) {
+			int lo = 0;
+			int hi = hashes.length;
+			while (lo < hi) {
+				int mid = (lo + hi) >>> 1;
+				if (hashes[mid] <= h) {
+					lo = mid + 1;
+				}
+				else {
+					hi = mid;
+				}
+			}
+			return lo;
+		}
+
+		@Override
+		public int size() {
+			return elements.length;
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return false;
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			Objects.requireNonNull(o);
+			return find(elements, hashes, 1, o) >= 0;
+		}
+
+		@Override
+		public int hashCode() {
+			int h = hash;
+			if (h == 0) {
+				for (int eh : hashes) {
+					h += eh;
+				}
+				hash = h;
+			}
+			return h;
+		}
+
+		@Override
+		int cachedHash() {
+			return hash;
+		}
+
+		@Override
+		public Iterator<E> iterator() {
+			return new Iterator<E>() {
+				private int idx = 0;
+
+				@Override
+				public boolean hasNext() {
+					return idx < elements.length;
+				}
+
+				@Override
+				public E next() {
+					if (idx == elements.length) {
+						throw new NoSuchElementException();
+					}
+					return elements[idx++];
+				}
+			};
+		}
+
+		@Override
+		public Spliterator<E> spliterator() {
+			return new TableSpliterator<>(elements, 1, elements.length, true, Spliterator.DISTINCT);
+		}
+
+		@Override
+		public void forEach(Consumer<? super E> action) {
+			Objects.requireNonNull(action);
+			for (E e : elements) {
+				action.accept(e);
+			}
+		}
+
+		private void readObject(ObjectInputStream in) throws InvalidObjectException {
+			throw new InvalidObjectException("not serial proxy");
+		}
+
+		private Object writeReplace() {
+			return new CollSer(CollSer.IMM_SET, elements.clone());
+		}
+
+	}
+
+	/* MAP */
+
+	abstract static class AbstractImmutableMap<K, V> extends AbstractMap<K, V> implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public boolean equals(Object o) {
+			if (o == this) {
+				return true;
+			}
+			if (!(o instanceof Map)) {
+				return false;
+			}
+			Map<?, ?> m = (Map<?, ?>) o;
+			if (m.size() != size()) {
+				return false;
+			}
+			if (o instanceof AbstractImmutableMap
+					&& hashesDiffer(cachedHash(), ((AbstractImmutableMap<?, ?>) o).cachedHash())) {
+				return false;
+			}
+			try {
+				return containsAllMappings(m);
+			}
+			catch (ClassCastException | NullPointerException unused) {
+				return false;
+			}
+		}
+
+		/**
+		 * @return whether every mapping of this map is also in the given map, probing it
+		 * for each key
+		 */
+		boolean containsAllMappings(Map<?, ?> m) {
+			for (Map.Entry<K, V> e : entrySet()) {
+				if (!e.getValue().equals(m.get(e.getKey()))) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * @return the hash code if it was already computed and cached, or {@code 0}
+		 */
+		int cachedHash() {
+			return 0;
+		}
+
+		// all mutator methods throw UnsupportedOperationException
+		@Override
+		public void clear() {
+			throw uoe();
+		}
+
+		@Override
+		public V compute(K key, BiFunction<? super K, ? super V, ? extends V> rf) {
+			throw uoe();
+		}
+
+		@Override
+		public V computeIfAbsent(K key, Function<? super K, ? extends V> mf) {
+			throw uoe();
+		}
+
+		@Override
+		public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> rf) {
+			throw uoe();
+		}
+
+		@Override
+		public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> rf) {
+			throw uoe();
+		}
+
+		@Override
+		public V put(K key, V value) {
+			throw uoe();
+		}
+
+		@Override
+		public void putAll(Map<? extends K, ? extends V> m) {
+			throw uoe();
+		}
+
+		@Override
+		public V putIfAbsent(K key, V value) {
+			throw uoe();
+		}
+
+		@Override
+		public V remove(Object key) {
+			throw uoe();
+		}
+
+		@Override
+		public boolean remove(Object key, Object value) {
+			throw uoe();
+		}
+
+		@Override
+		public V replace(K key, V value) {
+			throw uoe();
+		}
+
+		@Override
+		public boolean replace(K key, V oldValue, V newValue) {
+			throw uoe();
+		}
+
+		@Override
+		public void replaceAll(BiFunction<? super K, ? super V, ? extends V> f) {
+			throw uoe();
+		}
+
+		@Override
+		public V getOrDefault(Object key, V defaultValue) {
+			V v = get(key);
+			return v != null ? v : defaultValue;
+		}
+
+	}
+
+	/**
+	 * Map of a single mapping kept in fields.
+	 */
+	static final class Map1<K, V> extends AbstractImmutableMap<K, V> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final K k0;
+
+		private final V v0;
+
+		Map1(K k0, V v0) {
+			this.k0 = Objects.requireNonNull(k0);
+			this.v0 = Objects.requireNonNull(v0);
+		}
+
+		@Override
+		public Set<Map.Entry<K, V>> entrySet() {
+			return new Set12<>(new AbstractMap.SimpleImmutableEntry<>(k0, v0));
+		}
+
+		@Override
+		public V get(Object o) {
+			return o.equals(k0) ? v0 : null;
+		}
+
+		@Override
+		public boolean containsKey(Object o) {
+			return o.equals(k0);
+		}
+
+		@Override
+		public boolean containsValue(Object o) {
+			return o.equals(v0);
+		}
+
+		@Override
+		public int size() {
+			return 1;
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return false;
+		}
+
+		@Override
+		public int hashCode() {
+			return k0.hashCode() ^ v0.hashCode();
+		}
+
+		@Override
+		public void forEach(BiConsumer<? super K, ? super V> action) {
+			action.accept(k0, v0);
+		}
+
+		private void readObject(ObjectInputStream in) throws InvalidObjectException {
+			throw new InvalidObjectException("not serial proxy");
+		}
+
+		private Object writeReplace() {
+			return new CollSer(CollSer.IMM_MAP, k0, v0);
+		}
+
+	}
+
+	/**
+	 * Map of any size backed by a single open addressing table where each key is
+	 * immediately followed by its value, with linear probing over the keys. As in
+	 * {@link SetN} there are at least {@link #EXPAND_FACTOR} key slots per mapping.
+	 */
+	static final class MapN<K, V> extends AbstractImmutableMap<K, V> {
+
+		private static final long serialVersionUID = 1L;
+
+		static final MapN<?, ?> EMPTY_MAP = new MapN<>(new Object[0], 0);
+
+		private final Object[] table;
+
+		private final int size;
+
+		/**
+		 * Computed on first use, {@code 0} until then
+		 */
+		private int hash;
+
+		/**
+		 * @param table a probe table filled with {@link #probe}, owned by this map from
+		 * now on
+		 * @param size the number of mappings in the table
+		 */
+		MapN(Object[] table, int size) {
+			this.table = table;
+			this.size = size;
+		}
+
+		/**
+		 * @param table an interleaved probe table filled with {@link #probe}
+		 * @param size the number of mappings in the table
+		 * @return a map over the table, or a {@link MapHashOrdered} with the same
+		 * mappings if some probe is longer than {@link #MAX_PROBE} and the keys can be
+		 * ordered
+		 */
+		static <K, V> AbstractImmutableMap<K, V> of(Object[] table, int size) {
+			if (size > MAX_PROBE && hasLongProbes(table, 2) && sameComparableClass(table, 2)) {
+				Object[] entries = new Object[size];
+				for (int i = 0, j = 0; j < size; i += 2) {
+					if (table[i] != null) {
+						entries[j++] = new AbstractMap.SimpleImmutableEntry<>(table[i], table[i + 1]);
+					}
+				}
+				try {
+					Arrays.sort(entries, (a, b) -> compareHashThenNatural(((Map.Entry<?, ?>) a).getKey(),
+							((Map.Entry<?, ?>) b).getKey()));
+					Object[] keysAndValues = new Object[2 * size];
+					for (int j = 0; j < size; j++) {
+						keysAndValues[2 * j] = ((Map.Entry<?, ?>) entries[j]).getKey();
+						keysAndValues[2 * j + 1] = ((Map.Entry<?, ?>) entries[j]).getValue();
+					}
+					return new MapHashOrdered<>(keysAndValues);
+				}
+				catch (ClassCastException | IllegalArgumentException e) {
+					// Comparable to another class, or not even consistent with itself
+				}
+			}
+			return new MapN<>(table, size);
+		}
+
+		/**
+		 * Looks for a key in an interleaved probe table.
+		 * @return the (even) index of the key if present, or {@code -i - 1} where
+		 * {@code i} is the free slot where it should be inserted
+		 */
+		static int probe(Object[] table, Object pk) {
+			int idx = slot(pk, table.length >> 1) << 1;
+			while (true) {
+				Object ek = table[idx];
+				if (ek == null) {
+					return -idx - 1;
+				}
+				else if (pk.equals(ek)) {
+					return idx;
+				}
+				else if ((idx += 2) == table.length) {
+					idx = 0;
+				}
+			}
+		}
+
+		/**
+		 * Looks for a key in an interleaved probe table being filled, like
+		 * {@link #probe}, but gives up after {@link #MAX_PROBE} keys.
+		 * @return the (even) index of the key if present, {@code -i - 1} where {@code i}
+		 * is the free slot where it should be inserted, or {@link #LONG_PROBE}
+		 */
+		static int probeShort(Object[] table, Object pk) {
+			int idx = slot(pk, table.length >> 1) << 1;
+			for (int probed = 0;; probed++) {
+				Object ek = table[idx];
+				if (ek == null) {
+					return -idx - 1;
+				}
+				else if (pk.equals(ek)) {
+					return idx;
+				}
+				else if (probed == MAX_PROBE) {
+					return LONG_PROBE;
+				}
+				else if ((idx += 2) == table.length) {
+					idx = 0;
+				}
+			}
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public V get(Object o) {
+			if (size == 0) {
+				Objects.requireNonNull(o);
+				return null;
+			}
+			int i = probe(table, o);
+			return i >= 0 ? (V) table[i + 1] : null;
+		}
+
+		@Override
+		public boolean containsKey(Object o) {
+			Objects.requireNonNull(o);
+			return size > 0 && probe(table, o) >= 0;
+		}
+
+		@Override
+		public boolean containsValue(Object o) {
+			Objects.requireNonNull(o);
+			for (int i = 1; i < table.length; i += 2) {
+				Object v = table[i];
+				if (v != null && o.equals(v)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return size == 0;
+		}
+
+		@Override
+		public int hashCode() {
+			int h = hash;
+			if (h == 0) {
+				for (int i = 0; i < table.length; i += 2) {
+					Object k = table[i];
+					if (k != null) {
+						h += k.hashCode() ^ table[i + 1].hashCode();
+					}
+				}
+				hash = h;
+			}
+			return h;
+		}
+
+		@Override
+		int cachedHash() {
+			return hash;
+		}
+
+		@Override
+		boolean containsAllMappings(Map<?, ?> m) {
+			for (int i = 0; i < table.length; i += 2) {
+				Object k = table[i];
+				if (k != null && !table[i + 1].equals(m.get(k))) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public void forEach(BiConsumer<? super K, ? super V> action) {
+			Objects.requireNonNull(action);
+			for (int i = 0; i < table.length; i += 2) {
+				if (table[i] != null) {
+					action.accept((K) table[i], (V) table[i + 1]);
+				}
+			}
+		}
+
+		@Override
+		public Set<Map.Entry<K, V>> entrySet() {
+			return new AbstractImmutableSet<Map.Entry<K, V>>() {
+				@Override
+				public int size() {
+					return size;
+				}
+
+				@Override
+				public boolean contains(Object o) {
+					if (!(o instanceof Map.Entry)) {
+						return false;
+					}
+					Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+					Object v = e.getKey() != null ? get(e.getKey()) : null;
+					return v != null && v.equals(e.getValue());
+				}
+
+				@Override
+				public int hashCode() {
+					return MapN.this.hashCode();
+				}
+
+				@Override
+				public Spliterator<Map.Entry<K, V>> spliterator() {
+					return new TableSpliterator<>(table, 2, size, false, Spliterator.DISTINCT);
+				}
+
+				@Override
+				public Iterator<Map.Entry<K, V>> iterator() {
+					return new Iterator<Map.Entry<K, V>>() {
+						private int remaining = size;
+
+						private int idx = 0;
+
+						@Override
+						public boolean hasNext() {
+							return remaining > 0;
+						}
+
+						@Override
+						@SuppressWarnings("unchecked")
+						public Map.Entry<K, V> next() {
+							if (remaining == 0) {
+								throw new NoSuchElementException();
+							}
+							while (table[idx] == null) {
+								idx += 2;
+							}
+							Map.Entry<K, V> e = new AbstractMap.SimpleImmutableEntry<>((K) table[idx],
+									(V) table[idx + 1]);
+							idx += 2;
+							remaining--;
+							return e;
+						}
+					};
+				}
+			};
+		}
+
+		/**
+		 * @return the mappings with each key followed by its value, without free slots
+		 */
+		private Object[] keysAndValues() {
+			Object[] array = new Object[2 * size];
+			for (int i = 0, j = 0; i < table.length; i += 2) {
+				if (table[i] != null) {
+					array[j++] = table[i];
+					array[j++] = table[i + 1];
+				}
+			}
+			return array;
+		}
+
+		private void readObject(ObjectInputStream in) throws InvalidObjectException {
+			throw new InvalidObjectException("not serial proxy");
+		}
+
+		private Object writeReplace() {
+			return new CollSer(CollSer.IMM_MAP, keysAndValues());
+		}
+
+	}
+
+	/**
+	 * Map with {@code Comparable} keys of a single class whose hash codes collide too
+	 * much for a {@link MapN}. Each key is immediately followed by its value, and keys
+	 * are sorted as the elements of a {@link SetHashOrdered}, so lookups are binary
+	 * searches too.
+	 */
+	static final class MapHashOrdered<K, V> extends AbstractImmutableMap<K, V> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Object[] table;
+
+		private final int[] hashes;
+
+		/**
+		 * Computed on first use, {@code 0} until then
+		 */
+		private int hash;
+
+		/**
+		 * @param table keys each followed by its value, sorted by
+		 * {@link #compareHashThenNatural} over the keys, owned by this map from now on
+		 */
+		MapHashOrdered(Object[] table) {
+			this.table = table;
+			this.hashes = SetHashOrdered.hashes(table, 2);
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public V get(Object o) {
+			Objects.requireNonNull(o);
+			int i = SetHashOrdered.find(table, hashes, 2, o);
+			return i >= 0 ? (V) table[i + 1] : null;
+		}
+
+		@Override
+		public boolean containsKey(Object o) {
+			Objects.requireNonNull(o);
+			return SetHashOrdered.find(table, hashes, 2, o) >= 0;
+		}
+
+		@Override
+		public boolean containsValue(Object o) {
+			Objects.requireNonNull(o);
+			for (int i = 1; i < table.length; i += 2) {
+				if (o.equals(table[i])) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public int size() {
+			return hashes.length;
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return false;
+		}
+
+		@Override
+		public int hashCode() {
+			int h = hash;
+			if (h == 0) {
+				for (int i = 0; i < hashes.length; i++) {
+					h += hashes[i] ^ table[2 * i + 1].hashCode();
+				}
+				hash = h;
+			}
+			return h;
+		}
+
+		@Override
+		int cachedHash() {
+			return hash;
+		}
+
+		@Override
+		boolean containsAllMappings(Map<?, ?> m) {
+			for (int i = 0; i < table.length; i += 2) {
+				if (!table[i + 1].equals(m.get(table[i]))) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public void forEach(BiConsumer<? super K, ? super V> action) {
+			Objects.requireNonNull(action);
+			for (int i = 0; i < table.length; i += 2) {
+				action.accept((K) table[i], (V) table[i + 1]);
+			}
+		}
+
+		@Override
+		public Set<Map.Entry<K, V>> entrySet() {
+			return new AbstractImmutableSet<Map.Entry<K, V>>() {
+				@Override
+				public int size() {
+					return hashes.length;
+				}
+
+				@Override
+				public boolean contains(Object o) {
+					if (!(o instanceof Map.Entry)) {
+						return false;
+					}
+					Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+					Object v = e.getKey() != null ? get(e.getKey()) : null;
+					return v != null && v.equals(e.getValue());
+				}
+
+				@Override
+				public int hashCode() {
+					return MapHashOrdered.this.hashCode();
+				}
+
+				@Override
+				public Spliterator<Map.Entry<K, V>> spliterator() {
+					return new TableSpliterator<>(table, 2, hashes.length, true, Spliterator.DISTINCT);
+				}
+
+				@Override
+				public Iterator<Map.Entry<K, V>> iterator() {
+					return new Iterator<Map.Entry<K, V>>() {
+						private int idx = 0;
+
+						@Override
+						public boolean hasNext() {
+							return idx < table.length;
+						}
+
+						@Override
+						@SuppressWarnings("unchecked")
+						public Map.Entry<K, V> next() {
+							if (idx == table.length) {
+								throw new NoSuchElementException();
+							}
+							Map.Entry<K, V> e = new AbstractMap.SimpleImmutableEntry<>((K) table[idx],
+									(V) table[idx + 1]);
+							idx += 2;
+							return e;
+						}
+					};
+				}
+			};
+		}
+
+		private void readObject(ObjectInputStream in) throws InvalidObjectException {
+			throw new InvalidObjectException("not serial proxy");
+		}
+
+		private Object writeReplace() {
+			return new CollSer(CollSer.IMM_MAP, table.clone());
+		}
+
+	}
+
+	/**
+	 * Map with a minimal perfect hash over its keys, in the CHD (hash, displace and
+	 * compress) style: keys are split in small buckets and each bucket gets a seed and a
+	 * displacement, the first pair that sends all of its keys to free slots. Lookups cost
+	 * two hash mixes and a single key comparison, with no probing, and the table has
+	 * exactly one slot per mapping.
+	 */
+	static final class MapPerfect<K, V> extends AbstractImmutableMap<K, V> {
+
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Average keys per bucket, bigger buckets mean fewer seeds but slower
+		 * construction
+		 */
+		private static final int BUCKET_SIZE = 4;
+
+		/**
+		 * Seeds tried for a bucket before giving up, each with every displacement. A
+		 * bucket of a single key always fits, so only buckets whose keys keep landing on
+		 * the same slots can run out of them.
+		 */
+		private static final int MAX_SEED = 1 << 12;
+
+		/**
+		 * Interleaved keys and values, key {@code i} at {@code 2 * i}, no free slots
+		 */
+		private final Object[] table;
+
+		/**
+		 * Seed and displacement of bucket {@code b}, at {@code 2 * b} and
+		 * {@code 2 * b + 1}
+		 */
+		private final int[] displacements;
+
+		/**
+		 * Computed on first use, {@code 0} until then
+		 */
+		private int hash;
+
+		private MapPerfect(Object[] table, int[] displacements) {
+			this.table = table;
+			this.displacements = displacements;
+		}
+
+		/**
+		 * @param source an interleaved table with non null, non repeated keys, as filled
+		 * by {@link MapN#probe}
+		 * @param size the number of mappings in the table
+		 * @return a perfect hash map with the same mappings, or {@code null} if there are
+		 * keys with the same {@code hashCode} or no seed was found for some bucket
+		 */
+		static <K, V> MapPerfect<K, V> of(Object[] source, int size) {
+			int[] hashes = new int[size];
+			int[] from = new int[size];
+			for (int i = 0, n = 0; i < source.length; i += 2) {
+				if (source[i] != null) {
+					hashes[n] = source[i].hashCode();
+					from[n++] = i;
+				}
+			}
+			int[] sorted = hashes.clone();
+			Arrays.sort(sorted);
+			for (int i = 1; i < size; i++) {
+				if (sorted[i] == sorted[i - 1]) {
+					// no seed can ever separate them
+					return null;
+				}
+			}
+
+			int buckets = (size + BUCKET_SIZE - 1) / BUCKET_SIZE;
+			// counting sort of the keys by bucket
+			int[] start = new int[buckets + 1];
+			for (int h : hashes) {
+				start[bucket(h, buckets) + 1]++;
+			}
+			for (int b = 0; b < buckets; b++) {
+				start[b + 1] += start[b];
+			}
+			int[] members = new int[size];
+			int[] next = Arrays.copyOf(start, buckets);
+			for (int i = 0; i < size; i++) {
+				members[next[bucket(hashes[i], buckets)]++] = i;
+			}
+			// biggest buckets first, while most slots are still free
+			int largest = 0;
+			for (int b = 0; b < buckets; b++) {
+				largest = Math.max(largest, start[b + 1] - start[b]);
+			}
+			int[] displacements = new int[2 * buckets];
+			boolean[] taken = new boolean[size];
+			int[] slots = new int[largest];
+			for (int bucketSize = largest; bucketSize > 1; bucketSize--) {
+				for (int b = 0; b < buckets; b++) {
+					if (start[b + 1] - start[b] == bucketSize
+							&& !place(hashes, members, start[b], bucketSize, displacements, b, taken, slots)) {
+						return null;
+					}
+				}
+			}
+			// a single key fits any slot, so the last buckets take the free ones in turn
+			for (int b = 0, free = 0; b < buckets; b++) {
+				if (start[b + 1] - start[b] == 1) {
+					while (taken[free]) {
+						free++;
+					}
+					taken[free] = true;
+					int slot = slot(hashes[members[start[b]]], 1, size);
+					displacements[2 * b] = 1;
+					displacements[2 * b + 1] = free >= slot ? free - slot : free - slot + size;
+				}
+			}
+
+			Object[] table = new Object[2 * size];
+			for (int i = 0; i < size; i++) {
+				int idx = slot(hashes[i], displacements, buckets, size) << 1;
+				table[idx] = source[from[i]];
+				table[idx + 1] = source[from[i] + 1];
+			}
+			return new MapPerfect<>(table, displacements);
+		}
+
+		/**
+		 * Finds the first seed, and for it the first displacement, that send every key in
+		 * the bucket to a different free slot, and takes those slots. The seed picks
+		 * where the keys land relative to each other and the displacement shifts them all
+		 * together, trying every slot in turn, so even with a table with exactly one slot
+		 * per key a bucket fits as long as it has a pattern of free slots.
+		 */
+		private static boolean place(int[] hashes, int[] members, int first, int count, int[] displacements, int bucket,
+				boolean[] taken, int[] slots) {
+			int size = taken.length;
+			for (int seed = 1; seed < MAX_SEED; seed++) {
+				if (!distinctSlots(hashes, members, first, count, seed, size, slots)) {
+					continue;
+				}
+				for (int shift = 0; shift < size; shift++) {
+					if (allFree(slots, count, shift, taken)) {
+						for (int i = 0; i < count; i++) {
+							taken[displace(slots[i], shift, size)] = true;
+						}
+						displacements[2 * bucket] = seed;
+						displacements[2 * bucket + 1] = shift;
+						return true;
+					}
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * Fills {@code slots} with where the seed sends each key of the bucket before
+		 * displacement, and checks no two of them are the same.
+		 */
+		private static boolean distinctSlots(int[] hashes, int[] members, int first, int count, int seed, int size,
+				int[] slots) {
+			for (int i = 0; i < count; i++) {
+				int slot = slot(hashes[members[first + i]], seed, size);
+				for (int j = 0; j < i; j++) {
+					if (slots[j] == slot) {
+						return false;
+					}
+				}
+				slots[i] = slot;
+			}
+			return true;
+		}
+
+		private static boolean allFree(int[] slots, int count, int shift, boolean[] taken) {
+			for (int i = 0; i < count; i++) {
+				if (taken[displace(slots[i], shift, taken.length)]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Murmur3 finalizer, so similar hash codes land far apart
+		 */
+		private static int fmix(int h) {
+			h ^= h >>> 16;
+			h *= 0x85EBCA6B;
+			h ^= h >>> 13;
+			h *= 0xC2B2AE35;
+			return h ^ (h >>> 16);
+		}
+
+		/**
+		 * Maps a mixed hash to {@code [0, n)} with a multiplication instead of a modulo
+		 */
+		private static int reduce(int h, int n) {
+			return (int) (((h & 0xFFFFFFFFL) * n) >>> 32);
+		}
+
+		private static int bucket(int hash, int buckets) {
+			return reduce(fmix(hash), buckets);
+		}
+
+		private static int slot(int hash, int seed, int size) {
+			return reduce(fmix(hash + seed * 0x9E3779B9), size);
+		}
+
+		/**
+		 * Shifts a slot by a displacement below the table size, wrapping around without a
+		 * modulo
+		 */
+		private static int displace(int slot, int shift, int size) {
+			int s = slot + shift;
+			return s >= size ? s - size : s;
+		}
+
+		private static int slot(int hash, int[] displacements, int buckets, int size) {
+			int b = bucket(hash, buckets) << 1;
+			return displace(slot(hash, displacements[b], size), displacements[b + 1], size);
+		}
+
+		/**
+		 * @return the (even) index where the key would be
+		 */
+		private int indexOf(Object o) {
+			return slot(o.hashCode(), displacements, displacements.length >> 1, table.length >> 1) << 1;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public V get(Object o) {
+			int idx = indexOf(o);
+			return o.equals(table[idx]) ? (V) table[idx + 1] : null;
+		}
+
+		@Override
+		public boolean containsKey(Object o) {
+			return o.equals(table[indexOf(o)]);
+		}
+
+		@Override
+		public boolean containsValue(Object o) {
+			Objects.requireNonNull(o);
+			for (int i = 1; i < table.length; i += 2) {
+				if (o.equals(table[i])) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public int size() {
+			return table.length >> 1;
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return false;
+		}
+
+		@Override
+		public int hashCode() {
+			int h = hash;
+			if (h == 0) {
+				for (int i = 0; i < table.length; i += 2) {
+					h += table[i].hashCode() ^ table[i + 1].hashCode();
+				}
+				hash = h;
+			}
+			return h;
+		}
+
+		@Override
+		int cachedHash() {
+			return hash;
+		}
+
+		@Override
+		boolean containsAllMappings(Map<?, ?> m) {
+			for (int i = 0; i < table.length; i += 2) {
+				if (!table[i + 1].equals(m.get(table[i]))) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public void forEach(BiConsumer<? super K, ? super V> action) {
+			Objects.requireNonNull(action);
+			for (int i = 0; i < table.length; i += 2) {
+				action.accept((K) table[i], (V) table[i + 1]);
+			}
+		}
+
+		@Override
+		public Set<Map.Entry<K, V>> entrySet() {
+			return new AbstractImmutableSet<Map.Entry<K, V>>() {
+				@Override
+				public int size() {
+					return table.length >> 1;
+				}
+
+				@Override
+				public boolean contains(Object o) {
+					if (!(o instanceof Map.Entry)) {
+						return false;
+					}
+					Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+					Object v = e.getKey() != null ? get(e.getKey()) : null;
+					return v != null && v.equals(e.getValue());
+				}
+
+				@Override
+				public int hashCode() {
+					return MapPerfect.this.hashCode();
+				}
+
+				@Override
+				public Spliterator<Map.Entry<K, V>> spliterator() {
+					return new TableSpliterator<>(table, 2, table.length >> 1, true, Spliterator.DISTINCT);
+				}
+
+				@Override
+				public Iterator<Map.Entry<K, V>> iterator() {
+					return new Iterator<Map.Entry<K, V>>() {
+						private int idx = 0;
+
+						@Override
+						public boolean hasNext() {
+							return idx < table.length;
+						}
+
+						@Override
+						@SuppressWarnings("unchecked")
+						public Map.Entry<K, V> next() {
+							if (idx == table.length) {
+								throw new NoSuchElementException();
+							}
+							Map.Entry<K, V> e = new AbstractMap.SimpleImmutableEntry<>((K) table[idx],
+									(V) table[idx + 1]);
+							idx += 2;
+							return e;
+						}
+					};
+				}
+			};
+		}
+
+		private void readObject(ObjectInputStream in) throws InvalidObjectException {
+			throw new InvalidObjectException("not serial proxy");
+		}
+
+		private Object writeReplace() {
+			return new CollSer(CollSer.IMM_MAP_PERFECT, table);
+		}
+
+	}
+
+	/* SERIALIZATION */
+
+	/**
+	 * Serialization proxy for every immutable list, set and map, in the style of the
+	 * JDK's {@code CollSer}. Writes a type tag, the number of elements and the elements
+	 * themselves, and rebuilds the compact form on read. Hash codes may differ between
+	 * JVMs, so tables are always built again rather than restored.
+	 */
+	static final class CollSer implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		static final int IMM_LIST = 1;
+
+		static final int IMM_SET = 2;
+
+		static final int IMM_MAP = 3;
+
+		static final int IMM_MAP_PERFECT = 4;
+
+		static final int IMM_SORTED_SET = 5;
+
+		static final int IMM_SORTED_MAP = 6;
+
+		static final int IMM_PERSISTENT_LIST = 7;
+
+		static final int IMM_PERSISTENT_SET = 8;
+
+		static final int IMM_PERSISTENT_MAP = 9;
+
+		static final int IMM_ENUM_SET = 10;
+
+		static final int IMM_ENUM_MAP = 11;
+
+		static final int IMM_STRING_MAP = 12;
+
+		static final int IMM_LIST_MULTIMAP = 13;
+
+		static final int IMM_SET_MULTIMAP = 14;
+
+		static final int IMM_BIMAP = 15;
+
+		static final int IMM_INT_INT_MAP = 16;
+
+		static final int IMM_LONG_SET = 17;
+
+		static final int IMM_LONG_OBJECT_MAP = 18;
+
+		private final int tag;
+
+		/**
+		 * Elements of a list or set, or keys each followed by its value for a map. Sorted
+		 * collections start with their comparator, {@code null} for natural order, and
+		 * String maps with whether they ignore case. Multimaps have each key followed by
+		 * the number of its values and its values. Primitive collections have their
+		 * elements, or their keys and values, in primitive arrays, but for the values of
+		 * {@code long} to object maps.
+		 */
+		private transient Object[] array;
+
+		CollSer(int tag, Object... array) {
+			this.tag = tag;
+			this.array = array;
+		}
+
+		private void writeObject(ObjectOutputStream out) throws IOException {
+			out.defaultWriteObject();
+			out.writeInt(array.length);
+			for (Object o : array) {
+				out.writeObject(o);
+			}
+		}
+
+		private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+			in.defaultReadObject();
+			int length = in.readInt();
+			if (length < 0) {
+				throw new InvalidObjectException("negative length " + length);
+			}
+			SerialFilter.checkArray(in, Object[].class, length);
+			Object[] a = new Object[Math.min(length, MAX_PREALLOCATED)];
+			for (int i = 0; i < length; i++) {
+				if (i == a.length) {
+					a = grow(a, length);
+				}
+				a[i] = in.readObject();
+			}
+			array = a;
+		}
+
+		/**
+		 * @return the enum set or map, checking the type is an enum and every element or
+		 * key one of its constants
+		 */
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		private Object readEnumCollection() {
+			Class type = (Class) array[0];
+			Object[] rest = Arrays.copyOfRange(array, 1, array.length);
+			return tag == IMM_ENUM_SET ? ImmutableEnumCollections.setOf(type, rest)
+					: ImmutableEnumCollections.mapOf(type, rest);
+		}
+
+		private void checkLength(int length) throws InvalidObjectException {
+			if (array.length != length) {
+				throw new InvalidObjectException("invalid length " + array.length);
+			}
+		}
+
+		private Object readResolve() throws ObjectStreamException {
+			try {
+				switch (tag) {
+				case IMM_LIST:
+					return listFromTrustedArray(array);
+				case IMM_SET:
+					return New.setOf(array);
+				case IMM_MAP:
+				case IMM_MAP_PERFECT:
+					if (array.length % 2 != 0) {
+						throw new InvalidObjectException("odd number of keys and values " + array.length);
+					}
+					// checks nulls and repeated keys before trusting the array
+					Map<Object, Object> map = New.mapFromKeysAndValues(array);
+					if (tag == IMM_MAP || array.length < 4) {
+						return map;
+					}
+					MapPerfect<Object, Object> perfect = MapPerfect.of(array, array.length >> 1);
+					return perfect != null ? perfect : map;
+				case IMM_SORTED_SET:
+				case IMM_SORTED_MAP:
+					if (array.length == 0 || tag == IMM_SORTED_MAP && array.length % 2 == 0) {
+						throw new InvalidObjectException("invalid length " + array.length);
+					}
+					@SuppressWarnings("unchecked")
+					Comparator<Object> comparator = (Comparator<Object>) array[0];
+					Object[] rest = Arrays.copyOfRange(array, 1, array.length);
+					return tag == IMM_SORTED_SET ? ImmutableSortedCollections.setOf(comparator, rest)
+							: ImmutableSortedCollections.mapOf(comparator, rest);
+				case IMM_PERSISTENT_LIST:
+					return PersistentList.of(array);
+				case IMM_PERSISTENT_SET:
+					return PersistentSet.of(array);
+				case IMM_PERSISTENT_MAP:
+					if (array.length % 2 != 0) {
+						throw new InvalidObjectException("odd number of keys and values " + array.length);
+					}
+					return PersistentMap.fromKeysAndValues(array);
+				case IMM_ENUM_SET:
+				case IMM_ENUM_MAP:
+					if (array.length == 0 || tag == IMM_ENUM_MAP && array.length % 2 == 0) {
+						throw new InvalidObjectException("invalid length " + array.length);
+					}
+					return readEnumCollection();
+				case IMM_STRING_MAP:
+					if (array.length % 2 == 0) {
+						throw new InvalidObjectException("invalid length " + array.length);
+					}
+					return ImmutableStringMap.of(Arrays.copyOfRange(array, 1, array.length), (Boolean) array[0]);
+				case IMM_LIST_MULTIMAP:
+					return new ImmutableListMultimap<>(array);
+				case IMM_SET_MULTIMAP:
+					return new ImmutableSetMultimap<>(array);
+				case IMM_BIMAP:
+					if (array.length % 2 != 0) {
+						throw new InvalidObjectException("odd number of keys and values " + array.length);
+					}
+					return ImmutableBiMap.of(array);
+				case IMM_INT_INT_MAP:
+					checkLength(2);
+					return ImmutableIntIntMap.of((int[]) array[0], (int[]) array[1]);
+				case IMM_LONG_SET:
+					checkLength(1);
+					return ImmutableLongSet.of((long[]) array[0]);
+				case IMM_LONG_OBJECT_MAP:
+					checkLength(2);
+					return ImmutableLongObjectMap.of((long[]) array[0], (Object[]) array[1]);
+				default:
+					throw new InvalidObjectException(String.format("invalid tag 0x%x", tag));
+				}
+			}
+			catch (NullPointerException | IllegalArgumentException | ClassCastException ex) {
+				InvalidObjectException ioe = new InvalidObjectException("invalid object");
+				ioe.initCause(ex);
+				throw ioe;
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,473 @@
+package org.pgris.new4java8;
+
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Sets and maps of enum constants, created with {@link New#enumSetOf(Class, Enum[])
+ * New.enumSetOf} and {@link New#enumMapOf(Class, Map) New.enumMapOf}. Sets are bit
+ * vectors indexed by ordinal, in a single {@code long} for enums of up to 64 constants,
+ * and maps keep their values in an array indexed by ordinal. Both iterate in ordinal
+ * order, as {@code EnumSet} and {@code EnumMap} do.
+ */
+final class ImmutableEnumCollections {
+
+	private ImmutableEnumCollections() {
+		// do not instantiate
+	}
+
+	/**
+	 * @throws IllegalArgumentException if there are any duplicate elements
+	 * @throws NullPointerException if any element is {@code null}
+	 * @throws ClassCastException if any element is not a constant of the type
+	 */
+	static <E extends Enum<E>> EnumBitSet<E> setOf(Class<E> type, Object[] elements) {
+		E[] universe = universe(type);
+		long[] words = new long[(universe.length + 63) >>> 6];
+		for (Object o : elements) {
+			int ordinal = type.cast(Objects.requireNonNull(o)).ordinal();
+			long bit = 1L << ordinal;
+			if ((words[ordinal >>> 6] & bit) != 0) {
+				throw new IllegalArgumentException("duplicate element: " + o);
+			}
+			words[ordinal >>> 6] |= bit;
+		}
+		return words.length == 1 ? new RegularEnumSet<>(type, universe, words[0])
+				: new JumboEnumSet<>(type, universe, words, elements.length);
+	}
+
+	/**
+	 * @param keysAndValues each key followed by its value
+	 * @throws IllegalArgumentException if there are any duplicate keys
+	 * @throws NullPointerException if any key or value is {@code null}
+	 * @throws ClassCastException if any key is not a constant of the type
+	 */
+	static <K extends Enum<K>, V> EnumArrayMap<K, V> mapOf(Class<K> type, Object[] keysAndValues) {
+		K[] universe = universe(type);
+		Object[] values = new Object[universe.length];
+		for (int i = 0; i < keysAndValues.length; i += 2) {
+			K key = type.cast(Objects.requireNonNull(keysAndValues[i]));
+			Object value = Objects.requireNonNull(keysAndValues[i + 1]);
+			if (values[key.ordinal()] != null) {
+				throw new IllegalArgumentException("duplicated key:" + key);
+			}
+			values[key.ordinal()] = value;
+		}
+		return new EnumArrayMap<>(type, universe, values, keysAndValues.length >> 1);
+	}
+
+	private static <E extends Enum<E>> E[] universe(Class<E> type) {
+		E[] universe = type.getEnumConstants();
+		if (universe == null) {
+			throw new ClassCastException(type + " not an enum");
+		}
+		return universe;
+	}
+
+	/**
+	 * @return the ordinal of the constant, or {@code -1} if it is not one of the type
+	 */
+	private static int ordinalOf(Class<?> type, Object o) {
+		Objects.requireNonNull(o);
+		if (o instanceof Enum && ((Enum<?>) o).getDeclaringClass() == type) {
+			return ((Enum<?>) o).ordinal();
+		}
+		return -1;
+	}
+
+	/**
+	 * Set of constants of one enum, as a bit vector indexed by ordinal.
+	 */
+	abstract static class EnumBitSet<E extends Enum<E>> extends ImmutableCollections.AbstractImmutableSet<E>
+			implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		final Class<E> type;
+
+		final E[] universe;
+
+		EnumBitSet(Class<E> type, E[] universe) {
+			this.type = type;
+			this.universe = universe;
+		}
+
+		abstract int wordCount();
+
+		abstract long word(int i);
+
+		@Override
+		public boolean contains(Object o) {
+			int ordinal = ordinalOf(type, o);
+			return ordinal >= 0 && (word(ordinal >>> 6) & (1L << ordinal)) != 0;
+		}
+
+		@Override
+		public boolean containsAll(Collection<?> c) {
+			if (c instanceof EnumBitSet && ((EnumBitSet<?>) c).type == type) {
+				EnumBitSet<?> other = (EnumBitSet<?>) c;
+				for (int i = 0, n = wordCount(); i < n; i++) {
+					if ((other.word(i) & ~word(i)) != 0) {
+						return false;
+					}
+				}
+				return true;
+			}
+			return super.containsAll(c);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (o instanceof EnumBitSet && ((EnumBitSet<?>) o).type == type) {
+				EnumBitSet<?> other = (EnumBitSet<?>) o;
+				for (int i = 0, n = wordCount(); i < n; i++) {
+					if (other.word(i) != word(i)) {
+						return false;
+					}
+				}
+				return true;
+			}
+			return super.equals(o);
+		}
+
+		@Override
+		public int hashCode() {
+			int h = 0;
+			for (int i = 0, n = wordCount(); i < n; i++) {
+				for (long w = word(i); w != 0; w &= w - 1) {
+					h += universe[(i << 6) + Long.numberOfTrailingZeros(w)].hashCode();
+				}
+			}
+			return h;
+		}
+
+		@Override
+		public void forEach(Consumer<? super E> action) {
+			Objects.requireNonNull(action);
+			for (int i = 0, n = wordCount(); i < n; i++) {
+				for (long w = word(i); w != 0; w &= w - 1) {
+					action.accept(universe[(i << 6) + Long.numberOfTrailingZeros(w)]);
+				}
+			}
+		}
+
+		@Override
+		public Iterator<E> iterator() {
+			return new Iterator<E>() {
+				private int index = -1;
+
+				private long remaining;
+
+				@Override
+				public boolean hasNext() {
+					while (remaining == 0) {
+						if (++index >= wordCount()) {
+							index = wordCount();
+							return false;
+						}
+						remaining = word(index);
+					}
+					return true;
+				}
+
+				@Override
+				public E next() {
+					if (!hasNext()) {
+						throw new NoSuchElementException();
+					}
+					int bit = Long.numberOfTrailingZeros(remaining);
+					remaining &= remaining - 1;
+					return universe[(index << 6) + bit];
+				}
+			};
+		}
+
+		@Override
+		public Spliterator<E> spliterator() {
+			// ordinal order, as EnumSet
+			return Spliterators.spliterator(this,
+					Spliterator.DISTINCT | Spliterator.IMMUTABLE | Spliterator.NONNULL | Spliterator.ORDERED);
+		}
+
+		private void readObject(ObjectInputStream in) throws InvalidObjectException {
+			throw new InvalidObjectException("not serial proxy");
+		}
+
+		// not private, so it also applies to the subclasses
+		Object writeReplace() {
+			Object[] array = new Object[size() + 1];
+			array[0] = type;
+			int[] i = { 1 };
+			forEach(e -> array[i[0]++] = e);
+			return new ImmutableCollections.CollSer(ImmutableCollections.CollSer.IMM_ENUM_SET, array);
+		}
+
+	}
+
+	/**
+	 * Enum set for enums of up to 64 constants, in a single word.
+	 */
+	static final class RegularEnumSet<E extends Enum<E>> extends EnumBitSet<E> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final long bits;
+
+		RegularEnumSet(Class<E> type, E[] universe, long bits) {
+			super(type, universe);
+			this.bits = bits;
+		}
+
+		@Override
+		int wordCount() {
+			return 1;
+		}
+
+		@Override
+		long word(int i) {
+			return bits;
+		}
+
+		@Override
+		public int size() {
+			return Long.bitCount(bits);
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return bits == 0;
+		}
+
+	}
+
+	/**
+	 * Enum set for enums of more than 64 constants.
+	 */
+	static final class JumboEnumSet<E extends Enum<E>> extends EnumBitSet<E> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final long[] words;
+
+		private final int size;
+
+		JumboEnumSet(Class<E> type, E[] universe, long[] words, int size) {
+			super(type, universe);
+			this.words = words;
+			this.size = size;
+		}
+
+		@Override
+		int wordCount() {
+			return words.length;
+		}
+
+		@Override
+		long word(int i) {
+			return words[i];
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return size == 0;
+		}
+
+	}
+
+	/**
+	 * Map with enum keys, keeping each value at the ordinal of its key and {@code null}
+	 * for keys without mapping.
+	 */
+	static final class EnumArrayMap<K extends Enum<K>, V> extends ImmutableCollections.AbstractImmutableMap<K, V> {
+
+		private static final long serialVersionUID = 1L;
+
+		final Class<K> type;
+
+		private final K[] universe;
+
+		private final Object[] values;
+
+		private final int size;
+
+		private int hash;
+
+		EnumArrayMap(Class<K> type, K[] universe, Object[] values, int size) {
+			this.type = type;
+			this.universe = universe;
+			this.values = values;
+			this.size = size;
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public V get(Object o) {
+			int ordinal = ordinalOf(type, o);
+			return ordinal >= 0 ? (V) values[ordinal] : null;
+		}
+
+		@Override
+		public boolean containsKey(Object o) {
+			return get(o) != null;
+		}
+
+		@Override
+		public boolean containsValue(Object o) {
+			Objects.requireNonNull(o);
+			for (Object v : values) {
+				if (o.equals(v)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return size == 0;
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public void forEach(BiConsumer<? super K, ? super V> action) {
+			Objects.requireNonNull(action);
+			for (int i = 0; i < values.length; i++) {
+				if (values[i] != null) {
+					action.accept(universe[i], (V) values[i]);
+				}
+			}
+		}
+
+		@Override
+		boolean containsAllMappings(Map<?, ?> m) {
+			if (m instanceof EnumArrayMap && ((EnumArrayMap<?, ?>) m).type == type) {
+				Object[] other = ((EnumArrayMap<?, ?>) m).values;
+				for (int i = 0; i < values.length; i++) {
+					if (values[i] != null && !values[i].equals(other[i])) {
+						return false;
+					}
+				}
+				return true;
+			}
+			for (int i = 0; i < values.length; i++) {
+				if (values[i] != null && !values[i].equals(m.get(universe[i]))) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public int hashCode() {
+			int h = hash;
+			if (h == 0) {
+				for (int i = 0; i < values.length; i++) {
+					if (values[i] != null) {
+						h += universe[i].hashCode() ^ values[i].hashCode();
+					}
+				}
+				hash = h;
+			}
+			return h;
+		}
+
+		@Override
+		int cachedHash() {
+			return hash;
+		}
+
+		@Override
+		public Set<Map.Entry<K, V>> entrySet() {
+			return new ImmutableCollections.AbstractImmutableSet<Map.Entry<K, V>>() {
+				@Override
+				public int size() {
+					return size;
+				}
+
+				@Override
+				public boolean contains(Object o) {
+					if (!(o instanceof Map.Entry)) {
+						return false;
+					}
+					Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+					Object v = e.getKey() != null ? get(e.getKey()) : null;
+					return v != null && v.equals(e.getValue());
+				}
+
+				@Override
+				public int hashCode() {
+					return EnumArrayMap.this.hashCode();
+				}
+
+				@Override
+				public Iterator<Map.Entry<K, V>> iterator() {
+					return new Iterator<Map.Entry<K, V>>() {
+						private int next = advance(0);
+
+						private int advance(int i) {
+							while (i < values.length && values[i] == null) {
+								i++;
+							}
+							return i;
+						}
+
+						@Override
+						public boolean hasNext() {
+							return next < values.length;
+						}
+
+						@SuppressWarnings("unchecked")
+						@Override
+						public Map.Entry<K, V> next() {
+							if (!hasNext()) {
+								throw new NoSuchElementException();
+							}
+							int i = next;
+							next = advance(i + 1);
+							return new AbstractMap.SimpleImmutableEntry<>(universe[i], (V) values[i]);
+						}
+					};
+				}
+			};
+		}
+
+		private void readObject(ObjectInputStream in) throws InvalidObjectException {
+			throw new InvalidObjectException("not serial proxy");
+		}
+
+		private Object writeReplace() {
+			Object[] array = new Object[2 * size + 1];
+			array[0] = type;
+			int[] i = { 1 };
+			forEach((k, v) -> {
+				array[i[0]++] = k;
+				array[i[0]++] = v;
+			});
+			return new ImmutableCollections.CollSer(ImmutableCollections.CollSer.IMM_ENUM_MAP, array);
+		}
+
+	}
+
+}
@@ -0,0 +1,302 @@
+package org.pgris.new4java8;
+
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Unmodifiable map from {@code int} keys to {@code int} values backed by two parallel
+ * open addressing arrays, so neither keys nor values are ever boxed. Created with
+ * {@link New#intIntMapOf(int[], int[]) New.intIntMapOf}.
+ *
+ * <p>
+ * {@link #asMap()} gives a boxed {@code Map<Integer, Integer>} view for interoperability,
+ * with the same characteristics as the maps created by {@link New#mapOf() New.mapOf}.
+ * {@code equals} and {@code hashCode} are consistent with that view.
+ */
+public final class ImmutableIntIntMap implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	static final ImmutableIntIntMap EMPTY = new ImmutableIntIntMap(new int[2], new int[2], false, 0, 0);
+
+	/**
+	 * Probe table, {@code 0} marks a free slot so the value for the zero key is kept in
+	 * {@link #zeroValue}.
+	 */
+	private final int[] keys;
+
+	private final int[] values;
+
+	private final boolean hasZeroKey;
+
+	private final int zeroValue;
+
+	private final int size;
+
+	private ImmutableIntIntMap(int[] keys, int[] values, boolean hasZeroKey, int zeroValue, int size) {
+		this.keys = keys;
+		this.values = values;
+		this.hasZeroKey = hasZeroKey;
+		this.zeroValue = zeroValue;
+		this.size = size;
+	}
+
+	/**
+	 * @throws IllegalArgumentException if there are any duplicate keys or the arrays have
+	 * different lengths
+	 */
+	static ImmutableIntIntMap of(int[] keys, int[] values) {
+		if (keys.length != values.length) {
+			throw new IllegalArgumentException(keys.length + " keys but " + values.length + " values");
+		}
+		if (keys.length == 0) {
+			return EMPTY;
+		}
+		int length = ImmutableCollections.tableSizeFor(keys.length);
+		int[] keyTable = new int[length];
+		int[] valueTable = new int[length];
+		boolean hasZeroKey = false;
+		int zeroValue = 0;
+		for (int i = 0; i < keys.length; i++) {
+			int key = keys[i];
+			if (key == 0) {
+				if (hasZeroKey) {
+					throw new IllegalArgumentException("duplicated key:" + key);
+				}
+				hasZeroKey = true;
+				zeroValue = values[i];
+				continue;
+			}
+			int idx = probe(keyTable, key);
+			if (idx >= 0) {
+				throw new IllegalArgumentException("duplicated key:" + key);
+			}
+			idx = -(idx + 1);
+			keyTable[idx] = key;
+			valueTable[idx] = values[i];
+		}
+		return new ImmutableIntIntMap(keyTable, valueTable, hasZeroKey, zeroValue, keys.length);
+	}
+
+	/**
+	 * @return the index of the not zero key if present, or {@code -i - 1} where {@code i}
+	 * is the free slot where it should be inserted
+	 */
+	private static int probe(int[] table, int key) {
+		int mask = table.length - 1;
+		int idx = ImmutableCollections.mix(key, mask);
+		while (true) {
+			int ek = table[idx];
+			if (ek == 0) {
+				return -idx - 1;
+			}
+			else if (ek == key) {
+				return idx;
+			}
+			idx = (idx + 1) & mask;
+		}
+	}
+
+	/**
+	 * @return the number of mappings in this map
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return {@code true} if this map contains no mappings
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * @param key key whose presence in this map is to be tested
+	 * @return {@code true} if this map contains a mapping for the specified key
+	 */
+	public boolean containsKey(int key) {
+		return key == 0 ? hasZeroKey : probe(keys, key) >= 0;
+	}
+
+	/**
+	 * @param key the key whose associated value is to be returned
+	 * @param defaultValue the value to return if there is no mapping for the key
+	 * @return the value to which the specified key is mapped, or {@code defaultValue} if
+	 * this map contains no mapping for the key
+	 */
+	public int getOrDefault(int key, int defaultValue) {
+		if (key == 0) {
+			return hasZeroKey ? zeroValue : defaultValue;
+		}
+		int idx = probe(keys, key);
+		return idx >= 0 ? values[idx] : defaultValue;
+	}
+
+	/**
+	 * Returns an unmodifiable boxed view of this map. Keys and values are boxed on every
+	 * access.
+	 * @return a {@code Map<Integer, Integer>} view of this map
+	 */
+	public Map<Integer, Integer> asMap() {
+		return new AsMap(this);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (o == this) {
+			return true;
+		}
+		if (!(o instanceof ImmutableIntIntMap)) {
+			return false;
+		}
+		ImmutableIntIntMap other = (ImmutableIntIntMap) o;
+		if (other.size != size || other.hasZeroKey != hasZeroKey || other.zeroValue != zeroValue) {
+			return false;
+		}
+		for (int i = 0; i < keys.length; i++) {
+			int key = keys[i];
+			if (key != 0) {
+				int idx = probe(other.keys, key);
+				if (idx < 0 || other.values[idx] != values[i]) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public int hashCode() {
+		int h = hasZeroKey ? zeroValue : 0;
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i] != 0) {
+				h += keys[i] ^ values[i];
+			}
+		}
+		return h;
+	}
+
+	@Override
+	public String toString() {
+		return asMap().toString();
+	}
+
+	private void readObject(ObjectInputStream in) throws InvalidObjectException {
+		throw new InvalidObjectException("not serial proxy");
+	}
+
+	/**
+	 * The table is laid out by the salted hash of this JVM, so only the mappings are
+	 * written and the table is built again when read.
+	 */
+	private Object writeReplace() {
+		int[] k = new int[size];
+		int[] v = new int[size];
+		int j = 0;
+		if (hasZeroKey) {
+			v[j++] = zeroValue;
+		}
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i] != 0) {
+				k[j] = keys[i];
+				v[j++] = values[i];
+			}
+		}
+		return new ImmutableCollections.CollSer(ImmutableCollections.CollSer.IMM_INT_INT_MAP, k, v);
+	}
+
+	private static final class AsMap extends ImmutableCollections.AbstractImmutableMap<Integer, Integer> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final ImmutableIntIntMap map;
+
+		AsMap(ImmutableIntIntMap map) {
+			this.map = map;
+		}
+
+		@Override
+		public int size() {
+			return map.size;
+		}
+
+		@Override
+		public boolean containsKey(Object o) {
+			Objects.requireNonNull(o);
+			return o instanceof Integer && map.containsKey((Integer) o);
+		}
+
+		@Override
+		public Integer get(Object o) {
+			Objects.requireNonNull(o);
+			if (!(o instanceof Integer)) {
+				return null;
+			}
+			int key = (Integer) o;
+			return map.containsKey(key) ? map.getOrDefault(key, 0) : null;
+		}
+
+		@Override
+		public int hashCode() {
+			return map.hashCode();
+		}
+
+		@Override
+		public Set<Map.Entry<Integer, Integer>> entrySet() {
+			return new ImmutableCollections.AbstractImmutableSet<Map.Entry<Integer, Integer>>() {
+				@Override
+				public int size() {
+					return map.size;
+				}
+
+				@Override
+				public int hashCode() {
+					return map.hashCode();
+				}
+
+				@Override
+				public Iterator<Map.Entry<Integer, Integer>> iterator() {
+					return new Iterator<Map.Entry<Integer, Integer>>() {
+						private int remaining = map.size;
+
+						private int idx = map.hasZeroKey ? -1 : 0;
+
+						@Override
+						public boolean hasNext() {
+							return remaining > 0;
+						}
+
+						@Override
+						public Map.Entry<Integer, Integer> next() {
+							if (remaining == 0) {
+								throw new NoSuchElementException();
+							}
+							remaining--;
+							if (idx < 0) {
+								idx = 0;
+								return new AbstractMap.SimpleImmutableEntry<>(0, map.zeroValue);
+							}
+							while (map.keys[idx] == 0) {
+								idx++;
+							}
+							Map.Entry<Integer, Integer> e = new AbstractMap.SimpleImmutableEntry<>(map.keys[idx],
+									map.values[idx]);
+							idx++;
+							return e;
+						}
+					};
+				}
+			};
+		}
+
+	}
+
+}
@@ -0,0 +1,165 @@
+package org.pgris.new4java8;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Unmodifiable list of {@code int} values backed by a single {@code int[]}, so elements
+ * are never boxed. Created with {@link New#intListOf(int...) New.intListOf}.
+ *
+ * <p>
+ * {@link #asList()} gives a boxed {@code List<Integer>} view for interoperability, with
+ * the same characteristics as the lists created by {@link New#listOf(Object...)
+ * New.listOf}. {@code equals} and {@code hashCode} are consistent with that view.
+ */
+public final class ImmutableIntList implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	static final ImmutableIntList EMPTY = new ImmutableIntList(new int[0]);
+
+	private final int[] elements;
+
+	/**
+	 * @param elements owned by this list from now on
+	 */
+	ImmutableIntList(int[] elements) {
+		this.elements = elements;
+	}
+
+	/**
+	 * @return the number of elements in this list
+	 */
+	public int size() {
+		return elements.length;
+	}
+
+	/**
+	 * @return {@code true} if this list contains no elements
+	 */
+	public boolean isEmpty() {
+		return elements.length == 0;
+	}
+
+	/**
+	 * @param index index of the element to return
+	 * @return the element at the specified position in this list
+	 * @throws IndexOutOfBoundsException if the index is out of range
+	 */
+	public int get(int index) {
+		return elements[index];
+	}
+
+	/**
+	 * @param value element whose presence in this list is to be tested
+	 * @return {@code true} if this list contains the specified element
+	 */
+	public boolean contains(int value) {
+		return indexOf(value) >= 0;
+	}
+
+	/**
+	 * @param value element to search for
+	 * @return the index of the first occurrence of the specified element in this list, or
+	 * -1 if this list does not contain the element
+	 */
+	public int indexOf(int value) {
+		int[] es = elements;
+		for (int i = 0; i < es.length; i++) {
+			if (es[i] == value) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @param value element to search for
+	 * @return the index of the last occurrence of the specified element in this list, or
+	 * -1 if this list does not contain the element
+	 */
+	public int lastIndexOf(int value) {
+		int[] es = elements;
+		for (int i = es.length - 1; i >= 0; i--) {
+			if (es[i] == value) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Performs the given action for each element, in order.
+	 * @param action the action to be performed for each element
+	 */
+	public void forEach(IntConsumer action) {
+		for (int e : elements) {
+			action.accept(e);
+		}
+	}
+
+	/**
+	 * @return a sequential {@code IntStream} over the elements of this list
+	 */
+	public IntStream stream() {
+		return Arrays.stream(elements);
+	}
+
+	/**
+	 * @return a new array containing all of the elements in this list, in order
+	 */
+	public int[] toArray() {
+		return elements.clone();
+	}
+
+	/**
+	 * Returns an unmodifiable boxed view of this list. Elements are boxed on every
+	 * access.
+	 * @return a {@code List<Integer>} view of this list
+	 */
+	public List<Integer> asList() {
+		return new AsList(elements);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		return o == this || o instanceof ImmutableIntList && Arrays.equals(elements, ((ImmutableIntList) o).elements);
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(elements);
+	}
+
+	@Override
+	public String toString() {
+		return Arrays.toString(elements);
+	}
+
+	private static final class AsList extends ImmutableCollections.AbstractImmutableList<Integer>
+			implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int[] elements;
+
+		AsList(int[] elements) {
+			this.elements = elements;
+		}
+
+		@Override
+		public Integer get(int index) {
+			return elements[index];
+		}
+
+		@Override
+		public int size() {
+			return elements.length;
+		}
+
+	}
+
+}
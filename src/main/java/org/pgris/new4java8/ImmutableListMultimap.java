@@ -0,0 +1,76 @@
+package org.pgris.new4java8;
+
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Unmodifiable multimap from each key to a list of values, for routing tables and other
+ * maps from a key to several values. Created with {@link New#listMultimapOf(Map)
+ * New.listMultimapOf}.
+ *
+ * <p>
+ * All values are kept in a single array, grouped by key, so there is no list per key:
+ * {@link #get(Object)} returns a view over the values of the key, which keep the order
+ * they were given in. Keys and values can't be {@code null}, and keys iterate in the
+ * order they were given in.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+public final class ImmutableListMultimap<K, V> extends AbstractImmutableMultimap<K, V, List<V>> {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Every value, the root of the views returned by {@link #get(Object)}
+	 */
+	private final ImmutableCollections.ListN<V> all;
+
+	/**
+	 * @param groups each key followed by the number of its values and its values
+	 * @throws IllegalArgumentException if there are any duplicate keys
+	 * @throws NullPointerException if any key or value is {@code null}
+	 */
+	ImmutableListMultimap(Object[] groups) {
+		super(groups);
+		this.all = new ImmutableCollections.ListN<>(values);
+	}
+
+	@Override
+	List<V> group(int g) {
+		return new ImmutableCollections.SubList<>(all, offsets[g], offsets[g + 1] - offsets[g]);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	List<V> empty() {
+		return (List<V>) ImmutableCollections.ListN.EMPTY_LIST;
+	}
+
+	/**
+	 * @return an unmodifiable list of every value, grouped by key, without copying them
+	 */
+	public List<V> values() {
+		return all;
+	}
+
+	private void readObject(ObjectInputStream in) throws InvalidObjectException {
+		throw new InvalidObjectException("not serial proxy");
+	}
+
+	private Object writeReplace() {
+		return new ImmutableCollections.CollSer(ImmutableCollections.CollSer.IMM_LIST_MULTIMAP, groups());
+	}
+
+	/**
+	 * @throws IllegalArgumentException if there are any duplicate keys
+	 * @throws NullPointerException if any key, collection or value is {@code null}
+	 */
+	static <K, V> ImmutableListMultimap<K, V> of(Map<? extends K, ? extends Collection<? extends V>> map) {
+		return new ImmutableListMultimap<>(groupsOf(map));
+	}
+
+}
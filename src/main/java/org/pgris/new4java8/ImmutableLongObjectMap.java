@@ -0,0 +1,269 @@
+package org.pgris.new4java8;
+
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Unmodifiable map from {@code long} keys to not {@code null} values backed by two
+ * parallel open addressing arrays, so keys are never boxed. Created with
+ * {@link New#longObjectMapOf(long[], Object[]) New.longObjectMapOf}.
+ *
+ * <p>
+ * {@link #asMap()} gives a boxed {@code Map<Long, V>} view for interoperability, with the
+ * same characteristics as the maps created by {@link New#mapOf() New.mapOf}.
+ * {@code equals} and {@code hashCode} are consistent with that view.
+ *
+ * @param <V> the type of mapped values
+ */
+public final class ImmutableLongObjectMap<V> implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	static final ImmutableLongObjectMap<?> EMPTY = new ImmutableLongObjectMap<>(new long[2], new Object[2], 0);
+
+	private final long[] keys;
+
+	/**
+	 * Values can't be {@code null}, so a {@code null} value marks a free slot.
+	 */
+	private final Object[] values;
+
+	private final int size;
+
+	private ImmutableLongObjectMap(long[] keys, Object[] values, int size) {
+		this.keys = keys;
+		this.values = values;
+		this.size = size;
+	}
+
+	/**
+	 * @throws IllegalArgumentException if there are any duplicate keys or the arrays have
+	 * different lengths
+	 * @throws NullPointerException if any value is {@code null}
+	 */
+	@SuppressWarnings("unchecked")
+	static <V> ImmutableLongObjectMap<V> of(long[] keys, V[] values) {
+		if (keys.length != values.length) {
+			throw new IllegalArgumentException(keys.length + " keys but " + values.length + " values");
+		}
+		if (keys.length == 0) {
+			return (ImmutableLongObjectMap<V>) EMPTY;
+		}
+		int length = ImmutableCollections.tableSizeFor(keys.length);
+		long[] keyTable = new long[length];
+		Object[] valueTable = new Object[length];
+		for (int i = 0; i < keys.length; i++) {
+			Object value = Objects.requireNonNull(values[i]);
+			int idx = probe(keyTable, valueTable, keys[i]);
+			if (idx >= 0) {
+				throw new IllegalArgumentException("duplicated key:" + keys[i]);
+			}
+			idx = -(idx + 1);
+			keyTable[idx] = keys[i];
+			valueTable[idx] = value;
+		}
+		return new ImmutableLongObjectMap<>(keyTable, valueTable, keys.length);
+	}
+
+	/**
+	 * @return the index of the key if present, or {@code -i - 1} where {@code i} is the
+	 * free slot where it should be inserted
+	 */
+	private static int probe(long[] keys, Object[] values, long key) {
+		int mask = keys.length - 1;
+		int idx = ImmutableCollections.mix(key, mask);
+		while (true) {
+			if (values[idx] == null) {
+				return -idx - 1;
+			}
+			else if (keys[idx] == key) {
+				return idx;
+			}
+			idx = (idx + 1) & mask;
+		}
+	}
+
+	/**
+	 * @return the number of mappings in this map
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return {@code true} if this map contains no mappings
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * @param key key whose presence in this map is to be tested
+	 * @return {@code true} if this map contains a mapping for the specified key
+	 */
+	public boolean containsKey(long key) {
+		return probe(keys, values, key) >= 0;
+	}
+
+	/**
+	 * @param key the key whose associated value is to be returned
+	 * @return the value to which the specified key is mapped, or {@code null} if this map
+	 * contains no mapping for the key
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(long key) {
+		int idx = probe(keys, values, key);
+		return idx >= 0 ? (V) values[idx] : null;
+	}
+
+	/**
+	 * Returns an unmodifiable boxed view of this map. Keys are boxed on every access.
+	 * @return a {@code Map<Long, V>} view of this map
+	 */
+	public Map<Long, V> asMap() {
+		return new AsMap<>(this);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (o == this) {
+			return true;
+		}
+		if (!(o instanceof ImmutableLongObjectMap)) {
+			return false;
+		}
+		ImmutableLongObjectMap<?> other = (ImmutableLongObjectMap<?>) o;
+		if (other.size != size) {
+			return false;
+		}
+		for (int i = 0; i < keys.length; i++) {
+			if (values[i] != null && !values[i].equals(other.get(keys[i]))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public int hashCode() {
+		int h = 0;
+		for (int i = 0; i < keys.length; i++) {
+			if (values[i] != null) {
+				h += Long.hashCode(keys[i]) ^ values[i].hashCode();
+			}
+		}
+		return h;
+	}
+
+	@Override
+	public String toString() {
+		return asMap().toString();
+	}
+
+	private void readObject(ObjectInputStream in) throws InvalidObjectException {
+		throw new InvalidObjectException("not serial proxy");
+	}
+
+	/**
+	 * The table is laid out by the salted hash of this JVM, so only the mappings are
+	 * written and the table is built again when read.
+	 */
+	private Object writeReplace() {
+		long[] k = new long[size];
+		Object[] v = new Object[size];
+		for (int i = 0, j = 0; i < keys.length; i++) {
+			if (values[i] != null) {
+				k[j] = keys[i];
+				v[j++] = values[i];
+			}
+		}
+		return new ImmutableCollections.CollSer(ImmutableCollections.CollSer.IMM_LONG_OBJECT_MAP, k, v);
+	}
+
+	private static final class AsMap<V> extends ImmutableCollections.AbstractImmutableMap<Long, V> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final ImmutableLongObjectMap<V> map;
+
+		AsMap(ImmutableLongObjectMap<V> map) {
+			this.map = map;
+		}
+
+		@Override
+		public int size() {
+			return map.size;
+		}
+
+		@Override
+		public boolean containsKey(Object o) {
+			Objects.requireNonNull(o);
+			return o instanceof Long && map.containsKey((Long) o);
+		}
+
+		@Override
+		public V get(Object o) {
+			Objects.requireNonNull(o);
+			return o instanceof Long ? map.get((Long) o) : null;
+		}
+
+		@Override
+		public int hashCode() {
+			return map.hashCode();
+		}
+
+		@Override
+		public Set<Map.Entry<Long, V>> entrySet() {
+			return new ImmutableCollections.AbstractImmutableSet<Map.Entry<Long, V>>() {
+				@Override
+				public int size() {
+					return map.size;
+				}
+
+				@Override
+				public int hashCode() {
+					return map.hashCode();
+				}
+
+				@Override
+				public Iterator<Map.Entry<Long, V>> iterator() {
+					return new Iterator<Map.Entry<Long, V>>() {
+						private int remaining = map.size;
+
+						private int idx = 0;
+
+						@Override
+						public boolean hasNext() {
+							return remaining > 0;
+						}
+
+						@Override
+						@SuppressWarnings("unchecked")
+						public Map.Entry<Long, V> next() {
+							if (remaining == 0) {
+								throw new NoSuchElementException();
+							}
+							remaining--;
+							while (map.values[idx] == null) {
+								idx++;
+							}
+							Map.Entry<Long, V> e = new AbstractMap.SimpleImmutableEntry<>(map.keys[idx],
+									(V) map.values[idx]);
+							idx++;
+							return e;
+						}
+					};
+				}
+			};
+		}
+
+	}
+
+}
@@ -0,0 +1,267 @@
+package org.pgris.new4java8;
+
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.LongConsumer;
+import java.util.stream.LongStream;
+
+/**
+ * Unmodifiable set of {@code long} values backed by a single open addressing
+ * {@code long[]}, so elements are never boxed. Created with {@link New#longSetOf(long...)
+ * New.longSetOf}.
+ *
+ * <p>
+ * {@link #asSet()} gives a boxed {@code Set<Long>} view for interoperability, with the
+ * same characteristics as the sets created by {@link New#setOf(Object...) New.setOf}.
+ * {@code equals} and {@code hashCode} are consistent with that view.
+ */
+public final class ImmutableLongSet implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	static final ImmutableLongSet EMPTY = new ImmutableLongSet(new long[2], false, 0);
+
+	/**
+	 * Probe table, {@code 0} marks a free slot so zero itself is kept in
+	 * {@link #containsZero}.
+	 */
+	private final long[] table;
+
+	private final boolean containsZero;
+
+	private final int size;
+
+	private ImmutableLongSet(long[] table, boolean containsZero, int size) {
+		this.table = table;
+		this.containsZero = containsZero;
+		this.size = size;
+	}
+
+	/**
+	 * @throws IllegalArgumentException if there are any duplicate elements
+	 */
+	static ImmutableLongSet of(long[] elements) {
+		if (elements.length == 0) {
+			return EMPTY;
+		}
+		long[] table = new long[ImmutableCollections.tableSizeFor(elements.length)];
+		boolean containsZero = false;
+		for (long e : elements) {
+			if (e == 0) {
+				if (containsZero) {
+					throw new IllegalArgumentException("duplicate element: " + e);
+				}
+				containsZero = true;
+				continue;
+			}
+			int idx = probe(table, e);
+			if (idx >= 0) {
+				throw new IllegalArgumentException("duplicate element: " + e);
+			}
+			table[-(idx + 1)] = e;
+		}
+		return new ImmutableLongSet(table, containsZero, elements.length);
+	}
+
+	/**
+	 * @return the index of the not zero element if present, or {@code -i - 1} where
+	 * {@code i} is the free slot where it should be inserted
+	 */
+	private static int probe(long[] table, long e) {
+		int mask = table.length - 1;
+		int idx = ImmutableCollections.mix(e, mask);
+		while (true) {
+			long ee = table[idx];
+			if (ee == 0) {
+				return -idx - 1;
+			}
+			else if (ee == e) {
+				return idx;
+			}
+			idx = (idx + 1) & mask;
+		}
+	}
+
+	/**
+	 * @return the number of elements in this set
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return {@code true} if this set contains no elements
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * @param value element whose presence in this set is to be tested
+	 * @return {@code true} if this set contains the specified element
+	 */
+	public boolean contains(long value) {
+		return value == 0 ? containsZero : probe(table, value) >= 0;
+	}
+
+	/**
+	 * Performs the given action for each element, in no particular order.
+	 * @param action the action to be performed for each element
+	 */
+	public void forEach(LongConsumer action) {
+		if (containsZero) {
+			action.accept(0);
+		}
+		for (long e : table) {
+			if (e != 0) {
+				action.accept(e);
+			}
+		}
+	}
+
+	/**
+	 * @return a sequential {@code LongStream} over the elements of this set
+	 */
+	public LongStream stream() {
+		LongStream others = LongStream.of(table).filter(e -> e != 0);
+		return containsZero ? LongStream.concat(LongStream.of(0), others) : others;
+	}
+
+	/**
+	 * @return a new array containing all of the elements in this set
+	 */
+	public long[] toArray() {
+		long[] array = new long[size];
+		int i = 0;
+		if (containsZero) {
+			i++;
+		}
+		for (long e : table) {
+			if (e != 0) {
+				array[i++] = e;
+			}
+		}
+		return array;
+	}
+
+	/**
+	 * Returns an unmodifiable boxed view of this set. Elements are boxed on every access.
+	 * @return a {@code Set<Long>} view of this set
+	 */
+	public Set<Long> asSet() {
+		return new AsSet(this);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (o == this) {
+			return true;
+		}
+		if (!(o instanceof ImmutableLongSet)) {
+			return false;
+		}
+		ImmutableLongSet other = (ImmutableLongSet) o;
+		if (other.size != size || other.containsZero != containsZero) {
+			return false;
+		}
+		for (long e : table) {
+			if (e != 0 && !other.contains(e)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public int hashCode() {
+		int h = 0;
+		for (long e : table) {
+			h += Long.hashCode(e);
+		}
+		return h;
+	}
+
+	@Override
+	public String toString() {
+		return asSet().toString();
+	}
+
+	private void readObject(ObjectInputStream in) throws InvalidObjectException {
+		throw new InvalidObjectException("not serial proxy");
+	}
+
+	/**
+	 * The table is laid out by the salted hash of this JVM, so only the elements are
+	 * written and the table is built again when read.
+	 */
+	private Object writeReplace() {
+		return new ImmutableCollections.CollSer(ImmutableCollections.CollSer.IMM_LONG_SET, (Object) toArray());
+	}
+
+	private static final class AsSet extends ImmutableCollections.AbstractImmutableSet<Long> implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private final ImmutableLongSet set;
+
+		AsSet(ImmutableLongSet set) {
+			this.set = set;
+		}
+
+		@Override
+		public int size() {
+			return set.size;
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			Objects.requireNonNull(o);
+			return o instanceof Long && set.contains((Long) o);
+		}
+
+		@Override
+		public int hashCode() {
+			return set.hashCode();
+		}
+
+		@Override
+		public Iterator<Long> iterator() {
+			return new Iterator<Long>() {
+				private final long[] table = set.table;
+
+				private int remaining = set.size;
+
+				private int idx = set.containsZero ? -1 : 0;
+
+				@Override
+				public boolean hasNext() {
+					return remaining > 0;
+				}
+
+				@Override
+				public Long next() {
+					if (remaining == 0) {
+						throw new NoSuchElementException();
+					}
+					remaining--;
+					if (idx < 0) {
+						idx = 0;
+						return 0L;
+					}
+					long e;
+					while ((e = table[idx++]) == 0) {
+						// skip empty slots
+					}
+					return e;
+				}
+			};
+		}
+
+	}
+
+}
@@ -0,0 +1,264 @@
+package org.pgris.new4java8;
+
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.UnaryOperator;
+
+/**
+ * Holds the current version of a {@link PersistentMap}, for maps read far more often than
+ * they are written, such as registries or configuration. Created with
+ * {@link New#mapRef(Map) New.mapRef}.
+ *
+ * <p>
+ * {@link #snapshot()} is a single volatile read returning an unmodifiable map that never
+ * changes afterwards, so readers never lock or copy. Writers don't lock either: each
+ * update is pushed on a stack of pending updates, and whichever writer takes the stack
+ * applies all of them to the current map and publishes the result with a single
+ * compare-and-set, retrying on a newer map if another batch got published first. The
+ * other writers wait until their update is published, so updates from one thread are
+ * applied in order and each one is visible to {@link #snapshot()} when it returns. Since
+ * the map is persistent, each update only copies {@code O(log32 n)} nodes.
+ *
+ * <p>
+ * {@link #contentionCount()} and {@link #retryCount()} tell how often writers collided,
+ * and {@link #updateCount()} against {@link #publishCount()} how many updates were
+ * batched together.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of mapped values
+ */
+public final class ImmutableMapRef<K, V> {
+
+	private final AtomicReference<PersistentMap<K, V>> map;
+
+	/**
+	 * Updates not applied yet, latest first
+	 */
+	private final AtomicReference<Pending<K, V>> pending = new AtomicReference<>();
+
+	private final LongAdder updates = new LongAdder();
+
+	private final LongAdder publishes = new LongAdder();
+
+	private final LongAdder contention = new LongAdder();
+
+	private final LongAdder retries = new LongAdder();
+
+	ImmutableMapRef(PersistentMap<K, V> initial) {
+		this.map = new AtomicReference<>(initial);
+	}
+
+	/**
+	 * @return the current map, which never changes afterwards
+	 */
+	public PersistentMap<K, V> snapshot() {
+		return map.get();
+	}
+
+	/**
+	 * @param key the key whose associated value is to be returned
+	 * @return the value mapped to the key in the current map, or {@code null}
+	 * @throws NullPointerException if the key is {@code null}
+	 */
+	public V get(Object key) {
+		return map.get().get(key);
+	}
+
+	/**
+	 * Maps the key to the value in the current map.
+	 * @param key key with which the specified value is to be associated
+	 * @param value value to be associated with the specified key
+	 * @return the previous value mapped to the key, or {@code null}
+	 * @throws NullPointerException if the key or the value is {@code null}
+	 */
+	public V put(K key, V value) {
+		Objects.requireNonNull(key);
+		Objects.requireNonNull(value);
+		return apply(m -> m.plus(key, value)).before.get(key);
+	}
+
+	/**
+	 * Removes the mapping for the key from the current map.
+	 * @param key key whose mapping is to be removed
+	 * @return the previous value mapped to the key, or {@code null}
+	 * @throws NullPointerException if the key is {@code null}
+	 */
+	public V remove(Object key) {
+		Objects.requireNonNull(key);
+		return apply(m -> m.minus(key)).before.get(key);
+	}
+
+	/**
+	 * Replaces the current map with the result of the function. The function may be
+	 * called more than once, and by another thread, so it should have no side effects.
+	 * @param function computes the new map from the current one
+	 * @return the map returned by the function
+	 * @throws NullPointerException if the function is {@code null} or returns
+	 * {@code null}
+	 * @throws RuntimeException if the function throws it, leaving the current map as it
+	 * was
+	 * @throws Error if the function throws it, leaving the current map as it was
+	 */
+	public PersistentMap<K, V> update(UnaryOperator<PersistentMap<K, V>> function) {
+		Objects.requireNonNull(function);
+		return apply(function).after;
+	}
+
+	private Pending<K, V> apply(UnaryOperator<PersistentMap<K, V>> function) {
+		Pending<K, V> update = new Pending<>(function);
+		Pending<K, V> head;
+		do {
+			head = pending.get();
+			update.next = head;
+		}
+		while (!casCounted(head, update));
+		updates.increment();
+		while (!update.published) {
+			Pending<K, V> batch = pending.getAndSet(null);
+			if (batch != null) {
+				publish(batch);
+			}
+			else {
+				// another writer took this update and is about to publish it
+				Thread.yield();
+			}
+		}
+		Throwable failure = update.failure;
+		if (failure instanceof RuntimeException) {
+			throw (RuntimeException) failure;
+		}
+		if (failure instanceof Error) {
+			throw (Error) failure;
+		}
+		if (failure != null) {
+			// a checked exception thrown sneakily by the function
+			throw new UndeclaredThrowableException(failure);
+		}
+		return update;
+	}
+
+	private boolean casCounted(Pending<K, V> head, Pending<K, V> update) {
+		if (pending.compareAndSet(head, update)) {
+			return true;
+		}
+		contention.increment();
+		return false;
+	}
+
+	/**
+	 * Applies a batch of updates and publishes the result. Every update in the batch is
+	 * marked as published whatever happens, or its writer would wait forever: if the
+	 * batch itself can't be applied, each update fails with the same error.
+	 */
+	private void publish(Pending<K, V> batch) {
+		try {
+			applyAll(batch);
+			publishes.increment();
+		}
+		catch (Throwable e) {
+			for (Pending<K, V> p = batch; p != null; p = p.next) {
+				p.failure = e;
+			}
+		}
+		finally {
+			for (Pending<K, V> p = batch; p != null;) {
+				Pending<K, V> next = p.next;
+				p.next = null;
+				// volatile write, makes the fields above visible to the writer of p
+				p.published = true;
+				p = next;
+			}
+		}
+	}
+
+	private void applyAll(Pending<K, V> batch) {
+		int count = 0;
+		for (Pending<K, V> p = batch; p != null; p = p.next) {
+			count++;
+		}
+		// oldest first
+		@SuppressWarnings("unchecked")
+		Pending<K, V>[] ordered = (Pending<K, V>[]) new Pending<?, ?>[count];
+		for (Pending<K, V> p = batch; p != null; p = p.next) {
+			ordered[--count] = p;
+		}
+		PersistentMap<K, V> current = map.get();
+		while (true) {
+			PersistentMap<K, V> next = current;
+			for (Pending<K, V> p : ordered) {
+				p.before = next;
+				try {
+					next = Objects.requireNonNull(p.function.apply(next));
+					p.failure = null;
+				}
+				catch (Throwable e) {
+					p.failure = e;
+				}
+				p.after = next;
+			}
+			if (map.compareAndSet(current, next)) {
+				break;
+			}
+			retries.increment();
+			current = map.get();
+		}
+	}
+
+	/**
+	 * @return how many updates were requested
+	 */
+	public long updateCount() {
+		return updates.sum();
+	}
+
+	/**
+	 * @return how many new maps were published, each one with one or more updates
+	 */
+	public long publishCount() {
+		return publishes.sum();
+	}
+
+	/**
+	 * @return how many times a writer had to try again to queue its update
+	 */
+	public long contentionCount() {
+		return contention.sum();
+	}
+
+	/**
+	 * @return how many times a batch of updates had to be applied again, because another
+	 * batch was published first
+	 */
+	public long retryCount() {
+		return retries.sum();
+	}
+
+	@Override
+	public String toString() {
+		return map.get().toString();
+	}
+
+	private static final class Pending<K, V> {
+
+		final UnaryOperator<PersistentMap<K, V>> function;
+
+		Pending<K, V> next;
+
+		PersistentMap<K, V> before;
+
+		PersistentMap<K, V> after;
+
+		Throwable failure;
+
+		volatile boolean published;
+
+		Pending(UnaryOperator<PersistentMap<K, V>> function) {
+			this.function = function;
+		}
+
+	}
+
+}
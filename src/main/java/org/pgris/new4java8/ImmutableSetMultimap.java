@@ -0,0 +1,157 @@
+package org.pgris.new4java8;
+
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Unmodifiable multimap from each key to a set of values. Created with
+ * {@link New#setMultimapOf(Map) New.setMultimapOf}.
+ *
+ * <p>
+ * All values are kept in a single array, grouped by key, so there is no set per key:
+ * {@link #get(Object)} returns a view over the values of the key. The values of each key
+ * are sorted by hash code, so {@code contains} on that view is a binary search. Keys and
+ * values can't be {@code null}, a key can't have the same value twice, and keys iterate
+ * in the order they were given in.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+public final class ImmutableSetMultimap<K, V> extends AbstractImmutableMultimap<K, V, Set<V>> {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final Comparator<Object> BY_HASH = (a, b) -> Integer.compare(a.hashCode(), b.hashCode());
+
+	/**
+	 * @param groups each key followed by the number of its values and its values
+	 * @throws IllegalArgumentException if there are any duplicate keys, or duplicate
+	 * values for a key
+	 * @throws NullPointerException if any key or value is {@code null}
+	 */
+	ImmutableSetMultimap(Object[] groups) {
+		super(groups);
+		for (int g = 0; g < keys.length; g++) {
+			Arrays.sort(values, offsets[g], offsets[g + 1], BY_HASH);
+			// equal values have the same hash code, so they are in the same run
+			for (int i = offsets[g]; i < offsets[g + 1]; i++) {
+				int h = values[i].hashCode();
+				for (int j = i + 1; j < offsets[g + 1] && values[j].hashCode() == h; j++) {
+					if (values[i].equals(values[j])) {
+						throw new IllegalArgumentException("duplicate element: " + values[j]);
+					}
+				}
+			}
+		}
+	}
+
+	@Override
+	Set<V> group(int g) {
+		return new ValueSet(offsets[g], offsets[g + 1]);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	Set<V> empty() {
+		return (Set<V>) ImmutableCollections.SetN.EMPTY_SET;
+	}
+
+	private void readObject(ObjectInputStream in) throws InvalidObjectException {
+		throw new InvalidObjectException("not serial proxy");
+	}
+
+	private Object writeReplace() {
+		return new ImmutableCollections.CollSer(ImmutableCollections.CollSer.IMM_SET_MULTIMAP, groups());
+	}
+
+	/**
+	 * @throws IllegalArgumentException if there are any duplicate keys, or duplicate
+	 * values for a key
+	 * @throws NullPointerException if any key, collection or value is {@code null}
+	 */
+	static <K, V> ImmutableSetMultimap<K, V> of(Map<? extends K, ? extends Collection<? extends V>> map) {
+		return new ImmutableSetMultimap<>(groupsOf(map));
+	}
+
+	/**
+	 * The values of one key, from {@code from} to {@code to} in {@link #values}
+	 */
+	private final class ValueSet extends ImmutableCollections.AbstractImmutableSet<V> {
+
+		private final int from;
+
+		private final int to;
+
+		ValueSet(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		public int size() {
+			return to - from;
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			int h = o.hashCode();
+			// the first value with a hash code not lower than h
+			int lo = from;
+			int hi = to;
+			while (lo < hi) {
+				int mid = (lo + hi) >>> 1;
+				if (values[mid].hashCode() < h) {
+					lo = mid + 1;
+				}
+				else {
+					hi = mid;
+				}
+			}
+			for (int i = lo; i < to && values[i].hashCode() == h; i++) {
+				if (o.equals(values[i])) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public int hashCode() {
+			int h = 0;
+			for (int i = from; i < to; i++) {
+				h += values[i].hashCode();
+			}
+			return h;
+		}
+
+		@Override
+		public Iterator<V> iterator() {
+			return new Iterator<V>() {
+				private int i = from;
+
+				@Override
+				public boolean hasNext() {
+					return i < to;
+				}
+
+				@Override
+				@SuppressWarnings("unchecked")
+				public V next() {
+					if (i == to) {
+						throw new NoSuchElementException();
+					}
+					return (V) values[i++];
+				}
+			};
+		}
+
+	}
+
+}
@@ -0,0 +1,711 @@
+package org.pgris.new4java8;
+
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.function.BiConsumer;
+
+/**
+ * Sorted sets and maps backed by sorted arrays, created with
+ * {@link New#sortedSetOf(Comparable[]) New.sortedSetOf} and {@link New#sortedMapOf(Map)
+ * New.sortedMapOf}. Lookups are binary searches, and every range or descending view is
+ * the same arrays with other bounds, so views never copy.
+ */
+final class ImmutableSortedCollections {
+
+	private ImmutableSortedCollections() {
+		// do not instantiate
+	}
+
+	/**
+	 * @param comparator {@code null} for natural order
+	 * @param elements owned by the set from now on
+	 * @throws IllegalArgumentException if there are any duplicate elements
+	 * @throws NullPointerException if any element is {@code null}
+	 * @throws ClassCastException if the elements can't be compared
+	 */
+	@SuppressWarnings("unchecked")
+	static <E> SortedArraySet<E> setOf(Comparator<? super E> comparator, Object[] elements) {
+		for (Object e : elements) {
+			Objects.requireNonNull(e);
+		}
+		Comparator<? super E> order = orderOf(comparator);
+		E[] sorted = (E[]) elements;
+		Arrays.sort(sorted, order);
+		for (int i = 1; i < sorted.length; i++) {
+			if (order.compare(sorted[i - 1], sorted[i]) == 0) {
+				throw new IllegalArgumentException("duplicate element: " + sorted[i]);
+			}
+		}
+		return new SortedArraySet<>(sorted, comparator, 0, sorted.length, false);
+	}
+
+	/**
+	 * @param comparator {@code null} for natural order
+	 * @param keysAndValues each key followed by its value
+	 * @throws IllegalArgumentException if there are any duplicate keys
+	 * @throws NullPointerException if any key or value is {@code null}
+	 * @throws ClassCastException if the keys can't be compared
+	 */
+	@SuppressWarnings("unchecked")
+	static <K, V> SortedArrayMap<K, V> mapOf(Comparator<? super K> comparator, Object[] keysAndValues) {
+		int size = keysAndValues.length >> 1;
+		Integer[] order = new Integer[size];
+		for (int i = 0; i < size; i++) {
+			Objects.requireNonNull(keysAndValues[2 * i]);
+			Objects.requireNonNull(keysAndValues[2 * i + 1]);
+			order[i] = 2 * i;
+		}
+		Comparator<? super K> keyOrder = orderOf(comparator);
+		Arrays.sort(order, (a, b) -> keyOrder.compare((K) keysAndValues[a], (K) keysAndValues[b]));
+		K[] keys = (K[]) new Object[size];
+		V[] values = (V[]) new Object[size];
+		for (int i = 0; i < size; i++) {
+			keys[i] = (K) keysAndValues[order[i]];
+			values[i] = (V) keysAndValues[order[i] + 1];
+			if (i > 0 && keyOrder.compare(keys[i - 1], keys[i]) == 0) {
+				throw new IllegalArgumentException("duplicated key:" + keys[i]);
+			}
+		}
+		return new SortedArrayMap<>(keys, values, comparator, 0, size, false);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> Comparator<? super T> orderOf(Comparator<? super T> comparator) {
+		return comparator != null ? comparator : (Comparator<? super T>) Comparator.naturalOrder();
+	}
+
+	/**
+	 * @return the first index in {@code [from, to]} of an element after {@code e}, or not
+	 * before it if inclusive
+	 */
+	private static <T> int ceilingIndex(T[] array, int from, int to, Comparator<? super T> order, T e,
+			boolean inclusive) {
+		int r = Arrays.binarySearch(array, from, to, Objects.requireNonNull(e), order);
+		if (r >= 0) {
+			return inclusive ? r : r + 1;
+		}
+		return -r - 1;
+	}
+
+	/**
+	 * Bounds shared by sets and maps, in ascending order of the backing array. Navigation
+	 * in a descending view is the opposite navigation in ascending order.
+	 */
+	private static final class Range<T> {
+
+		final T[] array;
+
+		final Comparator<? super T> comparator;
+
+		final Comparator<? super T> order;
+
+		final int from;
+
+		final int to;
+
+		final boolean descending;
+
+		Range(T[] array, Comparator<? super T> comparator, int from, int to, boolean descending) {
+			this.array = array;
+			this.comparator = comparator;
+			this.order = orderOf(comparator);
+			this.from = from;
+			this.to = to;
+			this.descending = descending;
+		}
+
+		final int ceilingIndex(T e, boolean inclusive) {
+			return ImmutableSortedCollections.ceilingIndex(array, from, to, order, e, inclusive);
+		}
+
+		/**
+		 * @return the index of an element, or {@code -1} if absent or not comparable
+		 */
+		@SuppressWarnings("unchecked")
+		final int indexOf(Object o) {
+			Objects.requireNonNull(o);
+			try {
+				int r = Arrays.binarySearch(array, from, to, (T) o, order);
+				return r >= 0 ? r : -1;
+			}
+			catch (ClassCastException e) {
+				return -1;
+			}
+		}
+
+		/**
+		 * @return the index in the backing array of the i-th element in iteration order
+		 */
+		final int index(int i) {
+			return descending ? to - 1 - i : from + i;
+		}
+
+		final int lowerIndex(T e) {
+			return descending ? ceilingIndex(e, false) : ceilingIndex(e, true) - 1;
+		}
+
+		final int floorIndex(T e) {
+			return descending ? ceilingIndex(e, true) : ceilingIndex(e, false) - 1;
+		}
+
+		final int ceilingIndexInOrder(T e) {
+			return descending ? ceilingIndex(e, false) - 1 : ceilingIndex(e, true);
+		}
+
+		final int higherIndex(T e) {
+			return descending ? ceilingIndex(e, true) - 1 : ceilingIndex(e, false);
+		}
+
+		final int firstIndex() {
+			if (from == to) {
+				throw new NoSuchElementException();
+			}
+			return descending ? to - 1 : from;
+		}
+
+		final int lastIndex() {
+			if (from == to) {
+				throw new NoSuchElementException();
+			}
+			return descending ? from : to - 1;
+		}
+
+		final boolean inRange(int i) {
+			return i >= from && i < to;
+		}
+
+		final Comparator<? super T> comparatorInOrder() {
+			return descending ? Collections.reverseOrder(comparator) : comparator;
+		}
+
+		final Range<T> subRange(T fromElement, boolean fromInclusive, T toElement, boolean toInclusive) {
+			int c = order.compare(Objects.requireNonNull(fromElement), Objects.requireNonNull(toElement));
+			if (descending ? c < 0 : c > 0) {
+				throw new IllegalArgumentException("fromKey > toKey");
+			}
+			if (descending) {
+				return bounded(ceilingIndex(toElement, toInclusive), ceilingIndex(fromElement, !fromInclusive));
+			}
+			return bounded(ceilingIndex(fromElement, fromInclusive), ceilingIndex(toElement, !toInclusive));
+		}
+
+		final Range<T> headRange(T toElement, boolean inclusive) {
+			if (descending) {
+				return bounded(ceilingIndex(toElement, inclusive), to);
+			}
+			return bounded(from, ceilingIndex(toElement, !inclusive));
+		}
+
+		final Range<T> tailRange(T fromElement, boolean inclusive) {
+			if (descending) {
+				return bounded(from, ceilingIndex(fromElement, !inclusive));
+			}
+			return bounded(ceilingIndex(fromElement, inclusive), to);
+		}
+
+		private Range<T> bounded(int lo, int hi) {
+			return new Range<>(array, comparator, lo, Math.max(lo, hi), descending);
+		}
+
+	}
+
+	/**
+	 * Immutable {@code NavigableSet} over a range of a sorted array.
+	 */
+	static final class SortedArraySet<E> extends ImmutableCollections.AbstractImmutableSet<E>
+			implements NavigableSet<E>, Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Range<E> range;
+
+		SortedArraySet(E[] elements, Comparator<? super E> comparator, int from, int to, boolean descending) {
+			this.range = new Range<>(elements, comparator, from, to, descending);
+		}
+
+		private static <E> NavigableSet<E> of(Range<E> range) {
+			return new SortedArraySet<>(range.array, range.comparator, range.from, range.to, range.descending);
+		}
+
+		private E at(int i) {
+			return range.inRange(i) ? range.array[i] : null;
+		}
+
+		/**
+		 * @return the elements in iteration order, without copying
+		 */
+		private List<E> asList() {
+			return new ImmutableCollections.AbstractImmutableList<E>() {
+				@Override
+				public E get(int index) {
+					ImmutableCollections.checkIndex(index, size());
+					return range.array[range.index(index)];
+				}
+
+				@Override
+				public int size() {
+					return range.to - range.from;
+				}
+			};
+		}
+
+		@Override
+		public int size() {
+			return range.to - range.from;
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return range.from == range.to;
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			return range.indexOf(o) >= 0;
+		}
+
+		@Override
+		public Iterator<E> iterator() {
+			return asList().iterator();
+		}
+
+		@Override
+		public Spliterator<E> spliterator() {
+			// natural order or the comparator, as reported by comparator()
+			return new ImmutableCollections.IndexSpliterator<>(asList(), 0, size(),
+					Spliterator.DISTINCT | Spliterator.SORTED, comparator());
+		}
+
+		@Override
+		public Object[] toArray() {
+			return asList().toArray();
+		}
+
+		@Override
+		public int hashCode() {
+			int h = 0;
+			for (int i = range.from; i < range.to; i++) {
+				h += range.array[i].hashCode();
+			}
+			return h;
+		}
+
+		@Override
+		public Comparator<? super E> comparator() {
+			return range.comparatorInOrder();
+		}
+
+		@Override
+		public E first() {
+			return range.array[range.firstIndex()];
+		}
+
+		@Override
+		public E last() {
+			return range.array[range.lastIndex()];
+		}
+
+		@Override
+		public E lower(E e) {
+			return at(range.lowerIndex(e));
+		}
+
+		@Override
+		public E floor(E e) {
+			return at(range.floorIndex(e));
+		}
+
+		@Override
+		public E ceiling(E e) {
+			return at(range.ceilingIndexInOrder(e));
+		}
+
+		@Override
+		public E higher(E e) {
+			return at(range.higherIndex(e));
+		}
+
+		@Override
+		public E pollFirst() {
+			throw ImmutableCollections.uoe();
+		}
+
+		@Override
+		public E pollLast() {
+			throw ImmutableCollections.uoe();
+		}
+
+		@Override
+		public NavigableSet<E> descendingSet() {
+			return new SortedArraySet<>(range.array, range.comparator, range.from, range.to, !range.descending);
+		}
+
+		@Override
+		public Iterator<E> descendingIterator() {
+			return descendingSet().iterator();
+		}
+
+		@Override
+		public NavigableSet<E> subSet(E fromElement, boolean fromInclusive, E toElement, boolean toInclusive) {
+			return of(range.subRange(fromElement, fromInclusive, toElement, toInclusive));
+		}
+
+		@Override
+		public NavigableSet<E> headSet(E toElement, boolean inclusive) {
+			return of(range.headRange(toElement, inclusive));
+		}
+
+		@Override
+		public NavigableSet<E> tailSet(E fromElement, boolean inclusive) {
+			return of(range.tailRange(fromElement, inclusive));
+		}
+
+		@Override
+		public NavigableSet<E> subSet(E fromElement, E toElement) {
+			return subSet(fromElement, true, toElement, false);
+		}
+
+		@Override
+		public NavigableSet<E> headSet(E toElement) {
+			return headSet(toElement, false);
+		}
+
+		@Override
+		public NavigableSet<E> tailSet(E fromElement) {
+			return tailSet(fromElement, true);
+		}
+
+		private void readObject(ObjectInputStream in) throws InvalidObjectException {
+			throw new InvalidObjectException("not serial proxy");
+		}
+
+		private Object writeReplace() {
+			Object[] array = new Object[size() + 1];
+			array[0] = comparator();
+			for (int i = 1; i < array.length; i++) {
+				array[i] = range.array[range.index(i - 1)];
+			}
+			return new ImmutableCollections.CollSer(ImmutableCollections.CollSer.IMM_SORTED_SET, array);
+		}
+
+	}
+
+	/**
+	 * Immutable {@code NavigableMap} over a range of a sorted key array and its parallel
+	 * value array.
+	 */
+	static final class SortedArrayMap<K, V> extends ImmutableCollections.AbstractImmutableMap<K, V>
+			implements NavigableMap<K, V> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Range<K> range;
+
+		private final V[] values;
+
+		SortedArrayMap(K[] keys, V[] values, Comparator<? super K> comparator, int from, int to, boolean descending) {
+			this.values = values;
+			this.range = new Range<>(keys, comparator, from, to, descending);
+		}
+
+		private NavigableMap<K, V> of(Range<K> range) {
+			return new SortedArrayMap<>(range.array, values, range.comparator, range.from, range.to, range.descending);
+		}
+
+		private Map.Entry<K, V> entry(int i) {
+			return range.inRange(i) ? new AbstractMap.SimpleImmutableEntry<>(range.array[i], values[i]) : null;
+		}
+
+		private K key(int i) {
+			return range.inRange(i) ? range.array[i] : null;
+		}
+
+		@Override
+		public V get(Object o) {
+			int i = range.indexOf(o);
+			return i >= 0 ? values[i] : null;
+		}
+
+		@Override
+		public boolean containsKey(Object o) {
+			return range.indexOf(o) >= 0;
+		}
+
+		@Override
+		public boolean containsValue(Object o) {
+			Objects.requireNonNull(o);
+			for (int i = range.from; i < range.to; i++) {
+				if (o.equals(values[i])) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public int size() {
+			return range.to - range.from;
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return range.from == range.to;
+		}
+
+		@Override
+		public int hashCode() {
+			int h = 0;
+			for (int i = range.from; i < range.to; i++) {
+				h += range.array[i].hashCode() ^ values[i].hashCode();
+			}
+			return h;
+		}
+
+		@Override
+		public void forEach(BiConsumer<? super K, ? super V> action) {
+			Objects.requireNonNull(action);
+			for (int i = 0, size = size(); i < size; i++) {
+				int idx = range.index(i);
+				action.accept(range.array[idx], values[idx]);
+			}
+		}
+
+		@Override
+		public Set<Map.Entry<K, V>> entrySet() {
+			List<Map.Entry<K, V>> entries = new ImmutableCollections.AbstractImmutableList<Map.Entry<K, V>>() {
+				@Override
+				public Map.Entry<K, V> get(int index) {
+					ImmutableCollections.checkIndex(index, size());
+					return entry(range.index(index));
+				}
+
+				@Override
+				public int size() {
+					return range.to - range.from;
+				}
+			};
+			return new ImmutableCollections.AbstractImmutableSet<Map.Entry<K, V>>() {
+				@Override
+				public int size() {
+					return entries.size();
+				}
+
+				@Override
+				public boolean contains(Object o) {
+					if (!(o instanceof Map.Entry)) {
+						return false;
+					}
+					Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+					Object v = e.getKey() != null ? get(e.getKey()) : null;
+					return v != null && v.equals(e.getValue());
+				}
+
+				@Override
+				public int hashCode() {
+					return SortedArrayMap.this.hashCode();
+				}
+
+				@Override
+				public Iterator<Map.Entry<K, V>> iterator() {
+					return entries.iterator();
+				}
+
+				@Override
+				public Spliterator<Map.Entry<K, V>> spliterator() {
+					return new ImmutableCollections.IndexSpliterator<>(entries, 0, entries.size(), Spliterator.DISTINCT,
+							null);
+				}
+			};
+		}
+
+		@Override
+		public Collection<V> values() {
+			List<V> list = new ImmutableCollections.AbstractImmutableList<V>() {
+				@Override
+				public V get(int index) {
+					ImmutableCollections.checkIndex(index, size());
+					return values[range.index(index)];
+				}
+
+				@Override
+				public int size() {
+					return range.to - range.from;
+				}
+			};
+			// a plain collection, values are not a list in any other map
+			return new ImmutableCollections.AbstractImmutableCollection<V>() {
+				@Override
+				public Iterator<V> iterator() {
+					return list.iterator();
+				}
+
+				@Override
+				public int size() {
+					return list.size();
+				}
+
+				@Override
+				public Spliterator<V> spliterator() {
+					return list.spliterator();
+				}
+			};
+		}
+
+		@Override
+		public Comparator<? super K> comparator() {
+			return range.comparatorInOrder();
+		}
+
+		@Override
+		public K firstKey() {
+			return range.array[range.firstIndex()];
+		}
+
+		@Override
+		public K lastKey() {
+			return range.array[range.lastIndex()];
+		}
+
+		@Override
+		public Map.Entry<K, V> firstEntry() {
+			return isEmpty() ? null : entry(range.firstIndex());
+		}
+
+		@Override
+		public Map.Entry<K, V> lastEntry() {
+			return isEmpty() ? null : entry(range.lastIndex());
+		}
+
+		@Override
+		public Map.Entry<K, V> pollFirstEntry() {
+			throw ImmutableCollections.uoe();
+		}
+
+		@Override
+		public Map.Entry<K, V> pollLastEntry() {
+			throw ImmutableCollections.uoe();
+		}
+
+		@Override
+		public Map.Entry<K, V> lowerEntry(K key) {
+			return entry(range.lowerIndex(key));
+		}
+
+		@Override
+		public K lowerKey(K key) {
+			return key(range.lowerIndex(key));
+		}
+
+		@Override
+		public Map.Entry<K, V> floorEntry(K key) {
+			return entry(range.floorIndex(key));
+		}
+
+		@Override
+		public K floorKey(K key) {
+			return key(range.floorIndex(key));
+		}
+
+		@Override
+		public Map.Entry<K, V> ceilingEntry(K key) {
+			return entry(range.ceilingIndexInOrder(key));
+		}
+
+		@Override
+		public K ceilingKey(K key) {
+			return key(range.ceilingIndexInOrder(key));
+		}
+
+		@Override
+		public Map.Entry<K, V> higherEntry(K key) {
+			return entry(range.higherIndex(key));
+		}
+
+		@Override
+		public K higherKey(K key) {
+			return key(range.higherIndex(key));
+		}
+
+		@Override
+		public NavigableMap<K, V> descendingMap() {
+			return new SortedArrayMap<>(range.array, values, range.comparator, range.from, range.to, !range.descending);
+		}
+
+		@Override
+		public NavigableSet<K> navigableKeySet() {
+			return new SortedArraySet<>(range.array, range.comparator, range.from, range.to, range.descending);
+		}
+
+		@Override
+		public NavigableSet<K> keySet() {
+			return navigableKeySet();
+		}
+
+		@Override
+		public NavigableSet<K> descendingKeySet() {
+			return navigableKeySet().descendingSet();
+		}
+
+		@Override
+		public NavigableMap<K, V> subMap(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
+			return of(range.subRange(fromKey, fromInclusive, toKey, toInclusive));
+		}
+
+		@Override
+		public NavigableMap<K, V> headMap(K toKey, boolean inclusive) {
+			return of(range.headRange(toKey, inclusive));
+		}
+
+		@Override
+		public NavigableMap<K, V> tailMap(K fromKey, boolean inclusive) {
+			return of(range.tailRange(fromKey, inclusive));
+		}
+
+		@Override
+		public NavigableMap<K, V> subMap(K fromKey, K toKey) {
+			return subMap(fromKey, true, toKey, false);
+		}
+
+		@Override
+		public NavigableMap<K, V> headMap(K toKey) {
+			return headMap(toKey, false);
+		}
+
+		@Override
+		public NavigableMap<K, V> tailMap(K fromKey) {
+			return tailMap(fromKey, true);
+		}
+
+		private void readObject(ObjectInputStream in) throws InvalidObjectException {
+			throw new InvalidObjectException("not serial proxy");
+		}
+
+		private Object writeReplace() {
+			Object[] array = new Object[2 * size() + 1];
+			array[0] = comparator();
+			for (int i = 0, size = size(); i < size; i++) {
+				int idx = range.index(i);
+				array[2 * i + 1] = range.array[idx];
+				array[2 * i + 2] = values[idx];
+			}
+			return new ImmutableCollections.CollSer(ImmutableCollections.CollSer.IMM_SORTED_MAP, array);
+		}
+
+	}
+
+}
@@ -0,0 +1,491 @@
+package org.pgris.new4java8;
+
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Unmodifiable map with {@code String} keys, for lookups of header names, configuration
+ * keys or field names. Created with {@link New#stringMapOf(Map) New.stringMapOf} and
+ * {@link New#stringMapOfIgnoreCase(Map) New.stringMapOfIgnoreCase}.
+ *
+ * <p>
+ * Keys, values and the hash codes of the keys are kept in three parallel open addressing
+ * arrays, and a key is only compared after its stored hash code matches, so a lookup
+ * usually costs a single {@code equals} call. If a probe gets longer than
+ * {@link ImmutableCollections#MAX_PROBE}, as with keys crafted to share a hash code, the
+ * arrays are sorted by hash code then characters instead, and every lookup is a binary
+ * search. {@link #get(CharSequence, int, int)} looks up a key in any
+ * {@code CharSequence}, such as the buffer a request was just parsed into, without
+ * creating a {@code String} for it.
+ *
+ * <p>
+ * A map created with {@code stringMapOfIgnoreCase} compares keys ignoring case, like
+ * {@link String#equalsIgnoreCase(String)}: both {@code get} methods find a key however
+ * its characters are cased, and keys differing only in case are duplicates. Its key set
+ * keeps the keys as given, and {@code equals} and {@code hashCode} are still those of a
+ * map, so it equals a case sensitive map with the same mappings.
+ *
+ * <p>
+ * Apart from that, it has the same characteristics as the maps created by
+ * {@link New#mapOf() New.mapOf}.
+ *
+ * @param <V> the type of mapped values
+ */
+public final class ImmutableStringMap<V> extends ImmutableCollections.AbstractImmutableMap<String, V> {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Keys can't be {@code null}, so a {@code null} key marks a free slot.
+	 */
+	private final String[] keys;
+
+	private final Object[] values;
+
+	/**
+	 * Hash code of the key in each slot, case folded if {@link #ignoreCase}
+	 */
+	private final int[] hashes;
+
+	private final int size;
+
+	private final boolean ignoreCase;
+
+	/**
+	 * Whether the arrays are sorted by hash code then characters, case folded if
+	 * {@link #ignoreCase}, instead of being a probe table
+	 */
+	private final boolean sorted;
+
+	/**
+	 * Computed on first use, {@code 0} until then
+	 */
+	private int hash;
+
+	private ImmutableStringMap(String[] keys, Object[] values, int[] hashes, int size, boolean ignoreCase,
+			boolean sorted) {
+		this.keys = keys;
+		this.values = values;
+		this.hashes = hashes;
+		this.size = size;
+		this.ignoreCase = ignoreCase;
+		this.sorted = sorted;
+	}
+
+	/**
+	 * @param keysAndValues each key followed by its value
+	 * @throws IllegalArgumentException if there are any duplicate keys
+	 * @throws NullPointerException if any key or value is {@code null}
+	 * @throws ClassCastException if any key is not a {@code String}
+	 */
+	static <V> ImmutableStringMap<V> of(Object[] keysAndValues, boolean ignoreCase) {
+		int size = keysAndValues.length >> 1;
+		int length = ImmutableCollections.tableSizeFor(size);
+		String[] keys = new String[length];
+		Object[] values = new Object[length];
+		int[] hashes = new int[length];
+		for (int i = 0; i < keysAndValues.length; i += 2) {
+			String key = (String) Objects.requireNonNull(keysAndValues[i]);
+			Object value = Objects.requireNonNull(keysAndValues[i + 1]);
+			int h = ignoreCase ? foldedHash(key, 0, key.length()) : key.hashCode();
+			int idx = probeShort(keys, hashes, ignoreCase, key, h);
+			if (idx == ImmutableCollections.LONG_PROBE) {
+				return sorted(keysAndValues, ignoreCase);
+			}
+			if (idx >= 0) {
+				throw new IllegalArgumentException("duplicated key:" + key);
+			}
+			idx = -(idx + 1);
+			keys[idx] = key;
+			values[idx] = value;
+			hashes[idx] = h;
+		}
+		return new ImmutableStringMap<>(keys, values, hashes, size, ignoreCase, false);
+	}
+
+	/**
+	 * Builds the sorted layout, throwing the exception {@link #of} throws for the first
+	 * invalid or repeated key in array order.
+	 */
+	private static <V> ImmutableStringMap<V> sorted(Object[] keysAndValues, boolean ignoreCase) {
+		int size = keysAndValues.length >> 1;
+		int n = 0;
+		while (n < size && keysAndValues[2 * n] instanceof String && keysAndValues[2 * n + 1] != null) {
+			n++;
+		}
+		String[] keys = new String[n];
+		int[] hashes = new int[n];
+		Integer[] order = new Integer[n];
+		for (int i = 0; i < n; i++) {
+			keys[i] = (String) keysAndValues[2 * i];
+			hashes[i] = ignoreCase ? foldedHash(keys[i], 0, keys[i].length()) : keys[i].hashCode();
+			order[i] = i;
+		}
+		// stable, so of equal keys the first one in array order comes first
+		Arrays.sort(order, (a, b) -> hashes[a] != hashes[b] ? Integer.compare(hashes[a], hashes[b])
+				: compare(keys[a], ignoreCase, keys[b], 0, keys[b].length()));
+		int repeated = n;
+		for (int p = 1; p < n; p++) {
+			int i = order[p];
+			if (hashes[i] == hashes[order[p - 1]]
+					&& compare(keys[order[p - 1]], ignoreCase, keys[i], 0, keys[i].length()) == 0) {
+				repeated = Math.min(repeated, i);
+			}
+		}
+		if (repeated < n) {
+			throw new IllegalArgumentException("duplicated key:" + keys[repeated]);
+		}
+		if (n < size) {
+			// the key is null or not a String, or else the value is null
+			Objects.requireNonNull((String) keysAndValues[2 * n]);
+			throw new NullPointerException();
+		}
+		String[] sortedKeys = new String[n];
+		Object[] sortedValues = new Object[n];
+		int[] sortedHashes = new int[n];
+		for (int p = 0; p < n; p++) {
+			int i = order[p];
+			sortedKeys[p] = keys[i];
+			sortedValues[p] = keysAndValues[2 * i + 1];
+			sortedHashes[p] = hashes[i];
+		}
+		return new ImmutableStringMap<>(sortedKeys, sortedValues, sortedHashes, size, ignoreCase, true);
+	}
+
+	/**
+	 * The same hash code {@link String#hashCode()} computes, over the case folded
+	 * characters
+	 */
+	private static int foldedHash(CharSequence chars, int start, int end) {
+		int h = 0;
+		for (int i = start; i < end; i++) {
+			h = 31 * h + fold(chars.charAt(i));
+		}
+		return h;
+	}
+
+	private static int hash(CharSequence chars, int start, int end) {
+		int h = 0;
+		for (int i = start; i < end; i++) {
+			h = 31 * h + chars.charAt(i);
+		}
+		return h;
+	}
+
+	/**
+	 * Folds the case of a character the way {@link String#equalsIgnoreCase(String)}
+	 * compares them, with a shortcut for ASCII
+	 */
+	private static char fold(char c) {
+		if (c < 0x80) {
+			return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+		}
+		return Character.toLowerCase(Character.toUpperCase(c));
+	}
+
+	/**
+	 * @return the index of the key equal to the characters if present, or {@code -i - 1}
+	 * where {@code i} is the free slot where it should be inserted
+	 */
+	private static int probe(String[] keys, int[] hashes, boolean ignoreCase, CharSequence chars, int start, int end,
+			int h) {
+		int mask = keys.length - 1;
+		int idx = ImmutableCollections.mix(h, mask);
+		while (true) {
+			String k = keys[idx];
+			if (k == null) {
+				return -idx - 1;
+			}
+			if (hashes[idx] == h && matches(k, ignoreCase, chars, start, end)) {
+				return idx;
+			}
+			idx = (idx + 1) & mask;
+		}
+	}
+
+	/**
+	 * Like {@link #probe}, but gives up after {@link ImmutableCollections#MAX_PROBE}
+	 * keys.
+	 * @return the index of the key if present, {@code -i - 1} where {@code i} is the free
+	 * slot where it should be inserted, or {@link ImmutableCollections#LONG_PROBE}
+	 */
+	private static int probeShort(String[] keys, int[] hashes, boolean ignoreCase, String key, int h) {
+		int mask = keys.length - 1;
+		int idx = ImmutableCollections.mix(h, mask);
+		for (int probes = 0; probes <= ImmutableCollections.MAX_PROBE; probes++) {
+			String k = keys[idx];
+			if (k == null) {
+				return -idx - 1;
+			}
+			if (hashes[idx] == h && matches(k, ignoreCase, key, 0, key.length())) {
+				return idx;
+			}
+			idx = (idx + 1) & mask;
+		}
+		return ImmutableCollections.LONG_PROBE;
+	}
+
+	/**
+	 * Looks for the characters in arrays sorted by hash code then characters.
+	 * @return the index of the key equal to the characters, or {@code -1}
+	 */
+	private static int search(String[] keys, int[] hashes, boolean ignoreCase, CharSequence chars, int start, int end,
+			int h) {
+		int lo = 0;
+		int hi = keys.length - 1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			int c = hashes[mid] != h ? Integer.compare(hashes[mid], h)
+					: compare(keys[mid], ignoreCase, chars, start, end);
+			if (c < 0) {
+				lo = mid + 1;
+			}
+			else if (c > 0) {
+				hi = mid - 1;
+			}
+			else {
+				return mid;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Compares the characters of a key with others, case folded if {@code ignoreCase}, so
+	 * keys compare as equal exactly when they match
+	 */
+	private static int compare(String key, boolean ignoreCase, CharSequence chars, int start, int end) {
+		int length = Math.min(key.length(), end - start);
+		for (int i = 0; i < length; i++) {
+			char c1 = key.charAt(i);
+			char c2 = chars.charAt(start + i);
+			if (c1 != c2) {
+				if (ignoreCase) {
+					c1 = fold(c1);
+					c2 = fold(c2);
+				}
+				if (c1 != c2) {
+					return c1 - c2;
+				}
+			}
+		}
+		return key.length() - (end - start);
+	}
+
+	private static boolean matches(String key, boolean ignoreCase, CharSequence chars, int start, int end) {
+		if (key.length() != end - start) {
+			return false;
+		}
+		if (!ignoreCase && chars instanceof String) {
+			return key.regionMatches(0, (String) chars, start, end - start);
+		}
+		for (int i = 0; i < key.length(); i++) {
+			char c1 = key.charAt(i);
+			char c2 = chars.charAt(start + i);
+			if (c1 != c2 && (!ignoreCase || fold(c1) != fold(c2))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return whether keys are compared ignoring case
+	 */
+	public boolean ignoresCase() {
+		return ignoreCase;
+	}
+
+	/**
+	 * Returns the value mapped to the key made of the given characters, without creating
+	 * a {@code String} for them.
+	 * @param chars the characters holding the key
+	 * @param start the index of the first character of the key
+	 * @param end the index after the last character of the key
+	 * @return the value mapped to the key, or {@code null}
+	 * @throws NullPointerException if the characters are {@code null}
+	 * @throws IndexOutOfBoundsException if {@code start} or {@code end} are negative,
+	 * {@code end} is greater than the length or {@code start} is greater than {@code end}
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(CharSequence chars, int start, int end) {
+		if (start < 0 || end > chars.length() || start > end) {
+			throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + chars.length());
+		}
+		int h = ignoreCase ? foldedHash(chars, start, end) : hash(chars, start, end);
+		int idx = sorted ? search(keys, hashes, ignoreCase, chars, start, end, h)
+				: probe(keys, hashes, ignoreCase, chars, start, end, h);
+		return idx >= 0 ? (V) values[idx] : null;
+	}
+
+	/**
+	 * @return the index of the key, or a negative number if absent or not a
+	 * {@code String}
+	 */
+	private int indexOf(Object o) {
+		if (!(o instanceof String)) {
+			Objects.requireNonNull(o);
+			return -1;
+		}
+		String key = (String) o;
+		// a String caches its hash code, so only a case folded one needs computing
+		int h = ignoreCase ? foldedHash(key, 0, key.length()) : key.hashCode();
+		return sorted ? search(keys, hashes, ignoreCase, key, 0, key.length(), h)
+				: probe(keys, hashes, ignoreCase, key, 0, key.length(), h);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public V get(Object o) {
+		int idx = indexOf(o);
+		return idx >= 0 ? (V) values[idx] : null;
+	}
+
+	@Override
+	public boolean containsKey(Object o) {
+		return indexOf(o) >= 0;
+	}
+
+	@Override
+	public boolean containsValue(Object o) {
+		Objects.requireNonNull(o);
+		for (Object v : values) {
+			if (v != null && o.equals(v)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	public int hashCode() {
+		int h = hash;
+		if (h == 0) {
+			for (int i = 0; i < keys.length; i++) {
+				String k = keys[i];
+				if (k != null) {
+					h += (ignoreCase ? k.hashCode() : hashes[i]) ^ values[i].hashCode();
+				}
+			}
+			hash = h;
+		}
+		return h;
+	}
+
+	@Override
+	int cachedHash() {
+		return hash;
+	}
+
+	@Override
+	boolean containsAllMappings(Map<?, ?> m) {
+		for (int i = 0; i < keys.length; i++) {
+			String k = keys[i];
+			if (k != null && !values[i].equals(m.get(k))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public void forEach(BiConsumer<? super String, ? super V> action) {
+		Objects.requireNonNull(action);
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i] != null) {
+				action.accept(keys[i], (V) values[i]);
+			}
+		}
+	}
+
+	@Override
+	public Set<Map.Entry<String, V>> entrySet() {
+		return new ImmutableCollections.AbstractImmutableSet<Map.Entry<String, V>>() {
+			@Override
+			public int size() {
+				return size;
+			}
+
+			@Override
+			public boolean contains(Object o) {
+				if (!(o instanceof Map.Entry)) {
+					return false;
+				}
+				Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+				int idx = e.getKey() != null ? indexOf(e.getKey()) : -1;
+				// ignoring case, the entry's key may differ from the one in the map
+				return idx >= 0 && keys[idx].equals(e.getKey()) && values[idx].equals(e.getValue());
+			}
+
+			@Override
+			public int hashCode() {
+				return ImmutableStringMap.this.hashCode();
+			}
+
+			@Override
+			public Iterator<Map.Entry<String, V>> iterator() {
+				return new Iterator<Map.Entry<String, V>>() {
+					private int remaining = size;
+
+					private int idx = 0;
+
+					@Override
+					public boolean hasNext() {
+						return remaining > 0;
+					}
+
+					@Override
+					@SuppressWarnings("unchecked")
+					public Map.Entry<String, V> next() {
+						if (remaining == 0) {
+							throw new NoSuchElementException();
+						}
+						while (keys[idx] == null) {
+							idx++;
+						}
+						Map.Entry<String, V> e = new AbstractMap.SimpleImmutableEntry<>(keys[idx], (V) values[idx]);
+						idx++;
+						remaining--;
+						return e;
+					}
+				};
+			}
+		};
+	}
+
+	private void readObject(ObjectInputStream in) throws InvalidObjectException {
+		throw new InvalidObjectException("not serial proxy");
+	}
+
+	private Object writeReplace() {
+		Object[] array = new Object[1 + 2 * size];
+		array[0] = ignoreCase;
+		for (int i = 0, j = 1; i < keys.length; i++) {
+			if (keys[i] != null) {
+				array[j++] = keys[i];
+				array[j++] = values[i];
+			}
+		}
+		return new ImmutableCollections.CollSer(ImmutableCollections.CollSer.IMM_STRING_MAP, array);
+	}
+
+}
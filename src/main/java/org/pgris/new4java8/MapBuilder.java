@@ -0,0 +1,140 @@
+package org.pgris.new4java8;
+
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Builder for large <a href="New.html#unmodifiableMaps">unmodifiable maps</a>, created
+ * with {@link New#mapBuilder(int) New.mapBuilder}. Mappings are probed straight into the
+ * table of the final map, so repeated keys are detected as they are put and
+ * {@link #build()} hands the table over without copying it. No {@code Map.Entry} is ever
+ * created. If a probe gets longer than {@link ImmutableCollections#MAX_PROBE}, as with
+ * crafted hash codes, and the keys can be ordered, they are kept sorted in a tree
+ * instead.
+ *
+ * <p>
+ * A builder can only be built once, and is not thread safe.
+ *
+ * @param <K> the {@code Map}'s key type
+ * @param <V> the {@code Map}'s value type
+ */
+public final class MapBuilder<K, V> {
+
+	private Object[] table;
+
+	/**
+	 * Not {@code null} instead of the table once a probe got too long
+	 */
+	private HashOrderedTables.Tree tree;
+
+	/**
+	 * Whether a probe that gets too long moves the mappings to a tree, until they
+	 * couldn't be
+	 */
+	private boolean bounded = true;
+
+	private int size;
+
+	MapBuilder(int expectedSize) {
+		if (expectedSize < 0) {
+			throw new IllegalArgumentException("expectedSize: " + expectedSize);
+		}
+		table = new Object[ImmutableCollections.EXPAND_FACTOR * 2 * Math.max(expectedSize, 1)];
+	}
+
+	/**
+	 * Adds a mapping to the map being built. If more mappings than the expected size are
+	 * put the table is rehashed, as it would be in a {@code HashMap}.
+	 * @param key the mapping's key
+	 * @param value the mapping's value
+	 * @return this builder
+	 * @throws NullPointerException if the key or the value is {@code null}
+	 * @throws IllegalArgumentException if the key was already put
+	 * @throws IllegalStateException if the map was already built
+	 */
+	public MapBuilder<K, V> put(K key, V value) {
+		Objects.requireNonNull(key);
+		Objects.requireNonNull(value);
+		checkNotBuilt();
+		if (tree != null) {
+			int put = tree.put(key, value);
+			if (put == HashOrderedTables.Tree.REPEATED) {
+				throw new IllegalArgumentException("duplicated key:" + key);
+			}
+			else if (put == HashOrderedTables.Tree.ADDED) {
+				size++;
+				return this;
+			}
+			table = tree.table(2, ImmutableCollections.EXPAND_FACTOR * 2 * 2 * (size + 1));
+			tree = null;
+			bounded = false;
+		}
+		Object[] t = table;
+		if ((size + 1) * ImmutableCollections.EXPAND_FACTOR * 2 > t.length) {
+			t = table = rehash(t);
+		}
+		int idx = bounded ? ImmutableCollections.MapN.probeShort(t, key) : ImmutableCollections.MapN.probe(t, key);
+		if (idx == ImmutableCollections.LONG_PROBE) {
+			tree = HashOrderedTables.Tree.of(t, 2);
+			if (tree != null) {
+				table = null;
+				return put(key, value);
+			}
+			bounded = false;
+			idx = ImmutableCollections.MapN.probe(t, key);
+		}
+		if (idx >= 0) {
+			throw new IllegalArgumentException("duplicated key:" + key);
+		}
+		idx = -(idx + 1);
+		t[idx] = key;
+		t[idx + 1] = value;
+		size++;
+		return this;
+	}
+
+	/**
+	 * @return the number of mappings put so far
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the map, which takes ownership of the table built so far. This builder
+	 * can't be used afterwards.
+	 * @return an unmodifiable {@code Map} with all the mappings put
+	 * @throws IllegalStateException if the map was already built
+	 */
+	@SuppressWarnings("unchecked")
+	public Map<K, V> build() {
+		checkNotBuilt();
+		if (tree != null) {
+			Object[] sorted = tree.sorted(2);
+			tree = null;
+			return new ImmutableCollections.MapHashOrdered<>(sorted);
+		}
+		Object[] t = table;
+		table = null;
+		return size == 0 ? (Map<K, V>) ImmutableCollections.MapN.EMPTY_MAP : ImmutableCollections.MapN.of(t, size);
+	}
+
+	private void checkNotBuilt() {
+		if (table == null && tree == null) {
+			throw new IllegalStateException("already built");
+		}
+	}
+
+	private static Object[] rehash(Object[] table) {
+		Object[] bigger = new Object[table.length * 2];
+		for (int i = 0; i < table.length; i += 2) {
+			if (table[i] != null) {
+				int idx = -(ImmutableCollections.MapN.probe(bigger, table[i]) + 1);
+				bigger[idx] = table[i];
+				bigger[idx + 1] = table[i + 1];
+			}
+		}
+		return bigger;
+	}
+
+}
@@ -0,0 +1,415 @@
+package org.pgris.new4java8;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * <a href="New.html#unmodifiableMaps">Unmodifiable map</a> served from a memory mapped
+ * file, for very large static lookup tables that should be ready instantly and live
+ * outside the heap. The file is written once with {@link #write(Map, Path, Codec, Codec)}
+ * and then opened, from as many JVMs as needed, with {@link #open(Path, Codec, Codec)}.
+ *
+ * <p>
+ * {@code get} and {@code containsKey} encode the key and compare its bytes against the
+ * mapped file, only the value found is decoded. Keys and values are converted to and from
+ * bytes by a {@link Codec}, codecs for {@code String}, {@code Integer} and {@code Long}
+ * are provided.
+ *
+ * <p>
+ * The map has the same characteristics as the ones created by {@link New#mapOf()
+ * New.mapOf}, but lookups decode values from the file, so values are equal but not the
+ * same instances that were written. The file must not be modified while the map is in
+ * use, and can't be larger than 2GB.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of mapped values
+ */
+public final class MappedMap<K, V> extends ImmutableCollections.AbstractImmutableMap<K, V> {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Converts keys or values to bytes and back. Encoding must be deterministic and
+	 * different objects (according to {@code equals}) must have different encodings.
+	 *
+	 * @param <T> the type of the encoded objects
+	 */
+	public interface Codec<T> {
+
+		/**
+		 * UTF-8 encoded strings
+		 */
+		Codec<String> STRING = new Codec<String>() {
+			@Override
+			public byte[] encode(String value) {
+				return value.getBytes(StandardCharsets.UTF_8);
+			}
+
+			@Override
+			public String decode(ByteBuffer buffer, int offset, int length) {
+				byte[] bytes = new byte[length];
+				for (int i = 0; i < length; i++) {
+					bytes[i] = buffer.get(offset + i);
+				}
+				return new String(bytes, StandardCharsets.UTF_8);
+			}
+		};
+
+		/**
+		 * Big endian four byte integers
+		 */
+		Codec<Integer> INTEGER = new Codec<Integer>() {
+			@Override
+			public byte[] encode(Integer value) {
+				return ByteBuffer.allocate(Integer.BYTES).putInt(value).array();
+			}
+
+			@Override
+			public Integer decode(ByteBuffer buffer, int offset, int length) {
+				return buffer.getInt(offset);
+			}
+		};
+
+		/**
+		 * Big endian eight byte longs
+		 */
+		Codec<Long> LONG = new Codec<Long>() {
+			@Override
+			public byte[] encode(Long value) {
+				return ByteBuffer.allocate(Long.BYTES).putLong(value).array();
+			}
+
+			@Override
+			public Long decode(ByteBuffer buffer, int offset, int length) {
+				return buffer.getLong(offset);
+			}
+		};
+
+		/**
+		 * @param value the object to encode, never {@code null}
+		 * @return the bytes representing the object
+		 * @throws ClassCastException if the object is not of the supported type
+		 */
+		byte[] encode(T value);
+
+		/**
+		 * Reads an object with absolute gets, without changing the buffer position.
+		 * @param buffer the mapped file
+		 * @param offset where the encoded bytes start
+		 * @param length how many bytes were written by {@link #encode}
+		 * @return the decoded object
+		 */
+		T decode(ByteBuffer buffer, int offset, int length);
+
+	}
+
+	/* FILE LAYOUT: header, slot table of (hash, record offset), records */
+
+	private static final int MAGIC = 0x4E344A4D;
+
+	private static final int VERSION = 1;
+
+	private static final int HEADER_BYTES = 4 * Integer.BYTES;
+
+	private static final int SLOT_BYTES = 2 * Integer.BYTES;
+
+	private final transient ByteBuffer buffer;
+
+	private final transient Codec<K> keyCodec;
+
+	private final transient Codec<V> valueCodec;
+
+	private final int size;
+
+	private final int slots;
+
+	private MappedMap(ByteBuffer buffer, Codec<K> keyCodec, Codec<V> valueCodec) {
+		this.buffer = buffer;
+		this.keyCodec = keyCodec;
+		this.valueCodec = valueCodec;
+		this.size = buffer.getInt(2 * Integer.BYTES);
+		this.slots = buffer.getInt(3 * Integer.BYTES);
+	}
+
+	/**
+	 * Writes the mappings of a map to a file that can be opened with
+	 * {@link #open(Path, Codec, Codec)}. The file is created or truncated.
+	 * @param <K> the type of keys
+	 * @param <V> the type of mapped values
+	 * @param map the mappings to write, usually an unmodifiable map created by
+	 * {@link New}
+	 * @param file where to write the mappings
+	 * @param keyCodec converts keys to bytes
+	 * @param valueCodec converts values to bytes
+	 * @throws IOException if the file can't be written
+	 * @throws NullPointerException if any argument, key or value is {@code null}
+	 * @throws IllegalArgumentException if the file would be larger than 2GB
+	 */
+	public static <K, V> void write(Map<? extends K, ? extends V> map, Path file, Codec<K> keyCodec,
+			Codec<V> valueCodec) throws IOException {
+		Objects.requireNonNull(keyCodec);
+		Objects.requireNonNull(valueCodec);
+		int slots = ImmutableCollections.tableSizeFor(map.size());
+		int mask = slots - 1;
+		long dataStart = HEADER_BYTES + (long) slots * SLOT_BYTES;
+		if (dataStart > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("mapped maps can't be larger than 2GB");
+		}
+		int count = 0;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			// the slot table is filled in place, every slot of the new file is empty
+			MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, dataStart);
+			ByteBuffer out = ByteBuffer.allocate(1 << 16);
+			long position = dataStart;
+			for (Map.Entry<? extends K, ? extends V> e : map.entrySet()) {
+				byte[] key = keyCodec.encode(Objects.requireNonNull(e.getKey()));
+				byte[] value = valueCodec.encode(Objects.requireNonNull(e.getValue()));
+				long recordBytes = 2L * Integer.BYTES + key.length + value.length;
+				if (position + recordBytes > Integer.MAX_VALUE) {
+					throw new IllegalArgumentException("mapped maps can't be larger than 2GB");
+				}
+				if (++count > slots / ImmutableCollections.EXPAND_FACTOR) {
+					throw new IllegalArgumentException("the map grew while it was written");
+				}
+				int hash = hash(key);
+				int idx = hash & mask;
+				while (header.getInt(HEADER_BYTES + idx * SLOT_BYTES + Integer.BYTES) != 0) {
+					idx = (idx + 1) & mask;
+				}
+				header.putInt(HEADER_BYTES + idx * SLOT_BYTES, hash);
+				header.putInt(HEADER_BYTES + idx * SLOT_BYTES + Integer.BYTES, (int) position);
+
+				if (recordBytes > out.remaining()) {
+					out.flip();
+					writeFully(channel, out, position - out.remaining());
+					out.clear();
+				}
+				if (recordBytes > out.capacity()) {
+					ByteBuffer record = ByteBuffer.allocate((int) recordBytes);
+					putRecord(record, key, value);
+					record.flip();
+					writeFully(channel, record, position);
+				}
+				else {
+					putRecord(out, key, value);
+				}
+				position += recordBytes;
+			}
+			out.flip();
+			writeFully(channel, out, position - out.remaining());
+
+			// the magic number last, so a file left half written is not a mapped map
+			header.putInt(3 * Integer.BYTES, slots).putInt(2 * Integer.BYTES, count).putInt(Integer.BYTES, VERSION)
+					.putInt(0, MAGIC);
+		}
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer source, long position) throws IOException {
+		while (source.hasRemaining()) {
+			position += channel.write(source, position);
+		}
+	}
+
+	private static void putRecord(ByteBuffer out, byte[] key, byte[] value) {
+		out.putInt(key.length).put(key).putInt(value.length).put(value);
+	}
+
+	/**
+	 * Maps a file written by {@link #write(Map, Path, Codec, Codec)}. The codecs must be
+	 * the ones used to write it.
+	 * @param <K> the type of keys
+	 * @param <V> the type of mapped values
+	 * @param file the file to map
+	 * @param keyCodec converts keys to bytes and back
+	 * @param valueCodec converts values to bytes and back
+	 * @return an unmodifiable map backed by the file
+	 * @throws IOException if the file can't be read or is not a mapped map
+	 */
+	public static <K, V> MappedMap<K, V> open(Path file, Codec<K> keyCodec, Codec<V> valueCodec) throws IOException {
+		Objects.requireNonNull(keyCodec);
+		Objects.requireNonNull(valueCodec);
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+				throw new IOException(file + " is not a mapped map");
+			}
+			if (buffer.getInt(Integer.BYTES) != VERSION) {
+				throw new IOException(file + " has an unsupported version " + buffer.getInt(Integer.BYTES));
+			}
+			int size = buffer.getInt(2 * Integer.BYTES);
+			int slots = buffer.getInt(3 * Integer.BYTES);
+			// a corrupt header would make lookups read outside the file, or never find an
+			// empty slot
+			if (slots <= 0 || Integer.bitCount(slots) != 1
+					|| HEADER_BYTES + (long) slots * SLOT_BYTES > buffer.capacity() || size < 0
+					|| size > slots / ImmutableCollections.EXPAND_FACTOR) {
+				throw new IOException(file + " has a corrupt header, " + size + " mappings in " + slots + " slots");
+			}
+			return new MappedMap<>(buffer, keyCodec, valueCodec);
+		}
+	}
+
+	/**
+	 * FNV-1a over the encoded key, so the layout doesn't depend on
+	 * {@code Object.hashCode()} and is the same for every JVM.
+	 */
+	private static int hash(byte[] key) {
+		int h = 0x811C9DC5;
+		for (byte b : key) {
+			h = (h ^ b) * 0x01000193;
+		}
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * @return the offset of the record for the key, or -1 if it is not present
+	 */
+	@SuppressWarnings("unchecked")
+	private int find(Object o) {
+		Objects.requireNonNull(o);
+		byte[] key;
+		try {
+			key = keyCodec.encode((K) o);
+		}
+		catch (ClassCastException e) {
+			return -1;
+		}
+		int hash = hash(key);
+		int mask = slots - 1;
+		int idx = hash & mask;
+		// bounded, in case the slot table is corrupt and has no empty slot
+		for (int probes = 0; probes < slots; probes++) {
+			int slot = HEADER_BYTES + idx * SLOT_BYTES;
+			int offset = buffer.getInt(slot + Integer.BYTES);
+			if (offset == 0) {
+				return -1;
+			}
+			if (buffer.getInt(slot) == hash && sameKey(offset, key)) {
+				return offset;
+			}
+			idx = (idx + 1) & mask;
+		}
+		return -1;
+	}
+
+	private boolean sameKey(int offset, byte[] key) {
+		if (buffer.getInt(offset) != key.length) {
+			return false;
+		}
+		int start = offset + Integer.BYTES;
+		for (int i = 0; i < key.length; i++) {
+			if (buffer.get(start + i) != key[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private V valueAt(int offset) {
+		int valueOffset = offset + Integer.BYTES + buffer.getInt(offset);
+		return valueCodec.decode(buffer, valueOffset + Integer.BYTES, buffer.getInt(valueOffset));
+	}
+
+	@Override
+	public V get(Object o) {
+		int offset = find(o);
+		return offset < 0 ? null : valueAt(offset);
+	}
+
+	@Override
+	public boolean containsKey(Object o) {
+		return find(o) >= 0;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	public Set<Map.Entry<K, V>> entrySet() {
+		return new ImmutableCollections.AbstractImmutableSet<Map.Entry<K, V>>() {
+			@Override
+			public int size() {
+				return size;
+			}
+
+			@Override
+			public boolean contains(Object o) {
+				if (!(o instanceof Map.Entry)) {
+					return false;
+				}
+				Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+				V v = e.getKey() != null ? get(e.getKey()) : null;
+				return v != null && v.equals(e.getValue());
+			}
+
+			@Override
+			public int hashCode() {
+				return MappedMap.this.hashCode();
+			}
+
+			@Override
+			public Iterator<Map.Entry<K, V>> iterator() {
+				return new Iterator<Map.Entry<K, V>>() {
+					private int remaining = size;
+
+					private int idx = 0;
+
+					@Override
+					public boolean hasNext() {
+						return remaining > 0;
+					}
+
+					@Override
+					public Map.Entry<K, V> next() {
+						if (remaining == 0) {
+							throw new NoSuchElementException();
+						}
+						int offset;
+						while ((offset = buffer.getInt(HEADER_BYTES + idx * SLOT_BYTES + Integer.BYTES)) == 0) {
+							idx++;
+						}
+						idx++;
+						remaining--;
+						int keyLength = buffer.getInt(offset);
+						K key = keyCodec.decode(buffer, offset + Integer.BYTES, keyLength);
+						return new AbstractMap.SimpleImmutableEntry<>(key, valueAt(offset));
+					}
+				};
+			}
+		};
+	}
+
+	/**
+	 * The mapped file can't travel, the mappings are serialized as a regular unmodifiable
+	 * map.
+	 */
+	private Object writeReplace() {
+		return New.mapCopyOf(this);
+	}
+
+	private void readObject(ObjectInputStream in) throws InvalidObjectException {
+		throw new InvalidObjectException("mapped maps are serialized as regular maps");
+	}
+
+}
@@ -1,6 +1,10 @@
 package org.pgris.new4java8;
 
 import java.util.*;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.stream.Collector;
+import java.util.stream.IntStream;
 
 /**
  * <h2><a id="unmodifiable">Unmodifiable Lists</a></h2>
@@ -80,6 +84,35 @@ import java.util.*;
  * synchronization) are unreliable and should be avoided.
  * </ul>
  *
+ * <h2><a id="collisions">Colliding hash codes</a></h2>
+ * <p>
+ * Sets and maps are hash tables, and the slot each element or key goes to depends on its
+ * {@code hashCode} mixed with a salt chosen at random when the JVM starts, so it can't be
+ * predicted, and neither can the iteration order. Keys crafted to have the same hash code
+ * still end up next to each other, so when building a set or map leaves some lookup
+ * comparing more than a few dozen keys, and all keys are {@code Comparable} and of the
+ * same class, they are sorted by hash code and natural ordering instead, and every lookup
+ * is a binary search. Keys with colliding hash codes that can't be ordered still make
+ * lookups slower.
+ *
+ * <h2><a id="sorted">Sorted Sets and Maps</a></h2>
+ * <p>
+ * The {@link New#sortedSetOf(Comparable...) New.sortedSetOf} and
+ * {@link New#sortedMapOf(Map) New.sortedMapOf} static factory methods create unmodifiable
+ * {@code NavigableSet} and {@code NavigableMap} instances backed by sorted arrays. They
+ * share the characteristics above, except that iteration follows the order of their
+ * comparator, lookups are binary searches, and range and descending views are
+ * unmodifiable views over the same arrays. Elements or keys equal by their comparator are
+ * duplicates.
+ *
+ * <h2><a id="jdk">Java 9 and later</a></h2>
+ * <p>
+ * The jar is a multi-release jar: on Java 9 and later the {@code listOf}, {@code setOf},
+ * {@code mapOf}, {@code mapOfEntries} and {@code copyOf} factories return the JDK's own
+ * {@code List.of}, {@code Set.of} and {@code Map.ofEntries} collections, which have the
+ * same characteristics. The other factories always return the implementations in this
+ * library.
+ *
  */
 public final class New {
 
@@ -100,7 +133,7 @@ public final class New {
 	 * @return an empty {@code List}
 	 */
 	public static <E> List<E> listOf() {
-		return Collections.emptyList();
+		return Factories.listOf();
 	}
 
 	/**
@@ -113,8 +146,7 @@ public final class New {
 	 * @throws NullPointerException if the element is {@code null}
 	 */
 	public static <E> List<E> listOf(E e1) {
-		Objects.requireNonNull(e1);
-		return Collections.singletonList(e1);
+		return Factories.listOf(e1);
 	}
 
 	/**
@@ -128,9 +160,7 @@ public final class New {
 	 * @throws NullPointerException if an element is {@code null}
 	 */
 	public static <E> List<E> listOf(E e1, E e2) {
-		Objects.requireNonNull(e1);
-		Objects.requireNonNull(e2);
-		return Collections.unmodifiableList(Arrays.asList(e1, e2));
+		return Factories.listOf(e1, e2);
 	}
 
 	/**
@@ -145,10 +175,140 @@ public final class New {
 	 * @throws NullPointerException if an element is {@code null}
 	 */
 	public static <E> List<E> listOf(E e1, E e2, E e3) {
-		Objects.requireNonNull(e1);
-		Objects.requireNonNull(e2);
-		Objects.requireNonNull(e3);
-		return Collections.unmodifiableList(Arrays.asList(e1, e2, e3));
+		return Factories.listOf(e1, e2, e3);
+	}
+
+	/**
+	 * Returns an unmodifiable list containing four elements.
+	 *
+	 * See <a href="#unmodifiableLists">Unmodifiable Lists</a> for details.
+	 * @param <E> the {@code List}'s element type
+	 * @param e1 the first element
+	 * @param e2 the second element
+	 * @param e3 the third element
+	 * @param e4 the fourth element
+	 * @return a {@code List} containing the specified elements
+	 * @throws NullPointerException if an element is {@code null}
+	 */
+	public static <E> List<E> listOf(E e1, E e2, E e3, E e4) {
+		return Factories.listOf(e1, e2, e3, e4);
+	}
+
+	/**
+	 * Returns an unmodifiable list containing five elements.
+	 *
+	 * See <a href="#unmodifiableLists">Unmodifiable Lists</a> for details.
+	 * @param <E> the {@code List}'s element type
+	 * @param e1 the first element
+	 * @param e2 the second element
+	 * @param e3 the third element
+	 * @param e4 the fourth element
+	 * @param e5 the fifth element
+	 * @return a {@code List} containing the specified elements
+	 * @throws NullPointerException if an element is {@code null}
+	 */
+	public static <E> List<E> listOf(E e1, E e2, E e3, E e4, E e5) {
+		return Factories.listOf(e1, e2, e3, e4, e5);
+	}
+
+	/**
+	 * Returns an unmodifiable list containing six elements.
+	 *
+	 * See <a href="#unmodifiableLists">Unmodifiable Lists</a> for details.
+	 * @param <E> the {@code List}'s element type
+	 * @param e1 the first element
+	 * @param e2 the second element
+	 * @param e3 the third element
+	 * @param e4 the fourth element
+	 * @param e5 the fifth element
+	 * @param e6 the sixth element
+	 * @return a {@code List} containing the specified elements
+	 * @throws NullPointerException if an element is {@code null}
+	 */
+	public static <E> List<E> listOf(E e1, E e2, E e3, E e4, E e5, E e6) {
+		return Factories.listOf(e1, e2, e3, e4, e5, e6);
+	}
+
+	/**
+	 * Returns an unmodifiable list containing seven elements.
+	 *
+	 * See <a href="#unmodifiableLists">Unmodifiable Lists</a> for details.
+	 * @param <E> the {@code List}'s element type
+	 * @param e1 the first element
+	 * @param e2 the second element
+	 * @param e3 the third element
+	 * @param e4 the fourth element
+	 * @param e5 the fifth element
+	 * @param e6 the sixth element
+	 * @param e7 the seventh element
+	 * @return a {@code List} containing the specified elements
+	 * @throws NullPointerException if an element is {@code null}
+	 */
+	public static <E> List<E> listOf(E e1, E e2, E e3, E e4, E e5, E e6, E e7) {
+		return Factories.listOf(e1, e2, e3, e4, e5, e6, e7);
+	}
+
+	/**
+	 * Returns an unmodifiable list containing eight elements.
+	 *
+	 * See <a href="#unmodifiableLists">Unmodifiable Lists</a> for details.
+	 * @param <E> the {@code List}'s element type
+	 * @param e1 the first element
+	 * @param e2 the second element
+	 * @param e3 the third element
+	 * @param e4 the fourth element
+	 * @param e5 the fifth element
+	 * @param e6 the sixth element
+	 * @param e7 the seventh element
+	 * @param e8 the eighth element
+	 * @return a {@code List} containing the specified elements
+	 * @throws NullPointerException if an element is {@code null}
+	 */
+	public static <E> List<E> listOf(E e1, E e2, E e3, E e4, E e5, E e6, E e7, E e8) {
+		return Factories.listOf(e1, e2, e3, e4, e5, e6, e7, e8);
+	}
+
+	/**
+	 * Returns an unmodifiable list containing nine elements.
+	 *
+	 * See <a href="#unmodifiableLists">Unmodifiable Lists</a> for details.
+	 * @param <E> the {@code List}'s element type
+	 * @param e1 the first element
+	 * @param e2 the second element
+	 * @param e3 the third element
+	 * @param e4 the fourth element
+	 * @param e5 the fifth element
+	 * @param e6 the sixth element
+	 * @param e7 the seventh element
+	 * @param e8 the eighth element
+	 * @param e9 the ninth element
+	 * @return a {@code List} containing the specified elements
+	 * @throws NullPointerException if an element is {@code null}
+	 */
+	public static <E> List<E> listOf(E e1, E e2, E e3, E e4, E e5, E e6, E e7, E e8, E e9) {
+		return Factories.listOf(e1, e2, e3, e4, e5, e6, e7, e8, e9);
+	}
+
+	/**
+	 * Returns an unmodifiable list containing ten elements.
+	 *
+	 * See <a href="#unmodifiableLists">Unmodifiable Lists</a> for details.
+	 * @param <E> the {@code List}'s element type
+	 * @param e1 the first element
+	 * @param e2 the second element
+	 * @param e3 the third element
+	 * @param e4 the fourth element
+	 * @param e5 the fifth element
+	 * @param e6 the sixth element
+	 * @param e7 the seventh element
+	 * @param e8 the eighth element
+	 * @param e9 the ninth element
+	 * @param e10 the tenth element
+	 * @return a {@code List} containing the specified elements
+	 * @throws NullPointerException if an element is {@code null}
+	 */
+	public static <E> List<E> listOf(E e1, E e2, E e3, E e4, E e5, E e6, E e7, E e8, E e9, E e10) {
+		return Factories.listOf(e1, e2, e3, e4, e5, e6, e7, e8, e9, e10);
 	}
 
 	/**
@@ -176,12 +336,28 @@ public final class New {
 	@SafeVarargs
 	@SuppressWarnings("varargs")
 	public static <E> List<E> listOf(E... elements) {
-		for (E element : elements) {
-			Objects.requireNonNull(element);
+		return Factories.listOf(elements);
+	}
+
+	/**
+	 * Returns an <a href="#unmodifiable">unmodifiable List</a> containing the elements of
+	 * the given Collection, in its iteration order. The given Collection must not be
+	 * null, and it must not contain any null elements. If the given Collection is
+	 * subsequently modified, the returned List will not reflect such modifications.
+	 *
+	 * @implNote If the given Collection is an unmodifiable List created by this class,
+	 * calling listCopyOf will generally not create a copy.
+	 * @param <E> the {@code List}'s element type
+	 * @param coll a {@code Collection} from which elements are drawn, must be non-null
+	 * @return a {@code List} containing the elements of the given {@code Collection}
+	 * @throws NullPointerException if coll is null, or if it contains any nulls
+	 */
+	@SuppressWarnings("unchecked")
+	public static <E> List<E> listCopyOf(Collection<? extends E> coll) {
+		if (coll instanceof ImmutableCollections.ListN || coll instanceof ImmutableCollections.List12) {
+			return (List<E>) coll;
 		}
-		List<E> list = new LinkedList<>();
-		Collections.addAll(list, elements);
-		return Collections.unmodifiableList(list);
+		return Factories.listCopyOf(coll);
 	}
 
 	/* SET */
@@ -193,7 +369,7 @@ public final class New {
 	 * @return an empty {@code Set}
 	 */
 	public static <E> Set<E> setOf() {
-		return Collections.emptySet();
+		return Factories.setOf();
 	}
 
 	/**
@@ -205,8 +381,7 @@ public final class New {
 	 * @throws NullPointerException if the element is {@code null}
 	 */
 	public static <E> Set<E> setOf(E e1) {
-		Objects.requireNonNull(e1);
-		return Collections.singleton(e1);
+		return Factories.setOf(e1);
 	}
 
 	/**
@@ -220,13 +395,7 @@ public final class New {
 	 * @throws NullPointerException if an element is {@code null}
 	 */
 	public static <E> Set<E> setOf(E e1, E e2) {
-		Objects.requireNonNull(e1);
-		Objects.requireNonNull(e2);
-
-		Set<E> set = new LinkedHashSet<>();
-		set.add(e1);
-		addCheckingRepetition(set, e2);
-		return Collections.unmodifiableSet(set);
+		return Factories.setOf(e1, e2);
 	}
 
 	/**
@@ -241,15 +410,140 @@ public final class New {
 	 * @throws NullPointerException if an element is {@code null}
 	 */
 	public static <E> Set<E> setOf(E e1, E e2, E e3) {
-		Objects.requireNonNull(e1);
-		Objects.requireNonNull(e2);
-		Objects.requireNonNull(e3);
+		return Factories.setOf(e1, e2, e3);
+	}
+
+	/**
+	 * Returns an unmodifiable set containing four elements. See
+	 * <a href="#unmodifiableSets">Unmodifiable Sets</a> for details.
+	 * @param <E> the {@code Set}'s element type
+	 * @param e1 the first element
+	 * @param e2 the second element
+	 * @param e3 the third element
+	 * @param e4 the fourth element
+	 * @return a {@code Set} containing the specified elements
+	 * @throws IllegalArgumentException if there are any duplicate elements
+	 * @throws NullPointerException if an element is {@code null}
+	 */
+	public static <E> Set<E> setOf(E e1, E e2, E e3, E e4) {
+		return Factories.setOf(e1, e2, e3, e4);
+	}
+
+	/**
+	 * Returns an unmodifiable set containing five elements. See
+	 * <a href="#unmodifiableSets">Unmodifiable Sets</a> for details.
+	 * @param <E> the {@code Set}'s element type
+	 * @param e1 the first element
+	 * @param e2 the second element
+	 * @param e3 the third element
+	 * @param e4 the fourth element
+	 * @param e5 the fifth element
+	 * @return a {@code Set} containing the specified elements
+	 * @throws IllegalArgumentException if there are any duplicate elements
+	 * @throws NullPointerException if an element is {@code null}
+	 */
+	public static <E> Set<E> setOf(E e1, E e2, E e3, E e4, E e5) {
+		return Factories.setOf(e1, e2, e3, e4, e5);
+	}
+
+	/**
+	 * Returns an unmodifiable set containing six elements. See
+	 * <a href="#unmodifiableSets">Unmodifiable Sets</a> for details.
+	 * @param <E> the {@code Set}'s element type
+	 * @param e1 the first element
+	 * @param e2 the second element
+	 * @param e3 the third element
+	 * @param e4 the fourth element
+	 * @param e5 the fifth element
+	 * @param e6 the sixth element
+	 * @return a {@code Set} containing the specified elements
+	 * @throws IllegalArgumentException if there are any duplicate elements
+	 * @throws NullPointerException if an element is {@code null}
+	 */
+	public static <E> Set<E> setOf(E e1, E e2, E e3, E e4, E e5, E e6) {
+		return Factories.setOf(e1, e2, e3, e4, e5, e6);
+	}
+
+	/**
+	 * Returns an unmodifiable set containing seven elements. See
+	 * <a href="#unmodifiableSets">Unmodifiable Sets</a> for details.
+	 * @param <E> the {@code Set}'s element type
+	 * @param e1 the first element
+	 * @param e2 the second element
+	 * @param e3 the third element
+	 * @param e4 the fourth element
+	 * @param e5 the fifth element
+	 * @param e6 the sixth element
+	 * @param e7 the seventh element
+	 * @return a {@code Set} containing the specified elements
+	 * @throws IllegalArgumentException if there are any duplicate elements
+	 * @throws NullPointerException if an element is {@code null}
+	 */
+	public static <E> Set<E> setOf(E e1, E e2, E e3, E e4, E e5, E e6, E e7) {
+		return Factories.setOf(e1, e2, e3, e4, e5, e6, e7);
+	}
+
+	/**
+	 * Returns an unmodifiable set containing eight elements. See
+	 * <a href="#unmodifiableSets">Unmodifiable Sets</a> for details.
+	 * @param <E> the {@code Set}'s element type
+	 * @param e1 the first element
+	 * @param e2 the second element
+	 * @param e3 the third element
+	 * @param e4 the fourth element
+	 * @param e5 the fifth element
+	 * @param e6 the sixth element
+	 * @param e7 the seventh element
+	 * @param e8 the eighth element
+	 * @return a {@code Set} containing the specified elements
+	 * @throws IllegalArgumentException if there are any duplicate elements
+	 * @throws NullPointerException if an element is {@code null}
+	 */
+	public static <E> Set<E> setOf(E e1, E e2, E e3, E e4, E e5, E e6, E e7, E e8) {
+		return Factories.setOf(e1, e2, e3, e4, e5, e6, e7, e8);
+	}
+
+	/**
+	 * Returns an unmodifiable set containing nine elements. See
+	 * <a href="#unmodifiableSets">Unmodifiable Sets</a> for details.
+	 * @param <E> the {@code Set}'s element type
+	 * @param e1 the first element
+	 * @param e2 the second element
+	 * @param e3 the third element
+	 * @param e4 the fourth element
+	 * @param e5 the fifth element
+	 * @param e6 the sixth element
+	 * @param e7 the seventh element
+	 * @param e8 the eighth element
+	 * @param e9 the ninth element
+	 * @return a {@code Set} containing the specified elements
+	 * @throws IllegalArgumentException if there are any duplicate elements
+	 * @throws NullPointerException if an element is {@code null}
+	 */
+	public static <E> Set<E> setOf(E e1, E e2, E e3, E e4, E e5, E e6, E e7, E e8, E e9) {
+		return Factories.setOf(e1, e2, e3, e4, e5, e6, e7, e8, e9);
+	}
 
-		Set<E> set = new LinkedHashSet<>();
-		set.add(e1);
-		addCheckingRepetition(set, e2);
-		addCheckingRepetition(set, e3);
-		return Collections.unmodifiableSet(set);
+	/**
+	 * Returns an unmodifiable set containing ten elements. See
+	 * <a href="#unmodifiableSets">Unmodifiable Sets</a> for details.
+	 * @param <E> the {@code Set}'s element type
+	 * @param e1 the first element
+	 * @param e2 the second element
+	 * @param e3 the third element
+	 * @param e4 the fourth element
+	 * @param e5 the fifth element
+	 * @param e6 the sixth element
+	 * @param e7 the seventh element
+	 * @param e8 the eighth element
+	 * @param e9 the ninth element
+	 * @param e10 the tenth element
+	 * @return a {@code Set} containing the specified elements
+	 * @throws IllegalArgumentException if there are any duplicate elements
+	 * @throws NullPointerException if an element is {@code null}
+	 */
+	public static <E> Set<E> setOf(E e1, E e2, E e3, E e4, E e5, E e6, E e7, E e8, E e9, E e10) {
+		return Factories.setOf(e1, e2, e3, e4, e5, e6, e7, e8, e9, e10);
 	}
 
 	/**
@@ -278,20 +572,119 @@ public final class New {
 	@SafeVarargs
 	@SuppressWarnings("varargs")
 	public static <E> Set<E> setOf(E... elements) {
-		for (E element : elements) {
-			Objects.requireNonNull(element);
+		return Factories.setOf(elements);
+	}
+
+	/**
+	 * Returns an <a href="#unmodifiableSets">unmodifiable Set</a> containing the elements
+	 * of the given Collection. The given Collection must not be null, and it must not
+	 * contain any null elements. If the given Collection contains duplicate elements, an
+	 * arbitrary element of the duplicates is preserved. If the given Collection is
+	 * subsequently modified, the returned Set will not reflect such modifications.
+	 *
+	 * @implNote If the given Collection is an unmodifiable Set created by this class,
+	 * calling setCopyOf will generally not create a copy.
+	 * @param <E> the {@code Set}'s element type
+	 * @param coll a {@code Collection} from which elements are drawn, must be non-null
+	 * @return a {@code Set} containing the elements of the given {@code Collection}
+	 * @throws NullPointerException if coll is null, or if it contains any nulls
+	 */
+	@SuppressWarnings("unchecked")
+	public static <E> Set<E> setCopyOf(Collection<? extends E> coll) {
+		if (coll instanceof ImmutableCollections.SetN || coll instanceof ImmutableCollections.Set12
+				|| coll instanceof ImmutableCollections.SetHashOrdered) {
+			return (Set<E>) coll;
+		}
+		return Factories.setCopyOf(coll);
+	}
+
+	/**
+	 * Builds a set from the first {@code length} elements of the array, keeping only one
+	 * of any duplicated elements.
+	 */
+	static <E> Set<E> setDroppingDuplicates(Object[] elements, int length) {
+		if (length == 0) {
+			return setOf();
+		}
+		Object[] table = new Object[ImmutableCollections.EXPAND_FACTOR * length];
+		int size = 0;
+		boolean bounded = true;
+		for (int i = 0; i < length; i++) {
+			Object element = Objects.requireNonNull(elements[i]);
+			int idx = bounded ? ImmutableCollections.SetN.probeShort(table, element)
+					: ImmutableCollections.SetN.probe(table, element);
+			if (idx == ImmutableCollections.LONG_PROBE) {
+				Set<E> ordered = HashOrderedTables.setOf(elements, length, true);
+				if (ordered != null) {
+					return ordered;
+				}
+				bounded = false;
+				idx = ImmutableCollections.SetN.probe(table, element);
+			}
+			if (idx < 0) {
+				table[-(idx + 1)] = elements[i];
+				size++;
+			}
 		}
-		Set<E> set = new LinkedHashSet<>();
-		for (E element : elements) {
-			addCheckingRepetition(set, element);
+		return size <= 2 ? setFromArray(compact(table, size)) : ImmutableCollections.SetN.of(table, size);
+	}
+
+	@SuppressWarnings("unchecked")
+	static <E> Set<E> setFromArray(Object... elements) {
+		switch (elements.length) {
+		case 0:
+			return setOf();
+		case 1:
+			return new ImmutableCollections.Set12<>((E) elements[0]);
+		case 2:
+			return new ImmutableCollections.Set12<>((E) elements[0], (E) elements[1]);
+		default:
+			Object[] table = new Object[ImmutableCollections.EXPAND_FACTOR * elements.length];
+			boolean bounded = true;
+			for (Object element : elements) {
+				if (!addCheckingRepetition(table, Objects.requireNonNull(element), bounded)) {
+					Set<E> ordered = HashOrderedTables.setOf(elements, elements.length, false);
+					if (ordered != null) {
+						return ordered;
+					}
+					bounded = false;
+					addCheckingRepetition(table, element, false);
+				}
+			}
+			return ImmutableCollections.SetN.of(table, elements.length);
+		}
+	}
+
+	/**
+	 * Returns the first {@code size} not {@code null} slots of a probe table.
+	 */
+	private static Object[] compact(Object[] table, int size) {
+		Object[] elements = new Object[size];
+		for (int i = 0, j = 0; j < size; i++) {
+			if (table[i] != null) {
+				elements[j++] = table[i];
+			}
 		}
-		return Collections.unmodifiableSet(set);
+		return elements;
 	}
 
-	private static <E> void addCheckingRepetition(Set<E> set, E element) {
-		if (!set.add(element)) {
+	/**
+	 * Adds the element to a probe table, looking for a duplicate in the same probe.
+	 * @param bounded whether to give up on a probe longer than
+	 * {@link ImmutableCollections#MAX_PROBE}
+	 * @return {@code false} if it gave up, leaving the table as it was
+	 */
+	private static boolean addCheckingRepetition(Object[] table, Object element, boolean bounded) {
+		int idx = bounded ? ImmutableCollections.SetN.probeShort(table, element)
+				: ImmutableCollections.SetN.probe(table, element);
+		if (idx == ImmutableCollections.LONG_PROBE) {
+			return false;
+		}
+		if (idx >= 0) {
 			throw new IllegalArgumentException("duplicate element: " + element);
 		}
+		table[-(idx + 1)] = element;
+		return true;
 	}
 
 	/**
@@ -302,7 +695,7 @@ public final class New {
 	 * @return an empty {@code Map}
 	 */
 	public static <K, V> Map<K, V> mapOf() {
-		return Collections.emptyMap();
+		return Factories.mapOf();
 	}
 
 	/**
@@ -316,9 +709,7 @@ public final class New {
 	 * @throws NullPointerException if the key or the value is {@code null}
 	 */
 	public static <K, V> Map<K, V> mapOf(K k1, V v1) {
-		Objects.requireNonNull(k1);
-		Objects.requireNonNull(v1);
-		return Collections.singletonMap(k1, v1);
+		return Factories.mapOf(k1, v1);
 	}
 
 	/**
@@ -335,15 +726,7 @@ public final class New {
 	 * @throws NullPointerException if any key or value is {@code null}
 	 */
 	public static <K, V> Map<K, V> mapOf(K k1, V v1, K k2, V v2) {
-		Objects.requireNonNull(k1);
-		Objects.requireNonNull(v1);
-		Objects.requireNonNull(k2);
-		Objects.requireNonNull(v2);
-
-		Map<K, V> map = new HashMap<>();
-		map.put(k1, v1);
-		addCheckingRepeatedKey(map, k2, v2);
-		return Collections.unmodifiableMap(map);
+		return Factories.mapOf(k1, v1, k2, v2);
 	}
 
 	/**
@@ -362,66 +745,249 @@ public final class New {
 	 * @throws NullPointerException if any key or value is {@code null}
 	 */
 	public static <K, V> Map<K, V> mapOf(K k1, V v1, K k2, V v2, K k3, V v3) {
-		Objects.requireNonNull(k1);
-		Objects.requireNonNull(v1);
-		Objects.requireNonNull(k2);
-		Objects.requireNonNull(v2);
-		Objects.requireNonNull(k3);
-		Objects.requireNonNull(v3);
-		Map<K, V> map = new HashMap<>();
-		map.put(k1, v1);
-		addCheckingRepeatedKey(map, k2, v2);
-		addCheckingRepeatedKey(map, k3, v3);
-		return Collections.unmodifiableMap(map);
+		return Factories.mapOf(k1, v1, k2, v2, k3, v3);
 	}
 
 	/**
-	 * Returns an unmodifiable {@link Map.Entry} containing the given key and value. These
-	 * entries are suitable for populating {@code Map} instances using the
-	 * {@link New#mapOfEntries New.mapOfEntries()} method. The {@code Entry} instances
-	 * created by this method have the following characteristics:
-	 *
-	 * <ul>
-	 * <li>They disallow {@code null} keys and values. Attempts to create them using a
-	 * {@code null} key or value result in {@code NullPointerException}.
-	 * <li>They are unmodifiable. Calls to {@link Map.Entry#setValue Entry.setValue()} on
-	 * a returned {@code Entry} result in {@code UnsupportedOperationException}.
-	 * <li>They are serializable.
-	 * <li>They are <a href="../lang/doc-files/ValueBased.html">value-based</a>. Callers
-	 * should make no assumptions about the identity of the returned instances. This
-	 * method is free to create new instances or reuse existing ones. Therefore,
-	 * identity-sensitive operations on these instances (reference equality ({@code ==}),
-	 * identity hash code, and synchronization) are unreliable and should be avoided.
-	 * </ul>
-	 * @param <K> the key's type
-	 * @param <V> the value's type
-	 * @param k the key
-	 * @param v the value
-	 * @return an {@code Entry} containing the specified key and value
-	 * @throws NullPointerException if the key or value is {@code null}
-	 *
-	 * @see New#mapOfEntries New.mapOfEntries()
+	 * Returns an unmodifiable map containing four mappings. See
+	 * <a href="#unmodifiableMaps">Unmodifiable Maps</a> for details.
+	 * @param <K> the {@code Map}'s key type
+	 * @param <V> the {@code Map}'s value type
+	 * @param k1 the first mapping's key
+	 * @param v1 the first mapping's value
+	 * @param k2 the second mapping's key
+	 * @param v2 the second mapping's value
+	 * @param k3 the third mapping's key
+	 * @param v3 the third mapping's value
+	 * @param k4 the fourth mapping's key
+	 * @param v4 the fourth mapping's value
+	 * @return a {@code Map} containing the specified mappings
+	 * @throws IllegalArgumentException if there are any duplicate keys
+	 * @throws NullPointerException if any key or value is {@code null}
 	 */
-	public static <K, V> Map.Entry<K, V> mapEntry(K k, V v) {
-		Objects.requireNonNull(k);
-		Objects.requireNonNull(v);
-		return new AbstractMap.SimpleImmutableEntry<>(k, v);
+	public static <K, V> Map<K, V> mapOf(K k1, V v1, K k2, V v2, K k3, V v3, K k4, V v4) {
+		return Factories.mapOf(k1, v1, k2, v2, k3, v3, k4, v4);
 	}
 
 	/**
-	 * Returns an unmodifiable map containing keys and values extracted from the given
-	 * entries. The entries themselves are not stored in the map. See
+	 * Returns an unmodifiable map containing five mappings. See
 	 * <a href="#unmodifiableMaps">Unmodifiable Maps</a> for details.
-	 *
-	 * @apiNote It is convenient to create the map entries using the {@link New#mapEntry
-	 * New.mapEntry()} method. For example,
-	 *
-	 * <pre>{@code
-	 *     import static org.pgris.New.mapEntry;
-	 *
-	 *     Map<Integer,String> map = New.mapOfEntries(
-	 *         mapEntry(1, "a"),
-	 *         mapEntry(2, "b"),
+	 * @param <K> the {@code Map}'s key type
+	 * @param <V> the {@code Map}'s value type
+	 * @param k1 the first mapping's key
+	 * @param v1 the first mapping's value
+	 * @param k2 the second mapping's key
+	 * @param v2 the second mapping's value
+	 * @param k3 the third mapping's key
+	 * @param v3 the third mapping's value
+	 * @param k4 the fourth mapping's key
+	 * @param v4 the fourth mapping's value
+	 * @param k5 the fifth mapping's key
+	 * @param v5 the fifth mapping's value
+	 * @return a {@code Map} containing the specified mappings
+	 * @throws IllegalArgumentException if there are any duplicate keys
+	 * @throws NullPointerException if any key or value is {@code null}
+	 */
+	public static <K, V> Map<K, V> mapOf(K k1, V v1, K k2, V v2, K k3, V v3, K k4, V v4, K k5, V v5) {
+		return Factories.mapOf(k1, v1, k2, v2, k3, v3, k4, v4, k5, v5);
+	}
+
+	/**
+	 * Returns an unmodifiable map containing six mappings. See
+	 * <a href="#unmodifiableMaps">Unmodifiable Maps</a> for details.
+	 * @param <K> the {@code Map}'s key type
+	 * @param <V> the {@code Map}'s value type
+	 * @param k1 the first mapping's key
+	 * @param v1 the first mapping's value
+	 * @param k2 the second mapping's key
+	 * @param v2 the second mapping's value
+	 * @param k3 the third mapping's key
+	 * @param v3 the third mapping's value
+	 * @param k4 the fourth mapping's key
+	 * @param v4 the fourth mapping's value
+	 * @param k5 the fifth mapping's key
+	 * @param v5 the fifth mapping's value
+	 * @param k6 the sixth mapping's key
+	 * @param v6 the sixth mapping's value
+	 * @return a {@code Map} containing the specified mappings
+	 * @throws IllegalArgumentException if there are any duplicate keys
+	 * @throws NullPointerException if any key or value is {@code null}
+	 */
+	public static <K, V> Map<K, V> mapOf(K k1, V v1, K k2, V v2, K k3, V v3, K k4, V v4, K k5, V v5, K k6, V v6) {
+		return Factories.mapOf(k1, v1, k2, v2, k3, v3, k4, v4, k5, v5, k6, v6);
+	}
+
+	/**
+	 * Returns an unmodifiable map containing seven mappings. See
+	 * <a href="#unmodifiableMaps">Unmodifiable Maps</a> for details.
+	 * @param <K> the {@code Map}'s key type
+	 * @param <V> the {@code Map}'s value type
+	 * @param k1 the first mapping's key
+	 * @param v1 the first mapping's value
+	 * @param k2 the second mapping's key
+	 * @param v2 the second mapping's value
+	 * @param k3 the third mapping's key
+	 * @param v3 the third mapping's value
+	 * @param k4 the fourth mapping's key
+	 * @param v4 the fourth mapping's value
+	 * @param k5 the fifth mapping's key
+	 * @param v5 the fifth mapping's value
+	 * @param k6 the sixth mapping's key
+	 * @param v6 the sixth mapping's value
+	 * @param k7 the seventh mapping's key
+	 * @param v7 the seventh mapping's value
+	 * @return a {@code Map} containing the specified mappings
+	 * @throws IllegalArgumentException if there are any duplicate keys
+	 * @throws NullPointerException if any key or value is {@code null}
+	 */
+	public static <K, V> Map<K, V> mapOf(K k1, V v1, K k2, V v2, K k3, V v3, K k4, V v4, K k5, V v5, K k6, V v6, K k7,
+			V v7) {
+		return Factories.mapOf(k1, v1, k2, v2, k3, v3, k4, v4, k5, v5, k6, v6, k7, v7);
+	}
+
+	/**
+	 * Returns an unmodifiable map containing eight mappings. See
+	 * <a href="#unmodifiableMaps">Unmodifiable Maps</a> for details.
+	 * @param <K> the {@code Map}'s key type
+	 * @param <V> the {@code Map}'s value type
+	 * @param k1 the first mapping's key
+	 * @param v1 the first mapping's value
+	 * @param k2 the second mapping's key
+	 * @param v2 the second mapping's value
+	 * @param k3 the third mapping's key
+	 * @param v3 the third mapping's value
+	 * @param k4 the fourth mapping's key
+	 * @param v4 the fourth mapping's value
+	 * @param k5 the fifth mapping's key
+	 * @param v5 the fifth mapping's value
+	 * @param k6 the sixth mapping's key
+	 * @param v6 the sixth mapping's value
+	 * @param k7 the seventh mapping's key
+	 * @param v7 the seventh mapping's value
+	 * @param k8 the eighth mapping's key
+	 * @param v8 the eighth mapping's value
+	 * @return a {@code Map} containing the specified mappings
+	 * @throws IllegalArgumentException if there are any duplicate keys
+	 * @throws NullPointerException if any key or value is {@code null}
+	 */
+	public static <K, V> Map<K, V> mapOf(K k1, V v1, K k2, V v2, K k3, V v3, K k4, V v4, K k5, V v5, K k6, V v6, K k7,
+			V v7, K k8, V v8) {
+		return Factories.mapOf(k1, v1, k2, v2, k3, v3, k4, v4, k5, v5, k6, v6, k7, v7, k8, v8);
+	}
+
+	/**
+	 * Returns an unmodifiable map containing nine mappings. See
+	 * <a href="#unmodifiableMaps">Unmodifiable Maps</a> for details.
+	 * @param <K> the {@code Map}'s key type
+	 * @param <V> the {@code Map}'s value type
+	 * @param k1 the first mapping's key
+	 * @param v1 the first mapping's value
+	 * @param k2 the second mapping's key
+	 * @param v2 the second mapping's value
+	 * @param k3 the third mapping's key
+	 * @param v3 the third mapping's value
+	 * @param k4 the fourth mapping's key
+	 * @param v4 the fourth mapping's value
+	 * @param k5 the fifth mapping's key
+	 * @param v5 the fifth mapping's value
+	 * @param k6 the sixth mapping's key
+	 * @param v6 the sixth mapping's value
+	 * @param k7 the seventh mapping's key
+	 * @param v7 the seventh mapping's value
+	 * @param k8 the eighth mapping's key
+	 * @param v8 the eighth mapping's value
+	 * @param k9 the ninth mapping's key
+	 * @param v9 the ninth mapping's value
+	 * @return a {@code Map} containing the specified mappings
+	 * @throws IllegalArgumentException if there are any duplicate keys
+	 * @throws NullPointerException if any key or value is {@code null}
+	 */
+	public static <K, V> Map<K, V> mapOf(K k1, V v1, K k2, V v2, K k3, V v3, K k4, V v4, K k5, V v5, K k6, V v6, K k7,
+			V v7, K k8, V v8, K k9, V v9) {
+		return Factories.mapOf(k1, v1, k2, v2, k3, v3, k4, v4, k5, v5, k6, v6, k7, v7, k8, v8, k9, v9);
+	}
+
+	/**
+	 * Returns an unmodifiable map containing ten mappings. See
+	 * <a href="#unmodifiableMaps">Unmodifiable Maps</a> for details.
+	 * @param <K> the {@code Map}'s key type
+	 * @param <V> the {@code Map}'s value type
+	 * @param k1 the first mapping's key
+	 * @param v1 the first mapping's value
+	 * @param k2 the second mapping's key
+	 * @param v2 the second mapping's value
+	 * @param k3 the third mapping's key
+	 * @param v3 the third mapping's value
+	 * @param k4 the fourth mapping's key
+	 * @param v4 the fourth mapping's value
+	 * @param k5 the fifth mapping's key
+	 * @param v5 the fifth mapping's value
+	 * @param k6 the sixth mapping's key
+	 * @param v6 the sixth mapping's value
+	 * @param k7 the seventh mapping's key
+	 * @param v7 the seventh mapping's value
+	 * @param k8 the eighth mapping's key
+	 * @param v8 the eighth mapping's value
+	 * @param k9 the ninth mapping's key
+	 * @param v9 the ninth mapping's value
+	 * @param k10 the tenth mapping's key
+	 * @param v10 the tenth mapping's value
+	 * @return a {@code Map} containing the specified mappings
+	 * @throws IllegalArgumentException if there are any duplicate keys
+	 * @throws NullPointerException if any key or value is {@code null}
+	 */
+	public static <K, V> Map<K, V> mapOf(K k1, V v1, K k2, V v2, K k3, V v3, K k4, V v4, K k5, V v5, K k6, V v6, K k7,
+			V v7, K k8, V v8, K k9, V v9, K k10, V v10) {
+		return Factories.mapOf(k1, v1, k2, v2, k3, v3, k4, v4, k5, v5, k6, v6, k7, v7, k8, v8, k9, v9, k10, v10);
+	}
+
+	/**
+	 * Returns an unmodifiable {@link Map.Entry} containing the given key and value. These
+	 * entries are suitable for populating {@code Map} instances using the
+	 * {@link New#mapOfEntries New.mapOfEntries()} method. The {@code Entry} instances
+	 * created by this method have the following characteristics:
+	 *
+	 * <ul>
+	 * <li>They disallow {@code null} keys and values. Attempts to create them using a
+	 * {@code null} key or value result in {@code NullPointerException}.
+	 * <li>They are unmodifiable. Calls to {@link Map.Entry#setValue Entry.setValue()} on
+	 * a returned {@code Entry} result in {@code UnsupportedOperationException}.
+	 * <li>They are serializable.
+	 * <li>They are <a href="../lang/doc-files/ValueBased.html">value-based</a>. Callers
+	 * should make no assumptions about the identity of the returned instances. This
+	 * method is free to create new instances or reuse existing ones. Therefore,
+	 * identity-sensitive operations on these instances (reference equality ({@code ==}),
+	 * identity hash code, and synchronization) are unreliable and should be avoided.
+	 * </ul>
+	 * @param <K> the key's type
+	 * @param <V> the value's type
+	 * @param k the key
+	 * @param v the value
+	 * @return an {@code Entry} containing the specified key and value
+	 * @throws NullPointerException if the key or value is {@code null}
+	 *
+	 * @see New#mapOfEntries New.mapOfEntries()
+	 */
+	public static <K, V> Map.Entry<K, V> mapEntry(K k, V v) {
+		Objects.requireNonNull(k);
+		Objects.requireNonNull(v);
+		return new AbstractMap.SimpleImmutableEntry<>(k, v);
+	}
+
+	/**
+	 * Returns an unmodifiable map containing keys and values extracted from the given
+	 * entries. The entries themselves are not stored in the map. See
+	 * <a href="#unmodifiableMaps">Unmodifiable Maps</a> for details.
+	 *
+	 * @apiNote It is convenient to create the map entries using the {@link New#mapEntry
+	 * New.mapEntry()} method. For example,
+	 *
+	 * <pre>{@code
+	 *     import static org.pgris.New.mapEntry;
+	 *
+	 *     Map<Integer,String> map = New.mapOfEntries(
+	 *         mapEntry(1, "a"),
+	 *         mapEntry(2, "b"),
 	 *         mapEntry(3, "c"),
 	 *         ...
 	 *         mapEntry(26, "z"));
@@ -438,22 +1004,879 @@ public final class New {
 	 * @see Map#entry Map.entry()
 	 */
 	@SafeVarargs
+	@SuppressWarnings("varargs")
 	public static <K, V> Map<K, V> mapOfEntries(Map.Entry<? extends K, ? extends V>... entries) {
-		Map<K, V> map = new HashMap<>();
+		return Factories.mapOfEntries(entries);
+	}
+
+	@SuppressWarnings("unchecked")
+	static <K, V> Map<K, V> mapFromEntries(Map.Entry<? extends K, ? extends V>[] entries) {
+		if (entries.length == 0) {
+			return (Map<K, V>) ImmutableCollections.MapN.EMPTY_MAP;
+		}
+		else if (entries.length == 1) {
+			return new ImmutableCollections.Map1<>(entries[0].getKey(), entries[0].getValue());
+		}
+		Object[] table = new Object[ImmutableCollections.EXPAND_FACTOR * 2 * entries.length];
+		boolean bounded = true;
 		for (Map.Entry<? extends K, ? extends V> e : entries) {
-			Objects.requireNonNull(e);
-			Objects.requireNonNull(e.getKey());
-			Objects.requireNonNull(e.getValue());
-			addCheckingRepeatedKey(map, e.getKey(), e.getValue());
+			Object key = Objects.requireNonNull(e.getKey());
+			Object value = Objects.requireNonNull(e.getValue());
+			if (!addCheckingRepeatedKey(table, key, value, bounded)) {
+				Map<K, V> ordered = HashOrderedTables.mapOf(keysAndValues(entries), entries.length, null);
+				if (ordered != null) {
+					return ordered;
+				}
+				bounded = false;
+				addCheckingRepeatedKey(table, key, value, false);
+			}
+		}
+		return ImmutableCollections.MapN.of(table, entries.length);
+	}
+
+	/**
+	 * @return the keys and values of the entries, side by side, with a {@code null} key
+	 * for a {@code null} entry
+	 */
+	private static Object[] keysAndValues(Map.Entry<?, ?>[] entries) {
+		Object[] keysAndValues = new Object[2 * entries.length];
+		for (int i = 0; i < entries.length; i++) {
+			if (entries[i] != null) {
+				keysAndValues[2 * i] = entries[i].getKey();
+				keysAndValues[2 * i + 1] = entries[i].getValue();
+			}
+		}
+		return keysAndValues;
+	}
+
+	/**
+	 * Returns an unmodifiable map containing keys and values extracted from the given
+	 * entries, like {@link #mapOfEntries(Map.Entry...)}, but computing a minimal perfect
+	 * hash over the keys. Every {@code get} then costs one bucket lookup and one key
+	 * comparison, without probing, and the table has exactly one slot per mapping. See
+	 * <a href="#unmodifiableMaps">Unmodifiable Maps</a> for details.
+	 *
+	 * @implNote Construction is several times slower than {@code mapOfEntries}, so this
+	 * is only worth it for maps built once and read many times. If some keys have the
+	 * same {@code hashCode} no perfect hash exists, and a regular map is returned.
+	 * @param <K> the {@code Map}'s key type
+	 * @param <V> the {@code Map}'s value type
+	 * @param entries {@code Map.Entry}s containing the keys and values from which the map
+	 * is populated
+	 * @return a {@code Map} containing the specified mappings
+	 * @throws IllegalArgumentException if there are any duplicate keys
+	 * @throws NullPointerException if any entry, key, or value is {@code null}, or if the
+	 * {@code entries} array is {@code null}
+	 */
+	@SafeVarargs
+	@SuppressWarnings("varargs")
+	public static <K, V> Map<K, V> mapOfEntriesPerfect(Map.Entry<? extends K, ? extends V>... entries) {
+		if (entries.length < 2) {
+			return mapOfEntries(entries);
+		}
+		Object[] table = new Object[ImmutableCollections.EXPAND_FACTOR * 2 * entries.length];
+		for (Map.Entry<? extends K, ? extends V> e : entries) {
+			Object key = Objects.requireNonNull(e.getKey());
+			Object value = Objects.requireNonNull(e.getValue());
+			if (!addCheckingRepeatedKey(table, key, value, true)) {
+				// keys with that many colliding hash codes have no perfect hash either
+				return mapFromEntries(entries);
+			}
+		}
+		Map<K, V> perfect = ImmutableCollections.MapPerfect.of(table, entries.length);
+		return perfect != null ? perfect : ImmutableCollections.MapN.of(table, entries.length);
+	}
+
+	/**
+	 * Returns an <a href="#unmodifiableMaps">unmodifiable Map</a> containing the entries
+	 * of the given Map. The given Map must not be null, and it must not contain any null
+	 * keys or values. If the given Map is subsequently modified, the returned Map will
+	 * not reflect such modifications.
+	 *
+	 * @implNote If the given Map is an unmodifiable Map created by this class, calling
+	 * mapCopyOf will generally not create a copy.
+	 * @param <K> the {@code Map}'s key type
+	 * @param <V> the {@code Map}'s value type
+	 * @param map a {@code Map} from which entries are drawn, must be non-null
+	 * @return a {@code Map} containing the entries of the given {@code Map}
+	 * @throws NullPointerException if map is null, or if it contains any null keys or
+	 * values
+	 */
+	@SuppressWarnings("unchecked")
+	public static <K, V> Map<K, V> mapCopyOf(Map<? extends K, ? extends V> map) {
+		if (map instanceof ImmutableCollections.MapN || map instanceof ImmutableCollections.Map1
+				|| map instanceof ImmutableCollections.MapPerfect
+				|| map instanceof ImmutableCollections.MapHashOrdered) {
+			return (Map<K, V>) map;
+		}
+		return Factories.mapCopyOf(map);
+	}
+
+	/* SORTED */
+
+	/**
+	 * Returns an unmodifiable {@code NavigableSet} containing the given elements in their
+	 * natural order. See <a href="#sorted">Sorted Sets and Maps</a> for details.
+	 * @param <E> the {@code NavigableSet}'s element type
+	 * @param elements the elements to be contained in the set
+	 * @return a {@code NavigableSet} containing the specified elements
+	 * @throws IllegalArgumentException if any two elements compare equal
+	 * @throws NullPointerException if an element is {@code null} or if the array is
+	 * {@code null}
+	 */
+	@SafeVarargs
+	@SuppressWarnings("varargs")
+	public static <E extends Comparable<? super E>> NavigableSet<E> sortedSetOf(E... elements) {
+		return ImmutableSortedCollections.setOf(null, elements.clone());
+	}
+
+	/**
+	 * Returns an unmodifiable {@code NavigableSet} containing the given elements in the
+	 * order of the given comparator. See <a href="#sorted">Sorted Sets and Maps</a> for
+	 * details.
+	 * @param <E> the {@code NavigableSet}'s element type
+	 * @param comparator the order of the elements
+	 * @param elements the elements to be contained in the set
+	 * @return a {@code NavigableSet} containing the specified elements
+	 * @throws IllegalArgumentException if any two elements compare equal
+	 * @throws NullPointerException if the comparator or an element is {@code null} or if
+	 * the array is {@code null}
+	 */
+	@SafeVarargs
+	@SuppressWarnings("varargs")
+	public static <E> NavigableSet<E> sortedSetOf(Comparator<? super E> comparator, E... elements) {
+		Objects.requireNonNull(comparator);
+		return ImmutableSortedCollections.setOf(comparator, elements.clone());
+	}
+
+	/**
+	 * Returns an unmodifiable {@code NavigableMap} containing the entries of the given
+	 * Map with its keys in their natural order. See <a href="#sorted">Sorted Sets and
+	 * Maps</a> for details.
+	 * @param <K> the {@code NavigableMap}'s key type
+	 * @param <V> the {@code NavigableMap}'s value type
+	 * @param map a {@code Map} from which entries are drawn
+	 * @return a {@code NavigableMap} containing the entries of the given {@code Map}
+	 * @throws IllegalArgumentException if any two keys compare equal
+	 * @throws NullPointerException if map is null, or if it contains any null keys or
+	 * values
+	 */
+	public static <K extends Comparable<? super K>, V> NavigableMap<K, V> sortedMapOf(
+			Map<? extends K, ? extends V> map) {
+		return ImmutableSortedCollections.mapOf(null, keysAndValuesOf(map));
+	}
+
+	/**
+	 * Returns an unmodifiable {@code NavigableMap} containing the entries of the given
+	 * Map with its keys in the order of the given comparator. See
+	 * <a href="#sorted">Sorted Sets and Maps</a> for details.
+	 * @param <K> the {@code NavigableMap}'s key type
+	 * @param <V> the {@code NavigableMap}'s value type
+	 * @param comparator the order of the keys
+	 * @param map a {@code Map} from which entries are drawn
+	 * @return a {@code NavigableMap} containing the entries of the given {@code Map}
+	 * @throws IllegalArgumentException if any two keys compare equal
+	 * @throws NullPointerException if the comparator or the map is null, or if the map
+	 * contains any null keys or values
+	 */
+	public static <K, V> NavigableMap<K, V> sortedMapOf(Comparator<? super K> comparator,
+			Map<? extends K, ? extends V> map) {
+		Objects.requireNonNull(comparator);
+		return ImmutableSortedCollections.mapOf(comparator, keysAndValuesOf(map));
+	}
+
+	private static Object[] keysAndValuesOf(Map<?, ?> map) {
+		Object[] entries = map.entrySet().toArray();
+		Object[] keysAndValues = new Object[2 * entries.length];
+		for (int i = 0; i < entries.length; i++) {
+			Map.Entry<?, ?> e = (Map.Entry<?, ?>) entries[i];
+			keysAndValues[2 * i] = e.getKey();
+			keysAndValues[2 * i + 1] = e.getValue();
+		}
+		return keysAndValues;
+	}
+
+	/* PERSISTENT */
+
+	/**
+	 * Returns a {@link PersistentList} containing the given elements, in order. It is an
+	 * <a href="#unmodifiable">unmodifiable List</a> whose modified copies share most of
+	 * their structure with it.
+	 * @param <E> the {@code List}'s element type
+	 * @param elements the elements to be contained in the list
+	 * @return a {@code PersistentList} containing the specified elements
+	 * @throws NullPointerException if an element is {@code null} or if the array is
+	 * {@code null}
+	 */
+	@SafeVarargs
+	@SuppressWarnings("varargs")
+	public static <E> PersistentList<E> persistentListOf(E... elements) {
+		return PersistentList.of(elements);
+	}
+
+	/**
+	 * Returns a {@link PersistentList} containing the elements of the given Collection,
+	 * in its iteration order.
+	 *
+	 * @implNote If the given Collection is a {@code PersistentList}, no copy is made.
+	 * @param <E> the {@code List}'s element type
+	 * @param coll a {@code Collection} from which elements are drawn, must be non-null
+	 * @return a {@code PersistentList} containing the elements of the given
+	 * {@code Collection}
+	 * @throws NullPointerException if coll is null, or if it contains any nulls
+	 */
+	@SuppressWarnings("unchecked")
+	public static <E> PersistentList<E> persistentListCopyOf(Collection<? extends E> coll) {
+		if (coll instanceof PersistentList) {
+			return (PersistentList<E>) coll;
+		}
+		return PersistentList.of(coll.toArray());
+	}
+
+	/**
+	 * Returns a {@link PersistentSet} containing the given elements. It is an
+	 * <a href="#unmodifiableSets">unmodifiable Set</a> whose modified copies share most
+	 * of their structure with it.
+	 * @param <E> the {@code Set}'s element type
+	 * @param elements the elements to be contained in the set
+	 * @return a {@code PersistentSet} containing the specified elements
+	 * @throws IllegalArgumentException if there are any duplicate elements
+	 * @throws NullPointerException if an element is {@code null} or if the array is
+	 * {@code null}
+	 */
+	@SafeVarargs
+	@SuppressWarnings("varargs")
+	public static <E> PersistentSet<E> persistentSetOf(E... elements) {
+		return PersistentSet.of(elements);
+	}
+
+	/**
+	 * Returns a {@link PersistentSet} containing the elements of the given Collection. If
+	 * the given Collection contains duplicate elements, an arbitrary element of the
+	 * duplicates is preserved.
+	 *
+	 * @implNote If the given Collection is a {@code PersistentSet}, no copy is made.
+	 * @param <E> the {@code Set}'s element type
+	 * @param coll a {@code Collection} from which elements are drawn, must be non-null
+	 * @return a {@code PersistentSet} containing the elements of the given
+	 * {@code Collection}
+	 * @throws NullPointerException if coll is null, or if it contains any nulls
+	 */
+	@SuppressWarnings("unchecked")
+	public static <E> PersistentSet<E> persistentSetCopyOf(Collection<? extends E> coll) {
+		if (coll instanceof PersistentSet) {
+			return (PersistentSet<E>) coll;
+		}
+		PersistentSet<E> set = (PersistentSet<E>) PersistentSet.EMPTY;
+		for (E e : coll) {
+			set = set.plus(e);
+		}
+		return set;
+	}
+
+	/**
+	 * Returns an empty {@link PersistentMap}. It is an
+	 * <a href="#unmodifiableMaps">unmodifiable Map</a> whose modified copies share most
+	 * of their structure with it.
+	 * @param <K> the {@code Map}'s key type
+	 * @param <V> the {@code Map}'s value type
+	 * @return an empty {@code PersistentMap}
+	 */
+	@SuppressWarnings("unchecked")
+	public static <K, V> PersistentMap<K, V> persistentMapOf() {
+		return (PersistentMap<K, V>) PersistentMap.EMPTY;
+	}
+
+	/**
+	 * Returns a {@link PersistentMap} containing the entries of the given Map.
+	 *
+	 * @implNote If the given Map is a {@code PersistentMap}, no copy is made.
+	 * @param <K> the {@code Map}'s key type
+	 * @param <V> the {@code Map}'s value type
+	 * @param map a {@code Map} from which entries are drawn, must be non-null
+	 * @return a {@code PersistentMap} containing the entries of the given {@code Map}
+	 * @throws NullPointerException if map is null, or if it contains any null keys or
+	 * values
+	 */
+	@SuppressWarnings("unchecked")
+	public static <K, V> PersistentMap<K, V> persistentMapCopyOf(Map<? extends K, ? extends V> map) {
+		if (map instanceof PersistentMap) {
+			return (PersistentMap<K, V>) map;
+		}
+		return PersistentMap.fromKeysAndValues(keysAndValuesOf(map));
+	}
+
+	/**
+	 * Returns an {@link ImmutableMapRef} holding an empty map.
+	 * @param <K> the {@code Map}'s key type
+	 * @param <V> the {@code Map}'s value type
+	 * @return an {@code ImmutableMapRef} with no mappings
+	 */
+	public static <K, V> ImmutableMapRef<K, V> mapRef() {
+		return new ImmutableMapRef<>(persistentMapOf());
+	}
+
+	/**
+	 * Returns an {@link ImmutableMapRef} holding the entries of the given Map, for lock
+	 * free reads of consistent snapshots while other threads update it.
+	 * @param <K> the {@code Map}'s key type
+	 * @param <V> the {@code Map}'s value type
+	 * @param map a {@code Map} from which the initial entries are drawn, must be non-null
+	 * @return an {@code ImmutableMapRef} with the entries of the given {@code Map}
+	 * @throws NullPointerException if map is null, or if it contains any null keys or
+	 * values
+	 */
+	public static <K, V> ImmutableMapRef<K, V> mapRef(Map<? extends K, ? extends V> map) {
+		return new ImmutableMapRef<>(persistentMapCopyOf(map));
+	}
+
+	/* ENUM */
+
+	/**
+	 * Returns an <a href="#unmodifiableSets">unmodifiable Set</a> containing the given
+	 * constants of an enum. The set is a bit vector indexed by ordinal, so
+	 * {@code contains} is a single bit test, and {@code equals} and {@code containsAll}
+	 * between two such sets compare whole words. Its elements iterate in ordinal order.
+	 * @param <E> the {@code Set}'s element type
+	 * @param elementType the class of the enum, needed for empty sets
+	 * @param elements the elements to be contained in the set
+	 * @return a {@code Set} containing the specified elements
+	 * @throws IllegalArgumentException if there are any duplicate elements
+	 * @throws NullPointerException if the type or an element is {@code null}, or if the
+	 * array is {@code null}
+	 */
+	@SafeVarargs
+	@SuppressWarnings("varargs")
+	public static <E extends Enum<E>> Set<E> enumSetOf(Class<E> elementType, E... elements) {
+		return ImmutableEnumCollections.setOf(elementType, elements);
+	}
+
+	/**
+	 * Returns an <a href="#unmodifiableMaps">unmodifiable Map</a> containing the entries
+	 * of the given Map, whose keys are constants of an enum. Values are kept in an array
+	 * indexed by ordinal, so {@code get} is a single array access. Its mappings iterate
+	 * in ordinal order of their keys.
+	 *
+	 * @implNote If the given Map was created by this method for the same enum, no copy is
+	 * made.
+	 * @param <K> the {@code Map}'s key type
+	 * @param <V> the {@code Map}'s value type
+	 * @param keyType the class of the enum, needed for empty maps
+	 * @param map a {@code Map} from which entries are drawn, must be non-null
+	 * @return a {@code Map} containing the entries of the given {@code Map}
+	 * @throws NullPointerException if the type or the map is null, or if the map contains
+	 * any null keys or values
+	 */
+	public static <K extends Enum<K>, V> Map<K, V> enumMapOf(Class<K> keyType, Map<? extends K, ? extends V> map) {
+		if (map instanceof ImmutableEnumCollections.EnumArrayMap
+				&& ((ImmutableEnumCollections.EnumArrayMap<?, ?>) map).type == keyType) {
+			@SuppressWarnings("unchecked")
+			Map<K, V> same = (Map<K, V>) map;
+			return same;
+		}
+		return ImmutableEnumCollections.mapOf(keyType, keysAndValuesOf(map));
+	}
+
+	/* PARALLEL */
+
+	/**
+	 * Returns an <a href="#unmodifiableSets">unmodifiable Set</a> containing the given
+	 * elements, like {@link #setOf(Object...)}, but hashing the elements and filling the
+	 * table on every thread of the common {@code ForkJoinPool}. Meant for sets of
+	 * millions of elements built on startup: below a few thousand elements it builds the
+	 * set on the calling thread.
+	 *
+	 * @implNote Always returns the implementation in this library, even on Java 9 and
+	 * later. Nulls and duplicates throw the same exception {@code setOf} throws on Java
+	 * 8, for the first offending element in array order.
+	 * @param <E> the {@code Set}'s element type
+	 * @param elements the elements to be contained in the set
+	 * @return a {@code Set} containing the specified elements
+	 * @throws IllegalArgumentException if there are any duplicate elements
+	 * @throws NullPointerException if an element is {@code null} or if the array is
+	 * {@code null}
+	 */
+	@SafeVarargs
+	@SuppressWarnings("varargs")
+	public static <E> Set<E> parallelSetOf(E... elements) {
+		if (elements.length < ParallelTables.THRESHOLD) {
+			return setFromArray((Object[]) elements);
+		}
+		Object[] table = ParallelTables.fill(elements, 1);
+		if (table == null) {
+			// throws for the first null or duplicate
+			return setFromArray((Object[]) elements);
+		}
+		return ImmutableCollections.SetN.of(table, elements.length);
+	}
+
+	/**
+	 * Returns an <a href="#unmodifiableMaps">unmodifiable Map</a> containing keys and
+	 * values extracted from the given entries, like {@link #mapOfEntries(Map.Entry...)},
+	 * but hashing the keys and filling the table on every thread of the common
+	 * {@code ForkJoinPool}. Meant for maps of millions of mappings built on startup:
+	 * below a few thousand mappings it builds the map on the calling thread.
+	 *
+	 * @implNote Always returns the implementation in this library, even on Java 9 and
+	 * later. Nulls and repeated keys throw the same exception {@code mapOfEntries} throws
+	 * on Java 8, for the first offending entry in array order.
+	 * @param <K> the {@code Map}'s key type
+	 * @param <V> the {@code Map}'s value type
+	 * @param entries {@code Map.Entry}s containing the keys and values from which the map
+	 * is populated
+	 * @return a {@code Map} containing the specified mappings
+	 * @throws IllegalArgumentException if there are any duplicate keys
+	 * @throws NullPointerException if any entry, key, or value is {@code null}, or if the
+	 * {@code entries} array is {@code null}
+	 */
+	@SafeVarargs
+	@SuppressWarnings("varargs")
+	public static <K, V> Map<K, V> parallelMapOfEntries(Map.Entry<? extends K, ? extends V>... entries) {
+		if (entries.length < ParallelTables.THRESHOLD) {
+			return mapFromEntries(entries);
 		}
-		return Collections.unmodifiableMap(map);
+		Object[] keysAndValues = new Object[2 * entries.length];
+		IntStream.range(0, entries.length).parallel().forEach(i -> {
+			Map.Entry<? extends K, ? extends V> e = entries[i];
+			// a null entry leaves a null key, so the fill fails and mapFromEntries throws
+			if (e != null) {
+				keysAndValues[2 * i] = e.getKey();
+				keysAndValues[2 * i + 1] = e.getValue();
+			}
+		});
+		Object[] table = ParallelTables.fill(keysAndValues, 2);
+		if (table == null) {
+			// throws for the first null or repeated key
+			return mapFromEntries(entries);
+		}
+		return ImmutableCollections.MapN.of(table, entries.length);
+	}
+
+	/* MULTIMAPS */
+
+	/**
+	 * Returns an unmodifiable multimap from each key of the given Map to the elements of
+	 * its Collection, in iteration order. Values are kept in a single array for all keys,
+	 * and {@link ImmutableListMultimap#get(Object) get} returns a view of the values of a
+	 * key instead of a copy. Keys mapped to an empty Collection are left out. If the
+	 * given Map is subsequently modified, the returned multimap will not reflect such
+	 * modifications.
+	 * @param <K> the multimap's key type
+	 * @param <V> the multimap's value type
+	 * @param map a {@code Map} from which keys and values are drawn, must be non-null
+	 * @return an {@code ImmutableListMultimap} with the keys and values of the given
+	 * {@code Map}
+	 * @throws NullPointerException if the map is null, or if it contains any null keys or
+	 * collections, or any collection contains nulls
+	 */
+	public static <K, V> ImmutableListMultimap<K, V> listMultimapOf(
+			Map<? extends K, ? extends Collection<? extends V>> map) {
+		return ImmutableListMultimap.of(map);
+	}
+
+	/**
+	 * Returns an unmodifiable multimap from each key of the given Map to the elements of
+	 * its Collection, as a set. Values are kept in a single array for all keys, and
+	 * {@link ImmutableSetMultimap#get(Object) get} returns a view of the values of a key
+	 * instead of a copy. Keys mapped to an empty Collection are left out. If the given
+	 * Map is subsequently modified, the returned multimap will not reflect such
+	 * modifications.
+	 * @param <K> the multimap's key type
+	 * @param <V> the multimap's value type
+	 * @param map a {@code Map} from which keys and values are drawn, must be non-null
+	 * @return an {@code ImmutableSetMultimap} with the keys and values of the given
+	 * {@code Map}
+	 * @throws IllegalArgumentException if any Collection has duplicate elements
+	 * @throws NullPointerException if the map is null, or if it contains any null keys or
+	 * collections, or any collection contains nulls
+	 */
+	public static <K, V> ImmutableSetMultimap<K, V> setMultimapOf(
+			Map<? extends K, ? extends Collection<? extends V>> map) {
+		return ImmutableSetMultimap.of(map);
+	}
+
+	/**
+	 * Returns an <a href="#unmodifiableMaps">unmodifiable Map</a> containing the entries
+	 * of the given Map, whose values must be unique too, so it can also be looked up by
+	 * value through {@link ImmutableBiMap#inverse()}. Both directions share a single
+	 * table, and the inverse is created once with the map.
+	 *
+	 * @implNote If the given Map was created by this method, no copy is made.
+	 * @param <K> the {@code Map}'s key type
+	 * @param <V> the {@code Map}'s value type
+	 * @param map a {@code Map} from which entries are drawn, must be non-null
+	 * @return an {@code ImmutableBiMap} containing the entries of the given {@code Map}
+	 * @throws IllegalArgumentException if any two keys are mapped to the same value
+	 * @throws NullPointerException if the map is null, or if it contains any null keys or
+	 * values
+	 */
+	public static <K, V> ImmutableBiMap<K, V> biMapOf(Map<? extends K, ? extends V> map) {
+		if (map instanceof ImmutableBiMap) {
+			@SuppressWarnings("unchecked")
+			ImmutableBiMap<K, V> same = (ImmutableBiMap<K, V>) map;
+			return same;
+		}
+		return ImmutableBiMap.of(keysAndValuesOf(map));
+	}
+
+	/* STRING */
+
+	/**
+	 * Returns an <a href="#unmodifiableMaps">unmodifiable Map</a> containing the entries
+	 * of the given Map, with the hash codes of its {@code String} keys stored next to
+	 * them so lookups only compare keys with the same hash code. Keys can also be looked
+	 * up in any {@code CharSequence} with
+	 * {@link ImmutableStringMap#get(CharSequence, int, int)}, without creating a
+	 * {@code String}.
+	 *
+	 * @implNote If the given Map was created by this method, no copy is made.
+	 * @param <V> the {@code Map}'s value type
+	 * @param map a {@code Map} from which entries are drawn, must be non-null
+	 * @return an {@code ImmutableStringMap} containing the entries of the given
+	 * {@code Map}
+	 * @throws NullPointerException if the map is null, or if it contains any null keys or
+	 * values
+	 */
+	public static <V> ImmutableStringMap<V> stringMapOf(Map<String, ? extends V> map) {
+		if (map instanceof ImmutableStringMap && !((ImmutableStringMap<?>) map).ignoresCase()) {
+			@SuppressWarnings("unchecked")
+			ImmutableStringMap<V> same = (ImmutableStringMap<V>) map;
+			return same;
+		}
+		return ImmutableStringMap.of(keysAndValuesOf(map), false);
+	}
+
+	/**
+	 * Returns an <a href="#unmodifiableMaps">unmodifiable Map</a> containing the entries
+	 * of the given Map, whose {@code String} keys are looked up ignoring case, like
+	 * {@link String#equalsIgnoreCase(String)}. Otherwise it works like
+	 * {@link #stringMapOf(Map)}, so a header name can be looked up in the request buffer
+	 * without creating a {@code String} or lower casing it.
+	 *
+	 * @implNote If the given Map was created by this method, no copy is made.
+	 * @param <V> the {@code Map}'s value type
+	 * @param map a {@code Map} from which entries are drawn, must be non-null
+	 * @return an {@code ImmutableStringMap} containing the entries of the given
+	 * {@code Map}
+	 * @throws IllegalArgumentException if any two keys differ only in case
+	 * @throws NullPointerException if the map is null, or if it contains any null keys or
+	 * values
+	 */
+	public static <V> ImmutableStringMap<V> stringMapOfIgnoreCase(Map<String, ? extends V> map) {
+		if (map instanceof ImmutableStringMap && ((ImmutableStringMap<?>) map).ignoresCase()) {
+			@SuppressWarnings("unchecked")
+			ImmutableStringMap<V> same = (ImmutableStringMap<V>) map;
+			return same;
+		}
+		return ImmutableStringMap.of(keysAndValuesOf(map), true);
+	}
+
+	/* COLLECTORS */
+
+	/**
+	 * Returns a {@code Collector} that accumulates the input elements into an
+	 * <a href="#unmodifiable">unmodifiable List</a> in encounter order. The returned
+	 * Collector disallows null values and will throw {@code NullPointerException} if it
+	 * is presented with a null value.
+	 * @param <T> the type of the input elements
+	 * @return a {@code Collector} that accumulates the input elements into an
+	 * <a href="#unmodifiable">unmodifiable List</a> in encounter order
+	 */
+	public static <T> Collector<T, ?, List<T>> toUnmodifiableList() {
+		return Collector.of(ImmutableCollections.ArrayBuffer::new,
+				(buffer, element) -> buffer.add(Objects.requireNonNull(element)),
+				ImmutableCollections.ArrayBuffer::addAll,
+				buffer -> ImmutableCollections.listFromTrustedArray(buffer.toArray()));
+	}
+
+	/**
+	 * Returns a {@code Collector} that accumulates the input elements into an
+	 * <a href="#unmodifiableSets">unmodifiable Set</a>. The returned Collector disallows
+	 * null values and will throw {@code NullPointerException} if it is presented with a
+	 * null value. If the input contains duplicate elements, an arbitrary element of the
+	 * duplicates is preserved.
+	 * @param <T> the type of the input elements
+	 * @return a {@code Collector} that accumulates the input elements into an
+	 * <a href="#unmodifiableSets">unmodifiable Set</a>
+	 */
+	public static <T> Collector<T, ?, Set<T>> toUnmodifiableSet() {
+		return Collector.of(ImmutableCollections.ArrayBuffer::new,
+				(buffer, element) -> buffer.add(Objects.requireNonNull(element)),
+				ImmutableCollections.ArrayBuffer::addAll, buffer -> setDroppingDuplicates(buffer.elements, buffer.size),
+				Collector.Characteristics.UNORDERED);
+	}
+
+	/**
+	 * Returns a {@code Collector} that accumulates the input elements into an
+	 * <a href="#unmodifiableMaps">unmodifiable Map</a>, whose keys and values are the
+	 * result of applying the provided mapping functions to the input elements.
+	 *
+	 * <p>
+	 * If the mapped keys contain duplicates (according to {@link Object#equals(Object)}),
+	 * an {@code IllegalStateException} is thrown when the collection operation is
+	 * performed. If the mapped keys might have duplicates, use
+	 * {@link #toUnmodifiableMap(Function, Function, BinaryOperator)} to handle merging of
+	 * the values.
+	 *
+	 * <p>
+	 * The returned Collector disallows null keys and values. If either mapping function
+	 * returns null, {@code NullPointerException} will be thrown.
+	 * @param <T> the type of the input elements
+	 * @param <K> the output type of the key mapping function
+	 * @param <U> the output type of the value mapping function
+	 * @param keyMapper a mapping function to produce keys, must be non-null
+	 * @param valueMapper a mapping function to produce values, must be non-null
+	 * @return a {@code Collector} that accumulates the input elements into an
+	 * <a href="#unmodifiableMaps">unmodifiable Map</a>, whose keys and values are the
+	 * result of applying the provided mapping functions to the input elements
+	 * @throws NullPointerException if either keyMapper or valueMapper is null
+	 */
+	public static <T, K, U> Collector<T, ?, Map<K, U>> toUnmodifiableMap(Function<? super T, ? extends K> keyMapper,
+			Function<? super T, ? extends U> valueMapper) {
+		return toUnmodifiableMap(keyMapper, valueMapper, null);
+	}
+
+	/**
+	 * Returns a {@code Collector} that accumulates the input elements into an
+	 * <a href="#unmodifiableMaps">unmodifiable Map</a>, whose keys and values are the
+	 * result of applying the provided mapping functions to the input elements.
+	 *
+	 * <p>
+	 * If the mapped keys contain duplicates (according to {@link Object#equals(Object)}),
+	 * the value mapping function is applied to each equal element, and the results are
+	 * merged using the provided merging function, in encounter order.
+	 *
+	 * <p>
+	 * The returned Collector disallows null keys and values. If either mapping function
+	 * or the merge function returns null, {@code NullPointerException} will be thrown.
+	 * @param <T> the type of the input elements
+	 * @param <K> the output type of the key mapping function
+	 * @param <U> the output type of the value mapping function
+	 * @param keyMapper a mapping function to produce keys, must be non-null
+	 * @param valueMapper a mapping function to produce values, must be non-null
+	 * @param mergeFunction a merge function, used to resolve collisions between values
+	 * associated with the same key, or {@code null} to throw
+	 * {@code IllegalStateException} on collisions
+	 * @return a {@code Collector} that accumulates the input elements into an
+	 * <a href="#unmodifiableMaps">unmodifiable Map</a>, whose keys and values are the
+	 * result of applying the provided mapping functions to the input elements
+	 * @throws NullPointerException if the keyMapper or the valueMapper is null
+	 */
+	public static <T, K, U> Collector<T, ?, Map<K, U>> toUnmodifiableMap(Function<? super T, ? extends K> keyMapper,
+			Function<? super T, ? extends U> valueMapper, BinaryOperator<U> mergeFunction) {
+		Objects.requireNonNull(keyMapper, "keyMapper");
+		Objects.requireNonNull(valueMapper, "valueMapper");
+		return Collector.of(ImmutableCollections.ArrayBuffer::new,
+				(buffer, element) -> buffer.add(Objects.requireNonNull(keyMapper.apply(element)),
+						Objects.requireNonNull(valueMapper.apply(element))),
+				ImmutableCollections.ArrayBuffer::addAll, buffer -> mapMerging(buffer, mergeFunction));
 	}
 
-	private static <K, V> void addCheckingRepeatedKey(Map<K, V> map, K key, V value) {
-		if (map.containsKey(key)) {
+	/**
+	 * Builds a map from the alternating keys and values of a buffer, merging the values
+	 * of repeated keys.
+	 */
+	@SuppressWarnings("unchecked")
+	private static <K, U> Map<K, U> mapMerging(ImmutableCollections.ArrayBuffer buffer,
+			BinaryOperator<U> mergeFunction) {
+		Object[] input = buffer.elements;
+		int pairs = buffer.size >> 1;
+		if (pairs == 0) {
+			return mapOf();
+		}
+		Object[] table = new Object[ImmutableCollections.EXPAND_FACTOR * buffer.size];
+		int size = 0;
+		boolean bounded = true;
+		for (int i = 0; i < buffer.size; i += 2) {
+			int idx = bounded ? ImmutableCollections.MapN.probeShort(table, input[i])
+					: ImmutableCollections.MapN.probe(table, input[i]);
+			if (idx == ImmutableCollections.LONG_PROBE) {
+				Map<K, U> ordered = HashOrderedTables.mapOf(input, pairs, (key, previous, value) -> {
+					if (mergeFunction == null) {
+						throw new IllegalStateException(String
+								.format("Duplicate key %s (attempted merging values %s and %s)", key, previous, value));
+					}
+					return mergeFunction.apply((U) previous, (U) value);
+				});
+				if (ordered != null) {
+					return ordered;
+				}
+				bounded = false;
+				idx = ImmutableCollections.MapN.probe(table, input[i]);
+			}
+			if (idx >= 0) {
+				if (mergeFunction == null) {
+					throw new IllegalStateException(
+							String.format("Duplicate key %s (attempted merging values %s and %s)", input[i],
+									table[idx + 1], input[i + 1]));
+				}
+				table[idx + 1] = Objects.requireNonNull(mergeFunction.apply((U) table[idx + 1], (U) input[i + 1]));
+			}
+			else {
+				idx = -(idx + 1);
+				table[idx] = input[i];
+				table[idx + 1] = input[i + 1];
+				size++;
+			}
+		}
+		return ImmutableCollections.MapN.of(table, size);
+	}
+
+	/* BUILDERS */
+
+	/**
+	 * Returns a builder for an <a href="#unmodifiableSets">unmodifiable Set</a> of about
+	 * {@code expectedSize} elements. Use it instead of {@link #setOf(Object...)} when the
+	 * elements are not already in an array, so they are written straight into the final
+	 * table.
+	 * @param <E> the {@code Set}'s element type
+	 * @param expectedSize the expected number of elements, more can be added at the cost
+	 * of rehashing
+	 * @return a new {@code SetBuilder}
+	 * @throws IllegalArgumentException if expectedSize is negative
+	 */
+	public static <E> SetBuilder<E> setBuilder(int expectedSize) {
+		return new SetBuilder<>(expectedSize);
+	}
+
+	/**
+	 * Returns a builder for an <a href="#unmodifiableMaps">unmodifiable Map</a> of about
+	 * {@code expectedSize} mappings. Use it instead of
+	 * {@link #mapOfEntries(Map.Entry...)} when the mappings are not already in an array,
+	 * so they are written straight into the final table without creating entries.
+	 * @param <K> the {@code Map}'s key type
+	 * @param <V> the {@code Map}'s value type
+	 * @param expectedSize the expected number of mappings, more can be put at the cost of
+	 * rehashing
+	 * @return a new {@code MapBuilder}
+	 * @throws IllegalArgumentException if expectedSize is negative
+	 */
+	public static <K, V> MapBuilder<K, V> mapBuilder(int expectedSize) {
+		return new MapBuilder<>(expectedSize);
+	}
+
+	/* CACHE */
+
+	/**
+	 * Returns a cache that interns small unmodifiable collections, for applications that
+	 * keep creating the same few lists, sets or maps. Caches are independent of each
+	 * other, and the other methods in this class never use them.
+	 * @param maximumSize the maximum number of canonical collections held
+	 * @return a new {@code CanonicalCache}
+	 * @throws IllegalArgumentException if maximumSize is not positive
+	 */
+	public static CanonicalCache canonicalCache(int maximumSize) {
+		return new CanonicalCache(maximumSize);
+	}
+
+	/* PRIMITIVES */
+
+	/**
+	 * Returns an unmodifiable list of {@code int} values, with the same characteristics
+	 * as <a href="#unmodifiable">Unmodifiable Lists</a> but without boxing the elements.
+	 * @param elements the elements to be contained in the list
+	 * @return an {@code ImmutableIntList} containing the specified elements
+	 * @throws NullPointerException if the array is {@code null}
+	 */
+	public static ImmutableIntList intListOf(int... elements) {
+		return elements.length == 0 ? ImmutableIntList.EMPTY : new ImmutableIntList(elements.clone());
+	}
+
+	/**
+	 * Returns an unmodifiable set of {@code long} values, with the same characteristics
+	 * as <a href="#unmodifiableSets">Unmodifiable Sets</a> but without boxing the
+	 * elements.
+	 * @param elements the elements to be contained in the set
+	 * @return an {@code ImmutableLongSet} containing the specified elements
+	 * @throws IllegalArgumentException if there are any duplicate elements
+	 * @throws NullPointerException if the array is {@code null}
+	 */
+	public static ImmutableLongSet longSetOf(long... elements) {
+		return ImmutableLongSet.of(elements);
+	}
+
+	/**
+	 * Returns an unmodifiable map from {@code int} keys to {@code int} values, with the
+	 * same characteristics as <a href="#unmodifiableMaps">Unmodifiable Maps</a> but
+	 * without boxing keys or values. The key at each position of {@code keys} is mapped
+	 * to the value at the same position of {@code values}.
+	 * @param keys the keys to be contained in the map
+	 * @param values the values to be contained in the map
+	 * @return an {@code ImmutableIntIntMap} containing the specified mappings
+	 * @throws IllegalArgumentException if there are any duplicate keys or the arrays have
+	 * different lengths
+	 * @throws NullPointerException if any array is {@code null}
+	 */
+	public static ImmutableIntIntMap intIntMapOf(int[] keys, int[] values) {
+		return ImmutableIntIntMap.of(keys, values);
+	}
+
+	/**
+	 * Returns an unmodifiable map from {@code long} keys to object values, with the same
+	 * characteristics as <a href="#unmodifiableMaps">Unmodifiable Maps</a> but without
+	 * boxing the keys. The key at each position of {@code keys} is mapped to the value at
+	 * the same position of {@code values}.
+	 * @param <V> the map's value type
+	 * @param keys the keys to be contained in the map
+	 * @param values the values to be contained in the map
+	 * @return an {@code ImmutableLongObjectMap} containing the specified mappings
+	 * @throws IllegalArgumentException if there are any duplicate keys or the arrays have
+	 * different lengths
+	 * @throws NullPointerException if any array or value is {@code null}
+	 */
+	public static <V> ImmutableLongObjectMap<V> longObjectMapOf(long[] keys, V[] values) {
+		return ImmutableLongObjectMap.of(keys, values);
+	}
+
+	/**
+	 * Builds a map from alternating keys and values, like the ones passed to the fixed
+	 * arity {@code mapOf} methods.
+	 */
+	@SuppressWarnings("unchecked")
+	static <K, V> Map<K, V> mapFromKeysAndValues(Object... input) {
+		if (input.length == 0) {
+			return mapOf();
+		}
+		else if (input.length == 2) {
+			return new ImmutableCollections.Map1<>((K) input[0], (V) input[1]);
+		}
+		Object[] table = new Object[ImmutableCollections.EXPAND_FACTOR * input.length];
+		boolean bounded = true;
+		for (int i = 0; i < input.length; i += 2) {
+			Object key = Objects.requireNonNull(input[i]);
+			Object value = Objects.requireNonNull(input[i + 1]);
+			if (!addCheckingRepeatedKey(table, key, value, bounded)) {
+				Map<K, V> ordered = HashOrderedTables.mapOf(input, input.length >> 1, null);
+				if (ordered != null) {
+					return ordered;
+				}
+				bounded = false;
+				addCheckingRepeatedKey(table, key, value, false);
+			}
+		}
+		return ImmutableCollections.MapN.of(table, input.length >> 1);
+	}
+
+	/**
+	 * Adds the mapping to an interleaved probe table, looking for a repeated key in the
+	 * same probe.
+	 * @param bounded whether to give up on a probe longer than
+	 * {@link ImmutableCollections#MAX_PROBE}
+	 * @return {@code false} if it gave up, leaving the table as it was
+	 */
+	private static boolean addCheckingRepeatedKey(Object[] table, Object key, Object value, boolean bounded) {
+		int idx = bounded ? ImmutableCollections.MapN.probeShort(table, key)
+				: ImmutableCollections.MapN.probe(table, key);
+		if (idx == ImmutableCollections.LONG_PROBE) {
+			return false;
+		}
+		if (idx >= 0) {
 			throw new IllegalArgumentException("duplicated key:" + key);
 		}
-		map.put(key, value);
+		idx = -(idx + 1);
+		table[idx] = key;
+		table[idx + 1] = value;
+		return true;
 	}
 
 }
@@ -0,0 +1,173 @@
+package org.pgris.new4java8;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+
+/**
+ * Fills the probe tables of {@link ImmutableCollections.SetN} and
+ * {@link ImmutableCollections.MapN} on every thread of the common {@code ForkJoinPool},
+ * for {@link New#parallelSetOf(Object...) New.parallelSetOf} and
+ * {@link New#parallelMapOfEntries(Map.Entry...) New.parallelMapOfEntries}.
+ *
+ * <p>
+ * The table is split in as many contiguous regions as tasks. Each task first hashes a
+ * chunk of the input, then the items are grouped by the region of their home slot with a
+ * counting sort, and each task inserts the items of one region probing only inside it, so
+ * tasks never touch the same slots. Equal items share their home slot, so duplicates meet
+ * in the same region. Items whose probe runs past the end of their region are inserted
+ * afterwards, one at a time, probing the whole table. The result is a probe table no
+ * different from one filled sequentially.
+ *
+ * <p>
+ * A probe longer than {@link ImmutableCollections#MAX_PROBE} stops the fill, as the
+ * sequential factories then sort the items instead of probing them.
+ */
+final class ParallelTables {
+
+	/**
+	 * Below this number of items, filling the table on a single thread is faster.
+	 */
+	static final int THRESHOLD = 1 << 14;
+
+	private static final int MIN_ITEMS_PER_TASK = 1 << 12;
+
+	/**
+	 * Never create an instance
+	 */
+	private ParallelTables() {
+		// do not instantiate
+	}
+
+	/**
+	 * @param items elements of a set, or keys each followed by its value for a map
+	 * @param width {@code 1} for a set, {@code 2} for a map
+	 * @return a probe table with {@link ImmutableCollections#EXPAND_FACTOR} slots per
+	 * item, or {@code null} if any item is {@code null} or repeated, or some probe is too
+	 * long, so the caller can build it sequentially and throw the same exception as the
+	 * sequential factories
+	 */
+	static Object[] fill(Object[] items, int width) {
+		int n = items.length / width;
+		Object[] table = new Object[ImmutableCollections.EXPAND_FACTOR * items.length];
+		int slots = table.length / width;
+		int tasks = Math.max(1, Math.min(n / MIN_ITEMS_PER_TASK, 4 * ForkJoinPool.getCommonPoolParallelism()));
+		AtomicBoolean invalid = new AtomicBoolean();
+
+		// hash each chunk, counting its items per region
+		int[] homes = new int[n];
+		int[][] counts = new int[tasks][tasks];
+		IntStream.range(0, tasks).parallel().forEach(t -> {
+			int[] count = counts[t];
+			for (int i = bound(t, n, tasks), end = bound(t + 1, n, tasks); i < end; i++) {
+				Object key = items[width * i];
+				if (key == null || width == 2 && items[2 * i + 1] == null) {
+					invalid.set(true);
+					return;
+				}
+				// the same home slot SetN.probe and MapN.probe start from
+				int home = ImmutableCollections.slot(key, slots);
+				homes[i] = home;
+				count[region(home, slots, tasks)]++;
+			}
+		});
+		if (invalid.get()) {
+			return null;
+		}
+
+		// turn counts into offsets: regions in order, and chunks in order inside each one
+		int[] regionStarts = new int[tasks + 1];
+		for (int r = 0, offset = 0; r < tasks; r++) {
+			regionStarts[r] = offset;
+			for (int t = 0; t < tasks; t++) {
+				int count = counts[t][r];
+				counts[t][r] = offset;
+				offset += count;
+			}
+		}
+		regionStarts[tasks] = n;
+		int[] order = new int[n];
+		IntStream.range(0, tasks).parallel().forEach(t -> {
+			int[] next = counts[t];
+			for (int i = bound(t, n, tasks), end = bound(t + 1, n, tasks); i < end; i++) {
+				order[next[region(homes[i], slots, tasks)]++] = i;
+			}
+		});
+
+		// fill each region, leaving out the items that don't fit in it
+		int[][] overflows = new int[tasks][];
+		IntStream.range(0, tasks).parallel().forEach(r -> {
+			int limit = bound(r + 1, slots, tasks);
+			int[] overflow = new int[8];
+			int overflowed = 0;
+			for (int j = regionStarts[r]; j < regionStarts[r + 1]; j++) {
+				int i = order[j];
+				Object key = items[width * i];
+				for (int idx = homes[i];; idx++) {
+					if (idx - homes[i] > ImmutableCollections.MAX_PROBE) {
+						invalid.set(true);
+						return;
+					}
+					if (idx == limit) {
+						if (overflowed == overflow.length) {
+							overflow = Arrays.copyOf(overflow, 2 * overflowed);
+						}
+						overflow[overflowed++] = i;
+						break;
+					}
+					Object k = table[width * idx];
+					if (k == null) {
+						table[width * idx] = key;
+						if (width == 2) {
+							table[2 * idx + 1] = items[2 * i + 1];
+						}
+						break;
+					}
+					if (key.equals(k)) {
+						invalid.set(true);
+						return;
+					}
+				}
+			}
+			overflows[r] = Arrays.copyOf(overflow, overflowed);
+		});
+		if (invalid.get()) {
+			return null;
+		}
+
+		for (int[] overflow : overflows) {
+			for (int i : overflow) {
+				Object key = items[width * i];
+				int idx = width == 1 ? ImmutableCollections.SetN.probeShort(table, key)
+						: ImmutableCollections.MapN.probeShort(table, key);
+				if (idx >= 0 || idx == ImmutableCollections.LONG_PROBE) {
+					return null;
+				}
+				idx = -(idx + 1);
+				table[idx] = key;
+				if (width == 2) {
+					table[idx + 1] = items[2 * i + 1];
+				}
+			}
+		}
+		return table;
+	}
+
+	/**
+	 * @return the first of {@code length} indexes that belongs to part {@code part} of
+	 * {@code parts} equal parts, or {@code length} past the last one
+	 */
+	private static int bound(int part, int length, int parts) {
+		return (int) (((long) part * length + parts - 1) / parts);
+	}
+
+	/**
+	 * @return the part of {@code parts} equal parts of {@code length} indexes that
+	 * {@code index} belongs to, consistent with {@link #bound}
+	 */
+	private static int region(int index, int length, int parts) {
+		return (int) ((long) index * parts / length);
+	}
+
+}
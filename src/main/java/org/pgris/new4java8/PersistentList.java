@@ -0,0 +1,309 @@
+package org.pgris.new4java8;
+
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Unmodifiable list with cheap modified copies: {@link #append(Object)},
+ * {@link #with(int, Object)} and {@link #removeLast()} return a new list sharing all but
+ * {@code O(log32 n)} nodes with this one, which is left untouched. Created with
+ * {@link New#persistentListOf(Object...) New.persistentListOf} and
+ * {@link New#persistentListCopyOf(Collection) New.persistentListCopyOf}.
+ *
+ * <p>
+ * Elements are kept in a tree of 32 element arrays, where each level takes 5 bits of the
+ * index, plus a tail array with the last 1 to 32 elements, so appending only walks the
+ * tree once every 32 elements.
+ *
+ * <p>
+ * Apart from the copy methods, it has the same characteristics as the lists created by
+ * {@link New#listOf(Object...) New.listOf}.
+ *
+ * @param <E> the type of elements
+ */
+public final class PersistentList<E> extends ImmutableCollections.AbstractImmutableList<E> implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final int BITS = 5;
+
+	private static final int WIDTH = 1 << BITS;
+
+	private static final int MASK = WIDTH - 1;
+
+	private static final Object[] EMPTY_NODE = new Object[WIDTH];
+
+	static final PersistentList<?> EMPTY = new PersistentList<>(0, BITS, EMPTY_NODE, new Object[0]);
+
+	private final int size;
+
+	/**
+	 * Bits of the index used by the levels above the leaves
+	 */
+	private final int shift;
+
+	private final Object[] root;
+
+	private final Object[] tail;
+
+	private int hash;
+
+	private PersistentList(int size, int shift, Object[] root, Object[] tail) {
+		this.size = size;
+		this.shift = shift;
+		this.root = root;
+		this.tail = tail;
+	}
+
+	/**
+	 * Returns a list with the given element added at the end.
+	 * @param e element to be appended
+	 * @return a list with one more element
+	 * @throws NullPointerException if the element is {@code null}
+	 */
+	public PersistentList<E> append(E e) {
+		Objects.requireNonNull(e);
+		if (tail.length < WIDTH) {
+			Object[] newTail = Arrays.copyOf(tail, tail.length + 1);
+			newTail[tail.length] = e;
+			return new PersistentList<>(size + 1, shift, root, newTail);
+		}
+		return withFullTail(new Object[] { e });
+	}
+
+	/**
+	 * Returns a list with the element at the given position replaced.
+	 * @param index index of the element to replace
+	 * @param e element to be stored at the specified position
+	 * @return a list with the element replaced, or this list if it was already there
+	 * @throws IndexOutOfBoundsException if the index is out of range
+	 * @throws NullPointerException if the element is {@code null}
+	 */
+	public PersistentList<E> with(int index, E e) {
+		ImmutableCollections.checkIndex(index, size);
+		Objects.requireNonNull(e);
+		if (e.equals(get(index))) {
+			return this;
+		}
+		if (index >= tailOffset()) {
+			Object[] newTail = tail.clone();
+			newTail[index & MASK] = e;
+			return new PersistentList<>(size, shift, root, newTail);
+		}
+		return new PersistentList<>(size, shift, with(shift, root, index, e), tail);
+	}
+
+	private static Object[] with(int level, Object[] node, int index, Object e) {
+		Object[] copy = node.clone();
+		if (level == 0) {
+			copy[index & MASK] = e;
+		}
+		else {
+			int sub = (index >>> level) & MASK;
+			copy[sub] = with(level - BITS, (Object[]) node[sub], index, e);
+		}
+		return copy;
+	}
+
+	/**
+	 * Returns a list without its last element.
+	 * @return a list with one less element
+	 * @throws NoSuchElementException if this list is empty
+	 */
+	@SuppressWarnings("unchecked")
+	public PersistentList<E> removeLast() {
+		if (size == 0) {
+			throw new NoSuchElementException();
+		}
+		if (size == 1) {
+			return (PersistentList<E>) EMPTY;
+		}
+		if (tail.length > 1) {
+			return new PersistentList<>(size - 1, shift, root, Arrays.copyOf(tail, tail.length - 1));
+		}
+		// the last leaf of the tree becomes the tail
+		Object[] newTail = leafFor(size - 2);
+		Object[] newRoot = popLeaf(shift, root);
+		int newShift = shift;
+		if (newRoot == null) {
+			newRoot = EMPTY_NODE;
+		}
+		else if (shift > BITS && newRoot[1] == null) {
+			newRoot = (Object[]) newRoot[0];
+			newShift -= BITS;
+		}
+		return new PersistentList<>(size - 1, newShift, newRoot, newTail);
+	}
+
+	/**
+	 * @return a copy of the node without the rightmost leaf, or {@code null} if it was
+	 * its only leaf
+	 */
+	private Object[] popLeaf(int level, Object[] node) {
+		int sub = ((size - 2) >>> level) & MASK;
+		if (level > BITS) {
+			Object[] child = popLeaf(level - BITS, (Object[]) node[sub]);
+			if (child == null && sub == 0) {
+				return null;
+			}
+			Object[] copy = node.clone();
+			copy[sub] = child;
+			return copy;
+		}
+		if (sub == 0) {
+			return null;
+		}
+		Object[] copy = node.clone();
+		copy[sub] = null;
+		return copy;
+	}
+
+	/**
+	 * @return a list with the current tail, which must be full, moved into the tree
+	 */
+	private PersistentList<E> withFullTail(Object[] newTail) {
+		Object[] newRoot;
+		int newShift = shift;
+		if ((size >>> BITS) > (1 << shift)) {
+			// the tree is full, so it grows one level
+			newRoot = new Object[WIDTH];
+			newRoot[0] = root;
+			newRoot[1] = newPath(shift, tail);
+			newShift += BITS;
+		}
+		else {
+			newRoot = pushLeaf(shift, root, tail);
+		}
+		return new PersistentList<>(size + newTail.length, newShift, newRoot, newTail);
+	}
+
+	private Object[] pushLeaf(int level, Object[] node, Object[] leaf) {
+		int sub = ((size - 1) >>> level) & MASK;
+		Object[] copy = node.clone();
+		if (level == BITS) {
+			copy[sub] = leaf;
+		}
+		else {
+			Object[] child = (Object[]) node[sub];
+			copy[sub] = child != null ? pushLeaf(level - BITS, child, leaf) : newPath(level - BITS, leaf);
+		}
+		return copy;
+	}
+
+	private static Object[] newPath(int level, Object[] leaf) {
+		if (level == 0) {
+			return leaf;
+		}
+		Object[] node = new Object[WIDTH];
+		node[0] = newPath(level - BITS, leaf);
+		return node;
+	}
+
+	private int tailOffset() {
+		return size - tail.length;
+	}
+
+	/**
+	 * @return the array holding the element at the index
+	 */
+	private Object[] leafFor(int index) {
+		if (index >= tailOffset()) {
+			return tail;
+		}
+		Object[] node = root;
+		for (int level = shift; level > 0; level -= BITS) {
+			node = (Object[]) node[(index >>> level) & MASK];
+		}
+		return node;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public E get(int index) {
+		ImmutableCollections.checkIndex(index, size);
+		return (E) leafFor(index)[index & MASK];
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public void forEach(Consumer<? super E> action) {
+		Objects.requireNonNull(action);
+		for (int i = 0; i < size; i += WIDTH) {
+			// a leaf at a time, instead of walking the tree for every element
+			Object[] leaf = leafFor(i);
+			for (int j = 0, n = Math.min(WIDTH, size - i); j < n; j++) {
+				action.accept((E) leaf[j]);
+			}
+		}
+	}
+
+	@Override
+	public Object[] toArray() {
+		Object[] array = new Object[size];
+		for (int i = 0; i < size; i += WIDTH) {
+			System.arraycopy(leafFor(i), 0, array, i, Math.min(WIDTH, size - i));
+		}
+		return array;
+	}
+
+	@Override
+	public int hashCode() {
+		int h = hash;
+		if (h == 0) {
+			hash = h = super.hashCode();
+		}
+		return h;
+	}
+
+	@Override
+	int cachedHash() {
+		return hash;
+	}
+
+	private void readObject(ObjectInputStream in) throws InvalidObjectException {
+		throw new InvalidObjectException("not serial proxy");
+	}
+
+	private Object writeReplace() {
+		return new ImmutableCollections.CollSer(ImmutableCollections.CollSer.IMM_PERSISTENT_LIST, toArray());
+	}
+
+	/**
+	 * @param elements not modified
+	 * @throws NullPointerException if any element is {@code null}
+	 */
+	@SuppressWarnings("unchecked")
+	static <E> PersistentList<E> of(Object[] elements) {
+		PersistentList<E> list = (PersistentList<E>) EMPTY;
+		if (elements.length == 0) {
+			return list;
+		}
+		for (Object e : elements) {
+			Objects.requireNonNull(e);
+		}
+		// whole leaves at a time, the last one stays as the tail
+		list = new PersistentList<>(Math.min(WIDTH, elements.length), BITS, EMPTY_NODE,
+				Arrays.copyOf(elements, Math.min(WIDTH, elements.length)));
+		for (int i = WIDTH; i < elements.length; i += WIDTH) {
+			list = list.withFullTail(Arrays.copyOfRange(elements, i, Math.min(i + WIDTH, elements.length)));
+		}
+		return list;
+	}
+
+}
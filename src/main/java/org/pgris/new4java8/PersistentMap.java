@@ -0,0 +1,608 @@
+package org.pgris.new4java8;
+
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.util.AbstractMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Unmodifiable map with cheap modified copies: {@link #plus(Object, Object)} and
+ * {@link #minus(Object)} return a new map sharing all but {@code O(log32 n)} nodes with
+ * this one, which is left untouched. Created with {@link New#persistentMapOf()
+ * New.persistentMapOf} and {@link New#persistentMapCopyOf(Map) New.persistentMapCopyOf}.
+ *
+ * <p>
+ * Mappings are kept in a hash array mapped trie: each level takes 5 bits of the key's
+ * hash code to pick one of up to 32 slots, and each node keeps its own mappings first and
+ * its child nodes after them in a single compact array, indexed by the population count
+ * of two bitmaps. Keys with the same hash code end up together in a collision node below
+ * the last level.
+ *
+ * <p>
+ * Apart from the copy methods, it has the same characteristics as the maps created by
+ * {@link New#mapOfEntries(Map.Entry...) New.mapOfEntries}.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of mapped values
+ */
+public final class PersistentMap<K, V> extends ImmutableCollections.AbstractImmutableMap<K, V> {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final int BITS = 5;
+
+	private static final int MASK = (1 << BITS) - 1;
+
+	/**
+	 * Levels of bitmap nodes needed to consume the 32 bits of a hash code, plus the
+	 * collision level
+	 */
+	private static final int MAX_DEPTH = (Integer.SIZE + BITS - 1) / BITS + 1;
+
+	static final PersistentMap<?, ?> EMPTY = new PersistentMap<>(BitmapNode.EMPTY, 0);
+
+	private final Node root;
+
+	private final int size;
+
+	private int hash;
+
+	private PersistentMap(Node root, int size) {
+		this.root = root;
+		this.size = size;
+	}
+
+	/**
+	 * Returns a map with the given mapping added, or replacing the current mapping for
+	 * the key.
+	 * @param key key with which the specified value is to be associated
+	 * @param value value to be associated with the specified key
+	 * @return a map with the mapping, or this map if it already had it
+	 * @throws NullPointerException if the key or the value is {@code null}
+	 */
+	public PersistentMap<K, V> plus(K key, V value) {
+		Objects.requireNonNull(value);
+		SizeChange change = new SizeChange();
+		Node newRoot = root.put(key, value, hash(key), 0, change);
+		return newRoot == root ? this : new PersistentMap<>(newRoot, size + change.delta);
+	}
+
+	/**
+	 * Returns a map without the mapping for the given key.
+	 * @param key key whose mapping is to be removed
+	 * @return a map without the mapping, or this map if it had no mapping for the key
+	 * @throws NullPointerException if the key is {@code null}
+	 */
+	public PersistentMap<K, V> minus(Object key) {
+		SizeChange change = new SizeChange();
+		Node newRoot = root.remove(key, hash(key), 0, change);
+		return newRoot == root ? this : new PersistentMap<>(newRoot, size + change.delta);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public V get(Object key) {
+		return (V) root.find(key, hash(key), 0);
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return get(key) != null;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	public void forEach(BiConsumer<? super K, ? super V> action) {
+		Objects.requireNonNull(action);
+		root.forEach(action);
+	}
+
+	@Override
+	public Set<Map.Entry<K, V>> entrySet() {
+		return new ImmutableCollections.AbstractImmutableSet<Map.Entry<K, V>>() {
+			@Override
+			public int size() {
+				return size;
+			}
+
+			@Override
+			public boolean contains(Object o) {
+				if (!(o instanceof Map.Entry)) {
+					return false;
+				}
+				Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+				Object v = e.getKey() != null ? get(e.getKey()) : null;
+				return v != null && v.equals(e.getValue());
+			}
+
+			@Override
+			public int hashCode() {
+				return PersistentMap.this.hashCode();
+			}
+
+			@Override
+			public Iterator<Map.Entry<K, V>> iterator() {
+				return new TrieIterator<Map.Entry<K, V>>(root) {
+					@SuppressWarnings("unchecked")
+					@Override
+					Map.Entry<K, V> element(Node node, int i) {
+						return new AbstractMap.SimpleImmutableEntry<>((K) node.keyAt(i), (V) node.valueAt(i));
+					}
+				};
+			}
+		};
+	}
+
+	/**
+	 * @return the keys of this map, without wrapping them in entries
+	 */
+	Iterator<K> keyIterator() {
+		return new TrieIterator<K>(root) {
+			@SuppressWarnings("unchecked")
+			@Override
+			K element(Node node, int i) {
+				return (K) node.keyAt(i);
+			}
+		};
+	}
+
+	@Override
+	public int hashCode() {
+		int h = hash;
+		if (h == 0) {
+			int[] sum = new int[1];
+			root.forEach((k, v) -> sum[0] += k.hashCode() ^ v.hashCode());
+			hash = h = sum[0];
+		}
+		return h;
+	}
+
+	@Override
+	int cachedHash() {
+		return hash;
+	}
+
+	private void readObject(ObjectInputStream in) throws InvalidObjectException {
+		throw new InvalidObjectException("not serial proxy");
+	}
+
+	private Object writeReplace() {
+		Object[] array = new Object[2 * size];
+		int[] i = new int[1];
+		root.forEach((k, v) -> {
+			array[i[0]++] = k;
+			array[i[0]++] = v;
+		});
+		return new ImmutableCollections.CollSer(ImmutableCollections.CollSer.IMM_PERSISTENT_MAP, array);
+	}
+
+	/**
+	 * @param keysAndValues each key followed by its value
+	 * @throws IllegalArgumentException if there are any duplicate keys
+	 * @throws NullPointerException if any key or value is {@code null}
+	 */
+	@SuppressWarnings("unchecked")
+	static <K, V> PersistentMap<K, V> fromKeysAndValues(Object[] keysAndValues) {
+		PersistentMap<K, V> map = (PersistentMap<K, V>) EMPTY;
+		for (int i = 0; i < keysAndValues.length; i += 2) {
+			K key = (K) keysAndValues[i];
+			int before = map.size;
+			map = map.plus(key, (V) keysAndValues[i + 1]);
+			if (map.size == before) {
+				throw new IllegalArgumentException("duplicated key:" + key);
+			}
+		}
+		return map;
+	}
+
+	private static int hash(Object key) {
+		return key.hashCode();
+	}
+
+	private static int bitpos(int hash, int shift) {
+		return 1 << ((hash >>> shift) & MASK);
+	}
+
+	private static int index(int bitmap, int bit) {
+		return Integer.bitCount(bitmap & (bit - 1));
+	}
+
+	/**
+	 * How many mappings an update added or removed
+	 */
+	private static final class SizeChange {
+
+		int delta;
+
+	}
+
+	private abstract static class Node {
+
+		/**
+		 * @return the value mapped to the key, or {@code null}
+		 */
+		abstract Object find(Object key, int hash, int shift);
+
+		/**
+		 * @return a node with the mapping, or this node if it already had it
+		 */
+		abstract Node put(Object key, Object value, int hash, int shift, SizeChange change);
+
+		/**
+		 * @return a node without the key, or this node if it didn't have it
+		 */
+		abstract Node remove(Object key, int hash, int shift, SizeChange change);
+
+		abstract int dataCount();
+
+		abstract Object keyAt(int i);
+
+		abstract Object valueAt(int i);
+
+		abstract int nodeCount();
+
+		abstract Node nodeAt(int i);
+
+		@SuppressWarnings("unchecked")
+		final <K, V> void forEach(BiConsumer<? super K, ? super V> action) {
+			for (int i = 0, n = dataCount(); i < n; i++) {
+				action.accept((K) keyAt(i), (V) valueAt(i));
+			}
+			for (int i = 0, n = nodeCount(); i < n; i++) {
+				nodeAt(i).forEach(action);
+			}
+		}
+
+		/**
+		 * @return whether the parent node should keep the only mapping of this node
+		 * itself
+		 */
+		final boolean hasSingleMapping() {
+			return dataCount() == 1 && nodeCount() == 0;
+		}
+
+	}
+
+	/**
+	 * Node for one level of the trie. {@code content} has the key and value of each
+	 * mapping in {@code dataMap}, followed by the child node for each bit in
+	 * {@code nodeMap}.
+	 */
+	private static final class BitmapNode extends Node {
+
+		static final BitmapNode EMPTY = new BitmapNode(0, 0, new Object[0]);
+
+		private final int dataMap;
+
+		private final int nodeMap;
+
+		private final Object[] content;
+
+		BitmapNode(int dataMap, int nodeMap, Object[] content) {
+			this.dataMap = dataMap;
+			this.nodeMap = nodeMap;
+			this.content = content;
+		}
+
+		@Override
+		Object find(Object key, int hash, int shift) {
+			int bit = bitpos(hash, shift);
+			if ((dataMap & bit) != 0) {
+				int i = 2 * index(dataMap, bit);
+				return key.equals(content[i]) ? content[i + 1] : null;
+			}
+			if ((nodeMap & bit) != 0) {
+				return nodeAt(index(nodeMap, bit)).find(key, hash, shift + BITS);
+			}
+			return null;
+		}
+
+		@Override
+		Node put(Object key, Object value, int hash, int shift, SizeChange change) {
+			int bit = bitpos(hash, shift);
+			if ((dataMap & bit) != 0) {
+				int i = index(dataMap, bit);
+				Object k = content[2 * i];
+				Object v = content[2 * i + 1];
+				if (key.equals(k)) {
+					if (value.equals(v)) {
+						return this;
+					}
+					Object[] c = content.clone();
+					c[2 * i + 1] = value;
+					return new BitmapNode(dataMap, nodeMap, c);
+				}
+				change.delta = 1;
+				Node sub = merge(k, v, PersistentMap.hash(k), key, value, hash, shift + BITS);
+				return dataToNode(bit, i, sub);
+			}
+			if ((nodeMap & bit) != 0) {
+				int j = index(nodeMap, bit);
+				Node child = nodeAt(j);
+				Node newChild = child.put(key, value, hash, shift + BITS, change);
+				return newChild == child ? this : withNode(j, newChild);
+			}
+			change.delta = 1;
+			int i = 2 * index(dataMap, bit);
+			Object[] c = new Object[content.length + 2];
+			System.arraycopy(content, 0, c, 0, i);
+			c[i] = key;
+			c[i + 1] = value;
+			System.arraycopy(content, i, c, i + 2, content.length - i);
+			return new BitmapNode(dataMap | bit, nodeMap, c);
+		}
+
+		@Override
+		Node remove(Object key, int hash, int shift, SizeChange change) {
+			int bit = bitpos(hash, shift);
+			if ((dataMap & bit) != 0) {
+				int i = 2 * index(dataMap, bit);
+				if (!key.equals(content[i])) {
+					return this;
+				}
+				change.delta = -1;
+				Object[] c = new Object[content.length - 2];
+				System.arraycopy(content, 0, c, 0, i);
+				System.arraycopy(content, i + 2, c, i, content.length - i - 2);
+				return new BitmapNode(dataMap ^ bit, nodeMap, c);
+			}
+			if ((nodeMap & bit) != 0) {
+				int j = index(nodeMap, bit);
+				Node child = nodeAt(j);
+				Node newChild = child.remove(key, hash, shift + BITS, change);
+				if (newChild == child) {
+					return this;
+				}
+				// children always hold two mappings or more, so a lone mapping moves up
+				return newChild.hasSingleMapping() ? nodeToData(bit, j, newChild.keyAt(0), newChild.valueAt(0))
+						: withNode(j, newChild);
+			}
+			return this;
+		}
+
+		private Node withNode(int j, Node node) {
+			Object[] c = content.clone();
+			c[content.length - nodeCount() + j] = node;
+			return new BitmapNode(dataMap, nodeMap, c);
+		}
+
+		/**
+		 * @return a copy of this node with the i-th mapping replaced by a child node
+		 */
+		private Node dataToNode(int bit, int i, Node node) {
+			int newNodeMap = nodeMap | bit;
+			int dataEnd = 2 * Integer.bitCount(dataMap);
+			int j = dataEnd - 2 + index(newNodeMap, bit);
+			Object[] c = new Object[content.length - 1];
+			System.arraycopy(content, 0, c, 0, 2 * i);
+			System.arraycopy(content, 2 * i + 2, c, 2 * i, j - 2 * i);
+			c[j] = node;
+			System.arraycopy(content, j + 2, c, j + 1, content.length - j - 2);
+			return new BitmapNode(dataMap ^ bit, newNodeMap, c);
+		}
+
+		/**
+		 * @return a copy of this node with the j-th child node replaced by a mapping
+		 */
+		private Node nodeToData(int bit, int j, Object key, Object value) {
+			int newDataMap = dataMap | bit;
+			int i = 2 * index(newDataMap, bit);
+			int nodeIndex = content.length - nodeCount() + j;
+			Object[] c = new Object[content.length + 1];
+			System.arraycopy(content, 0, c, 0, i);
+			c[i] = key;
+			c[i + 1] = value;
+			System.arraycopy(content, i, c, i + 2, nodeIndex - i);
+			System.arraycopy(content, nodeIndex + 1, c, nodeIndex + 2, content.length - nodeIndex - 1);
+			return new BitmapNode(newDataMap, nodeMap ^ bit, c);
+		}
+
+		@Override
+		int dataCount() {
+			return Integer.bitCount(dataMap);
+		}
+
+		@Override
+		Object keyAt(int i) {
+			return content[2 * i];
+		}
+
+		@Override
+		Object valueAt(int i) {
+			return content[2 * i + 1];
+		}
+
+		@Override
+		int nodeCount() {
+			return Integer.bitCount(nodeMap);
+		}
+
+		@Override
+		Node nodeAt(int i) {
+			return (Node) content[content.length - nodeCount() + i];
+		}
+
+	}
+
+	/**
+	 * Mappings whose keys have the same hash code, in insertion order
+	 */
+	private static final class CollisionNode extends Node {
+
+		private final Object[] content;
+
+		CollisionNode(Object[] content) {
+			this.content = content;
+		}
+
+		private int indexOf(Object key) {
+			for (int i = 0; i < content.length; i += 2) {
+				if (key.equals(content[i])) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		@Override
+		Object find(Object key, int hash, int shift) {
+			int i = indexOf(key);
+			return i >= 0 ? content[i + 1] : null;
+		}
+
+		@Override
+		Node put(Object key, Object value, int hash, int shift, SizeChange change) {
+			int i = indexOf(key);
+			if (i >= 0) {
+				if (value.equals(content[i + 1])) {
+					return this;
+				}
+				Object[] c = content.clone();
+				c[i + 1] = value;
+				return new CollisionNode(c);
+			}
+			change.delta = 1;
+			Object[] c = new Object[content.length + 2];
+			System.arraycopy(content, 0, c, 0, content.length);
+			c[content.length] = key;
+			c[content.length + 1] = value;
+			return new CollisionNode(c);
+		}
+
+		@Override
+		Node remove(Object key, int hash, int shift, SizeChange change) {
+			int i = indexOf(key);
+			if (i < 0) {
+				return this;
+			}
+			change.delta = -1;
+			Object[] c = new Object[content.length - 2];
+			System.arraycopy(content, 0, c, 0, i);
+			System.arraycopy(content, i + 2, c, i, content.length - i - 2);
+			return new CollisionNode(c);
+		}
+
+		@Override
+		int dataCount() {
+			return content.length / 2;
+		}
+
+		@Override
+		Object keyAt(int i) {
+			return content[2 * i];
+		}
+
+		@Override
+		Object valueAt(int i) {
+			return content[2 * i + 1];
+		}
+
+		@Override
+		int nodeCount() {
+			return 0;
+		}
+
+		@Override
+		Node nodeAt(int i) {
+			throw new IndexOutOfBoundsException("Index: " + i + " Size: 0");
+		}
+
+	}
+
+	/**
+	 * @return a node with both mappings, splitting on the hash bits at {@code shift}
+	 */
+	private static Node merge(Object k1, Object v1, int h1, Object k2, Object v2, int h2, int shift) {
+		if (shift >= Integer.SIZE) {
+			return new CollisionNode(new Object[] { k1, v1, k2, v2 });
+		}
+		int b1 = bitpos(h1, shift);
+		int b2 = bitpos(h2, shift);
+		if (b1 == b2) {
+			return new BitmapNode(0, b1, new Object[] { merge(k1, v1, h1, k2, v2, h2, shift + BITS) });
+		}
+		// mappings are kept in bit order, and the bit for 31 is negative
+		Object[] content = Integer.compareUnsigned(b1, b2) < 0 ? new Object[] { k1, v1, k2, v2 }
+				: new Object[] { k2, v2, k1, v1 };
+		return new BitmapNode(b1 | b2, 0, content);
+	}
+
+	/**
+	 * Depth first iterator over the mappings of a trie, keeping the path to the current
+	 * node in a fixed size stack.
+	 */
+	private abstract static class TrieIterator<T> implements Iterator<T> {
+
+		private final Node[] stack = new Node[MAX_DEPTH];
+
+		private final int[] nextChild = new int[MAX_DEPTH];
+
+		private int depth;
+
+		private Node node;
+
+		private int nextData;
+
+		TrieIterator(Node root) {
+			stack[0] = root;
+			node = root;
+		}
+
+		abstract T element(Node node, int i);
+
+		@Override
+		public boolean hasNext() {
+			while (nextData >= node.dataCount()) {
+				if (!descend()) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Moves to the next node with mappings in depth first order
+		 * @return {@code false} if there are no more nodes
+		 */
+		private boolean descend() {
+			while (depth >= 0) {
+				Node top = stack[depth];
+				if (nextChild[depth] < top.nodeCount()) {
+					Node child = top.nodeAt(nextChild[depth]++);
+					depth++;
+					stack[depth] = child;
+					nextChild[depth] = 0;
+					node = child;
+					nextData = 0;
+					return true;
+				}
+				depth--;
+			}
+			return false;
+		}
+
+		@Override
+		public T next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			return element(node, nextData++);
+		}
+
+	}
+
+}
@@ -0,0 +1,121 @@
+package org.pgris.new4java8;
+
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Iterator;
+
+/**
+ * Unmodifiable set with cheap modified copies: {@link #plus(Object)} and
+ * {@link #minus(Object)} return a new set sharing all but {@code O(log32 n)} nodes with
+ * this one, which is left untouched. Created with {@link New#persistentSetOf(Object...)
+ * New.persistentSetOf} and {@link New#persistentSetCopyOf(Collection)
+ * New.persistentSetCopyOf}.
+ *
+ * <p>
+ * Elements are the keys of a {@link PersistentMap}. Apart from the copy methods, it has
+ * the same characteristics as the sets created by {@link New#setOf(Object...) New.setOf}.
+ *
+ * @param <E> the type of elements
+ */
+public final class PersistentSet<E> extends ImmutableCollections.AbstractImmutableSet<E> implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	static final PersistentSet<?> EMPTY = new PersistentSet<>(PersistentMap.EMPTY);
+
+	private final PersistentMap<E, Boolean> map;
+
+	private int hash;
+
+	@SuppressWarnings("unchecked")
+	private PersistentSet(PersistentMap<?, ?> map) {
+		this.map = (PersistentMap<E, Boolean>) map;
+	}
+
+	/**
+	 * Returns a set with the given element added.
+	 * @param e element to be added
+	 * @return a set with the element, or this set if it already had it
+	 * @throws NullPointerException if the element is {@code null}
+	 */
+	public PersistentSet<E> plus(E e) {
+		PersistentMap<E, Boolean> newMap = map.plus(e, Boolean.TRUE);
+		return newMap == map ? this : new PersistentSet<>(newMap);
+	}
+
+	/**
+	 * Returns a set without the given element.
+	 * @param o element to be removed
+	 * @return a set without the element, or this set if it didn't have it
+	 * @throws NullPointerException if the element is {@code null}
+	 */
+	public PersistentSet<E> minus(Object o) {
+		PersistentMap<E, Boolean> newMap = map.minus(o);
+		return newMap == map ? this : new PersistentSet<>(newMap);
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		return map.containsKey(o);
+	}
+
+	@Override
+	public int size() {
+		return map.size();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return map.isEmpty();
+	}
+
+	@Override
+	public Iterator<E> iterator() {
+		return map.keyIterator();
+	}
+
+	@Override
+	public int hashCode() {
+		int h = hash;
+		if (h == 0) {
+			for (E e : this) {
+				h += e.hashCode();
+			}
+			hash = h;
+		}
+		return h;
+	}
+
+	@Override
+	int cachedHash() {
+		return hash;
+	}
+
+	private void readObject(ObjectInputStream in) throws InvalidObjectException {
+		throw new InvalidObjectException("not serial proxy");
+	}
+
+	private Object writeReplace() {
+		return new ImmutableCollections.CollSer(ImmutableCollections.CollSer.IMM_PERSISTENT_SET, toArray());
+	}
+
+	/**
+	 * @throws IllegalArgumentException if there are any duplicate elements
+	 * @throws NullPointerException if any element is {@code null}
+	 */
+	@SuppressWarnings("unchecked")
+	static <E> PersistentSet<E> of(Object[] elements) {
+		PersistentSet<E> set = (PersistentSet<E>) EMPTY;
+		for (Object o : elements) {
+			PersistentSet<E> next = set.plus((E) o);
+			if (next == set) {
+				throw new IllegalArgumentException("duplicate element: " + o);
+			}
+			set = next;
+		}
+		return set;
+	}
+
+}
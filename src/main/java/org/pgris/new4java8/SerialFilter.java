@@ -0,0 +1,29 @@
+package org.pgris.new4java8;
+
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+
+/**
+ * Checks the arrays a serialization proxy is about to read against the serialization
+ * filter of the stream, as the JDK does for the arrays it reads itself. This is the Java
+ * 8 version, where streams have no filter to check: the multi-release jar has another
+ * version in {@code META-INF/versions/9}, compiled from {@code src/main/java9}, which
+ * Java 9 and later load instead.
+ */
+final class SerialFilter {
+
+	private SerialFilter() {
+		// do not instantiate
+	}
+
+	/**
+	 * @param in the stream the array is read from
+	 * @param type the class of the array
+	 * @param length the length of the array, as read from the stream
+	 * @throws InvalidClassException if the filter of the stream rejects the array
+	 */
+	static void checkArray(ObjectInputStream in, Class<?> type, int length) throws InvalidClassException {
+		// nothing to check
+	}
+
+}
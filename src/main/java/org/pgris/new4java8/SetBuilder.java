@@ -0,0 +1,133 @@
+package org.pgris.new4java8;
+
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Builder for large <a href="New.html#unmodifiableSets">unmodifiable sets</a>, created
+ * with {@link New#setBuilder(int) New.setBuilder}. Elements are probed straight into the
+ * table of the final set, so duplicates are detected as they are added and
+ * {@link #build()} hands the table over without copying it. If a probe gets longer than
+ * {@link ImmutableCollections#MAX_PROBE}, as with crafted hash codes, and the elements
+ * can be ordered, they are kept sorted in a tree instead.
+ *
+ * <p>
+ * A builder can only be built once, and is not thread safe.
+ *
+ * @param <E> the {@code Set}'s element type
+ */
+public final class SetBuilder<E> {
+
+	private Object[] table;
+
+	/**
+	 * Not {@code null} instead of the table once a probe got too long
+	 */
+	private HashOrderedTables.Tree tree;
+
+	/**
+	 * Whether a probe that gets too long moves the elements to a tree, until they
+	 * couldn't be
+	 */
+	private boolean bounded = true;
+
+	private int size;
+
+	SetBuilder(int expectedSize) {
+		if (expectedSize < 0) {
+			throw new IllegalArgumentException("expectedSize: " + expectedSize);
+		}
+		table = new Object[ImmutableCollections.EXPAND_FACTOR * Math.max(expectedSize, 1)];
+	}
+
+	/**
+	 * Adds an element to the set being built. If more elements than the expected size are
+	 * added the table is rehashed, as it would be in a {@code HashSet}.
+	 * @param element the element to add
+	 * @return this builder
+	 * @throws NullPointerException if the element is {@code null}
+	 * @throws IllegalArgumentException if the element was already added
+	 * @throws IllegalStateException if the set was already built
+	 */
+	public SetBuilder<E> add(E element) {
+		Objects.requireNonNull(element);
+		checkNotBuilt();
+		if (tree != null) {
+			int put = tree.put(element, element);
+			if (put == HashOrderedTables.Tree.REPEATED) {
+				throw new IllegalArgumentException("duplicate element: " + element);
+			}
+			else if (put == HashOrderedTables.Tree.ADDED) {
+				size++;
+				return this;
+			}
+			table = tree.table(1, ImmutableCollections.EXPAND_FACTOR * 2 * (size + 1));
+			tree = null;
+			bounded = false;
+		}
+		Object[] t = table;
+		if ((size + 1) * ImmutableCollections.EXPAND_FACTOR > t.length) {
+			t = table = rehash(t);
+		}
+		int idx = bounded ? ImmutableCollections.SetN.probeShort(t, element)
+				: ImmutableCollections.SetN.probe(t, element);
+		if (idx == ImmutableCollections.LONG_PROBE) {
+			tree = HashOrderedTables.Tree.of(t, 1);
+			if (tree != null) {
+				table = null;
+				return add(element);
+			}
+			bounded = false;
+			idx = ImmutableCollections.SetN.probe(t, element);
+		}
+		if (idx >= 0) {
+			throw new IllegalArgumentException("duplicate element: " + element);
+		}
+		t[-(idx + 1)] = element;
+		size++;
+		return this;
+	}
+
+	/**
+	 * @return the number of elements added so far
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the set, which takes ownership of the table built so far. This builder
+	 * can't be used afterwards.
+	 * @return an unmodifiable {@code Set} with all the added elements
+	 * @throws IllegalStateException if the set was already built
+	 */
+	@SuppressWarnings("unchecked")
+	public Set<E> build() {
+		checkNotBuilt();
+		if (tree != null) {
+			Object[] sorted = tree.sorted(1);
+			tree = null;
+			return new ImmutableCollections.SetHashOrdered<>(sorted);
+		}
+		Object[] t = table;
+		table = null;
+		return size == 0 ? (Set<E>) ImmutableCollections.SetN.EMPTY_SET : ImmutableCollections.SetN.of(t, size);
+	}
+
+	private void checkNotBuilt() {
+		if (table == null && tree == null) {
+			throw new IllegalStateException("already built");
+		}
+	}
+
+	private static Object[] rehash(Object[] table) {
+		Object[] bigger = new Object[table.length * 2];
+		for (Object e : table) {
+			if (e != null) {
+				bigger[-(ImmutableCollections.SetN.probe(bigger, e) + 1)] = e;
+			}
+		}
+		return bigger;
+	}
+
+}
@@ -0,0 +1,222 @@
+package org.pgris.new4java8;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The implementations behind the {@code listOf}, {@code setOf} and {@code mapOf}
+ * factories of {@link New}, the Java 9 version: the JDK's own unmodifiable collections,
+ * with the same characteristics as the ones this library builds on Java 8, but with the
+ * compact layouts and the optimizations the JIT has for them. Each factory calls the
+ * overload of the same arity, so no array or entry is allocated on the way.
+ */
+final class Factories {
+
+	/**
+	 * Whether the factories return the JDK's collections instead of this library's. Not a
+	 * compile time constant, so it isn't inlined and the version loaded at runtime decides
+	 */
+	static final boolean USES_JDK_COLLECTIONS = usesJdkCollections();
+
+	/*
+	 * The JDK's unmodifiable classes, which copies return as they are instead of copying
+	 * them again, like List.copyOf does in Java 10
+	 */
+
+	private static final Set<Class<?>> LIST_CLASSES = Set.of(List.of(1).getClass(), List.of(1, 2, 3).getClass());
+
+	private static final Set<Class<?>> SET_CLASSES = Set.of(Set.of(1).getClass(), Set.of(1, 2, 3).getClass());
+
+	private static final Set<Class<?>> MAP_CLASSES = Set.of(Map.of(1, 1).getClass(), Map.of(1, 1, 2, 2).getClass());
+
+	private Factories() {
+		// do not instantiate
+	}
+
+	private static boolean usesJdkCollections() {
+		return true;
+	}
+
+	static <E> List<E> listOf() {
+		return List.of();
+	}
+
+	static <E> List<E> listOf(E e1) {
+		return List.of(e1);
+	}
+
+	static <E> List<E> listOf(E e1, E e2) {
+		return List.of(e1, e2);
+	}
+
+	static <E> List<E> listOf(E e1, E e2, E e3) {
+		return List.of(e1, e2, e3);
+	}
+
+	static <E> List<E> listOf(E e1, E e2, E e3, E e4) {
+		return List.of(e1, e2, e3, e4);
+	}
+
+	static <E> List<E> listOf(E e1, E e2, E e3, E e4, E e5) {
+		return List.of(e1, e2, e3, e4, e5);
+	}
+
+	static <E> List<E> listOf(E e1, E e2, E e3, E e4, E e5, E e6) {
+		return List.of(e1, e2, e3, e4, e5, e6);
+	}
+
+	static <E> List<E> listOf(E e1, E e2, E e3, E e4, E e5, E e6, E e7) {
+		return List.of(e1, e2, e3, e4, e5, e6, e7);
+	}
+
+	static <E> List<E> listOf(E e1, E e2, E e3, E e4, E e5, E e6, E e7, E e8) {
+		return List.of(e1, e2, e3, e4, e5, e6, e7, e8);
+	}
+
+	static <E> List<E> listOf(E e1, E e2, E e3, E e4, E e5, E e6, E e7, E e8, E e9) {
+		return List.of(e1, e2, e3, e4, e5, e6, e7, e8, e9);
+	}
+
+	static <E> List<E> listOf(E e1, E e2, E e3, E e4, E e5, E e6, E e7, E e8, E e9, E e10) {
+		return List.of(e1, e2, e3, e4, e5, e6, e7, e8, e9, e10);
+	}
+
+	@SafeVarargs
+	@SuppressWarnings("varargs")
+	static <E> List<E> listOf(E... elements) {
+		return List.of(elements);
+	}
+
+	@SuppressWarnings("unchecked")
+	static <E> List<E> listCopyOf(Collection<? extends E> coll) {
+		if (LIST_CLASSES.contains(coll.getClass())) {
+			return (List<E>) coll;
+		}
+		return (List<E>) List.of(coll.toArray());
+	}
+
+	static <E> Set<E> setOf() {
+		return Set.of();
+	}
+
+	static <E> Set<E> setOf(E e1) {
+		return Set.of(e1);
+	}
+
+	static <E> Set<E> setOf(E e1, E e2) {
+		return Set.of(e1, e2);
+	}
+
+	static <E> Set<E> setOf(E e1, E e2, E e3) {
+		return Set.of(e1, e2, e3);
+	}
+
+	static <E> Set<E> setOf(E e1, E e2, E e3, E e4) {
+		return Set.of(e1, e2, e3, e4);
+	}
+
+	static <E> Set<E> setOf(E e1, E e2, E e3, E e4, E e5) {
+		return Set.of(e1, e2, e3, e4, e5);
+	}
+
+	static <E> Set<E> setOf(E e1, E e2, E e3, E e4, E e5, E e6) {
+		return Set.of(e1, e2, e3, e4, e5, e6);
+	}
+
+	static <E> Set<E> setOf(E e1, E e2, E e3, E e4, E e5, E e6, E e7) {
+		return Set.of(e1, e2, e3, e4, e5, e6, e7);
+	}
+
+	static <E> Set<E> setOf(E e1, E e2, E e3, E e4, E e5, E e6, E e7, E e8) {
+		return Set.of(e1, e2, e3, e4, e5, e6, e7, e8);
+	}
+
+	static <E> Set<E> setOf(E e1, E e2, E e3, E e4, E e5, E e6, E e7, E e8, E e9) {
+		return Set.of(e1, e2, e3, e4, e5, e6, e7, e8, e9);
+	}
+
+	static <E> Set<E> setOf(E e1, E e2, E e3, E e4, E e5, E e6, E e7, E e8, E e9, E e10) {
+		return Set.of(e1, e2, e3, e4, e5, e6, e7, e8, e9, e10);
+	}
+
+	@SafeVarargs
+	@SuppressWarnings("varargs")
+	static <E> Set<E> setOf(E... elements) {
+		return Set.of(elements);
+	}
+
+	@SuppressWarnings("unchecked")
+	static <E> Set<E> setCopyOf(Collection<? extends E> coll) {
+		if (SET_CLASSES.contains(coll.getClass())) {
+			return (Set<E>) coll;
+		}
+		// Set.of rejects duplicates, but a copy keeps one of them
+		return (Set<E>) Set.of(new HashSet<>(coll).toArray());
+	}
+
+	static <K, V> Map<K, V> mapOf() {
+		return Map.of();
+	}
+
+	static <K, V> Map<K, V> mapOf(K k1, V v1) {
+		return Map.of(k1, v1);
+	}
+
+	static <K, V> Map<K, V> mapOf(K k1, V v1, K k2, V v2) {
+		return Map.of(k1, v1, k2, v2);
+	}
+
+	static <K, V> Map<K, V> mapOf(K k1, V v1, K k2, V v2, K k3, V v3) {
+		return Map.of(k1, v1, k2, v2, k3, v3);
+	}
+
+	static <K, V> Map<K, V> mapOf(K k1, V v1, K k2, V v2, K k3, V v3, K k4, V v4) {
+		return Map.of(k1, v1, k2, v2, k3, v3, k4, v4);
+	}
+
+	static <K, V> Map<K, V> mapOf(K k1, V v1, K k2, V v2, K k3, V v3, K k4, V v4, K k5, V v5) {
+		return Map.of(k1, v1, k2, v2, k3, v3, k4, v4, k5, v5);
+	}
+
+	static <K, V> Map<K, V> mapOf(K k1, V v1, K k2, V v2, K k3, V v3, K k4, V v4, K k5, V v5, K k6, V v6) {
+		return Map.of(k1, v1, k2, v2, k3, v3, k4, v4, k5, v5, k6, v6);
+	}
+
+	static <K, V> Map<K, V> mapOf(K k1, V v1, K k2, V v2, K k3, V v3, K k4, V v4, K k5, V v5, K k6, V v6, K k7,
+			V v7) {
+		return Map.of(k1, v1, k2, v2, k3, v3, k4, v4, k5, v5, k6, v6, k7, v7);
+	}
+
+	static <K, V> Map<K, V> mapOf(K k1, V v1, K k2, V v2, K k3, V v3, K k4, V v4, K k5, V v5, K k6, V v6, K k7,
+			V v7, K k8, V v8) {
+		return Map.of(k1, v1, k2, v2, k3, v3, k4, v4, k5, v5, k6, v6, k7, v7, k8, v8);
+	}
+
+	static <K, V> Map<K, V> mapOf(K k1, V v1, K k2, V v2, K k3, V v3, K k4, V v4, K k5, V v5, K k6, V v6, K k7,
+			V v7, K k8, V v8, K k9, V v9) {
+		return Map.of(k1, v1, k2, v2, k3, v3, k4, v4, k5, v5, k6, v6, k7, v7, k8, v8, k9, v9);
+	}
+
+	static <K, V> Map<K, V> mapOf(K k1, V v1, K k2, V v2, K k3, V v3, K k4, V v4, K k5, V v5, K k6, V v6, K k7,
+			V v7, K k8, V v8, K k9, V v9, K k10, V v10) {
+		return Map.of(k1, v1, k2, v2, k3, v3, k4, v4, k5, v5, k6, v6, k7, v7, k8, v8, k9, v9, k10, v10);
+	}
+
+	@SafeVarargs
+	@SuppressWarnings("varargs")
+	static <K, V> Map<K, V> mapOfEntries(Map.Entry<? extends K, ? extends V>... entries) {
+		return Map.ofEntries(entries);
+	}
+
+	@SuppressWarnings("unchecked")
+	static <K, V> Map<K, V> mapCopyOf(Map<? extends K, ? extends V> map) {
+		if (MAP_CLASSES.contains(map.getClass())) {
+			return (Map<K, V>) map;
+		}
+		return (Map<K, V>) Map.ofEntries(map.entrySet().toArray(new Map.Entry<?, ?>[0]));
+	}
+
+}
@@ -0,0 +1,75 @@
+package org.pgris.new4java8;
+
+import java.io.InvalidClassException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+
+/**
+ * Checks the arrays a serialization proxy is about to read against the serialization
+ * filter of the stream, the Java 9 version. The JDK only sees the elements the proxy
+ * reads one by one, so without it a {@code maxarray} limit would not apply to
+ * collections of this library.
+ */
+final class SerialFilter {
+
+	private SerialFilter() {
+		// do not instantiate
+	}
+
+	/**
+	 * @param in the stream the array is read from
+	 * @param type the class of the array
+	 * @param length the length of the array, as read from the stream
+	 * @throws InvalidClassException if the filter of the stream rejects the array
+	 */
+	static void checkArray(ObjectInputStream in, Class<?> type, int length) throws InvalidClassException {
+		ObjectInputFilter filter = in.getObjectInputFilter();
+		if (filter != null && filter.checkInput(new ArrayInfo(type, length)) == ObjectInputFilter.Status.REJECTED) {
+			throw new InvalidClassException("filter status: REJECTED");
+		}
+	}
+
+	/**
+	 * An array about to be read. The depth, references and bytes of the stream are not
+	 * known outside of it, so they are reported as 0 and only limits on the class and
+	 * the length apply.
+	 */
+	private static final class ArrayInfo implements ObjectInputFilter.FilterInfo {
+
+		private final Class<?> type;
+
+		private final int length;
+
+		ArrayInfo(Class<?> type, int length) {
+			this.type = type;
+			this.length = length;
+		}
+
+		@Override
+		public Class<?> serialClass() {
+			return type;
+		}
+
+		@Override
+		public long arrayLength() {
+			return length;
+		}
+
+		@Override
+		public long depth() {
+			return 0;
+		}
+
+		@Override
+		public long references() {
+			return 0;
+		}
+
+		@Override
+		public long streamBytes() {
+			return 0;
+		}
+
+	}
+
+}
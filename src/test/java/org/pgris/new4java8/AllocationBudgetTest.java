@@ -0,0 +1,205 @@
+package org.pgris.new4java8;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Checks the bytes allocated per call by the factories and by reads on their results
+ * against the budgets in {@code allocation-budgets.properties}. Results, iterators and
+ * iterated elements are stored in a static field so escape analysis can't remove any
+ * allocation, and the same numbers are measured whatever the JIT does.
+ *
+ * <p>
+ * Run with {@code -Dallocation.update=true} to write the measured numbers to
+ * {@code target/allocation-budgets.properties}, to be copied over the baseline after a
+ * change that is meant to allocate more.
+ */
+class AllocationBudgetTest {
+
+	private static final String BASELINE = "/allocation-budgets.properties";
+
+	private static final int WARM_UP_CALLS = 20_000;
+
+	private static final int MEASURED_CALLS = 10_000;
+
+	private static final String[] E = new String[12];
+
+	static {
+		for (int i = 0; i < E.length; i++) {
+			E[i] = "e" + i;
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static final Map.Entry<String, String>[] ENTRIES = new Map.Entry[12];
+
+	static {
+		for (int i = 0; i < ENTRIES.length; i++) {
+			ENTRIES[i] = New.mapEntry(E[i], E[i]);
+		}
+	}
+
+	static volatile Object sink;
+
+	private static Map<String, Supplier<Object>> operations() {
+		Map<String, Supplier<Object>> operations = new LinkedHashMap<>();
+		operations.put("listOf.0", () -> New.listOf());
+		operations.put("listOf.1", () -> New.listOf(E[0]));
+		operations.put("listOf.2", () -> New.listOf(E[0], E[1]));
+		operations.put("listOf.3", () -> New.listOf(E[0], E[1], E[2]));
+		operations.put("listOf.4", () -> New.listOf(E[0], E[1], E[2], E[3]));
+		operations.put("listOf.5", () -> New.listOf(E[0], E[1], E[2], E[3], E[4]));
+		operations.put("listOf.6", () -> New.listOf(E[0], E[1], E[2], E[3], E[4], E[5]));
+		operations.put("listOf.7", () -> New.listOf(E[0], E[1], E[2], E[3], E[4], E[5], E[6]));
+		operations.put("listOf.8", () -> New.listOf(E[0], E[1], E[2], E[3], E[4], E[5], E[6], E[7]));
+		operations.put("listOf.9", () -> New.listOf(E[0], E[1], E[2], E[3], E[4], E[5], E[6], E[7], E[8]));
+		operations.put("listOf.10", () -> New.listOf(E[0], E[1], E[2], E[3], E[4], E[5], E[6], E[7], E[8], E[9]));
+		operations.put("listOf.varargs", () -> New.listOf(E));
+
+		operations.put("setOf.0", () -> New.setOf());
+		operations.put("setOf.1", () -> New.setOf(E[0]));
+		operations.put("setOf.2", () -> New.setOf(E[0], E[1]));
+		operations.put("setOf.3", () -> New.setOf(E[0], E[1], E[2]));
+		operations.put("setOf.4", () -> New.setOf(E[0], E[1], E[2], E[3]));
+		operations.put("setOf.5", () -> New.setOf(E[0], E[1], E[2], E[3], E[4]));
+		operations.put("setOf.6", () -> New.setOf(E[0], E[1], E[2], E[3], E[4], E[5]));
+		operations.put("setOf.7", () -> New.setOf(E[0], E[1], E[2], E[3], E[4], E[5], E[6]));
+		operations.put("setOf.8", () -> New.setOf(E[0], E[1], E[2], E[3], E[4], E[5], E[6], E[7]));
+		operations.put("setOf.9", () -> New.setOf(E[0], E[1], E[2], E[3], E[4], E[5], E[6], E[7], E[8]));
+		operations.put("setOf.10", () -> New.setOf(E[0], E[1], E[2], E[3], E[4], E[5], E[6], E[7], E[8], E[9]));
+		operations.put("setOf.varargs", () -> New.setOf(E));
+
+		operations.put("mapOf.0", () -> New.mapOf());
+		operations.put("mapOf.1", () -> New.mapOf(E[0], E[0]));
+		operations.put("mapOf.2", () -> New.mapOf(E[0], E[0], E[1], E[1]));
+		operations.put("mapOf.3", () -> New.mapOf(E[0], E[0], E[1], E[1], E[2], E[2]));
+		operations.put("mapOf.4", () -> New.mapOf(E[0], E[0], E[1], E[1], E[2], E[2], E[3], E[3]));
+		operations.put("mapOf.5", () -> New.mapOf(E[0], E[0], E[1], E[1], E[2], E[2], E[3], E[3], E[4], E[4]));
+		operations.put("mapOf.6",
+				() -> New.mapOf(E[0], E[0], E[1], E[1], E[2], E[2], E[3], E[3], E[4], E[4], E[5], E[5]));
+		operations.put("mapOf.7",
+				() -> New.mapOf(E[0], E[0], E[1], E[1], E[2], E[2], E[3], E[3], E[4], E[4], E[5], E[5], E[6], E[6]));
+		operations.put("mapOf.8", () -> New.mapOf(E[0], E[0], E[1], E[1], E[2], E[2], E[3], E[3], E[4], E[4], E[5],
+				E[5], E[6], E[6], E[7], E[7]));
+		operations.put("mapOf.9", () -> New.mapOf(E[0], E[0], E[1], E[1], E[2], E[2], E[3], E[3], E[4], E[4], E[5],
+				E[5], E[6], E[6], E[7], E[7], E[8], E[8]));
+		operations.put("mapOf.10", () -> New.mapOf(E[0], E[0], E[1], E[1], E[2], E[2], E[3], E[3], E[4], E[4], E[5],
+				E[5], E[6], E[6], E[7], E[7], E[8], E[8], E[9], E[9]));
+		operations.put("mapEntry", () -> New.mapEntry(E[0], E[1]));
+		operations.put("mapOfEntries", () -> New.mapOfEntries(ENTRIES));
+		operations.put("mapOfEntriesPerfect", () -> New.mapOfEntriesPerfect(ENTRIES));
+
+		List<String> list2 = New.listOf(E[0], E[1]);
+		List<String> listN = New.listOf(E);
+		Set<String> set1 = New.setOf(E[0]);
+		Set<String> set2 = New.setOf(E[0], E[1]);
+		Set<String> setN = New.setOf(E);
+		Map<String, String> map1 = New.mapOf(E[0], E[0]);
+		Map<String, String> mapN = New.mapOfEntries(ENTRIES);
+		operations.put("list12.get", () -> list2.get(1));
+		operations.put("listN.get", () -> listN.get(11));
+		operations.put("list12.iterate", () -> iterate(list2.iterator()));
+		operations.put("listN.iterate", () -> iterate(listN.iterator()));
+		operations.put("set12.contains", () -> set1.contains(E[0]) && set2.contains(E[1]) && !set2.contains(E[2]));
+		operations.put("setN.contains", () -> setN.contains(E[11]) && !setN.contains("e12"));
+		operations.put("set12.iterate", () -> iterate(set2.iterator()));
+		operations.put("setN.iterate", () -> iterate(setN.iterator()));
+		operations.put("map1.get", () -> map1.get(E[0]));
+		operations.put("mapN.get", () -> mapN.get(E[11]));
+		operations.put("mapN.containsKey", () -> mapN.containsKey(E[11]) && !mapN.containsKey("e12"));
+		operations.put("map1.iterate", () -> iterate(map1.entrySet().iterator()));
+		operations.put("mapN.iterate", () -> iterate(mapN.entrySet().iterator()));
+		return operations;
+	}
+
+	private static Object iterate(Iterator<?> it) {
+		while (it.hasNext()) {
+			sink = it.next();
+		}
+		return it;
+	}
+
+	private static long bytesPerCall(com.sun.management.ThreadMXBean threads, Supplier<Object> operation) {
+		for (int i = 0; i < WARM_UP_CALLS; i++) {
+			sink = operation.get();
+		}
+		long thread = Thread.currentThread().getId();
+		long before = threads.getThreadAllocatedBytes(thread);
+		for (int i = 0; i < MEASURED_CALLS; i++) {
+			sink = operation.get();
+		}
+		long after = threads.getThreadAllocatedBytes(thread);
+		// whatever getThreadAllocatedBytes allocates itself is rounded away
+		return (after - before) / MEASURED_CALLS;
+	}
+
+	/**
+	 * Object layouts are not the same on every JVM, with or without compressed pointers,
+	 * so measured numbers get some slack over the baseline: enough for that, but not for
+	 * a node per element.
+	 */
+	private static boolean exceeds(long bytes, long budget) {
+		return bytes > budget + budget / 4 + 16;
+	}
+
+	@Test
+	void testAllocationStaysWithinBudget() throws IOException {
+		assumeFalse(Factories.USES_JDK_COLLECTIONS, "budgets are for this library's own implementations");
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		assumeTrue(bean instanceof com.sun.management.ThreadMXBean, "no allocation counters in this JVM");
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+		assumeTrue(threads.isThreadAllocatedMemorySupported(), "no allocation counters in this JVM");
+		threads.setThreadAllocatedMemoryEnabled(true);
+
+		Properties budgets = new Properties();
+		try (InputStream in = AllocationBudgetTest.class.getResourceAsStream(BASELINE)) {
+			assertNotNull(in, BASELINE);
+			budgets.load(in);
+		}
+		Map<String, Long> measured = new LinkedHashMap<>();
+		List<String> regressions = new ArrayList<>();
+		operations().forEach((name, operation) -> {
+			long bytes = bytesPerCall(threads, operation);
+			measured.put(name, bytes);
+			String budget = budgets.getProperty(name);
+			if (budget == null) {
+				regressions.add(name + ": " + bytes + " bytes, no budget");
+			}
+			else if (exceeds(bytes, Long.parseLong(budget))) {
+				regressions.add(name + ": " + bytes + " bytes, budget " + budget);
+			}
+		});
+		if (Boolean.getBoolean("allocation.update")) {
+			Path path = Paths.get("target", "allocation-budgets.properties");
+			Files.createDirectories(path.getParent());
+			try (Writer out = Files.newBufferedWriter(path, StandardCharsets.ISO_8859_1)) {
+				for (Map.Entry<String, Long> e : measured.entrySet()) {
+					out.write(e.getKey() + "=" + e.getValue() + "\n");
+				}
+			}
+		}
+		assertTrue(regressions.isEmpty(), () -> "allocation over budget:\n" + String.join("\n", regressions));
+	}
+
+}
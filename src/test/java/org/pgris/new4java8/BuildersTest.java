@@ -0,0 +1,62 @@
+package org.pgris.new4java8;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BuildersTest {
+
+	@Test
+	void testSetBuilder() {
+		SetBuilder<Integer> builder = New.setBuilder(10);
+		Set<Integer> expected = new HashSet<>();
+		// more than expected, so the table is rehashed a few times
+		for (int i = 0; i < 1000; i++) {
+			builder.add(i * 7);
+			expected.add(i * 7);
+		}
+		assertEquals(1000, builder.size());
+		assertThrows(IllegalArgumentException.class, () -> builder.add(7));
+		assertThrows(NullPointerException.class, () -> builder.add(null));
+		Set<Integer> result = builder.build();
+		assertEquals(expected, result);
+		assertEquals(result, expected);
+		assertThrows(UnsupportedOperationException.class, () -> result.add(1));
+		assertThrows(IllegalStateException.class, () -> builder.add(1));
+		assertThrows(IllegalStateException.class, builder::build);
+
+		assertTrue(New.setBuilder(0).build().isEmpty());
+		assertThrows(IllegalArgumentException.class, () -> New.setBuilder(-1));
+	}
+
+	@Test
+	void testMapBuilder() {
+		MapBuilder<Integer, String> builder = New.mapBuilder(1000);
+		Map<Integer, String> expected = new HashMap<>();
+		for (int i = 0; i < 1000; i++) {
+			builder.put(i, "v" + i);
+			expected.put(i, "v" + i);
+		}
+		builder.put(1000, "v1000");
+		expected.put(1000, "v1000");
+		assertThrows(IllegalArgumentException.class, () -> builder.put(7, "z"));
+		assertThrows(NullPointerException.class, () -> builder.put(null, "z"));
+		assertThrows(NullPointerException.class, () -> builder.put(1001, null));
+		Map<Integer, String> result = builder.build();
+		assertEquals(expected, result);
+		assertEquals(result, expected);
+		assertEquals("v7", result.get(7));
+		assertThrows(UnsupportedOperationException.class, () -> result.put(1, "z"));
+		assertThrows(IllegalStateException.class, () -> builder.put(1, "z"));
+
+		assertTrue(New.mapBuilder(3).build().isEmpty());
+	}
+
+}
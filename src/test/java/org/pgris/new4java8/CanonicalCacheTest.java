@@ -0,0 +1,180 @@
+package org.pgris.new4java8;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class CanonicalCacheTest {
+
+	/**
+	 * A view of the arguments: a header and up to three fields, with room for
+	 * uncompressed pointers
+	 */
+	private static final int VIEW_BYTES = 48;
+
+	static volatile Object sink;
+
+	private static long bytesPerHit(com.sun.management.ThreadMXBean threads, Supplier<Object> hit) {
+		for (int i = 0; i < 20_000; i++) {
+			sink = hit.get();
+		}
+		long thread = Thread.currentThread().getId();
+		long before = threads.getThreadAllocatedBytes(thread);
+		for (int i = 0; i < 10_000; i++) {
+			sink = hit.get();
+		}
+		return (threads.getThreadAllocatedBytes(thread) - before) / 10_000;
+	}
+
+	@Test
+	void testCanonicalInstances() {
+		CanonicalCache cache = New.canonicalCache(100);
+		List<String> list = cache.listOf("a", "b");
+		assertEquals(New.listOf("a", "b"), list);
+		assertSame(list, cache.listOf("a", "b"));
+		assertSame(list, cache.listCopyOf(new ArrayList<>(list)));
+
+		Set<String> set = cache.setOf("a", "b");
+		assertEquals(New.setOf("a", "b"), set);
+		assertSame(set, cache.setOf("b", "a"));
+		assertSame(set, cache.setCopyOf(new HashSet<>(set)));
+
+		Map<String, Integer> map = cache.mapOfEntries(New.mapEntry("a", 1), New.mapEntry("b", 2));
+		assertEquals(New.mapOf("a", 1, "b", 2), map);
+		assertSame(map, cache.mapCopyOf(new HashMap<>(map)));
+
+		assertEquals(3, cache.missCount());
+		assertEquals(5, cache.hitCount());
+		assertEquals(3, cache.size());
+		assertThrows(UnsupportedOperationException.class, () -> list.add("c"));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void testHitsOnlyAllocateAView() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		assumeTrue(bean instanceof com.sun.management.ThreadMXBean, "no allocation counters in this JVM");
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+		assumeTrue(threads.isThreadAllocatedMemorySupported(), "no allocation counters in this JVM");
+		threads.setThreadAllocatedMemoryEnabled(true);
+
+		CanonicalCache cache = New.canonicalCache(100);
+		String[] elements = { "a", "b", "c", "d", "e", "f" };
+		Map.Entry<String, String>[] entries = new Map.Entry[elements.length];
+		for (int i = 0; i < elements.length; i++) {
+			entries[i] = New.mapEntry(elements[i], elements[i]);
+		}
+		List<String> list = new ArrayList<>(Arrays.asList(elements));
+		assertSame(cache.setOf(elements), cache.setCopyOf(list));
+		assertSame(cache.listOf(elements), cache.listCopyOf(list));
+		cache.mapOfEntries(entries);
+		long misses = cache.missCount();
+
+		assertTrue(bytesPerHit(threads, () -> cache.setOf(elements)) <= VIEW_BYTES);
+		assertTrue(bytesPerHit(threads, () -> cache.mapOfEntries(entries)) <= VIEW_BYTES);
+		assertTrue(bytesPerHit(threads, () -> cache.listOf(elements)) <= VIEW_BYTES);
+		// plus the array copied from the list
+		int copied = 16 + 8 * elements.length;
+		assertTrue(bytesPerHit(threads, () -> cache.setCopyOf(list)) <= VIEW_BYTES + copied);
+		assertTrue(bytesPerHit(threads, () -> cache.listCopyOf(list)) <= VIEW_BYTES + copied);
+		assertEquals(misses, cache.missCount());
+	}
+
+	@Test
+	void testViewsKeepTheContracts() {
+		CanonicalCache cache = New.canonicalCache(100);
+		Set<String> set = cache.setCopyOf(Arrays.asList("a", "b", "a", "c"));
+		assertEquals(New.setOf("a", "b", "c"), set);
+		assertSame(set, cache.setOf("c", "b", "a"));
+		assertSame(set, cache.setCopyOf(new ArrayList<>(Arrays.asList("b", "c", "a", "c"))));
+		assertEquals(New.setOf("a", "b"), cache.setCopyOf(Arrays.asList("a", "b", "a")));
+
+		List<String> list = cache.listOf("a", "b");
+		assertNotSame(list, cache.listOf("b", "a"));
+		assertSame(list, cache.listCopyOf(new LinkedList<>(list)));
+		assertSame(list, cache.listCopyOf(new ArrayDeque<>(list)));
+
+		Map<String, Integer> map = cache.mapCopyOf(New.mapOf("a", 1, "b", 2));
+		assertSame(map, cache.mapOfEntries(New.mapEntry("b", 2), New.mapEntry("a", 1)));
+		assertNotSame(map, cache.mapOfEntries(New.mapEntry("b", 1), New.mapEntry("a", 2)));
+		Map<String, Integer> withNull = new HashMap<>(map);
+		withNull.put("a", null);
+		assertThrows(NullPointerException.class, () -> cache.mapCopyOf(withNull));
+		assertThrows(NullPointerException.class, () -> cache.listCopyOf(Arrays.asList("a", null)));
+		assertThrows(NullPointerException.class, () -> cache.setCopyOf(Arrays.asList("a", null)));
+		assertThrows(NullPointerException.class, () -> cache.mapOfEntries(New.mapEntry("a", 1), null));
+	}
+
+	@Test
+	void testContractIsKept() {
+		CanonicalCache cache = New.canonicalCache(10);
+		assertThrows(NullPointerException.class, () -> cache.listOf("a", null));
+		assertThrows(NullPointerException.class, () -> cache.setOf("a", null));
+		assertThrows(IllegalArgumentException.class, () -> cache.setOf("a", "a"));
+		assertThrows(IllegalArgumentException.class,
+				() -> cache.mapOfEntries(New.mapEntry("a", 1), New.mapEntry("a", 2)));
+		assertThrows(IllegalArgumentException.class, () -> New.canonicalCache(0));
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	void testBigCollectionsAreNotInterned() {
+		CanonicalCache cache = New.canonicalCache(10);
+		Integer[] elements = IntStream.range(0, CanonicalCache.MAX_ELEMENTS + 1).boxed().toArray(Integer[]::new);
+		List<Integer> list = cache.listOf(elements);
+		assertEquals(New.listOf(elements), list);
+		assertNotSame(list, cache.listOf(elements));
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.missCount());
+	}
+
+	@Test
+	void testEviction() {
+		CanonicalCache cache = New.canonicalCache(8);
+		for (int i = 0; i < 100; i++) {
+			cache.listOf(i);
+		}
+		assertTrue(cache.size() <= 8);
+		assertEquals(100, cache.missCount());
+		assertEquals(100 - cache.size(), cache.evictionCount());
+		cache.clear();
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	void testConcurrentUse() {
+		CanonicalCache cache = New.canonicalCache(10_000);
+		IntStream.range(0, 10_000).parallel().forEach(i -> {
+			List<Integer> list = cache.listOf(i % 50, i % 7);
+			assertEquals(New.listOf(i % 50, i % 7), list);
+		});
+		Set<List<Integer>> identities = Collections.newSetFromMap(new IdentityHashMap<>());
+		for (int i = 0; i < 700; i++) {
+			identities.add(cache.listOf(i % 50, i % 7));
+		}
+		assertEquals(350, identities.size());
+		assertEquals(350, cache.size());
+		assertEquals(10_700, cache.hitCount() + cache.missCount());
+	}
+
+}
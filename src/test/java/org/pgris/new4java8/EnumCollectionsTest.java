@@ -0,0 +1,146 @@
+package org.pgris.new4java8;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EnumCollectionsTest {
+
+	enum Small {
+
+		A, B, C {
+			@Override
+			public String toString() {
+				return "c";
+			}
+		},
+		D
+
+	}
+
+	/**
+	 * More constants than fit in one word
+	 */
+	enum Big {
+
+		B0, B1, B2, B3, B4, B5, B6, B7, B8, B9, B10, B11, B12, B13, B14, B15, B16, B17, B18, B19, B20, B21, B22, B23, B24, B25, B26, B27, B28, B29, B30, B31, B32, B33, B34, B35, B36, B37, B38, B39, B40, B41, B42, B43, B44, B45, B46, B47, B48, B49, B50, B51, B52, B53, B54, B55, B56, B57, B58, B59, B60, B61, B62, B63, B64, B65, B66, B67, B68, B69, B70, B71, B72, B73, B74, B75, B76, B77, B78, B79, B80, B81, B82, B83, B84, B85, B86, B87, B88, B89, B90, B91, B92, B93, B94, B95, B96, B97, B98, B99, B100, B101, B102, B103, B104, B105, B106, B107, B108, B109, B110, B111, B112, B113, B114, B115, B116, B117, B118, B119, B120, B121, B122, B123, B124, B125, B126, B127, B128, B129
+
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> T roundTrip(T o) throws IOException, ClassNotFoundException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(o);
+		}
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			return (T) in.readObject();
+		}
+	}
+
+	@Test
+	void testEnumSetMatchesEnumSet() {
+		Set<Small> set = New.enumSetOf(Small.class, Small.D, Small.C, Small.A);
+		EnumSet<Small> expected = EnumSet.of(Small.A, Small.C, Small.D);
+		assertEquals(expected, set);
+		assertEquals(set, expected);
+		assertEquals(expected.hashCode(), set.hashCode());
+		assertEquals(new ArrayList<>(expected), new ArrayList<>(set));
+		assertEquals(3, set.size());
+		assertTrue(set.contains(Small.C));
+		assertFalse(set.contains(Small.B));
+		assertFalse(((Set<?>) set).contains(Big.B0));
+		assertFalse(((Set<?>) set).contains("A"));
+		assertThrows(NullPointerException.class, () -> set.contains(null));
+		assertTrue(set.containsAll(New.enumSetOf(Small.class, Small.A, Small.C)));
+		assertFalse(set.containsAll(New.enumSetOf(Small.class, Small.A, Small.B)));
+		assertTrue(New.enumSetOf(Small.class).isEmpty());
+		assertEquals(New.setOf(), New.enumSetOf(Small.class));
+		IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+				() -> New.enumSetOf(Small.class, Small.A, Small.A));
+		assertEquals("duplicate element: A", e.getMessage());
+		assertThrows(NullPointerException.class, () -> New.enumSetOf(Small.class, Small.A, null));
+		assertThrows(UnsupportedOperationException.class, () -> set.add(Small.B));
+		assertThrows(UnsupportedOperationException.class, () -> set.iterator().remove());
+	}
+
+	@Test
+	void testBigEnumSet() {
+		Random random = new Random(42);
+		for (int n = 0; n < 200; n++) {
+			EnumSet<Big> expected = EnumSet.noneOf(Big.class);
+			for (Big b : Big.values()) {
+				if (random.nextInt(4) == 0) {
+					expected.add(b);
+				}
+			}
+			Set<Big> set = New.enumSetOf(Big.class, expected.toArray(new Big[0]));
+			assertEquals(expected, set);
+			assertEquals(set, New.enumSetOf(Big.class, expected.toArray(new Big[0])));
+			assertEquals(expected.size(), set.size());
+			assertEquals(expected.hashCode(), set.hashCode());
+			assertEquals(new ArrayList<>(expected), new ArrayList<>(set));
+			for (Big b : Big.values()) {
+				assertEquals(expected.contains(b), set.contains(b));
+			}
+			Big[] half = expected.stream().filter(b -> b.ordinal() % 2 == 0).toArray(Big[]::new);
+			assertTrue(set.containsAll(New.enumSetOf(Big.class, half)));
+			assertFalse(New.enumSetOf(Big.class, half).containsAll(New.enumSetOf(Big.class, Big.B1, Big.B129)));
+		}
+	}
+
+	@Test
+	void testEnumMapMatchesEnumMap() {
+		EnumMap<Small, String> expected = new EnumMap<>(Small.class);
+		expected.put(Small.D, "d");
+		expected.put(Small.B, "b");
+		Map<Small, String> map = New.enumMapOf(Small.class, expected);
+		assertEquals(expected, map);
+		assertEquals(map, expected);
+		assertEquals(map, New.mapOf(Small.B, "b", Small.D, "d"));
+		assertEquals(expected.hashCode(), map.hashCode());
+		assertEquals(new ArrayList<>(expected.entrySet()), new ArrayList<>(map.entrySet()));
+		assertEquals("b", map.get(Small.B));
+		assertNull(map.get(Small.A));
+		assertNull(((Map<?, ?>) map).get(Big.B1));
+		assertTrue(map.containsValue("d"));
+		assertThrows(NullPointerException.class, () -> map.get(null));
+		assertSame(map, New.enumMapOf(Small.class, map));
+		assertTrue(New.enumMapOf(Small.class, New.mapOf()).isEmpty());
+		assertThrows(NullPointerException.class, () -> New.enumMapOf(Small.class, New.mapOf(Small.A, null)));
+		assertThrows(UnsupportedOperationException.class, () -> map.put(Small.A, "a"));
+	}
+
+	@Test
+	void testSerializationKeepsEnumForm() throws Exception {
+		Set<Small> set = New.enumSetOf(Small.class, Small.C, Small.A);
+		Set<Small> setCopy = roundTrip(set);
+		assertEquals(set, setCopy);
+		assertSame(set.getClass(), setCopy.getClass());
+		Set<Big> big = New.enumSetOf(Big.class, Big.B3, Big.B100);
+		assertEquals(big, roundTrip(big));
+		assertSame(big.getClass(), roundTrip(big).getClass());
+		Map<Small, Integer> map = New.enumMapOf(Small.class, New.mapOf(Small.A, 1, Small.C, 3));
+		Map<Small, Integer> mapCopy = roundTrip(map);
+		assertEquals(map, mapCopy);
+		assertSame(map.getClass(), mapCopy.getClass());
+	}
+
+}
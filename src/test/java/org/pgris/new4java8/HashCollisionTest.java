@@ -0,0 +1,525 @@
+package org.pgris.new4java8;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+class HashCollisionTest {
+
+	private static final int SIZE = 4_000;
+
+	/**
+	 * Comparisons made by {@link Colliding} keys since last reset
+	 */
+	private static int comparisons;
+
+	/**
+	 * Key whose hash code is always the same, that counts how many times it is compared.
+	 * Its natural ordering only looks at {@code value / 2}, so it is not consistent with
+	 * equals.
+	 */
+	static final class Colliding implements Comparable<Colliding>, Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		final int value;
+
+		Colliding(int value) {
+			this.value = value;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			comparisons++;
+			return o instanceof Colliding && ((Colliding) o).value == value;
+		}
+
+		@Override
+		public int hashCode() {
+			return 42;
+		}
+
+		@Override
+		public int compareTo(Colliding o) {
+			comparisons++;
+			return Integer.compare(value / 2, o.value / 2);
+		}
+
+		@Override
+		public String toString() {
+			return "Colliding" + value;
+		}
+
+	}
+
+	/**
+	 * Same as {@link Colliding}, but not {@code Comparable}
+	 */
+	static final class Unordered {
+
+		final int value;
+
+		Unordered(int value) {
+			this.value = value;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof Unordered && ((Unordered) o).value == value;
+		}
+
+		@Override
+		public int hashCode() {
+			return 42;
+		}
+
+	}
+
+	/**
+	 * Same hash code as {@link Colliding}, but comparable to {@link Colliding} instead of
+	 * to itself, so sorting them throws {@code ClassCastException}
+	 */
+	static final class Mismatched implements Comparable<Colliding> {
+
+		final int value;
+
+		Mismatched(int value) {
+			this.value = value;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof Mismatched && ((Mismatched) o).value == value;
+		}
+
+		@Override
+		public int hashCode() {
+			return 42;
+		}
+
+		@Override
+		public int compareTo(Colliding o) {
+			return Integer.compare(value, o.value);
+		}
+
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> T roundTrip(T o) throws IOException, ClassNotFoundException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(o);
+		}
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			return (T) in.readObject();
+		}
+	}
+
+	private static Colliding[] colliding(int from, int to) {
+		Colliding[] keys = new Colliding[to - from];
+		for (int i = from; i < to; i++) {
+			keys[i - from] = new Colliding(i);
+		}
+		return keys;
+	}
+
+	/**
+	 * Two binary searches of {@code log2(SIZE)} steps plus the keys that compare as
+	 * equal, where a scan would compare against {@code SIZE / 2} keys on average
+	 */
+	private static void assertLookupBound() {
+		int bound = 2 * (Integer.SIZE - Integer.numberOfLeadingZeros(SIZE)) + 4;
+		assertTrue(comparisons <= bound, comparisons + " comparisons");
+		comparisons = 0;
+	}
+
+	/**
+	 * Sorting with a few comparisons per key on each of {@code log2(SIZE)} levels, where
+	 * probing would compare each key with every key before it
+	 */
+	private static void assertConstructionBound() {
+		int bound = 4 * SIZE * (Integer.SIZE - Integer.numberOfLeadingZeros(SIZE));
+		assertTrue(comparisons <= bound, comparisons + " comparisons");
+		comparisons = 0;
+	}
+
+	/**
+	 * Strings of {@code n} pairs of {@code "Aa"} or {@code "BB"}, which all have the same
+	 * hash code
+	 */
+	private static List<String> collidingStrings(int n) {
+		List<String> strings = new ArrayList<>();
+		for (int bits = 0; bits < 1 << n; bits++) {
+			StringBuilder sb = new StringBuilder();
+			for (int i = 0; i < n; i++) {
+				sb.append((bits >> i & 1) == 0 ? "Aa" : "BB");
+			}
+			strings.add(sb.toString());
+		}
+		return strings;
+	}
+
+	@Test
+	void testCollidingSetLookupsAreLogarithmic() throws Exception {
+		assumeFalse(Factories.USES_JDK_COLLECTIONS, "checks this library's own implementations");
+		Set<Colliding> set = New.setOf(colliding(0, SIZE));
+		assertTrue(set instanceof ImmutableCollections.SetHashOrdered);
+		assertEquals(new HashSet<>(set), set);
+		comparisons = 0;
+		for (Colliding key : colliding(0, SIZE)) {
+			assertTrue(set.contains(key));
+			assertLookupBound();
+		}
+		for (Colliding key : colliding(-4, 0)) {
+			assertFalse(set.contains(key));
+			assertLookupBound();
+		}
+		assertFalse(set.contains(new Colliding(SIZE)));
+		assertLookupBound();
+		assertFalse(set.contains("Colliding0"));
+		assertThrows(NullPointerException.class, () -> set.contains(null));
+		assertEquals(SIZE, set.stream().collect(Collectors.toSet()).size());
+		assertEquals(SIZE, set.parallelStream().count());
+		assertTrue(New.setCopyOf(set) == set);
+		Set<Colliding> copy = roundTrip(set);
+		assertEquals(set, copy);
+		assertTrue(copy instanceof ImmutableCollections.SetHashOrdered);
+	}
+
+	@Test
+	void testCollidingMapLookupsAreLogarithmic() throws Exception {
+		assumeFalse(Factories.USES_JDK_COLLECTIONS, "checks this library's own implementations");
+		Map<Colliding, Integer> expected = new HashMap<>();
+		MapBuilder<Colliding, Integer> builder = New.mapBuilder(SIZE);
+		for (Colliding key : colliding(0, SIZE)) {
+			expected.put(key, key.value);
+			builder.put(key, key.value);
+		}
+		@SuppressWarnings("unchecked")
+		Map<Colliding, Integer> map = New.mapOfEntries(expected.entrySet().toArray(new Map.Entry[0]));
+		assertTrue(map instanceof ImmutableCollections.MapHashOrdered);
+		assertTrue(builder.build() instanceof ImmutableCollections.MapHashOrdered);
+		assertEquals(expected, map);
+		assertEquals(map, expected);
+		assertEquals(expected.hashCode(), map.hashCode());
+		assertEquals(expected.keySet(), map.keySet());
+		comparisons = 0;
+		for (Colliding key : colliding(0, SIZE)) {
+			assertEquals(Integer.valueOf(key.value), map.get(key));
+			assertLookupBound();
+			assertTrue(map.containsKey(key));
+			assertLookupBound();
+		}
+		assertNull(map.get(new Colliding(-1)));
+		assertLookupBound();
+		assertTrue(map.containsValue(SIZE - 1));
+		assertFalse(map.containsValue(SIZE));
+		assertThrows(NullPointerException.class, () -> map.get(null));
+		assertFalse(map.entrySet().contains(new AbstractMap.SimpleEntry<>(null, 0)));
+		assertEquals(SIZE, map.entrySet().parallelStream().count());
+		assertTrue(New.mapCopyOf(map) == map);
+		Map<Colliding, Integer> copy = roundTrip(map);
+		assertEquals(map, copy);
+		assertTrue(copy instanceof ImmutableCollections.MapHashOrdered);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void testCollidingConstructionIsNotQuadratic() {
+		assumeFalse(Factories.USES_JDK_COLLECTIONS, "checks this library's own implementations");
+		Colliding[] keys = colliding(0, SIZE);
+		List<Map.Entry<Colliding, Integer>> entries = new ArrayList<>();
+		for (Colliding key : keys) {
+			entries.add(New.mapEntry(key, key.value));
+		}
+		comparisons = 0;
+		assertTrue(New.setOf(keys) instanceof ImmutableCollections.SetHashOrdered);
+		assertConstructionBound();
+		assertTrue(New.setCopyOf(Arrays.asList(keys)) instanceof ImmutableCollections.SetHashOrdered);
+		assertConstructionBound();
+		assertTrue(Arrays.stream(keys).collect(New.toUnmodifiableSet()) instanceof ImmutableCollections.SetHashOrdered);
+		assertConstructionBound();
+		assertTrue(New.mapOfEntries(entries.toArray(new Map.Entry[0])) instanceof ImmutableCollections.MapHashOrdered);
+		assertConstructionBound();
+		assertTrue(Arrays.stream(keys)
+				.collect(New.toUnmodifiableMap(k -> k, k -> k.value)) instanceof ImmutableCollections.MapHashOrdered);
+		assertConstructionBound();
+		SetBuilder<Colliding> setBuilder = New.setBuilder(SIZE);
+		MapBuilder<Colliding, Integer> mapBuilder = New.mapBuilder(SIZE);
+		for (Colliding key : keys) {
+			setBuilder.add(key);
+		}
+		assertEquals(SIZE, setBuilder.size());
+		assertConstructionBound();
+		for (Colliding key : keys) {
+			mapBuilder.put(key, key.value);
+		}
+		assertEquals(SIZE, mapBuilder.size());
+		assertConstructionBound();
+		Set<Colliding> set = setBuilder.build();
+		Map<Colliding, Integer> map = mapBuilder.build();
+		assertTrue(set instanceof ImmutableCollections.SetHashOrdered);
+		assertTrue(map instanceof ImmutableCollections.MapHashOrdered);
+		assertEquals(new HashSet<>(Arrays.asList(keys)), set);
+		for (Colliding key : keys) {
+			assertEquals(Integer.valueOf(key.value), map.get(key));
+		}
+		assertThrows(IllegalStateException.class, () -> setBuilder.add(new Colliding(-1)));
+		assertThrows(IllegalStateException.class, mapBuilder::build);
+	}
+
+	@Test
+	void testSortedConstructionKeepsExceptions() {
+		assumeFalse(Factories.USES_JDK_COLLECTIONS, "checks this library's own implementations");
+		List<Colliding> keys = new ArrayList<>(Arrays.asList(colliding(0, SIZE)));
+		keys.add(new Colliding(SIZE / 2));
+		keys.add(null);
+		IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+				() -> New.setOf(keys.toArray(new Colliding[0])));
+		assertEquals("duplicate element: Colliding" + SIZE / 2, e.getMessage());
+		assertThrows(NullPointerException.class, () -> New.setCopyOf(keys));
+		keys.remove(keys.size() - 1);
+		assertEquals(SIZE, New.setCopyOf(keys).size());
+		IllegalStateException merge = assertThrows(IllegalStateException.class,
+				() -> keys.stream().collect(New.toUnmodifiableMap(k -> k, k -> k.value)));
+		assertEquals(String.format("Duplicate key Colliding%d (attempted merging values %d and %d)", SIZE / 2, SIZE / 2,
+				SIZE / 2), merge.getMessage());
+		Map<Colliding, Integer> merged = keys.stream().collect(New.toUnmodifiableMap(k -> k, k -> 1, Integer::sum));
+		assertEquals(SIZE, merged.size());
+		assertEquals(Integer.valueOf(2), merged.get(new Colliding(SIZE / 2)));
+		assertEquals(Integer.valueOf(1), merged.get(new Colliding(SIZE / 2 + 1)));
+		MapBuilder<Colliding, Integer> builder = New.mapBuilder(SIZE);
+		for (Colliding key : colliding(0, SIZE)) {
+			builder.put(key, key.value);
+		}
+		e = assertThrows(IllegalArgumentException.class, () -> builder.put(new Colliding(7), 7));
+		assertEquals("duplicated key:Colliding7", e.getMessage());
+		assertEquals(SIZE, builder.build().size());
+	}
+
+	@Test
+	void testCollidingKeysComparableToAnotherClass() {
+		List<Mismatched> keys = new ArrayList<>();
+		Map<Mismatched, Integer> expected = new HashMap<>();
+		for (int i = 0; i < 200; i++) {
+			keys.add(new Mismatched(i));
+			expected.put(new Mismatched(i), i);
+		}
+		Set<Mismatched> set = New.setOf(keys.toArray(new Mismatched[0]));
+		assertEquals(new HashSet<>(keys), set);
+		assertFalse(set.contains(new Mismatched(200)));
+		@SuppressWarnings("unchecked")
+		Map<Mismatched, Integer> map = New.mapOfEntries(expected.entrySet().toArray(new Map.Entry[0]));
+		assertEquals(expected, map);
+		assertEquals(Integer.valueOf(7), map.get(new Mismatched(7)));
+		assertNull(map.get(new Mismatched(200)));
+		SetBuilder<Mismatched> builder = New.setBuilder(0);
+		keys.forEach(builder::add);
+		assertEquals(set, builder.build());
+		if (!Factories.USES_JDK_COLLECTIONS) {
+			assertTrue(set instanceof ImmutableCollections.SetN);
+			assertTrue(map instanceof ImmutableCollections.MapN);
+		}
+	}
+
+	/**
+	 * Characters of a string, counting how many times they are read
+	 */
+	private static final class CountingChars implements CharSequence {
+
+		private final String s;
+
+		int reads;
+
+		CountingChars(String s) {
+			this.s = s;
+		}
+
+		@Override
+		public int length() {
+			return s.length();
+		}
+
+		@Override
+		public char charAt(int index) {
+			reads++;
+			return s.charAt(index);
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			return s.subSequence(start, end);
+		}
+
+		@Override
+		public String toString() {
+			return s;
+		}
+
+	}
+
+	@Test
+	void testCollidingStringMapLookupsAreLogarithmic() {
+		List<String> strings = collidingStrings(12);
+		Map<String, Integer> expected = new HashMap<>();
+		for (int i = 0; i < strings.size(); i++) {
+			expected.put(strings.get(i), i);
+		}
+		for (ImmutableStringMap<Integer> map : New.listOf(New.stringMapOf(expected),
+				New.stringMapOfIgnoreCase(expected))) {
+			assertEquals(expected, map);
+			// hashing the key, then comparing it with log2(size) keys
+			int bound = (Integer.SIZE - Integer.numberOfLeadingZeros(strings.size()) + 2) * 24;
+			for (String s : strings) {
+				CountingChars chars = new CountingChars("x" + s + "x");
+				assertEquals(expected.get(s), map.get(chars, 1, 25));
+				assertTrue(chars.reads <= bound, chars.reads + " reads");
+				assertEquals(expected.get(s), map.get(s));
+			}
+			assertNull(map.get(strings.get(0).substring(2) + "Ab"));
+			assertEquals(map.ignoresCase(), map.get(strings.get(0).toLowerCase()) != null);
+		}
+		List<String> repeated = new ArrayList<>(strings);
+		repeated.add(strings.get(7).toLowerCase());
+		Map<String, Integer> caseRepeated = new HashMap<>(expected);
+		caseRepeated.put(strings.get(7).toLowerCase(), -1);
+		assertEquals(strings.size() + 1, New.stringMapOf(caseRepeated).size());
+		IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+				() -> New.stringMapOfIgnoreCase(caseRepeated));
+		assertTrue(e.getMessage().startsWith("duplicated key:"));
+	}
+
+	@Test
+	void testCollidingMultimapAndBiMapLookupsAreLogarithmic() {
+		Map<Colliding, List<Integer>> lists = new HashMap<>();
+		Map<Colliding, Colliding> pairs = new HashMap<>();
+		Map<Colliding, Unordered> unordered = new HashMap<>();
+		for (Colliding key : colliding(0, SIZE)) {
+			lists.put(key, New.listOf(key.value, -key.value - 1));
+			pairs.put(key, new Colliding(-key.value - 1));
+			unordered.put(key, new Unordered(key.value));
+		}
+		comparisons = 0;
+		ImmutableListMultimap<Colliding, Integer> listMultimap = New.listMultimapOf(lists);
+		assertConstructionBound();
+		ImmutableSetMultimap<Colliding, Integer> setMultimap = New.setMultimapOf(lists);
+		assertConstructionBound();
+		ImmutableBiMap<Colliding, Colliding> biMap = New.biMapOf(pairs);
+		// both lanes sorted
+		assertTrue(comparisons <= 8 * SIZE * (Integer.SIZE - Integer.numberOfLeadingZeros(SIZE)),
+				comparisons + " comparisons");
+		comparisons = 0;
+		ImmutableBiMap<Colliding, Unordered> mixed = New.biMapOf(unordered);
+		assertEquals(lists, listMultimap.asMap());
+		assertEquals(SIZE * 2, setMultimap.size());
+		assertEquals(pairs, biMap);
+		assertEquals(unordered, mixed);
+		comparisons = 0;
+		for (Colliding key : colliding(0, SIZE)) {
+			assertEquals(New.listOf(key.value, -key.value - 1), listMultimap.get(key));
+			assertLookupBound();
+			assertTrue(setMultimap.containsEntry(key, -key.value - 1));
+			assertLookupBound();
+			Colliding value = new Colliding(-key.value - 1);
+			assertEquals(value, biMap.get(key));
+			assertLookupBound();
+			assertEquals(key, biMap.inverse().get(value));
+			assertLookupBound();
+			assertEquals(new Unordered(key.value), mixed.get(key));
+			assertLookupBound();
+		}
+		assertTrue(mixed.containsValue(new Unordered(0)));
+		assertEquals(new Colliding(SIZE - 1), mixed.inverse().get(new Unordered(SIZE - 1)));
+		assertTrue(listMultimap.get(new Colliding(SIZE)).isEmpty());
+		assertNull(biMap.get(new Colliding(SIZE)));
+		Map<Colliding, Colliding> repeatedValue = new HashMap<>(pairs);
+		repeatedValue.put(new Colliding(SIZE), new Colliding(-1));
+		IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> New.biMapOf(repeatedValue));
+		assertEquals("duplicated value:Colliding-1", e.getMessage());
+	}
+
+	@Test
+	void testCollidingStrings() {
+		List<String> strings = collidingStrings(12);
+		Set<String> set = New.setCopyOf(strings);
+		assertEquals(new HashSet<>(strings), set);
+		if (!Factories.USES_JDK_COLLECTIONS) {
+			assertTrue(set instanceof ImmutableCollections.SetHashOrdered);
+		}
+		Map<String, Integer> map = strings.stream().collect(New.toUnmodifiableMap(s -> s, String::length));
+		for (String s : strings) {
+			assertTrue(set.contains(s));
+			assertEquals(Integer.valueOf(24), map.get(s));
+		}
+		String other = collidingStrings(11).get(0) + "Ab";
+		assertFalse(set.contains(other));
+		assertNull(map.get(other));
+		assertFalse(set.contains(strings.get(0).substring(2)));
+		List<String> repeated = new ArrayList<>(strings);
+		repeated.add(strings.get(5));
+		IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+				() -> New.setOf(repeated.toArray(new String[0])));
+		assertEquals("duplicate element: " + strings.get(5), e.getMessage());
+	}
+
+	@Test
+	void testCollidingKeysThatCantBeOrdered() {
+		List<Object> keys = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			keys.add(new Unordered(i));
+		}
+		Set<Object> set = New.setCopyOf(keys);
+		assertEquals(new HashSet<>(keys), set);
+		assertFalse(set.contains(new Unordered(200)));
+		// of different classes
+		keys.add(new Colliding(0));
+		Set<Object> mixed = New.setCopyOf(keys);
+		assertEquals(new HashSet<>(keys), mixed);
+		assertTrue(mixed.contains(new Colliding(0)));
+		assertFalse(mixed.contains(new Colliding(1)));
+		if (!Factories.USES_JDK_COLLECTIONS) {
+			assertTrue(set instanceof ImmutableCollections.SetN);
+			assertTrue(mixed instanceof ImmutableCollections.SetN);
+		}
+	}
+
+	@Test
+	void testSaltedSlotsSpreadCraftedHashCodes() {
+		assumeFalse(Factories.USES_JDK_COLLECTIONS, "checks this library's own implementations");
+		// all multiples of the table length, so without mixing they would share a slot
+		Integer[] elements = new Integer[1_000];
+		for (int i = 0; i < elements.length; i++) {
+			elements[i] = i * ImmutableCollections.EXPAND_FACTOR * elements.length;
+		}
+		assertTrue(New.setOf(elements) instanceof ImmutableCollections.SetN);
+		for (int length = 1; length < 100_000; length = 3 * length + 1) {
+			for (Integer e : elements) {
+				int slot = ImmutableCollections.slot(e, length);
+				assertTrue(slot >= 0 && slot < length);
+			}
+		}
+		assertEquals(0, ImmutableCollections.slot(Integer.MIN_VALUE, 1));
+	}
+
+}
@@ -0,0 +1,141 @@
+package org.pgris.new4java8;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ImmutableMapRefTest {
+
+	@Test
+	void testUpdatesReplaceSnapshot() {
+		ImmutableMapRef<String, Integer> ref = New.mapRef(New.mapOf("a", 1));
+		Map<String, Integer> before = ref.snapshot();
+		assertEquals(1, ref.put("a", 2));
+		assertNull(ref.put("b", 3));
+		assertEquals(New.mapOf("a", 1), before);
+		assertEquals(New.mapOf("a", 2, "b", 3), ref.snapshot());
+		assertEquals(2, ref.remove("a"));
+		assertNull(ref.remove("a"));
+		assertEquals(3, ref.get("b"));
+		PersistentMap<String, Integer> updated = ref.update(m -> m.plus("c", 4).minus("b"));
+		assertSame(updated, ref.snapshot());
+		assertEquals(New.mapOf("c", 4), updated);
+		assertEquals(5, ref.updateCount());
+		assertEquals(5, ref.publishCount());
+		assertEquals(0, ref.retryCount());
+	}
+
+	@Test
+	void testFailedUpdateLeavesMap() {
+		ImmutableMapRef<String, Integer> ref = New.mapRef();
+		ref.put("a", 1);
+		assertThrows(IllegalStateException.class, () -> ref.update(m -> {
+			throw new IllegalStateException();
+		}));
+		assertThrows(NullPointerException.class, () -> ref.update(m -> null));
+		assertThrows(NullPointerException.class, () -> ref.put("b", null));
+		assertThrows(StackOverflowError.class, () -> ref.update(m -> {
+			throw new StackOverflowError();
+		}));
+		assertEquals(New.mapOf("a", 1), ref.snapshot());
+		assertEquals(1, ref.put("a", 2));
+	}
+
+	@Test
+	void testErrorInOneUpdateDoesNotBlockOtherWriters() throws Exception {
+		int threads = 8;
+		int perThread = 2_000;
+		ImmutableMapRef<Integer, Integer> ref = New.mapRef();
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			CountDownLatch start = new CountDownLatch(1);
+			List<Future<?>> futures = new ArrayList<>();
+			for (int t = 0; t < threads; t++) {
+				int first = t * perThread;
+				boolean failing = t == 0;
+				futures.add(executor.submit(() -> {
+					start.await();
+					for (int i = first; i < first + perThread; i++) {
+						if (failing) {
+							assertThrows(AssertionError.class, () -> ref.update(m -> {
+								throw new AssertionError();
+							}));
+						}
+						else {
+							ref.put(i, i);
+						}
+					}
+					return null;
+				}));
+			}
+			start.countDown();
+			for (Future<?> f : futures) {
+				f.get(1, TimeUnit.MINUTES);
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+		Map<Integer, Integer> expected = new HashMap<>();
+		for (int i = perThread; i < threads * perThread; i++) {
+			expected.put(i, i);
+		}
+		assertEquals(expected, ref.snapshot());
+	}
+
+	@Test
+	void testConcurrentUpdatesAreAllPublished() throws Exception {
+		int threads = 8;
+		int perThread = 5_000;
+		ImmutableMapRef<Integer, Integer> ref = New.mapRef();
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			CountDownLatch start = new CountDownLatch(1);
+			List<Future<?>> futures = new ArrayList<>();
+			for (int t = 0; t < threads; t++) {
+				int first = t * perThread;
+				futures.add(executor.submit(() -> {
+					start.await();
+					for (int i = first; i < first + perThread; i++) {
+						ref.put(i, i);
+						// counters shared by every thread
+						ref.update(m -> m.plus(-1, m.getOrDefault(-1, 0) + 1));
+						// own updates are visible as soon as they return
+						assertEquals(i, ref.get(i));
+					}
+					return null;
+				}));
+			}
+			start.countDown();
+			for (Future<?> f : futures) {
+				f.get(1, TimeUnit.MINUTES);
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+		Map<Integer, Integer> expected = new HashMap<>();
+		for (int i = 0; i < threads * perThread; i++) {
+			expected.put(i, i);
+		}
+		expected.put(-1, threads * perThread);
+		assertEquals(expected, ref.snapshot());
+		assertEquals(2L * threads * perThread, ref.updateCount());
+		assertTrue(ref.publishCount() <= ref.updateCount());
+	}
+
+}
@@ -0,0 +1,118 @@
+package org.pgris.new4java8;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MappedMapTest {
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void testWriteAndOpen() throws IOException {
+		Map<String, Long> source = new HashMap<>();
+		for (long i = 0; i < 10_000; i++) {
+			source.put("key" + i, i * i);
+		}
+		// a record bigger than the write buffer
+		StringBuilder big = new StringBuilder();
+		for (int i = 0; i < 100_000; i++) {
+			big.append('x');
+		}
+		source.put(big.toString(), -1L);
+		Path file = dir.resolve("squares.bin");
+		MappedMap.write(New.mapCopyOf(source), file, MappedMap.Codec.STRING, MappedMap.Codec.LONG);
+
+		Map<String, Long> map = MappedMap.open(file, MappedMap.Codec.STRING, MappedMap.Codec.LONG);
+		assertEquals(source.size(), map.size());
+		assertEquals(source, map);
+		assertEquals(map, source);
+		assertEquals(source.hashCode(), map.hashCode());
+		assertEquals(Long.valueOf(9801), map.get("key99"));
+		assertEquals(Long.valueOf(-1), map.get(big.toString()));
+		assertTrue(map.containsKey("key0"));
+		assertFalse(map.containsKey("key10000"));
+		assertNull(map.get("missing"));
+		assertNull(map.get(1));
+		assertThrows(NullPointerException.class, () -> map.get(null));
+		assertThrows(NullPointerException.class, () -> map.containsKey(null));
+		assertTrue(map.entrySet().contains(New.mapEntry("key99", 9801L)));
+		assertFalse(map.entrySet().contains(new AbstractMap.SimpleEntry<>(null, 9801L)));
+		assertThrows(UnsupportedOperationException.class, () -> map.put("a", 1L));
+		assertThrows(UnsupportedOperationException.class, () -> map.remove("key0"));
+		assertThrows(UnsupportedOperationException.class, map::clear);
+	}
+
+	@Test
+	void testEmptyAndNulls() throws IOException {
+		Path file = dir.resolve("empty.bin");
+		MappedMap.write(New.mapOf(), file, MappedMap.Codec.INTEGER, MappedMap.Codec.INTEGER);
+		Map<Integer, Integer> map = MappedMap.open(file, MappedMap.Codec.INTEGER, MappedMap.Codec.INTEGER);
+		assertTrue(map.isEmpty());
+		assertNull(map.get(1));
+
+		Map<Integer, Integer> withNull = new HashMap<>();
+		withNull.put(1, null);
+		assertThrows(NullPointerException.class,
+				() -> MappedMap.write(withNull, file, MappedMap.Codec.INTEGER, MappedMap.Codec.INTEGER));
+	}
+
+	@Test
+	void testNotAMappedMap() throws IOException {
+		Path file = dir.resolve("garbage.bin");
+		Files.write(file, new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16 });
+		assertThrows(IOException.class, () -> MappedMap.open(file, MappedMap.Codec.INTEGER, MappedMap.Codec.INTEGER));
+	}
+
+	@Test
+	void testCorruptHeader() throws IOException {
+		Path file = dir.resolve("corrupt.bin");
+		MappedMap.write(New.mapOf(1, 1, 2, 2, 3, 3), file, MappedMap.Codec.INTEGER, MappedMap.Codec.INTEGER);
+		byte[] valid = Files.readAllBytes(file);
+		// size then slots, after the magic number and the version
+		for (int[] header : new int[][] { { 3, 6 }, { 3, 0 }, { 3, -8 }, { 3, 1 << 20 }, { 5, 8 }, { -1, 8 } }) {
+			byte[] corrupt = valid.clone();
+			ByteBuffer.wrap(corrupt, 8, 8).putInt(header[0]).putInt(header[1]);
+			Files.write(file, corrupt);
+			assertThrows(IOException.class,
+					() -> MappedMap.open(file, MappedMap.Codec.INTEGER, MappedMap.Codec.INTEGER),
+					Arrays.toString(header));
+		}
+	}
+
+	@Test
+	void testSerializedAsRegularMap() throws IOException, ClassNotFoundException {
+		Path file = dir.resolve("small.bin");
+		MappedMap.write(New.mapOf(1, "one", 2, "two"), file, MappedMap.Codec.INTEGER, MappedMap.Codec.STRING);
+		Map<Integer, String> map = MappedMap.open(file, MappedMap.Codec.INTEGER, MappedMap.Codec.STRING);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(map);
+		}
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			Object copy = in.readObject();
+			assertEquals(map, copy);
+			assertFalse(copy instanceof MappedMap);
+		}
+	}
+
+}
@@ -0,0 +1,196 @@
+package org.pgris.new4java8;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MultimapTest {
+
+	@SuppressWarnings("unchecked")
+	private static <T> T roundTrip(T o) throws IOException, ClassNotFoundException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(o);
+		}
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			return (T) in.readObject();
+		}
+	}
+
+	private static Map<String, List<Integer>> routes() {
+		Map<String, List<Integer>> routes = new LinkedHashMap<>();
+		routes.put("/users", Arrays.asList(1, 2, 3));
+		routes.put("/orders", Arrays.asList(4));
+		routes.put("/health", Collections.emptyList());
+		routes.put("/items", Arrays.asList(5, 6, 5));
+		return routes;
+	}
+
+	@Test
+	void testListMultimap() {
+		ImmutableListMultimap<String, Integer> multimap = New.listMultimapOf(routes());
+		assertEquals(Arrays.asList(1, 2, 3), multimap.get("/users"));
+		assertEquals(Arrays.asList(5, 6, 5), multimap.get("/items"));
+		assertEquals(Collections.emptyList(), multimap.get("/health"));
+		assertEquals(Collections.emptyList(), multimap.get("/missing"));
+		assertEquals(Arrays.asList("/users", "/orders", "/items"), new ArrayList<>(multimap.keySet()));
+		assertEquals(Arrays.asList(1, 2, 3, 4, 5, 6, 5), multimap.values());
+		assertEquals(7, multimap.size());
+		assertFalse(multimap.isEmpty());
+		assertTrue(multimap.containsKey("/orders"));
+		assertFalse(multimap.containsKey("/health"));
+		assertTrue(multimap.containsEntry("/items", 6));
+		assertFalse(multimap.containsEntry("/items", 4));
+
+		Map<String, List<Integer>> expected = routes();
+		expected.remove("/health");
+		assertEquals(expected, multimap.asMap());
+		assertEquals(multimap.asMap(), expected);
+		assertEquals(expected.hashCode(), multimap.hashCode());
+		assertEquals(expected.toString(), multimap.toString());
+		assertEquals(multimap, New.listMultimapOf(expected));
+		assertEquals(multimap, New.listMultimapOf(multimap.asMap()));
+		Map<String, List<Integer>> orders = Collections.singletonMap("/orders", Arrays.asList(4));
+		assertNotEquals(New.listMultimapOf(orders), New.setMultimapOf(orders));
+
+		List<String> visited = new ArrayList<>();
+		multimap.forEach((k, v) -> visited.add(k + v));
+		assertEquals(Arrays.asList("/users1", "/users2", "/users3", "/orders4", "/items5", "/items6", "/items5"),
+				visited);
+		List<Integer> users = multimap.get("/users");
+		assertEquals(Arrays.asList(2, 3), users.subList(1, 3));
+		assertThrows(UnsupportedOperationException.class, () -> users.add(4));
+		assertThrows(UnsupportedOperationException.class, () -> multimap.asMap().remove("/users"));
+		assertTrue(multimap.asMap().entrySet().contains(New.mapEntry("/orders", Arrays.asList(4))));
+		assertFalse(multimap.asMap().entrySet().contains(new AbstractMap.SimpleEntry<>(null, Arrays.asList(4))));
+		assertThrows(NullPointerException.class, () -> multimap.get(null));
+		assertThrows(NullPointerException.class, () -> multimap.containsEntry("/users", null));
+		assertThrows(NullPointerException.class, () -> New.listMultimapOf(null));
+		assertThrows(NullPointerException.class,
+				() -> New.listMultimapOf(Collections.singletonMap("a", Arrays.asList(1, null))));
+		assertThrows(NullPointerException.class,
+				() -> New.listMultimapOf(Collections.singletonMap("a", (List<Integer>) null)));
+		assertTrue(New.listMultimapOf(Collections.<String, List<Integer>>emptyMap()).isEmpty());
+	}
+
+	@Test
+	void testSetMultimap() {
+		// "Aa" and "BB" have the same hash code
+		Map<Integer, Set<String>> expected = new HashMap<>();
+		for (int k = 0; k < 50; k++) {
+			Set<String> values = IntStream.range(0, k).mapToObj(i -> "v" + i).collect(Collectors.toSet());
+			values.add("Aa" + k);
+			values.add("BB" + k);
+			expected.put(k, values);
+		}
+		ImmutableSetMultimap<Integer, String> multimap = New.setMultimapOf(expected);
+		assertEquals(expected, multimap.asMap());
+		assertEquals(expected.hashCode(), multimap.hashCode());
+		for (int k = 0; k < 50; k++) {
+			Set<String> values = multimap.get(k);
+			assertEquals(expected.get(k), values);
+			assertEquals(values, expected.get(k));
+			for (String v : expected.get(k)) {
+				assertTrue(values.contains(v));
+			}
+			assertFalse(values.contains("v" + k));
+			assertFalse(values.contains("Ab" + k));
+			assertEquals(expected.get(k), new HashSet<>(values));
+		}
+		assertEquals(Collections.emptySet(), multimap.get(50));
+		assertThrows(NullPointerException.class, () -> multimap.get(1).contains(null));
+
+		Map<String, List<String>> repeated = Collections.singletonMap("a", Arrays.asList("x", "y", "x"));
+		IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> New.setMultimapOf(repeated));
+		assertEquals("duplicate element: x", e.getMessage());
+	}
+
+	@Test
+	void testBiMap() {
+		Map<String, Integer> ids = new LinkedHashMap<>();
+		for (int i = 0; i < 1_000; i++) {
+			ids.put("id" + i, i * 31);
+		}
+		ImmutableBiMap<String, Integer> biMap = New.biMapOf(ids);
+		ImmutableBiMap<Integer, String> inverse = biMap.inverse();
+		assertSame(inverse, biMap.inverse());
+		assertSame(biMap, inverse.inverse());
+		assertEquals(ids, biMap);
+		assertEquals(biMap, ids);
+		assertEquals(ids.hashCode(), biMap.hashCode());
+		assertEquals(new ArrayList<>(ids.keySet()), new ArrayList<>(biMap.keySet()));
+		Map<Integer, String> expectedInverse = new HashMap<>();
+		ids.forEach((k, v) -> expectedInverse.put(v, k));
+		assertEquals(expectedInverse, inverse);
+		for (int i = 0; i < 1_000; i++) {
+			assertEquals(Integer.valueOf(i * 31), biMap.get("id" + i));
+			assertEquals("id" + i, inverse.get(i * 31));
+			assertTrue(biMap.containsValue(i * 31));
+			assertTrue(inverse.containsValue("id" + i));
+		}
+		assertNull(biMap.get("id1000"));
+		assertNull(inverse.get(1));
+		assertFalse(biMap.containsValue(1));
+		assertSame(biMap, New.biMapOf(biMap));
+		assertEquals(New.mapOf(), New.biMapOf(New.mapOf()));
+		assertThrows(NullPointerException.class, () -> biMap.get(null));
+		assertThrows(NullPointerException.class, () -> inverse.containsValue(null));
+		assertFalse(biMap.entrySet().contains(new AbstractMap.SimpleEntry<>(null, 0)));
+		assertFalse(inverse.entrySet().contains(new AbstractMap.SimpleEntry<>(null, "id0")));
+		assertThrows(UnsupportedOperationException.class, () -> inverse.put(1, "a"));
+
+		Map<String, Integer> repeated = new LinkedHashMap<>();
+		repeated.put("a", 1);
+		repeated.put("b", 2);
+		repeated.put("c", 1);
+		IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> New.biMapOf(repeated));
+		assertEquals("duplicated value:1", e.getMessage());
+		Map<String, Integer> nullValue = new HashMap<>();
+		nullValue.put("a", null);
+		assertThrows(NullPointerException.class, () -> New.biMapOf(nullValue));
+	}
+
+	@Test
+	void testSerialization() throws Exception {
+		ImmutableListMultimap<String, Integer> list = New.listMultimapOf(routes());
+		assertEquals(list, roundTrip(list));
+		assertEquals(list.asMap(), roundTrip(list.asMap()));
+		assertEquals(list.get("/users"), roundTrip(list.get("/users")));
+		Map<String, Collection<Integer>> sets = new HashMap<>();
+		sets.put("a", Arrays.asList(1, 2, 3));
+		ImmutableSetMultimap<String, Integer> set = New.setMultimapOf(sets);
+		ImmutableSetMultimap<String, Integer> setCopy = roundTrip(set);
+		assertEquals(set, setCopy);
+		assertTrue(setCopy.containsEntry("a", 2));
+		ImmutableBiMap<String, Integer> biMap = New.biMapOf(New.mapOf("a", 1, "b", 2));
+		ImmutableBiMap<Integer, String> inverseCopy = roundTrip(biMap.inverse());
+		assertEquals(biMap.inverse(), inverseCopy);
+		assertEquals(biMap, inverseCopy.inverse());
+	}
+
+}
@@ -2,14 +2,36 @@ package org.pgris.new4java8;
 
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.AbstractCollection;
 import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.RandomAccess;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
 
 class NewTest {
 
@@ -108,6 +130,44 @@ class NewTest {
 
 	}
 
+	@Test
+	void testListOfN() {
+		List<String> result = New.listOf("a", "b", "c", "d", "e");
+		assertTrue(result instanceof RandomAccess);
+		assertEquals(Arrays.asList("a", "b", "c", "d", "e"), result);
+		assertEquals(Arrays.asList("a", "b", "c", "d", "e").hashCode(), result.hashCode());
+		assertEquals(result, New.listOf("a", "b", "c", "d", "e"));
+		assertEquals(2, result.indexOf("c"));
+		assertEquals(-1, result.indexOf("z"));
+		assertTrue(result.contains("e"));
+		assertThrows(IndexOutOfBoundsException.class, () -> result.get(5));
+
+		List<String> subList = result.subList(1, 4);
+		assertTrue(subList instanceof RandomAccess);
+		assertEquals(Arrays.asList("b", "c", "d"), subList);
+		assertEquals(Arrays.asList("c"), subList.subList(1, 2));
+		assertThrows(IndexOutOfBoundsException.class, () -> subList.get(3));
+		assertThrows(UnsupportedOperationException.class, () -> subList.set(0, "z"));
+		assertThrows(UnsupportedOperationException.class, () -> subList.clear());
+
+		String[] array = { "a", "b", "c", "d" };
+		List<String> copy = New.listOf(array);
+		array[0] = "z";
+		assertEquals("a", copy.get(0));
+	}
+
+	@Test
+	void testListOf10() {
+		List<Integer> result = New.listOf(1, 2, 3, 4, 5, 6, 7, 8, 9, 10);
+		assertEquals(Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8, 9, 10), result);
+		assertEquals(Arrays.asList(1, 2), New.listOf(1, 2));
+		assertEquals(Arrays.asList(1, 2).hashCode(), New.listOf(1, 2).hashCode());
+		assertEquals(Arrays.asList(1), New.listOf(new Integer[] { 1 }));
+		assertEquals(1, New.listOf(1, 2).indexOf(2));
+		assertThrows(IndexOutOfBoundsException.class, () -> New.listOf(1).get(1));
+		assertThrows(NullPointerException.class, () -> New.listOf(1, 2, 3, 4, 5, 6, 7, 8, 9, null));
+	}
+
 	/* SET */
 
 	@Test
@@ -196,6 +256,49 @@ class NewTest {
 
 	}
 
+	@Test
+	void testSetOf10() {
+		Set<Integer> result = New.setOf(1, 2, 3, 4, 5, 6, 7, 8, 9, 10);
+		assertEquals(new HashSet<>(Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8, 9, 10)), result);
+		assertEquals(new HashSet<>(Arrays.asList(1, 2)), New.setOf(1, 2));
+		assertEquals(New.setOf(1, 2), new HashSet<>(Arrays.asList(1, 2)));
+		assertEquals(new HashSet<>(Arrays.asList(1, 2)).hashCode(), New.setOf(2, 1).hashCode());
+		assertEquals(new HashSet<>(Arrays.asList(1, 2)), new HashSet<>(New.setOf(1, 2)));
+		assertThrows(IllegalArgumentException.class, () -> New.setOf(1, 2, 3, 4, 5, 6, 7, 8, 9, 1));
+		assertThrows(NullPointerException.class, () -> New.setOf(1, 2, 3, 4, 5, 6, 7, 8, 9, null));
+	}
+
+	@Test
+	void testSetOfN() throws Exception {
+		Integer[] elements = new Integer[1000];
+		for (int i = 0; i < elements.length; i++) {
+			elements[i] = i * 31;
+		}
+		Set<Integer> result = New.setOf(elements);
+		Set<Integer> expected = new HashSet<>(Arrays.asList(elements));
+		assertEquals(1000, result.size());
+		assertEquals(expected, result);
+		assertEquals(result, expected);
+		assertEquals(expected.hashCode(), result.hashCode());
+		assertEquals(expected, new HashSet<>(result));
+		assertTrue(result.contains(31 * 999));
+		assertFalse(result.contains(1));
+		assertThrows(NullPointerException.class, () -> result.contains(null));
+		assertEquals(result, roundTrip(result));
+		assertTrue(roundTrip(result).contains(31));
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> T roundTrip(T object) throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(object);
+		}
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			return (T) in.readObject();
+		}
+	}
+
 	/* MAP */
 	@Test
 	void testMapOf0() {
@@ -258,6 +361,32 @@ class NewTest {
 		assertThrows(IllegalArgumentException.class, () -> New.mapOf("a", 1, "b", 2, "a", 3));
 	}
 
+	@Test
+	void testEntrySetDoesNotContainNullKeys() {
+		Map<String, String> withNullKey = new HashMap<>();
+		withNullKey.put(null, "1");
+		Map<String, String> result = New.mapOf("a", "1", "b", "2", "c", "3");
+		assertFalse(result.entrySet().contains(new AbstractMap.SimpleEntry<>(null, "1")));
+		assertFalse(result.entrySet().containsAll(withNullKey.entrySet()));
+		assertNotEquals(withNullKey.entrySet(), result.entrySet());
+	}
+
+	@Test
+	void testMapOf10() {
+		Map<Integer, String> result = New.mapOf(1, "a", 2, "b", 3, "c", 4, "d", 5, "e", 6, "f", 7, "g", 8, "h", 9, "i",
+				10, "j");
+		assertEquals(10, result.size());
+		assertEquals("a", result.get(1));
+		assertEquals("j", result.get(10));
+		assertEquals(Collections.singletonMap(1, "a"), New.mapOf(1, "a"));
+		assertEquals(Collections.singletonMap(1, "a").hashCode(), New.mapOf(1, "a").hashCode());
+		assertEquals(Collections.singletonMap(1, "a").entrySet(), New.mapOf(1, "a").entrySet());
+		assertThrows(IllegalArgumentException.class,
+				() -> New.mapOf(1, "a", 2, "b", 3, "c", 4, "d", 5, "e", 6, "f", 7, "g", 8, "h", 9, "i", 1, "j"));
+		assertThrows(NullPointerException.class,
+				() -> New.mapOf(1, "a", 2, "b", 3, "c", 4, "d", 5, "e", 6, "f", 7, "g", 8, "h", 9, "i", 10, null));
+	}
+
 	@Test
 	void testMapEntry() {
 		Map.Entry<String, Integer> result = New.mapEntry("a", 1);
@@ -300,4 +429,354 @@ class NewTest {
 
 	}
 
+	@Test
+	void testMapOfEntriesN() throws Exception {
+		@SuppressWarnings("unchecked")
+		Map.Entry<Integer, String>[] entries = new Map.Entry[1000];
+		Map<Integer, String> expected = new HashMap<>();
+		for (int i = 0; i < entries.length; i++) {
+			entries[i] = New.mapEntry(i * 31, "v" + i);
+			expected.put(i * 31, "v" + i);
+		}
+		Map<Integer, String> result = New.mapOfEntries(entries);
+		assertEquals(1000, result.size());
+		assertEquals(expected, result);
+		assertEquals(result, expected);
+		assertEquals(expected.hashCode(), result.hashCode());
+		assertEquals(expected.entrySet(), result.entrySet());
+		assertEquals(expected.keySet(), result.keySet());
+		assertEquals("v999", result.get(31 * 999));
+		assertNull(result.get(1));
+		assertTrue(result.containsValue("v3"));
+		assertThrows(NullPointerException.class, () -> result.get(null));
+		assertThrows(UnsupportedOperationException.class, () -> result.putIfAbsent(1, "z"));
+		assertEquals(result, roundTrip(result));
+		assertEquals("v1", roundTrip(result).get(31));
+	}
+
+	@Test
+	void testMapOfEntriesPerfect() throws Exception {
+		@SuppressWarnings("unchecked")
+		Map.Entry<String, Integer>[] entries = new Map.Entry[10_000];
+		Map<String, Integer> expected = new HashMap<>();
+		for (int i = 0; i < entries.length; i++) {
+			entries[i] = New.mapEntry("token" + i, i);
+			expected.put("token" + i, i);
+		}
+		Map<String, Integer> result = New.mapOfEntriesPerfect(entries);
+		assertTrue(result instanceof ImmutableCollections.MapPerfect);
+		assertEquals(expected, result);
+		assertEquals(result, expected);
+		assertEquals(expected.hashCode(), result.hashCode());
+		for (Map.Entry<String, Integer> e : entries) {
+			assertEquals(e.getValue(), result.get(e.getKey()));
+		}
+		assertNull(result.get("token10000"));
+		assertNull(result.get(1));
+		assertFalse(result.containsKey("other"));
+		assertTrue(result.containsValue(9999));
+		assertThrows(NullPointerException.class, () -> result.get(null));
+		assertThrows(NullPointerException.class, () -> result.containsKey(null));
+		assertFalse(result.entrySet().contains(new AbstractMap.SimpleEntry<>(null, 1)));
+		assertThrows(UnsupportedOperationException.class, () -> result.put("a", 1));
+		assertSame(result, New.mapCopyOf(result));
+		assertEquals(result, roundTrip(result));
+		assertEquals(Integer.valueOf(7), roundTrip(result).get("token7"));
+
+		assertThrows(IllegalArgumentException.class,
+				() -> New.mapOfEntriesPerfect(New.mapEntry("a", 1), New.mapEntry("b", 2), New.mapEntry("a", 3)));
+		assertThrows(NullPointerException.class,
+				() -> New.mapOfEntriesPerfect(New.mapEntry("a", 1), New.mapEntry("b", 2), null));
+		assertEquals(New.mapOf("a", 1), New.mapOfEntriesPerfect(New.mapEntry("a", 1)));
+		assertTrue(New.mapOfEntriesPerfect().isEmpty());
+		// "Aa" and "BB" have the same hash code, so there is no perfect hash
+		Map<String, Integer> colliding = New.mapOfEntriesPerfect(New.mapEntry("Aa", 1), New.mapEntry("BB", 2));
+		assertEquals(New.mapOf("Aa", 1, "BB", 2), colliding);
+	}
+
+	@Test
+	void testMapOfEntriesPerfectScales() {
+		for (int size : new int[] { 100_000, 1_000_000 }) {
+			@SuppressWarnings("unchecked")
+			Map.Entry<Integer, Integer>[] entries = new Map.Entry[size];
+			for (int i = 0; i < size; i++) {
+				entries[i] = New.mapEntry(i, -i);
+			}
+			Map<Integer, Integer> result = New.mapOfEntriesPerfect(entries);
+			assertTrue(result instanceof ImmutableCollections.MapPerfect, size + " keys");
+			assertEquals(size, result.size());
+			for (int i = 0; i < size; i++) {
+				assertEquals(Integer.valueOf(-i), result.get(i));
+			}
+			assertNull(result.get(size));
+			assertNull(result.get(-1));
+		}
+	}
+
+	/* COPY */
+
+	@Test
+	void testListCopyOf() {
+		List<String> immutable = New.listOf("a", "b", "c");
+		assertSame(immutable, New.listCopyOf(immutable));
+		List<String> mutable = new ArrayList<>(Arrays.asList("a", "b", "c"));
+		List<String> copy = New.listCopyOf(mutable);
+		mutable.set(0, "z");
+		assertEquals(Arrays.asList("a", "b", "c"), copy);
+		assertNotSame(copy.subList(0, 1), New.listCopyOf(copy.subList(0, 1)));
+		assertEquals(Arrays.asList("a"), New.listCopyOf(copy.subList(0, 1)));
+		assertThrows(UnsupportedOperationException.class, () -> copy.add("d"));
+		assertThrows(NullPointerException.class, () -> New.listCopyOf(Arrays.asList("a", null, "c")));
+	}
+
+	/**
+	 * A collection that hands out its own array from {@code toArray}, which the contract
+	 * of {@code Collection} does not forbid
+	 */
+	private static final class SharingArray extends AbstractCollection<String> {
+
+		final Object[] array;
+
+		SharingArray(Object... array) {
+			this.array = array;
+		}
+
+		@Override
+		public Object[] toArray() {
+			return array;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public Iterator<String> iterator() {
+			return (Iterator<String>) (Iterator<?>) Arrays.asList(array).iterator();
+		}
+
+		@Override
+		public int size() {
+			return array.length;
+		}
+
+	}
+
+	@Test
+	void testCopyOfDoesNotKeepTheArrayOfToArray() {
+		SharingArray sharing = new SharingArray("a", "b", "c", "d");
+		List<String> list = New.listCopyOf(sharing);
+		Set<String> set = New.setCopyOf(sharing);
+		List<String> persistent = New.persistentListCopyOf(sharing);
+		sharing.array[0] = "MUTATED";
+		assertEquals(Arrays.asList("a", "b", "c", "d"), list);
+		assertEquals(New.setOf("a", "b", "c", "d"), set);
+		assertEquals(Arrays.asList("a", "b", "c", "d"), persistent);
+	}
+
+	@Test
+	void testSetCopyOf() {
+		Set<String> immutable = New.setOf("a", "b", "c");
+		assertSame(immutable, New.setCopyOf(immutable));
+		assertEquals(New.setOf("a", "b", "c"), New.setCopyOf(Arrays.asList("a", "b", "c", "a")));
+		assertEquals(New.setOf("a"), New.setCopyOf(Arrays.asList("a", "a", "a")));
+		assertThrows(UnsupportedOperationException.class, () -> New.setCopyOf(Arrays.asList("a", "b")).add("d"));
+		assertThrows(NullPointerException.class, () -> New.setCopyOf(Arrays.asList("a", null, "c")));
+	}
+
+	@Test
+	void testMapCopyOf() {
+		Map<String, Integer> immutable = New.mapOf("a", 1, "b", 2, "c", 3);
+		assertSame(immutable, New.mapCopyOf(immutable));
+		Map<String, Integer> mutable = new HashMap<>(immutable);
+		Map<String, Integer> copy = New.mapCopyOf(mutable);
+		mutable.put("d", 4);
+		assertEquals(immutable, copy);
+		assertThrows(UnsupportedOperationException.class, () -> copy.put("d", 4));
+		mutable.put("e", null);
+		assertThrows(NullPointerException.class, () -> New.mapCopyOf(mutable));
+	}
+
+	@Test
+	void testDelegatesToJdkCollectionsOnlyFromJarOnJava9() {
+		boolean jar = Factories.class.getProtectionDomain().getCodeSource().getLocation().getPath().endsWith(".jar");
+		boolean java9 = !System.getProperty("java.specification.version").startsWith("1.");
+		assertEquals(jar && java9, Factories.USES_JDK_COLLECTIONS);
+		for (Object o : New.listOf(New.listOf(1), New.listOf(1, 2, 3), New.setOf(1), New.setOf(1, 2, 3),
+				New.mapOf(1, 2), New.mapOf(1, 2, 3, 4), New.listCopyOf(Arrays.asList(1, 2)),
+				New.setCopyOf(Arrays.asList(1, 1)), New.mapCopyOf(Collections.singletonMap(1, 2)))) {
+			assertEquals(Factories.USES_JDK_COLLECTIONS, o.getClass().getName().startsWith("java.util."),
+					o.getClass()::getName);
+		}
+		assertSame(New.setOf(1, 2, 3).getClass(), New.setCopyOf(New.setOf(1, 2, 3)).getClass());
+	}
+
+	/* COLLECTORS */
+
+	@Test
+	void testToUnmodifiableList() {
+		List<Integer> result = IntStream.range(0, 1000).boxed().parallel().collect(New.toUnmodifiableList());
+		assertEquals(IntStream.range(0, 1000).boxed().collect(Collectors.toList()), result);
+		assertThrows(UnsupportedOperationException.class, () -> result.add(1));
+		assertEquals(New.listOf(), Stream.empty().collect(New.toUnmodifiableList()));
+		assertEquals(New.listOf("a"), Stream.of("a").collect(New.toUnmodifiableList()));
+		assertThrows(NullPointerException.class, () -> Stream.of("a", null).collect(New.toUnmodifiableList()));
+	}
+
+	@Test
+	void testToUnmodifiableSet() {
+		Set<Integer> result = IntStream.range(0, 1000).map(i -> i % 500).boxed().parallel()
+				.collect(New.toUnmodifiableSet());
+		assertEquals(IntStream.range(0, 500).boxed().collect(Collectors.toSet()), result);
+		assertThrows(UnsupportedOperationException.class, () -> result.add(1));
+		assertEquals(New.setOf("a"), Stream.of("a", "a").collect(New.toUnmodifiableSet()));
+		assertThrows(NullPointerException.class, () -> Stream.of("a", null).collect(New.toUnmodifiableSet()));
+	}
+
+	@Test
+	void testToUnmodifiableMap() {
+		Map<Integer, Integer> result = IntStream.range(0, 1000).boxed().parallel()
+				.collect(New.toUnmodifiableMap(i -> i, i -> i * 2));
+		assertEquals(IntStream.range(0, 1000).boxed().collect(Collectors.toMap(i -> i, i -> i * 2)), result);
+		assertThrows(UnsupportedOperationException.class, () -> result.put(1, 1));
+		assertThrows(IllegalStateException.class,
+				() -> Stream.of("a", "b", "a").collect(New.toUnmodifiableMap(s -> s, s -> 1)));
+		assertEquals(New.mapOf("a", 2, "b", 1),
+				Stream.of("a", "b", "a").collect(New.toUnmodifiableMap(s -> s, s -> 1, Integer::sum)));
+		assertThrows(NullPointerException.class,
+				() -> Stream.of("a").collect(New.toUnmodifiableMap(s -> s, s -> null)));
+		// the merge function sees values in encounter order, even in parallel
+		for (int i = 0; i < 20; i++) {
+			Map<Integer, Integer> last = IntStream.range(0, 10_000).boxed().parallel()
+					.collect(New.toUnmodifiableMap(k -> k % 10, k -> k, (a, b) -> b));
+			assertEquals(Integer.valueOf(9_999), last.get(9));
+			assertEquals(Integer.valueOf(9_990), last.get(0));
+		}
+	}
+
+	/* HASH CACHE */
+
+	/**
+	 * Counts calls to equals, to tell whether elements were compared at all
+	 */
+	private static final class Counted {
+
+		static int equalsCalls;
+
+		final int value;
+
+		Counted(int value) {
+			this.value = value;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			equalsCalls++;
+			return o instanceof Counted && ((Counted) o).value == value;
+		}
+
+		@Override
+		public int hashCode() {
+			return value;
+		}
+
+	}
+
+	private static Counted[] counted(int from, int to) {
+		return IntStream.range(from, to).mapToObj(Counted::new).toArray(Counted[]::new);
+	}
+
+	@Test
+	void testCachedHashShortCircuitsEquals() {
+		assumeFalse(Factories.USES_JDK_COLLECTIONS, "checks this library's own implementations");
+		List<Counted> list1 = New.listOf(counted(0, 100));
+		List<Counted> list2 = New.listOf(counted(1, 101));
+		Set<Counted> set1 = New.setOf(counted(0, 100));
+		Set<Counted> set2 = New.setOf(counted(1, 101));
+		Map<Counted, Counted> map1 = New.mapOfEntries(Arrays.stream(counted(0, 100))
+				.map(c -> New.mapEntry(c, new Counted(c.value + 1000))).toArray(Map.Entry[]::new));
+		Map<Counted, Counted> map2 = New.mapOfEntries(Arrays.stream(counted(1, 101))
+				.map(c -> New.mapEntry(c, new Counted(c.value + 1000))).toArray(Map.Entry[]::new));
+		for (Object o : New.listOf(list1, list2, set1, set2, map1, map2)) {
+			assertEquals(o.hashCode(), o.hashCode());
+		}
+		Counted.equalsCalls = 0;
+		assertNotEquals(list1, list2);
+		assertNotEquals(set1, set2);
+		assertNotEquals(map1, map2);
+		assertEquals(0, Counted.equalsCalls);
+
+		assertEquals(list1, New.listOf(counted(0, 100)));
+		assertEquals(set1, New.setOf(counted(0, 100)));
+		assertEquals(map1, new HashMap<>(map1));
+		assertEquals(new HashMap<>(map1), map1);
+		assertEquals(set1, new HashSet<>(set1));
+		assertEquals(new HashSet<>(set1), set1);
+	}
+
+	/* SPLITERATORS */
+
+	private static final int IMMUTABLE_NONNULL = Spliterator.SIZED | Spliterator.IMMUTABLE | Spliterator.NONNULL;
+
+	@Test
+	void testListSpliterator() {
+		assumeFalse(Factories.USES_JDK_COLLECTIONS, "checks this library's own implementations");
+		Integer[] elements = IntStream.range(0, 1000).boxed().toArray(Integer[]::new);
+		for (List<Integer> list : New.listOf(New.listOf(elements), New.listOf(elements).subList(0, 1000),
+				New.listOf(1, 2), New.listOf(1))) {
+			Spliterator<Integer> spliterator = list.spliterator();
+			assertTrue(spliterator.hasCharacteristics(IMMUTABLE_NONNULL | Spliterator.SUBSIZED | Spliterator.ORDERED));
+			assertEquals(list.size(), spliterator.estimateSize());
+			assertEquals(list, list.parallelStream().collect(Collectors.toList()));
+			List<Integer> visited = new ArrayList<>();
+			list.forEach(visited::add);
+			assertEquals(list, visited);
+		}
+		Spliterator<Integer> spliterator = New.listOf(elements).subList(0, 1000).spliterator();
+		Spliterator<Integer> prefix = spliterator.trySplit();
+		assertEquals(500, prefix.estimateSize());
+		assertEquals(500, spliterator.estimateSize());
+		assertTrue(prefix.tryAdvance(e -> assertEquals(Integer.valueOf(0), e)));
+	}
+
+	@Test
+	void testSetSpliterator() {
+		assumeFalse(Factories.USES_JDK_COLLECTIONS, "checks this library's own implementations");
+		Set<Integer> set = New.setCopyOf(IntStream.range(0, 1000).boxed().collect(Collectors.toList()));
+		for (Set<Integer> s : New.listOf(set, New.setOf(1, 2), New.setOf(1))) {
+			Spliterator<Integer> spliterator = s.spliterator();
+			assertTrue(spliterator.hasCharacteristics(IMMUTABLE_NONNULL | Spliterator.DISTINCT));
+			assertEquals(s.size(), spliterator.estimateSize());
+			assertEquals(s, s.parallelStream().collect(Collectors.toSet()));
+			Set<Integer> visited = new HashSet<>();
+			s.forEach(visited::add);
+			assertEquals(s, visited);
+		}
+		assertEquals(999 * 1000 / 2, set.parallelStream().mapToInt(i -> i).sum());
+		Spliterator<Integer> spliterator = set.spliterator();
+		assertTrue(spliterator.trySplit().estimateSize() > 0);
+		assertTrue(spliterator.estimateSize() > 0);
+	}
+
+	@Test
+	void testMapSpliterator() {
+		assumeFalse(Factories.USES_JDK_COLLECTIONS, "checks this library's own implementations");
+		Map<Integer, Integer> map = IntStream.range(0, 1000).boxed().collect(New.toUnmodifiableMap(i -> i, i -> i * 2));
+		@SuppressWarnings("unchecked")
+		Map.Entry<Integer, Integer>[] entries = map.entrySet().toArray(new Map.Entry[0]);
+		Map<Integer, Integer> perfect = New.mapOfEntriesPerfect(entries);
+		for (Map<Integer, Integer> m : New.listOf(map, perfect, New.mapOf(1, 2))) {
+			Spliterator<Map.Entry<Integer, Integer>> spliterator = m.entrySet().spliterator();
+			assertTrue(spliterator.hasCharacteristics(IMMUTABLE_NONNULL | Spliterator.DISTINCT));
+			assertEquals(m.size(), spliterator.estimateSize());
+			assertEquals(m,
+					m.entrySet().parallelStream().collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue)));
+			Map<Integer, Integer> visited = new HashMap<>();
+			m.forEach(visited::put);
+			assertEquals(m, visited);
+		}
+		// a dense table splits in exact halves
+		Spliterator<Map.Entry<Integer, Integer>> spliterator = perfect.entrySet().spliterator();
+		assertTrue(spliterator.hasCharacteristics(Spliterator.SUBSIZED));
+		assertEquals(500, spliterator.trySplit().estimateSize());
+		assertEquals(500, spliterator.getExactSizeIfKnown());
+	}
+
 }
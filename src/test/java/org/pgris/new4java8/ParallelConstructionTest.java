@@ -0,0 +1,130 @@
+package org.pgris.new4java8;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ParallelConstructionTest {
+
+	/**
+	 * Key whose hash code is shared by 64 consecutive values, spread so each cluster
+	 * takes 64 slots of a table with 2 slots per key, and is {@code -1} for negative
+	 * values, which puts them in the last slot of the table
+	 */
+	private static final class Clustered {
+
+		final int value;
+
+		Clustered(int value) {
+			this.value = value;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof Clustered && ((Clustered) o).value == value;
+		}
+
+		@Override
+		public int hashCode() {
+			return value < 0 ? -1 : value / 64 * 128;
+		}
+
+		@Override
+		public String toString() {
+			return "c" + value;
+		}
+
+	}
+
+	private static Clustered[] clustered(int size) {
+		// a few keys probing from the last slot, wrapping around to the first ones
+		return IntStream.range(0, size).map(i -> i < 100 ? -i - 1 : i).mapToObj(Clustered::new)
+				.toArray(Clustered[]::new);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <K> Map.Entry<K, Integer>[] entries(K[] keys) {
+		return IntStream.range(0, keys.length).mapToObj(i -> New.mapEntry(keys[i], i)).toArray(Map.Entry[]::new);
+	}
+
+	@Test
+	void testSetHasEveryElement() {
+		for (int size : new int[] { 0, 1, 2, 3, 1_000, 100_000 }) {
+			Integer[] elements = IntStream.range(0, size).map(i -> i * 7919).boxed().toArray(Integer[]::new);
+			Set<Integer> set = New.parallelSetOf(elements);
+			assertEquals(new HashSet<>(Arrays.asList(elements)), set);
+			assertEquals(size, set.size());
+			assertFalse(set.contains(1));
+		}
+		Clustered[] elements = clustered(200_000);
+		Set<Clustered> set = New.parallelSetOf(elements);
+		assertEquals(new HashSet<>(Arrays.asList(elements)), set);
+		for (Clustered e : elements) {
+			assertTrue(set.contains(e));
+		}
+		assertFalse(set.contains(new Clustered(-101)));
+		assertFalse(set.contains(new Clustered(200_000)));
+	}
+
+	@Test
+	void testMapHasEveryMapping() {
+		for (int size : new int[] { 0, 1, 2, 1_000, 100_000 }) {
+			String[] keys = IntStream.range(0, size).mapToObj(i -> "key" + i).toArray(String[]::new);
+			Map.Entry<String, Integer>[] entries = entries(keys);
+			Map<String, Integer> expected = new HashMap<>();
+			for (Map.Entry<String, Integer> e : entries) {
+				expected.put(e.getKey(), e.getValue());
+			}
+			assertEquals(expected, New.parallelMapOfEntries(entries));
+		}
+		Map.Entry<Clustered, Integer>[] entries = entries(clustered(200_000));
+		Map<Clustered, Integer> map = New.parallelMapOfEntries(entries);
+		assertEquals(entries.length, map.size());
+		for (Map.Entry<Clustered, Integer> e : entries) {
+			assertEquals(e.getValue(), map.get(e.getKey()));
+		}
+		assertEquals(New.mapOfEntries(entries), map);
+	}
+
+	@Test
+	void testFirstNullOrDuplicateThrows() {
+		for (int n = 0; n < 3; n++) {
+			Integer[] elements = IntStream.range(0, 100_000).boxed().toArray(Integer[]::new);
+			elements[70_000] = 10;
+			elements[90_000] = 20;
+			elements[80_000] = null;
+			IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+					() -> New.parallelSetOf(elements));
+			assertEquals("duplicate element: 10", e.getMessage());
+			elements[60_000] = null;
+			assertThrows(NullPointerException.class, () -> New.parallelSetOf(elements));
+
+			Map.Entry<Integer, Integer>[] entries = entries(
+					IntStream.range(0, 100_000).boxed().toArray(Integer[]::new));
+			entries[70_000] = New.mapEntry(10, 0);
+			entries[90_000] = New.mapEntry(20, 0);
+			entries[80_000] = null;
+			e = assertThrows(IllegalArgumentException.class, () -> New.parallelMapOfEntries(entries));
+			assertEquals("duplicated key:10", e.getMessage());
+			entries[60_000] = null;
+			assertThrows(NullPointerException.class, () -> New.parallelMapOfEntries(entries));
+		}
+		Clustered[] elements = clustered(200_000);
+		elements[150_000] = new Clustered(-100);
+		IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> New.parallelSetOf(elements));
+		assertEquals("duplicate element: c-100", e.getMessage());
+		assertThrows(NullPointerException.class, () -> New.parallelSetOf((Object[]) null));
+		assertThrows(NullPointerException.class, () -> New.parallelMapOfEntries((Map.Entry[]) null));
+	}
+
+}
@@ -0,0 +1,224 @@
+package org.pgris.new4java8;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PersistentCollectionsTest {
+
+	/**
+	 * Key whose hash code is its value divided by 4, so every hash code is shared by four
+	 * keys
+	 */
+	private static final class Colliding implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		final int value;
+
+		Colliding(int value) {
+			this.value = value;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof Colliding && ((Colliding) o).value == value;
+		}
+
+		@Override
+		public int hashCode() {
+			return value / 4;
+		}
+
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> T roundTrip(T o) throws IOException, ClassNotFoundException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(o);
+		}
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			return (T) in.readObject();
+		}
+	}
+
+	@Test
+	void testListAppendWithRemoveLast() {
+		PersistentList<Integer> list = New.persistentListOf();
+		List<Integer> expected = new ArrayList<>();
+		List<PersistentList<Integer>> versions = new ArrayList<>();
+		for (int i = 0; i < 40_000; i++) {
+			versions.add(list);
+			list = list.append(i);
+			expected.add(i);
+		}
+		assertEquals(expected, list);
+		assertEquals(expected.hashCode(), list.hashCode());
+		assertEquals(expected, New.persistentListCopyOf(expected));
+		// older versions are left untouched
+		for (int i = 0; i < versions.size(); i += 997) {
+			assertEquals(expected.subList(0, i), versions.get(i));
+		}
+		Random random = new Random(42);
+		for (int n = 0; n < 2_000; n++) {
+			int index = random.nextInt(expected.size());
+			expected.set(index, -index);
+			list = list.with(index, -index);
+		}
+		assertEquals(expected, list);
+		assertSame(list, list.with(0, list.get(0)));
+		while (!list.isEmpty()) {
+			assertEquals(expected.get(expected.size() - 1), list.get(list.size() - 1));
+			list = list.removeLast();
+			expected.remove(expected.size() - 1);
+			if (expected.size() % 1023 == 0) {
+				assertEquals(expected, list);
+				assertEquals(expected, New.persistentListCopyOf(list.append(7)).removeLast());
+			}
+		}
+		assertSame(New.persistentListOf(), list);
+	}
+
+	@Test
+	void testListRejectsInvalidArguments() {
+		PersistentList<Integer> list = New.persistentListOf(1, 2, 3);
+		assertThrows(NullPointerException.class, () -> list.append(null));
+		assertThrows(NullPointerException.class, () -> list.with(0, null));
+		assertThrows(NullPointerException.class, () -> New.persistentListOf(1, null));
+		assertThrows(IndexOutOfBoundsException.class, () -> list.with(3, 4));
+		assertThrows(IndexOutOfBoundsException.class, () -> list.get(-1));
+		assertThrows(NoSuchElementException.class, () -> New.persistentListOf().removeLast());
+		assertThrows(UnsupportedOperationException.class, () -> list.add(4));
+		assertThrows(UnsupportedOperationException.class, () -> list.set(0, 4));
+	}
+
+	@Test
+	void testMapPlusMinus() {
+		PersistentMap<Colliding, Integer> map = New.persistentMapOf();
+		Map<Colliding, Integer> expected = new HashMap<>();
+		Random random = new Random(42);
+		for (int n = 0; n < 50_000; n++) {
+			Colliding key = new Colliding(random.nextInt(20_000));
+			if (random.nextInt(3) == 0) {
+				PersistentMap<Colliding, Integer> before = map;
+				map = map.minus(key);
+				assertEquals(expected.remove(key) != null, map != before);
+			}
+			else {
+				map = map.plus(key, n);
+				expected.put(key, n);
+			}
+			assertEquals(expected.size(), map.size());
+		}
+		assertEquals(expected, map);
+		assertEquals(map, expected);
+		assertEquals(expected.hashCode(), map.hashCode());
+		assertEquals(expected.keySet(), map.keySet());
+		for (int i = 0; i < 20_000; i++) {
+			Colliding key = new Colliding(i);
+			assertEquals(expected.get(key), map.get(key));
+		}
+		Map<Colliding, Integer> copy = new HashMap<>();
+		map.forEach(copy::put);
+		assertEquals(expected, copy);
+		for (Colliding key : expected.keySet()) {
+			map = map.minus(key);
+		}
+		assertTrue(map.isEmpty());
+		assertFalse(map.entrySet().iterator().hasNext());
+	}
+
+	@Test
+	void testMapKeepsOlderVersions() {
+		PersistentMap<String, Integer> empty = New.persistentMapOf();
+		PersistentMap<String, Integer> one = empty.plus("a", 1);
+		PersistentMap<String, Integer> two = one.plus("b", 2);
+		PersistentMap<String, Integer> replaced = two.plus("a", 3);
+		assertSame(two, two.plus("b", 2));
+		assertSame(two, two.minus("c"));
+		assertEquals(New.mapOf("a", 1), one);
+		assertEquals(New.mapOf("a", 1, "b", 2), two);
+		assertEquals(New.mapOf("a", 3, "b", 2), replaced);
+		assertEquals(New.mapOf("b", 2), replaced.minus("a"));
+		assertTrue(empty.isEmpty());
+		assertNull(two.get("c"));
+		assertThrows(NullPointerException.class, () -> two.get(null));
+		assertThrows(NullPointerException.class, () -> two.plus(null, 1));
+		assertThrows(NullPointerException.class, () -> two.plus("c", null));
+		assertThrows(NullPointerException.class, () -> two.minus(null));
+		assertThrows(UnsupportedOperationException.class, () -> two.put("c", 3));
+		assertSame(two, New.persistentMapCopyOf(two));
+		assertEquals(two, New.persistentMapCopyOf(new HashMap<>(two)));
+	}
+
+	@Test
+	void testSetPlusMinus() {
+		PersistentSet<Colliding> set = New.persistentSetOf();
+		Set<Colliding> expected = new HashSet<>();
+		Random random = new Random(7);
+		for (int n = 0; n < 20_000; n++) {
+			Colliding e = new Colliding(random.nextInt(5_000));
+			if (random.nextBoolean()) {
+				set = set.minus(e);
+				expected.remove(e);
+			}
+			else {
+				set = set.plus(e);
+				expected.add(e);
+			}
+		}
+		assertEquals(expected, set);
+		assertEquals(set, expected);
+		assertEquals(expected.hashCode(), set.hashCode());
+		assertEquals(expected, New.persistentSetCopyOf(new ArrayList<>(expected)));
+		assertSame(set, set.plus(set.iterator().next()));
+		IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+				() -> New.persistentSetOf("a", "b", "a"));
+		assertEquals("duplicate element: a", e.getMessage());
+		assertThrows(NullPointerException.class, () -> New.persistentSetOf("a", null));
+		assertThrows(UnsupportedOperationException.class, () -> New.persistentSetOf("a").add("b"));
+	}
+
+	@Test
+	void testSerializationKeepsPersistentForm() throws Exception {
+		PersistentList<Integer> list = New.persistentListOf();
+		PersistentSet<Integer> set = New.persistentSetOf();
+		PersistentMap<Integer, String> map = New.persistentMapOf();
+		for (int i = 0; i < 1_000; i++) {
+			list = list.append(i);
+			set = set.plus(i);
+			map = map.plus(i, "v" + i);
+		}
+		PersistentList<Integer> listCopy = roundTrip(list);
+		assertEquals(list, listCopy);
+		assertEquals(list.append(1), listCopy.append(1));
+		PersistentSet<Integer> setCopy = roundTrip(set);
+		assertEquals(set, setCopy);
+		assertEquals(set.minus(1), setCopy.minus(1));
+		PersistentMap<Integer, String> mapCopy = roundTrip(map);
+		assertEquals(map, mapCopy);
+		assertEquals(map.plus(1, "a"), mapCopy.plus(1, "a"));
+	}
+
+}
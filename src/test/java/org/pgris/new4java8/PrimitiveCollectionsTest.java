@@ -0,0 +1,106 @@
+package org.pgris.new4java8;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PrimitiveCollectionsTest {
+
+	@Test
+	void testIntListOf() {
+		int[] elements = { 3, 1, 2, 1 };
+		ImmutableIntList result = New.intListOf(elements);
+		elements[0] = 9;
+		assertEquals(4, result.size());
+		assertEquals(3, result.get(0));
+		assertEquals(1, result.indexOf(1));
+		assertEquals(3, result.lastIndexOf(1));
+		assertFalse(result.contains(9));
+		assertEquals(7, result.stream().sum());
+		List<Integer> boxed = result.asList();
+		assertEquals(Arrays.asList(3, 1, 2, 1), boxed);
+		assertEquals(boxed.hashCode(), result.hashCode());
+		assertEquals(result, New.intListOf(3, 1, 2, 1));
+		assertThrows(UnsupportedOperationException.class, () -> boxed.add(4));
+		assertThrows(IndexOutOfBoundsException.class, () -> result.get(4));
+		assertTrue(New.intListOf().isEmpty());
+	}
+
+	@Test
+	void testLongSetOf() {
+		long[] elements = new long[1000];
+		Set<Long> expected = new HashSet<>();
+		for (int i = 0; i < elements.length; i++) {
+			elements[i] = i - 500L;
+			expected.add(i - 500L);
+		}
+		ImmutableLongSet result = New.longSetOf(elements);
+		assertEquals(1000, result.size());
+		assertTrue(result.contains(0));
+		assertTrue(result.contains(-500));
+		assertFalse(result.contains(500));
+		assertEquals(expected, result.asSet());
+		assertEquals(result.asSet(), expected);
+		assertEquals(expected.hashCode(), result.hashCode());
+		assertEquals(1000, result.toArray().length);
+		assertEquals(result, New.longSetOf(elements));
+		assertThrows(UnsupportedOperationException.class, () -> result.asSet().add(1L));
+		assertThrows(IllegalArgumentException.class, () -> New.longSetOf(1, 2, 1));
+		assertThrows(IllegalArgumentException.class, () -> New.longSetOf(0, 2, 0));
+		assertFalse(New.longSetOf().contains(0));
+	}
+
+	@Test
+	void testIntIntMapOf() {
+		ImmutableIntIntMap result = New.intIntMapOf(new int[] { 0, 1, 2, -7 }, new int[] { 10, 11, 12, 13 });
+		assertEquals(4, result.size());
+		assertEquals(10, result.getOrDefault(0, -1));
+		assertEquals(13, result.getOrDefault(-7, -1));
+		assertEquals(-1, result.getOrDefault(3, -1));
+		assertTrue(result.containsKey(0));
+		assertFalse(result.containsKey(3));
+		Map<Integer, Integer> expected = new HashMap<>();
+		expected.put(0, 10);
+		expected.put(1, 11);
+		expected.put(2, 12);
+		expected.put(-7, 13);
+		assertEquals(expected, result.asMap());
+		assertEquals(result.asMap(), expected);
+		assertEquals(expected.hashCode(), result.hashCode());
+		assertNull(result.asMap().get(3));
+		assertThrows(UnsupportedOperationException.class, () -> result.asMap().put(3, 3));
+		assertThrows(IllegalArgumentException.class, () -> New.intIntMapOf(new int[] { 1, 1 }, new int[] { 1, 2 }));
+		assertThrows(IllegalArgumentException.class, () -> New.intIntMapOf(new int[] { 1 }, new int[] { 1, 2 }));
+	}
+
+	@Test
+	void testLongObjectMapOf() {
+		ImmutableLongObjectMap<String> result = New.longObjectMapOf(new long[] { 0, 1, Long.MIN_VALUE },
+				new String[] { "a", "b", "c" });
+		assertEquals(3, result.size());
+		assertEquals("a", result.get(0));
+		assertEquals("c", result.get(Long.MIN_VALUE));
+		assertNull(result.get(2));
+		Map<Long, String> expected = new HashMap<>();
+		expected.put(0L, "a");
+		expected.put(1L, "b");
+		expected.put(Long.MIN_VALUE, "c");
+		assertEquals(expected, result.asMap());
+		assertEquals(expected.hashCode(), result.hashCode());
+		assertThrows(NullPointerException.class, () -> New.longObjectMapOf(new long[] { 1 }, new String[] { null }));
+		assertThrows(IllegalArgumentException.class,
+				() -> New.longObjectMapOf(new long[] { 1, 1 }, new String[] { "a", "b" }));
+	}
+
+}
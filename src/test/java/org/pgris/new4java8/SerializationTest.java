@@ -0,0 +1,228 @@
+package org.pgris.new4java8;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class SerializationTest {
+
+	private static byte[] serialize(Object o) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(o);
+		}
+		return bytes.toByteArray();
+	}
+
+	private static Object deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+			return in.readObject();
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> T roundTrip(T o) throws IOException, ClassNotFoundException {
+		return (T) deserialize(serialize(o));
+	}
+
+	@Test
+	void testProxyRebuildsSameForm() throws Exception {
+		assumeFalse(Factories.USES_JDK_COLLECTIONS, "checks this library's own implementations");
+		List<Object> collections = New.listOf(New.listOf(), New.listOf(1), New.listOf(1, 2), New.listOf(1, 2, 3),
+				New.listOf(1, 2, 3, 4).subList(1, 3), New.setOf(), New.setOf(1), New.setOf(1, 2), New.setOf(1, 2, 3),
+				New.mapOf(), New.mapOf(1, "a"), New.mapOf(1, "a", 2, "b"),
+				New.mapOfEntriesPerfect(New.mapEntry(1, "a"), New.mapEntry(2, "b"), New.mapEntry(3, "c")));
+		for (Object o : collections) {
+			Object copy = roundTrip(o);
+			assertEquals(o, copy);
+			assertEquals(o.hashCode(), copy.hashCode());
+			if (!(o instanceof ImmutableCollections.SubList)) {
+				assertSame(o.getClass(), copy.getClass());
+			}
+		}
+		assertSame(New.listOf(), roundTrip(New.listOf()));
+		assertSame(New.setOf(), roundTrip(New.setOf()));
+		assertSame(New.mapOf(), roundTrip(New.mapOf()));
+		assertSame(ImmutableCollections.ListN.class, roundTrip(New.listOf(1, 2, 3, 4).subList(1, 4)).getClass());
+	}
+
+	@Test
+	void testProxyIsCompact() throws Exception {
+		assumeFalse(Factories.USES_JDK_COLLECTIONS, "checks this library's own implementations");
+		Set<Integer> set = IntStream.range(0, 1000).boxed().collect(New.toUnmodifiableSet());
+		// free slots are not written, so the set takes the same bytes as a list
+		assertEquals(serialize(New.listCopyOf(set)).length, serialize(set).length);
+	}
+
+	@Test
+	void testDirectStreamsAreRejected() throws Exception {
+		byte[] bytes = serialize(new ImmutableCollections.CollSer(99, 1, 2));
+		assertThrows(InvalidObjectException.class, () -> deserialize(bytes));
+		byte[] duplicates = serialize(new ImmutableCollections.CollSer(ImmutableCollections.CollSer.IMM_SET, 1, 1));
+		assertThrows(InvalidObjectException.class, () -> deserialize(duplicates));
+		byte[] odd = serialize(new ImmutableCollections.CollSer(ImmutableCollections.CollSer.IMM_MAP, 1, 2, 3));
+		assertThrows(InvalidObjectException.class, () -> deserialize(odd));
+	}
+
+	@Test
+	void testPrimitiveCollectionsRebuildTheirTables() throws Exception {
+		long[] longs = LongStream.range(-10, 1000).map(i -> i * 1_000_003).toArray();
+		int[] ints = IntStream.range(-10, 1000).toArray();
+		String[] values = IntStream.range(-10, 1000).mapToObj(Integer::toString).toArray(String[]::new);
+		List<Object> collections = New.listOf(New.longSetOf(longs), New.intIntMapOf(ints, ints),
+				New.longObjectMapOf(longs, values), New.longSetOf(), New.intIntMapOf(new int[0], new int[0]));
+		for (Object o : collections) {
+			byte[] bytes = serialize(o);
+			// tables are salted differently in every JVM, so they are never written
+			assertEquals(-1, indexOf(bytes, o.getClass().getSimpleName().getBytes(StandardCharsets.UTF_8)));
+			Object copy = deserialize(bytes);
+			assertEquals(o, copy);
+			assertEquals(o.hashCode(), copy.hashCode());
+		}
+		ImmutableLongSet set = roundTrip(New.longSetOf(longs));
+		ImmutableIntIntMap intMap = roundTrip(New.intIntMapOf(ints, ints));
+		ImmutableLongObjectMap<String> longMap = roundTrip(New.longObjectMapOf(longs, values));
+		for (int i = 0; i < longs.length; i++) {
+			assertTrue(set.contains(longs[i]));
+			assertEquals(ints[i], intMap.getOrDefault(ints[i], Integer.MIN_VALUE));
+			assertEquals(values[i], longMap.get(longs[i]));
+		}
+		assertSame(ImmutableLongSet.EMPTY, roundTrip(New.longSetOf()));
+		byte[] duplicates = serialize(new ImmutableCollections.CollSer(ImmutableCollections.CollSer.IMM_LONG_SET,
+				(Object) new long[] { 1, 1 }));
+		assertThrows(InvalidObjectException.class, () -> deserialize(duplicates));
+		byte[] lengths = serialize(new ImmutableCollections.CollSer(ImmutableCollections.CollSer.IMM_INT_INT_MAP,
+				new int[] { 1, 2 }, new int[] { 1 }));
+		assertThrows(InvalidObjectException.class, () -> deserialize(lengths));
+		byte[] types = serialize(new ImmutableCollections.CollSer(ImmutableCollections.CollSer.IMM_LONG_OBJECT_MAP,
+				new int[] { 1 }, new Object[] { "a" }));
+		assertThrows(InvalidObjectException.class, () -> deserialize(types));
+	}
+
+	@Test
+	void testForgedLengthFailsAtEndOfStream() throws Exception {
+		byte[] bytes = serialize(new ImmutableCollections.CollSer(ImmutableCollections.CollSer.IMM_LIST, 1, 2, 3));
+		// the length is the only content of its block: TC_BLOCKDATA, 4 bytes, then the
+		// int
+		byte[] length = { 0x77, 4, 0, 0, 0, 3 };
+		int at = indexOf(bytes, length);
+		assertTrue(at >= 0);
+		bytes[at + 2] = 0x7f;
+		bytes[at + 3] = (byte) 0xff;
+		bytes[at + 4] = (byte) 0xff;
+		bytes[at + 5] = (byte) 0xff;
+		// no OutOfMemoryError allocating the forged length up front
+		assertThrows(IOException.class, () -> deserialize(bytes));
+	}
+
+	@Test
+	void testSerialFilterLimitsProxyArrays() throws Exception {
+		assumeTrue(Factories.USES_JDK_COLLECTIONS, "streams have filters from the Java 9 classes of the jar");
+		List<Integer> list = New.persistentListCopyOf(IntStream.range(0, 200).boxed().collect(Collectors.toList()));
+		byte[] bytes = serialize(list);
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+			in.setObjectInputFilter(ObjectInputFilter.Config.createFilter("maxarray=100"));
+			assertThrows(InvalidClassException.class, in::readObject);
+		}
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+			in.setObjectInputFilter(ObjectInputFilter.Config.createFilter("maxarray=200"));
+			assertEquals(list, in.readObject());
+		}
+	}
+
+	private static int indexOf(byte[] bytes, byte[] part) {
+		for (int i = 0; i + part.length <= bytes.length; i++) {
+			if (Arrays.equals(Arrays.copyOfRange(bytes, i, i + part.length), part)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	@Test
+	void testBinaryCodec() throws IOException {
+		List<String> list = New.listOf("a", "b", "a");
+		Set<Long> set = New.setOf(1L, 2L, 3L);
+		Map<String, Integer> map = new HashMap<>();
+		for (int i = 0; i < 100; i++) {
+			map.put("k" + i, i);
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			BinaryCodec.writeCollection(out, list, BinaryCodec.ElementCodec.STRING);
+			BinaryCodec.writeCollection(out, set, BinaryCodec.ElementCodec.LONG);
+			BinaryCodec.writeMap(out, map, BinaryCodec.ElementCodec.STRING, BinaryCodec.ElementCodec.INTEGER);
+			BinaryCodec.writeMap(out, New.mapOf(), BinaryCodec.ElementCodec.STRING, BinaryCodec.ElementCodec.INTEGER);
+		}
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			assertEquals(list, BinaryCodec.readList(in, BinaryCodec.ElementCodec.STRING));
+			Set<Long> readSet = BinaryCodec.readSet(in, BinaryCodec.ElementCodec.LONG);
+			assertEquals(set, readSet);
+			assertThrows(UnsupportedOperationException.class, () -> readSet.add(4L));
+			assertEquals(map,
+					BinaryCodec.readMap(in, BinaryCodec.ElementCodec.STRING, BinaryCodec.ElementCodec.INTEGER));
+			assertSame(New.mapOf(),
+					BinaryCodec.readMap(in, BinaryCodec.ElementCodec.STRING, BinaryCodec.ElementCodec.INTEGER));
+		}
+	}
+
+	@Test
+	void testBinaryCodecRejectsInvalidData() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			BinaryCodec.writeCollection(out, New.listOf("a", "a"), BinaryCodec.ElementCodec.STRING);
+		}
+		assertThrows(IOException.class,
+				() -> BinaryCodec.readSet(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())),
+						BinaryCodec.ElementCodec.STRING));
+		List<String> withNull = new ArrayList<>();
+		withNull.add(null);
+		assertThrows(NullPointerException.class,
+				() -> BinaryCodec.writeCollection(new DataOutputStream(new ByteArrayOutputStream()), withNull,
+						BinaryCodec.ElementCodec.STRING));
+		assertThrows(IOException.class,
+				() -> BinaryCodec.readList(new DataInputStream(new ByteArrayInputStream(new byte[] { -1, -1, -1, -1 })),
+						BinaryCodec.ElementCodec.STRING));
+	}
+
+	@Test
+	void testBinaryCodecForgedSizesFailAtEndOfInput() {
+		byte[] list = { 0x7f, -1, -1, -1, 0, 0, 0, 1, 'a' };
+		assertThrows(EOFException.class, () -> BinaryCodec.readList(new DataInputStream(new ByteArrayInputStream(list)),
+				BinaryCodec.ElementCodec.STRING));
+		byte[] map = { 0x3f, -1, -1, -1, 0, 0, 0, 1, 'a', 0, 0, 0, 1 };
+		assertThrows(EOFException.class, () -> BinaryCodec.readMap(new DataInputStream(new ByteArrayInputStream(map)),
+				BinaryCodec.ElementCodec.STRING, BinaryCodec.ElementCodec.INTEGER));
+		byte[] string = { 0, 0, 0, 1, 0x7f, -1, -1, -1, 'a' };
+		assertThrows(EOFException.class, () -> BinaryCodec
+				.readList(new DataInputStream(new ByteArrayInputStream(string)), BinaryCodec.ElementCodec.STRING));
+	}
+
+}
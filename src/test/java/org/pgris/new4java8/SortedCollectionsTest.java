@@ -0,0 +1,199 @@
+package org.pgris.new4java8;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SortedCollectionsTest {
+
+	private static final Integer[] ELEMENTS = { 50, 10, 40, 20, 30 };
+
+	@SuppressWarnings("unchecked")
+	private static <T> T roundTrip(T o) throws IOException, ClassNotFoundException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(o);
+		}
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			return (T) in.readObject();
+		}
+	}
+
+	private static void assertNavigation(NavigableSet<Integer> expected, NavigableSet<Integer> actual) {
+		assertEquals(expected, actual);
+		assertEquals(new ArrayList<>(expected), new ArrayList<>(actual));
+		assertEquals(expected.hashCode(), actual.hashCode());
+		for (int e = 0; e <= 60; e += 5) {
+			assertEquals(expected.lower(e), actual.lower(e), "lower " + e);
+			assertEquals(expected.floor(e), actual.floor(e), "floor " + e);
+			assertEquals(expected.ceiling(e), actual.ceiling(e), "ceiling " + e);
+			assertEquals(expected.higher(e), actual.higher(e), "higher " + e);
+			assertEquals(expected.contains(e), actual.contains(e), "contains " + e);
+		}
+		if (expected.isEmpty()) {
+			assertThrows(NoSuchElementException.class, actual::first);
+			assertThrows(NoSuchElementException.class, actual::last);
+		}
+		else {
+			assertEquals(expected.first(), actual.first());
+			assertEquals(expected.last(), actual.last());
+		}
+	}
+
+	@Test
+	void testSortedSetMatchesTreeSet() {
+		TreeSet<Integer> tree = new TreeSet<>();
+		Collections.addAll(tree, ELEMENTS);
+		NavigableSet<Integer> set = New.sortedSetOf(ELEMENTS);
+		assertNavigation(tree, set);
+		assertNavigation(tree.descendingSet(), set.descendingSet());
+		assertNavigation(tree.descendingSet().descendingSet(), set.descendingSet().descendingSet());
+		for (int a = 5; a <= 55; a += 5) {
+			for (boolean ai : new boolean[] { true, false }) {
+				assertNavigation(tree.headSet(a, ai), set.headSet(a, ai));
+				assertNavigation(tree.tailSet(a, ai), set.tailSet(a, ai));
+				assertNavigation(tree.descendingSet().headSet(a, ai), set.descendingSet().headSet(a, ai));
+				assertNavigation(tree.descendingSet().tailSet(a, ai), set.descendingSet().tailSet(a, ai));
+				for (int b = a; b <= 55; b += 5) {
+					for (boolean bi : new boolean[] { true, false }) {
+						assertNavigation(tree.subSet(a, ai, b, bi), set.subSet(a, ai, b, bi));
+						assertNavigation(tree.descendingSet().subSet(b, bi, a, ai),
+								set.descendingSet().subSet(b, bi, a, ai));
+						assertNavigation(tree.subSet(a, ai, b, bi).descendingSet(),
+								set.subSet(a, ai, b, bi).descendingSet());
+					}
+				}
+			}
+		}
+		assertThrows(IllegalArgumentException.class, () -> set.subSet(40, 20));
+		assertThrows(IllegalArgumentException.class, () -> set.descendingSet().subSet(20, 40));
+	}
+
+	@Test
+	void testSortedSetWithComparator() {
+		NavigableSet<String> set = New.sortedSetOf(String.CASE_INSENSITIVE_ORDER, "b", "C", "a");
+		assertEquals(New.listOf("a", "b", "C"), new ArrayList<>(set));
+		assertTrue(set.contains("c"));
+		assertEquals(String.CASE_INSENSITIVE_ORDER, set.comparator());
+		assertEquals(New.listOf("C", "b", "a"), new ArrayList<>(set.descendingSet()));
+		assertTrue(set.descendingSet().comparator().compare("a", "b") > 0);
+		assertThrows(IllegalArgumentException.class, () -> New.sortedSetOf(String.CASE_INSENSITIVE_ORDER, "a", "A"));
+		assertThrows(NullPointerException.class, () -> New.sortedSetOf((Comparator<String>) null, "a"));
+	}
+
+	@Test
+	void testSortedSetRejectsInvalidElements() {
+		IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> New.sortedSetOf(1, 2, 1));
+		assertEquals("duplicate element: 1", e.getMessage());
+		assertThrows(NullPointerException.class, () -> New.sortedSetOf(1, null));
+		NavigableSet<Integer> set = New.sortedSetOf(1, 2);
+		assertThrows(NullPointerException.class, () -> set.contains(null));
+		assertThrows(NullPointerException.class, () -> set.ceiling(null));
+		assertFalse(((NavigableSet<?>) set).contains("1"));
+		assertThrows(UnsupportedOperationException.class, () -> set.add(3));
+		assertThrows(UnsupportedOperationException.class, set::pollFirst);
+		assertThrows(UnsupportedOperationException.class, () -> set.headSet(2).clear());
+		assertThrows(UnsupportedOperationException.class, () -> set.iterator().remove());
+	}
+
+	@Test
+	void testSortedSetSpliterator() {
+		NavigableSet<Integer> set = New.sortedSetOf(ELEMENTS);
+		Spliterator<Integer> spliterator = set.spliterator();
+		assertTrue(spliterator.hasCharacteristics(Spliterator.SORTED | Spliterator.DISTINCT | Spliterator.SIZED));
+		assertNull(spliterator.getComparator());
+		assertEquals(New.listOf(10, 20, 30, 40, 50), set.parallelStream().collect(Collectors.toList()));
+		assertEquals(New.listOf(50, 40, 30, 20, 10), set.descendingSet().stream().collect(Collectors.toList()));
+	}
+
+	@Test
+	void testSortedMapMatchesTreeMap() {
+		Map<Integer, String> source = new HashMap<>();
+		for (Integer e : ELEMENTS) {
+			source.put(e, "v" + e);
+		}
+		TreeMap<Integer, String> tree = new TreeMap<>(source);
+		NavigableMap<Integer, String> map = New.sortedMapOf(source);
+		assertEquals(tree, map);
+		assertEquals(map, tree);
+		assertEquals(tree.hashCode(), map.hashCode());
+		assertEquals(new ArrayList<>(tree.entrySet()), new ArrayList<>(map.entrySet()));
+		assertEquals(new ArrayList<>(tree.values()), new ArrayList<>(map.values()));
+		assertEquals(new ArrayList<>(tree.descendingMap().keySet()), new ArrayList<>(map.descendingMap().keySet()));
+		assertEquals(tree.firstEntry(), map.firstEntry());
+		assertEquals(tree.lastKey(), map.lastKey());
+		for (int k = 0; k <= 60; k += 5) {
+			assertEquals(tree.get(k), map.get(k));
+			assertEquals(tree.lowerEntry(k), map.lowerEntry(k));
+			assertEquals(tree.floorKey(k), map.floorKey(k));
+			assertEquals(tree.ceilingEntry(k), map.ceilingEntry(k));
+			assertEquals(tree.higherKey(k), map.higherKey(k));
+			assertEquals(tree.headMap(k, true), map.headMap(k, true));
+			assertEquals(tree.tailMap(k, false), map.tailMap(k, false));
+			assertEquals(new ArrayList<>(tree.descendingMap().headMap(k).keySet()),
+					new ArrayList<>(map.descendingMap().headMap(k).keySet()));
+		}
+		assertEquals(tree.subMap(15, 45), map.subMap(15, 45));
+		assertTrue(map.containsValue("v30"));
+		assertFalse(map.containsValue("v35"));
+		assertTrue(map.entrySet().contains(New.mapEntry(30, "v30")));
+		assertFalse(map.entrySet().contains(new AbstractMap.SimpleEntry<>(null, "v30")));
+		assertNull(New.sortedMapOf(new HashMap<Integer, String>()).firstEntry());
+		assertThrows(NoSuchElementException.class, () -> New.sortedMapOf(new HashMap<Integer, String>()).firstKey());
+		assertThrows(UnsupportedOperationException.class, () -> map.put(1, "a"));
+		assertThrows(UnsupportedOperationException.class, map::pollFirstEntry);
+	}
+
+	@Test
+	void testSortedMapRejectsDuplicateKeys() {
+		Map<String, Integer> source = new HashMap<>();
+		source.put("a", 1);
+		source.put("A", 2);
+		IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+				() -> New.sortedMapOf(String.CASE_INSENSITIVE_ORDER, source));
+		assertTrue(e.getMessage().startsWith("duplicated key:"));
+		assertThrows(NullPointerException.class, () -> New.sortedMapOf(Collections.singletonMap(1, null)));
+	}
+
+	@Test
+	void testSerializationKeepsOrder() throws Exception {
+		NavigableSet<String> set = New.sortedSetOf(String.CASE_INSENSITIVE_ORDER, "b", "C", "a");
+		NavigableSet<String> copy = roundTrip(set);
+		assertEquals(set, copy);
+		assertEquals(new ArrayList<>(set), new ArrayList<>(copy));
+		assertTrue(copy.contains("A"));
+		NavigableSet<Integer> descending = New.sortedSetOf(ELEMENTS).descendingSet().headSet(20, false);
+		assertEquals(new ArrayList<>(descending), new ArrayList<>(roundTrip(descending)));
+		Map<Integer, String> source = new HashMap<>();
+		source.put(2, "b");
+		source.put(1, "a");
+		NavigableMap<Integer, String> map = New.sortedMapOf(source).descendingMap();
+		NavigableMap<Integer, String> mapCopy = roundTrip(map);
+		assertEquals(map, mapCopy);
+		assertEquals(new ArrayList<>(map.keySet()), new ArrayList<>(mapCopy.keySet()));
+	}
+
+}
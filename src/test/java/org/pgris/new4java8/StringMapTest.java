@@ -0,0 +1,144 @@
+package org.pgris.new4java8;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.CharBuffer;
+import java.util.AbstractMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StringMapTest {
+
+	@SuppressWarnings("unchecked")
+	private static <T> T roundTrip(T o) throws IOException, ClassNotFoundException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(o);
+		}
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			return (T) in.readObject();
+		}
+	}
+
+	private static Map<String, String> headers() {
+		Map<String, String> headers = new LinkedHashMap<>();
+		headers.put("Content-Type", "text/plain");
+		headers.put("Content-Length", "42");
+		headers.put("X-Request-Id", "abc");
+		headers.put("Straße", "street");
+		return headers;
+	}
+
+	@Test
+	void testLookups() {
+		Map<String, Integer> expected = new HashMap<>();
+		for (int i = 0; i < 1_000; i++) {
+			expected.put("key" + i, i);
+		}
+		ImmutableStringMap<Integer> map = New.stringMapOf(expected);
+		assertEquals(expected, map);
+		assertEquals(map, expected);
+		assertEquals(expected.hashCode(), map.hashCode());
+		assertEquals(expected.keySet(), map.keySet());
+		assertFalse(map.ignoresCase());
+		StringBuilder buffer = new StringBuilder("GET /");
+		for (int i = 0; i < 1_100; i++) {
+			String key = "key" + i;
+			assertEquals(expected.get(key), map.get(key));
+			assertEquals(expected.containsKey(key), map.containsKey(key));
+			buffer.setLength(5);
+			buffer.append(key).append(" HTTP/1.1");
+			assertEquals(expected.get(key), map.get(buffer, 5, 5 + key.length()));
+			String line = buffer.toString();
+			assertEquals(expected.get(key), map.get(line, 5, 5 + key.length()));
+			assertEquals(expected.get(key), map.get(key, 0, key.length()));
+		}
+		assertNull(map.get("GET /key1 HTTP/1.1", 5, 8));
+		assertEquals(Integer.valueOf(1), map.get("key1: x", 0, 4));
+		assertEquals(Integer.valueOf(11), map.get("akey11", 1, 6));
+		assertNull(map.get("KEY1"));
+		assertNull(map.get(new StringBuilder("key1")));
+		assertNull(map.get(1));
+		assertTrue(map.containsValue(999));
+		assertFalse(map.containsValue(1_000));
+		assertThrows(NullPointerException.class, () -> map.get(null));
+		assertThrows(NullPointerException.class, () -> map.containsKey(null));
+		assertThrows(IndexOutOfBoundsException.class, () -> map.get("key1", 2, 5));
+		assertThrows(IndexOutOfBoundsException.class, () -> map.get("key1", 3, 2));
+		assertThrows(UnsupportedOperationException.class, () -> map.put("a", 1));
+		assertEquals(New.mapOf(), New.stringMapOf(New.mapOf()));
+		assertNull(New.stringMapOf(New.mapOf()).get("a", 0, 1));
+	}
+
+	@Test
+	void testIgnoreCase() {
+		ImmutableStringMap<String> map = New.stringMapOfIgnoreCase(headers());
+		assertTrue(map.ignoresCase());
+		assertEquals(headers(), map);
+		assertEquals(map, headers());
+		assertEquals(headers().hashCode(), map.hashCode());
+		assertEquals(headers().keySet(), map.keySet());
+		assertEquals("text/plain", map.get("content-type"));
+		assertEquals("42", map.get("CONTENT-LENGTH"));
+		assertEquals("street", map.get("STRAßE"));
+		assertTrue(map.containsKey("x-request-ID"));
+		CharBuffer request = CharBuffer.wrap("x-request-id: abc\r\ncontent-type: text/html\r\n");
+		assertEquals("abc", map.get(request, 0, 12));
+		assertEquals("text/plain", map.get(request, 19, 31));
+		assertNull(map.get(request, 0, 11));
+		assertNull(map.get("Content-Typ"));
+		assertTrue(map.entrySet().contains(New.mapEntry("Content-Type", "text/plain")));
+		assertFalse(map.entrySet().contains(New.mapEntry("content-type", "text/plain")));
+		assertFalse(map.entrySet().contains(new AbstractMap.SimpleEntry<>(null, "text/plain")));
+
+		Map<String, String> repeated = headers();
+		repeated.put("content-type", "text/html");
+		IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+				() -> New.stringMapOfIgnoreCase(repeated));
+		assertEquals("duplicated key:content-type", e.getMessage());
+		assertEquals(repeated, New.stringMapOf(repeated));
+	}
+
+	@Test
+	void testCopies() {
+		ImmutableStringMap<String> map = New.stringMapOf(headers());
+		ImmutableStringMap<String> ignoringCase = New.stringMapOfIgnoreCase(headers());
+		assertSame(map, New.stringMapOf(map));
+		assertSame(ignoringCase, New.stringMapOfIgnoreCase(ignoringCase));
+		assertNotSame(map, New.stringMapOfIgnoreCase(map));
+		assertFalse(New.stringMapOf(ignoringCase).ignoresCase());
+		assertEquals(map, ignoringCase);
+		assertEquals(map.hashCode(), ignoringCase.hashCode());
+		assertThrows(NullPointerException.class, () -> New.stringMapOf(null));
+		assertThrows(NullPointerException.class,
+				() -> New.stringMapOf(new HashMap<>(New.mapOf("a", "1", "b", "2"))).get(null));
+		Map<String, String> nullValue = new HashMap<>();
+		nullValue.put("a", null);
+		assertThrows(NullPointerException.class, () -> New.stringMapOf(nullValue));
+	}
+
+	@Test
+	void testSerialization() throws Exception {
+		ImmutableStringMap<String> map = roundTrip(New.stringMapOf(headers()));
+		assertEquals(headers(), map);
+		assertFalse(map.ignoresCase());
+		ImmutableStringMap<String> ignoringCase = roundTrip(New.stringMapOfIgnoreCase(headers()));
+		assertEquals(headers(), ignoringCase);
+		assertEquals("42", ignoringCase.get("content-length"));
+	}
+
+}